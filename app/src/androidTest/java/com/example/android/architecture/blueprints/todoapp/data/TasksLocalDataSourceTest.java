@@ -21,10 +21,13 @@ import androidx.test.filters.LargeTest;
 import androidx.test.runner.AndroidJUnit4;
 
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksDbHelper;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.BaseSchedulerProvider;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.ImmediateSchedulerProvider;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 
 import org.junit.After;
 import org.junit.Before;
@@ -33,8 +36,10 @@ import org.junit.runner.RunWith;
 
 import java.util.List;
 
+import rx.Observable;
 import rx.observers.TestSubscriber;
 
+import static com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource.LIST_DESCRIPTION_LENGTH;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsCollectionContaining.hasItems;
 import static org.hamcrest.core.IsNot.not;
@@ -42,6 +47,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Integration test for the {@link TasksDataSource}, which uses the {@link TasksDbHelper}.
@@ -74,6 +82,7 @@ public class TasksLocalDataSourceTest {
     @After
     public void cleanUp() {
         mLocalDataSource.deleteAllTasks();
+        TasksRepository.destroyInstance();
     }
 
     @Test
@@ -126,6 +135,24 @@ public class TasksLocalDataSourceTest {
         assertThat(result.isCompleted(), is(false));
     }
 
+    @Test
+    public void updateTask_updatesOnlyTheEditedFields() {
+        // Given a new task in the persistent repository
+        mLocalDataSource.saveTask(mTask).subscribe();
+
+        // When only its title is updated
+        TaskPatch patch = TaskPatch.diff(mTask, mTask.withTitle(TITLE2)).withTimestamp(42);
+        mLocalDataSource.updateTask(patch).subscribe();
+
+        // Then the task has the new title, stamped with the patch, and its other fields
+        TestSubscriber<Task> testSubscriber = new TestSubscriber<>();
+        mLocalDataSource.getTask(mTask.getId()).subscribe(testSubscriber);
+        Task result = testSubscriber.getOnNextEvents().get(0);
+        assertEquals(mTask.withTitle(TITLE2), result);
+        assertEquals(42, result.getTitleTimestamp());
+        assertEquals(mTask.getDescriptionTimestamp(), result.getDescriptionTimestamp());
+    }
+
     @Test
     public void clearCompletedTask_taskNotRetrievable() {
         // Given 2 new completed tasks and 1 active task in the persistent repository
@@ -243,6 +270,73 @@ public class TasksLocalDataSourceTest {
         assertTaskInLocalRepository(edited);
     }
 
+    @Test
+    public void saveTasks_replacesTasks() {
+        // Given that a task is saved
+        mLocalDataSource.saveTask(mTask).subscribe();
+        // Given a task with the same id
+        Task edited = new Task("edited", "edited", mTask.getId());
+
+        // When the tasks are saved
+        TestSubscriber testSubscriber = new TestSubscriber();
+        mLocalDataSource.saveTasks(Lists.newArrayList(edited)).subscribe(testSubscriber);
+
+        // No error is emitted
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertCompleted();
+        assertTaskInLocalRepository(edited);
+    }
+
+    @Test
+    public void refreshTasks_twiceOverTheSameRemoteTasks_completes() {
+        // Given a remote data source that always has the same tasks
+        TasksDataSource remoteDataSource = mock(TasksDataSource.class);
+        when(remoteDataSource.getTaskPages(anyInt()))
+                .thenReturn(Observable.just(Lists.newArrayList(mTask)));
+        TasksRepository repository = TasksRepository.getInstance(remoteDataSource,
+                mLocalDataSource, mSchedulerProvider);
+        repository.refreshTasks().await();
+
+        // When refreshing again, over the tasks saved by the first refresh
+        TestSubscriber testSubscriber = new TestSubscriber();
+        repository.refreshTasks().subscribe(testSubscriber);
+
+        // Then the refresh completes
+        testSubscriber.assertNoErrors();
+        testSubscriber.assertCompleted();
+        assertTaskInLocalRepository(mTask);
+    }
+
+    @Test
+    public void getTasks_truncatesLongDescriptions() {
+        // Given a task with a description longer than the list description
+        String description = Strings.repeat("d", 2 * LIST_DESCRIPTION_LENGTH);
+        mLocalDataSource.saveTask(new Task(TITLE, description)).subscribe();
+
+        // When the list of tasks is retrieved
+        TestSubscriber<List<Task>> testSubscriber = new TestSubscriber<>();
+        mLocalDataSource.getTasks().subscribe(testSubscriber);
+
+        // Then the description is truncated
+        List<Task> tasks = testSubscriber.getOnNextEvents().get(0);
+        assertThat(tasks.get(0).getDescription().length(), is(LIST_DESCRIPTION_LENGTH));
+    }
+
+    @Test
+    public void getTask_loadsFullDescription() {
+        // Given a task with a description longer than the list description
+        String description = Strings.repeat("d", 2 * LIST_DESCRIPTION_LENGTH);
+        Task task = new Task(TITLE, description);
+        mLocalDataSource.saveTask(task).subscribe();
+
+        // When the task is retrieved
+        TestSubscriber<Task> testSubscriber = new TestSubscriber<>();
+        mLocalDataSource.getTask(task.getId()).subscribe(testSubscriber);
+
+        // Then the full description is loaded
+        assertThat(testSubscriber.getOnNextEvents().get(0).getDescription(), is(description));
+    }
+
     private void assertTaskInLocalRepository(Task task) {
         // Given that we are subscribed to the list of tasks
         TestSubscriber<List<Task>> testSubscriber = new TestSubscriber<>();
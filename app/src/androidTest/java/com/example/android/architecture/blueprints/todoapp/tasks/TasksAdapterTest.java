@@ -0,0 +1,203 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.MediumTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.example.android.architecture.blueprints.todoapp.R;
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link TasksAdapter} only rebinds the rows of the tasks that changed.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class TasksAdapterTest {
+
+    private static final int TASKS_COUNT = 100;
+
+    private TasksAdapter mAdapter;
+
+    private BindCountingObserver mObserver;
+
+    @Before
+    public void setUp() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            mAdapter = new TasksAdapter(new TaskItemActionHandler() {
+                @Override
+                public void onTaskTapped(@NonNull String taskId) {
+                }
+
+                @Override
+                public void onTaskChecked(@NonNull String taskId, boolean checked) {
+                }
+            });
+            mObserver = new BindCountingObserver();
+            mAdapter.registerAdapterDataObserver(mObserver);
+        });
+    }
+
+    @Test
+    public void replaceData_withOneTaskCompleted_rebindsOneRow() throws Exception {
+        // Given a list of tasks displayed
+        List<Task> tasks = createTasks();
+        submitAndWait(toItems(tasks));
+
+        // When one task is completed
+        tasks.set(42, tasks.get(42).withCompleted(true));
+        mObserver.reset();
+        submitAndWait(toItems(tasks));
+
+        // Then only one row is rebound and the list is not fully refreshed
+        assertEquals(1, mObserver.mReboundRows);
+        assertEquals(0, mObserver.mFullRefreshes);
+    }
+
+    @Test
+    public void replaceData_withTaskRemoved_rebindsNoRow() throws Exception {
+        // Given a list of tasks displayed
+        List<Task> tasks = createTasks();
+        submitAndWait(toItems(tasks));
+
+        // When one task is removed
+        tasks.remove(10);
+        mObserver.reset();
+        submitAndWait(toItems(tasks));
+
+        // Then no row is rebound
+        assertEquals(0, mObserver.mReboundRows);
+        assertEquals(1, mObserver.mRemovedRows);
+    }
+
+    @Test
+    public void getItemId_isStableAcrossUpdates() throws Exception {
+        // Given a list of tasks displayed
+        List<Task> tasks = createTasks();
+        submitAndWait(toItems(tasks));
+        long id = mAdapter.getItemId(1);
+
+        // When the first task is removed
+        tasks.remove(0);
+        submitAndWait(toItems(tasks));
+
+        // Then the id of the task is the same at its new position
+        assertEquals(id, mAdapter.getItemId(0));
+    }
+
+    @Test
+    public void getItemId_isDerivedFromTheTaskId() throws Exception {
+        // Given a list of tasks displayed
+        List<Task> tasks = createTasks();
+        submitAndWait(toItems(tasks));
+
+        // Then every row has the id of its task, whatever the lists displayed before
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < TASKS_COUNT; i++) {
+            TaskItem item = new TaskItem(tasks.get(i).getId(), null, true, 0);
+            assertEquals(item.getStableId(), mAdapter.getItemId(i));
+            ids.add(mAdapter.getItemId(i));
+        }
+        assertEquals(TASKS_COUNT, ids.size());
+    }
+
+    private void submitAndWait(List<TaskItem> items) throws InterruptedException {
+        CountDownLatch latch = mObserver.expectUpdate();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(
+                () -> mAdapter.replaceData(items));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // let the differ dispatch all the updates of the submitted list
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    private static List<Task> createTasks() {
+        List<Task> tasks = new ArrayList<>(TASKS_COUNT);
+        for (int i = 0; i < TASKS_COUNT; i++) {
+            tasks.add(new Task("title" + i, "description" + i));
+        }
+        return tasks;
+    }
+
+    private static List<TaskItem> toItems(List<Task> tasks) {
+        List<TaskItem> items = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            int background = task.isCompleted()
+                    ? R.drawable.list_completed_touch_feedback
+                    : R.drawable.touch_feedback;
+            items.add(new TaskItem(task.getId(), task.getTitleForList(), task.isCompleted(),
+                    background));
+        }
+        return items;
+    }
+
+    private static class BindCountingObserver extends RecyclerView.AdapterDataObserver {
+
+        int mReboundRows;
+
+        int mRemovedRows;
+
+        int mFullRefreshes;
+
+        private CountDownLatch mLatch = new CountDownLatch(1);
+
+        CountDownLatch expectUpdate() {
+            mLatch = new CountDownLatch(1);
+            return mLatch;
+        }
+
+        void reset() {
+            mReboundRows = 0;
+            mRemovedRows = 0;
+            mFullRefreshes = 0;
+        }
+
+        @Override
+        public void onChanged() {
+            mFullRefreshes++;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mReboundRows += itemCount;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            onItemRangeChanged(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mReboundRows += itemCount;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mRemovedRows += itemCount;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mLatch.countDown();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.example.android.architecture.blueprints.todoapp.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the first layout of the list of tasks, the frame where the rows are created and bound,
+ * with the rows inflated during the layout and with rows inflated in advance and titles measured
+ * in the background.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class TasksListFirstLayoutTest {
+
+    private static final String TAG = TasksListFirstLayoutTest.class.getSimpleName();
+
+    private static final int TASKS_COUNT = 50;
+
+    private static final int PREWARMED_ROWS = 12;
+
+    private static final int RUNS = 5;
+
+    private static final int WIDTH = 1080;
+
+    private static final int HEIGHT = 1920;
+
+    @Test
+    public void firstLayout_withPrewarmedRowsAndPrecomputedTitles() throws Exception {
+        List<TaskItem> items = createItems();
+
+        long coldNanos = Long.MAX_VALUE;
+        long warmNanos = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            coldNanos = Math.min(coldNanos, measureFirstLayout(items, false));
+            warmNanos = Math.min(warmNanos, measureFirstLayout(items, true));
+        }
+
+        String times = "first layout of " + TASKS_COUNT + " tasks: "
+                + coldNanos / 1000 + " us inflating the rows, "
+                + warmNanos / 1000 + " us with prewarmed rows and precomputed titles";
+        Log.i(TAG, times);
+        assertTrue(times, warmNanos < coldNanos);
+    }
+
+    private long measureFirstLayout(List<TaskItem> items, boolean prewarm) throws Exception {
+        TaskTitleLayouts titleLayouts = new TaskTitleLayouts();
+        TaskRowPool rowPool = new TaskRowPool(titleLayouts);
+        RecyclerView[] list = new RecyclerView[1];
+        runOnMainSync(() -> {
+            list[0] = new RecyclerView(new ContextThemeWrapper(
+                    InstrumentationRegistry.getTargetContext(), R.style.AppTheme));
+            list[0].setLayoutManager(new LinearLayoutManager(list[0].getContext()));
+            TasksAdapter adapter = new TasksAdapter(new NoOpActionHandler(), rowPool,
+                    titleLayouts);
+            list[0].setAdapter(adapter);
+            adapter.replaceData(items);
+            if (prewarm) {
+                rowPool.prewarm(list[0], PREWARMED_ROWS);
+            }
+        });
+
+        if (prewarm) {
+            // wait for the rows inflated in the background and measure the titles off the main
+            // thread, like the fragment does when the UI model is emitted
+            waitForPool(rowPool);
+            titleLayouts.precompute(items);
+        }
+
+        long[] nanos = new long[1];
+        runOnMainSync(() -> {
+            long start = SystemClock.elapsedRealtimeNanos();
+            list[0].measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            list[0].layout(0, 0, WIDTH, HEIGHT);
+            nanos[0] = SystemClock.elapsedRealtimeNanos() - start;
+        });
+
+        if (prewarm) {
+            int[] left = new int[1];
+            runOnMainSync(() -> left[0] = rowPool.size());
+            // the first rows were taken from the pool
+            assertTrue(left[0] < PREWARMED_ROWS);
+        }
+        return nanos[0];
+    }
+
+    private static void waitForPool(TaskRowPool rowPool) throws InterruptedException {
+        int[] size = new int[1];
+        for (int attempt = 0; attempt < 100; attempt++) {
+            runOnMainSync(() -> size[0] = rowPool.size());
+            if (size[0] == PREWARMED_ROWS) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals(PREWARMED_ROWS, size[0]);
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    private static List<TaskItem> createItems() {
+        List<TaskItem> items = new ArrayList<>(TASKS_COUNT);
+        for (int i = 0; i < TASKS_COUNT; i++) {
+            items.add(new TaskItem("id" + i, "Title of the task number " + i, false,
+                    R.drawable.touch_feedback));
+        }
+        return items;
+    }
+
+    private static class NoOpActionHandler implements TaskItemActionHandler {
+
+        @Override
+        public void onTaskTapped(@NonNull String taskId) {
+        }
+
+        @Override
+        public void onTaskChecked(@NonNull String taskId, boolean checked) {
+        }
+    }
+}
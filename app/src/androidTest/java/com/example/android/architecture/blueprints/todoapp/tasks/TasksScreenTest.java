@@ -23,7 +23,8 @@ import androidx.test.rule.ActivityTestRule;
 import androidx.test.runner.AndroidJUnit4;
 import android.text.TextUtils;
 import android.view.View;
-import android.widget.ListView;
+
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android.architecture.blueprints.todoapp.Injection;
 import com.example.android.architecture.blueprints.todoapp.R;
@@ -96,11 +97,11 @@ public class TasksScreenTest {
             };
 
     /**
-     * A custom {@link Matcher} which matches an item in a {@link ListView} by its text.
+     * A custom {@link Matcher} which matches an item in a {@link RecyclerView} by its text.
      * <p>
      * View constraints:
      * <ul>
-     * <li>View must be a child of a {@link ListView}
+     * <li>View must be a child of a {@link RecyclerView}
      * <ul>
      *
      * @param itemText the text to match
@@ -112,13 +113,13 @@ public class TasksScreenTest {
             @Override
             public boolean matchesSafely(View item) {
                 return allOf(
-                        isDescendantOfA(isAssignableFrom(ListView.class)),
+                        isDescendantOfA(isAssignableFrom(RecyclerView.class)),
                         withText(itemText)).matches(item);
             }
 
             @Override
             public void describeTo(Description description) {
-                description.appendText("is isDescendantOfA LV with text " + itemText);
+                description.appendText("is isDescendantOfA RV with text " + itemText);
             }
         };
     }
@@ -3,8 +3,10 @@ package com.example.android.architecture.blueprints.todoapp;
 import android.app.Application;
 import android.os.StrictMode;
 
+import com.example.android.architecture.blueprints.todoapp.util.frames.JankMonitor;
+
 /**
- * Application class, used for setting the StrictMode.
+ * Application class, used for setting the StrictMode and starting the frame metrics.
  */
 public class ToDoApplication extends Application {
 
@@ -14,6 +16,8 @@ public class ToDoApplication extends Application {
             setStrictMode();
         }
         super.onCreate();
+        JankMonitor.getInstance().start(this);
+        Injection.provideSyncScheduler(this).start();
     }
 
     private void setStrictMode() {
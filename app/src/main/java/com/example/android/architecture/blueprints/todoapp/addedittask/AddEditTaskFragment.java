@@ -62,6 +62,13 @@ public class AddEditTaskFragment extends Fragment {
         return fragment;
     }
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // keep the ViewModel and its latest UI model across configuration changes
+        setRetainInstance(true);
+    }
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -73,7 +80,9 @@ public class AddEditTaskFragment extends Fragment {
 
         setupFab();
 
-        mViewModel = AddEditTaskModule.createAddEditTaskViewModel(getTaskId(), getActivity());
+        if (mViewModel == null) {
+            mViewModel = AddEditTaskModule.createAddEditTaskViewModel(getTaskId(), this);
+        }
         restoreData(savedInstanceState);
 
         return root;
@@ -91,6 +100,15 @@ public class AddEditTaskFragment extends Fragment {
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        // the fragment is not retained anymore, so the ViewModel can release its subscriptions
+        if (mViewModel != null) {
+            mViewModel.clear();
+        }
+        super.onDestroy();
+    }
+
     private void bindViewModel() {
         // using a CompositeSubscription to gather all the subscriptions, so all of them can be
         // later unsubscribed together
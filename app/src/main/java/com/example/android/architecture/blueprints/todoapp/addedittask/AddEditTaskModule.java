@@ -1,10 +1,10 @@
 package com.example.android.architecture.blueprints.todoapp.addedittask;
 
-import android.app.Activity;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
 
 import com.example.android.architecture.blueprints.todoapp.Injection;
 import com.example.android.architecture.blueprints.todoapp.util.providers.BaseNavigator;
@@ -16,9 +16,9 @@ class AddEditTaskModule {
 
     @NonNull
     public static AddEditTaskViewModel createAddEditTaskViewModel(@Nullable String taskId,
-                                                                  @NonNull Activity activity) {
-        Context appContext = activity.getApplicationContext();
-        BaseNavigator navigationProvider = Injection.createNavigationProvider(activity);
+                                                                  @NonNull Fragment fragment) {
+        Context appContext = fragment.requireContext().getApplicationContext();
+        BaseNavigator navigationProvider = Injection.createNavigationProvider(fragment);
         return new AddEditTaskViewModel(taskId, Injection.provideTasksRepository(appContext),
                 createAddEditTaskNavigator(navigationProvider));
     }
@@ -7,7 +7,9 @@ import androidx.annotation.StringRes;
 
 import com.example.android.architecture.blueprints.todoapp.R;
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.util.RetainedStream;
 import com.google.common.base.Strings;
 
 import rx.Completable;
@@ -41,12 +43,21 @@ public class AddEditTaskViewModel {
     @Nullable
     private String mRestoredDescription;
 
+    // the task stays subscribed while the view is paused and is replayed when it's bound again
+    @NonNull
+    private final RetainedStream<Task> mTask;
+
+    // the last version of the task loaded, the edits are diffed against it
+    @Nullable
+    private volatile Task mLoadedTask;
+
     public AddEditTaskViewModel(@Nullable String taskId, @NonNull TasksRepository tasksRepository,
                                 @NonNull AddEditTaskNavigator navigator) {
         mTasksRepository = checkNotNull(tasksRepository, "TaskRepository cannot be null");
         mNavigator = checkNotNull(navigator, "navigator cannot be null");
         mTaskId = taskId;
         mSnackbarText = PublishSubject.create();
+        mTask = new RetainedStream<>(Observable.defer(this::loadTask));
     }
 
     /**
@@ -59,7 +70,8 @@ public class AddEditTaskViewModel {
     }
 
     /**
-     * @return a stream containing the model for the UI.
+     * @return a stream containing the model for the UI. The latest task is replayed to every new
+     * subscriber, without loading it again, and the restored state is applied on top of it.
      */
     @NonNull
     public Observable<AddEditTaskUiModel> getUiModel() {
@@ -67,13 +79,26 @@ public class AddEditTaskViewModel {
             // new task. nothing to do here.
             return Observable.empty();
         }
-        return mTasksRepository
-                .getTask(mTaskId)
+        return mTask.get()
                 .map(this::restoreTask)
-                .doOnError(__ -> showSnackbar(R.string.empty_task_message))
                 .map(task -> new AddEditTaskUiModel(task.getTitle(), task.getDescription()));
     }
 
+    /**
+     * Releases the subscription to the task. Call it when the view is destroyed for good.
+     */
+    public void clear() {
+        mTask.clear();
+    }
+
+    @NonNull
+    private Observable<Task> loadTask() {
+        return mTasksRepository
+                .getTask(mTaskId)
+                .doOnNext(task -> mLoadedTask = task)
+                .doOnError(__ -> showSnackbar(R.string.empty_task_message));
+    }
+
     /**
      * Sets the restored state.
      *
@@ -89,7 +114,7 @@ public class AddEditTaskViewModel {
         String title = mRestoredTitle != null ? mRestoredTitle : task.getTitle();
         String description = mRestoredDescription != null ? mRestoredDescription : task.getDescription();
 
-        return new Task(title, description, task.getId());
+        return task.withTitle(title).withDescription(description);
     }
 
     /**
@@ -117,11 +142,24 @@ public class AddEditTaskViewModel {
                 return Completable.complete();
             }
         } else {
+            Task loadedTask = mLoadedTask;
+            if (loadedTask != null) {
+                // only the edited fields are updated, the completion of the task is kept
+                return updateTask(TaskPatch.diff(loadedTask,
+                        loadedTask.withTitle(title).withDescription(description)));
+            }
             newTask = new Task(title, description, mTaskId);
         }
         return mTasksRepository.saveTask(newTask);
     }
 
+    private Completable updateTask(TaskPatch patch) {
+        if (patch.isEmpty()) {
+            return Completable.complete();
+        }
+        return mTasksRepository.updateTask(patch);
+    }
+
     private void showSnackbar(@StringRes int textId) {
         mSnackbarText.onNext(textId);
     }
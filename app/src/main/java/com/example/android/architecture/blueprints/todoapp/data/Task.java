@@ -25,8 +25,14 @@ import com.google.common.base.Strings;
 
 import java.util.UUID;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Immutable model class for a Task.
+ * <p>
+ * Every field that can be edited has the timestamp of its last edit, so that the edits made
+ * concurrently on several devices can be merged field by field, see {@link #merge(Task)}. The
+ * timestamps are not part of the equality of the tasks, which only compares what is displayed.
  */
 public final class Task {
 
@@ -41,6 +47,15 @@ public final class Task {
 
     private final boolean mCompleted;
 
+    private final long mTitleTimestamp;
+
+    private final long mDescriptionTimestamp;
+
+    private final long mCompletedTimestamp;
+
+    // Tasks are immutable and used as keys while diffing lists, so the hash is computed once.
+    private final int mHashCode;
+
     /**
      * Use this constructor to create a new active Task.
      *
@@ -85,10 +100,31 @@ public final class Task {
      */
     public Task(@Nullable String title, @Nullable String description,
                 @NonNull String id, boolean completed) {
+        this(title, description, id, completed, 0, 0, 0);
+    }
+
+    /**
+     * Use this constructor to restore a Task with the timestamps of the last edits of its fields.
+     *
+     * @param title                title of the task
+     * @param description          description of the task
+     * @param id                   id of the task
+     * @param completed            true if the task is completed, false if it's active
+     * @param titleTimestamp       time of the last edit of the title
+     * @param descriptionTimestamp time of the last edit of the description
+     * @param completedTimestamp   time of the last completion or activation
+     */
+    public Task(@Nullable String title, @Nullable String description,
+                @NonNull String id, boolean completed, long titleTimestamp,
+                long descriptionTimestamp, long completedTimestamp) {
         mId = id;
         mTitle = title;
         mDescription = description;
         mCompleted = completed;
+        mTitleTimestamp = titleTimestamp;
+        mDescriptionTimestamp = descriptionTimestamp;
+        mCompletedTimestamp = completedTimestamp;
+        mHashCode = computeHashCode();
     }
 
     @NonNull
@@ -123,24 +159,155 @@ public final class Task {
         return !mCompleted;
     }
 
+    public long getTitleTimestamp() {
+        return mTitleTimestamp;
+    }
+
+    public long getDescriptionTimestamp() {
+        return mDescriptionTimestamp;
+    }
+
+    public long getCompletedTimestamp() {
+        return mCompletedTimestamp;
+    }
+
     public boolean isEmpty() {
         return Strings.isNullOrEmpty(mTitle) &&
                 Strings.isNullOrEmpty(mDescription);
     }
 
+    /**
+     * @param completed the completion state of the returned task
+     * @return this task if it already has the requested state, otherwise a copy sharing the id,
+     * title and description of this task
+     */
+    @NonNull
+    public Task withCompleted(boolean completed) {
+        if (mCompleted == completed) {
+            return this;
+        }
+        return new Task(mTitle, mDescription, mId, completed, mTitleTimestamp,
+                mDescriptionTimestamp, mCompletedTimestamp);
+    }
+
+    /**
+     * @param title the title of the returned task
+     * @return this task if the title is unchanged, otherwise a copy sharing the other fields
+     */
+    @NonNull
+    public Task withTitle(@Nullable String title) {
+        if (Objects.equal(mTitle, title)) {
+            return this;
+        }
+        return new Task(title, mDescription, mId, mCompleted, mTitleTimestamp,
+                mDescriptionTimestamp, mCompletedTimestamp);
+    }
+
+    /**
+     * @param description the description of the returned task
+     * @return this task if the description is unchanged, otherwise a copy sharing the other fields
+     */
+    @NonNull
+    public Task withDescription(@Nullable String description) {
+        if (Objects.equal(mDescription, description)) {
+            return this;
+        }
+        return new Task(mTitle, description, mId, mCompleted, mTitleTimestamp,
+                mDescriptionTimestamp, mCompletedTimestamp);
+    }
+
+    /**
+     * Marks the fields edited since a previous version of this task as edited at a given time.
+     *
+     * @param previous  the previous version of this task, null if the task is new
+     * @param timestamp the time of the edit
+     * @return a copy of this task where the fields that differ from the previous version have the
+     * timestamp of the edit and the other ones the timestamps of the previous version
+     */
+    @NonNull
+    public Task stampChanges(@Nullable Task previous, long timestamp) {
+        if (previous == null) {
+            return new Task(mTitle, mDescription, mId, mCompleted, timestamp, timestamp,
+                    timestamp);
+        }
+        return new Task(mTitle, mDescription, mId, mCompleted,
+                Objects.equal(mTitle, previous.mTitle) ? previous.mTitleTimestamp : timestamp,
+                Objects.equal(mDescription, previous.mDescription)
+                        ? previous.mDescriptionTimestamp
+                        : timestamp,
+                mCompleted == previous.mCompleted ? previous.mCompletedTimestamp : timestamp);
+    }
+
+    /**
+     * Merges two versions of this task, field by field: the last edit of every field wins. When
+     * two edits have the same timestamp, the greater value wins, a null text being the smallest
+     * and completed being greater than active. Like this the merge is commutative, associative
+     * and idempotent, so the versions edited on several devices converge whatever the order in
+     * which they are merged.
+     *
+     * @param other another version of this task
+     * @return the merged task, one of the two versions if it wins on every field
+     */
+    @NonNull
+    public Task merge(@NonNull Task other) {
+        checkArgument(mId.equals(other.mId), "Cannot merge different tasks");
+        boolean titleWins = wins(mTitleTimestamp, mTitle, other.mTitleTimestamp, other.mTitle);
+        boolean descriptionWins = wins(mDescriptionTimestamp, mDescription,
+                other.mDescriptionTimestamp, other.mDescription);
+        boolean completedWins = mCompletedTimestamp != other.mCompletedTimestamp
+                ? mCompletedTimestamp > other.mCompletedTimestamp
+                : mCompleted || !other.mCompleted;
+        if (titleWins && descriptionWins && completedWins) {
+            return this;
+        }
+        if (!titleWins && !descriptionWins && !completedWins) {
+            return other;
+        }
+        Task title = titleWins ? this : other;
+        Task description = descriptionWins ? this : other;
+        Task completed = completedWins ? this : other;
+        return new Task(title.mTitle, description.mDescription, mId, completed.mCompleted,
+                title.mTitleTimestamp, description.mDescriptionTimestamp,
+                completed.mCompletedTimestamp);
+    }
+
+    // @return true if the first value wins over the second one, also when they are the same
+    private static boolean wins(long timestamp, @Nullable String value, long otherTimestamp,
+                                @Nullable String otherValue) {
+        if (timestamp != otherTimestamp) {
+            return timestamp > otherTimestamp;
+        }
+        if (value == null || otherValue == null) {
+            return otherValue == null;
+        }
+        return value.compareTo(otherValue) >= 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Task task = (Task) o;
-        return Objects.equal(mId, task.mId) &&
+        return mHashCode == task.mHashCode &&
+                mCompleted == task.mCompleted &&
+                Objects.equal(mId, task.mId) &&
                 Objects.equal(mTitle, task.mTitle) &&
                 Objects.equal(mDescription, task.mDescription);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(mId, mTitle, mDescription);
+        return mHashCode;
+    }
+
+    private int computeHashCode() {
+        // same as Objects.hashCode(...) but without allocating the varargs array
+        int result = 1;
+        result = 31 * result + mId.hashCode();
+        result = 31 * result + (mTitle != null ? mTitle.hashCode() : 0);
+        result = 31 * result + (mDescription != null ? mDescription.hashCode() : 0);
+        result = 31 * result + (mCompleted ? 1231 : 1237);
+        return result;
     }
 
     @Override
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable partial update of a {@link Task}: only the fields that were edited, with the time of
+ * the edit. Like this, the edit of a single field doesn't send or rewrite the whole task.
+ */
+public final class TaskPatch {
+
+    @NonNull
+    private final String mTaskId;
+
+    private final boolean mHasTitle;
+
+    @Nullable
+    private final String mTitle;
+
+    private final boolean mHasDescription;
+
+    @Nullable
+    private final String mDescription;
+
+    private final boolean mHasCompleted;
+
+    private final boolean mCompleted;
+
+    private final long mTimestamp;
+
+    /**
+     * Use this constructor to restore a patch. The value of a field that is not edited is ignored.
+     *
+     * @param taskId         id of the edited task
+     * @param hasTitle       true if the title is edited
+     * @param title          the edited title
+     * @param hasDescription true if the description is edited
+     * @param description    the edited description
+     * @param hasCompleted   true if the task is completed or activated
+     * @param completed      true if the task is completed, false if it's activated
+     * @param timestamp      time of the edit
+     */
+    public TaskPatch(@NonNull String taskId, boolean hasTitle, @Nullable String title,
+                     boolean hasDescription, @Nullable String description, boolean hasCompleted,
+                     boolean completed, long timestamp) {
+        mTaskId = checkNotNull(taskId, "taskId cannot be null");
+        mHasTitle = hasTitle;
+        mTitle = hasTitle ? title : null;
+        mHasDescription = hasDescription;
+        mDescription = hasDescription ? description : null;
+        mHasCompleted = hasCompleted;
+        mCompleted = hasCompleted && completed;
+        mTimestamp = timestamp;
+    }
+
+    /**
+     * @param previous the task before the edit
+     * @param edited   the task after the edit
+     * @return a patch of the fields that differ between the two versions, not stamped yet
+     */
+    @NonNull
+    public static TaskPatch diff(@NonNull Task previous, @NonNull Task edited) {
+        checkArgument(previous.getId().equals(edited.getId()), "Cannot diff different tasks");
+        boolean hasTitle = !Objects.equal(previous.getTitle(), edited.getTitle());
+        boolean hasDescription =
+                !Objects.equal(previous.getDescription(), edited.getDescription());
+        boolean hasCompleted = previous.isCompleted() != edited.isCompleted();
+        return new TaskPatch(edited.getId(), hasTitle, edited.getTitle(), hasDescription,
+                edited.getDescription(), hasCompleted, edited.isCompleted(), 0);
+    }
+
+    /**
+     * @param taskId    id of the task
+     * @param completed true to complete the task, false to activate it
+     * @param timestamp time of the edit
+     * @return a patch of the completion of the task only
+     */
+    @NonNull
+    public static TaskPatch completion(@NonNull String taskId, boolean completed,
+                                       long timestamp) {
+        return new TaskPatch(taskId, false, null, false, null, true, completed, timestamp);
+    }
+
+    @NonNull
+    public String getTaskId() {
+        return mTaskId;
+    }
+
+    public boolean hasTitle() {
+        return mHasTitle;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public boolean hasDescription() {
+        return mHasDescription;
+    }
+
+    @Nullable
+    public String getDescription() {
+        return mDescription;
+    }
+
+    public boolean hasCompleted() {
+        return mHasCompleted;
+    }
+
+    public boolean isCompleted() {
+        return mCompleted;
+    }
+
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * @return true if the patch doesn't edit any field.
+     */
+    public boolean isEmpty() {
+        return !mHasTitle && !mHasDescription && !mHasCompleted;
+    }
+
+    /**
+     * @param timestamp the time of the edit
+     * @return a copy of this patch stamped with the time of the edit
+     */
+    @NonNull
+    public TaskPatch withTimestamp(long timestamp) {
+        return new TaskPatch(mTaskId, mHasTitle, mTitle, mHasDescription, mDescription,
+                mHasCompleted, mCompleted, timestamp);
+    }
+
+    /**
+     * Applies this patch to a version of the task, merging the edited fields like
+     * {@link Task#merge(Task)}: a field is only changed if the patch is its last edit.
+     *
+     * @param task a version of the edited task
+     * @return the patched task, the given version if the patch doesn't change any field
+     */
+    @NonNull
+    public Task applyTo(@NonNull Task task) {
+        checkArgument(mTaskId.equals(task.getId()), "Cannot patch a different task");
+        Task patched = new Task(
+                mHasTitle ? mTitle : task.getTitle(),
+                mHasDescription ? mDescription : task.getDescription(),
+                mTaskId,
+                mHasCompleted ? mCompleted : task.isCompleted(),
+                mHasTitle ? mTimestamp : task.getTitleTimestamp(),
+                mHasDescription ? mTimestamp : task.getDescriptionTimestamp(),
+                mHasCompleted ? mTimestamp : task.getCompletedTimestamp());
+        return task.merge(patched);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskPatch patch = (TaskPatch) o;
+        return mHasTitle == patch.mHasTitle &&
+                mHasDescription == patch.mHasDescription &&
+                mHasCompleted == patch.mHasCompleted &&
+                mCompleted == patch.mCompleted &&
+                mTimestamp == patch.mTimestamp &&
+                mTaskId.equals(patch.mTaskId) &&
+                Objects.equal(mTitle, patch.mTitle) &&
+                Objects.equal(mDescription, patch.mDescription);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(mTaskId, mHasTitle, mTitle, mHasDescription, mDescription,
+                mHasCompleted, mCompleted, mTimestamp);
+    }
+
+    @Override
+    public String toString() {
+        return "Patch of task " + mTaskId;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.subjects.AsyncSubject;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Batches the lookups of single tasks. The ids requested within a short window are collected,
+ * without duplicates, and loaded with one {@link TasksDataSource#getTasks(List)} call. Every
+ * caller then gets its own task.
+ * <p>
+ * Meant for the lookups of specific tasks on a remote data source, where every call pays the full
+ * latency, like prefetching details or checking conflicts. The app doesn't make such lookups yet:
+ * the repository reads single tasks from the local data source, so the loader isn't provided by
+ * the injection until a remote lookup needs it.
+ */
+public final class TaskBatchLoader {
+
+    @VisibleForTesting
+    static final long DEFAULT_WINDOW_MILLIS = 10;
+
+    @VisibleForTesting
+    static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    @NonNull
+    private final TasksDataSource mDataSource;
+
+    @NonNull
+    private final Scheduler.Worker mWorker;
+
+    private final long mWindowMillis;
+
+    private final int mMaxBatchSize;
+
+    // the results of the ids of the next batch, in the order they were requested
+    @NonNull
+    private Map<String, AsyncSubject<Task>> mPending = new LinkedHashMap<>();
+
+    public TaskBatchLoader(@NonNull TasksDataSource dataSource, @NonNull Scheduler scheduler) {
+        this(dataSource, scheduler, DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param dataSource   the data source the batches are loaded from.
+     * @param scheduler    the scheduler on which the batches are sent.
+     * @param windowMillis how long the ids are collected after the first id of a batch.
+     * @param maxBatchSize the number of ids after which a batch is sent without waiting.
+     */
+    public TaskBatchLoader(@NonNull TasksDataSource dataSource, @NonNull Scheduler scheduler,
+                           long windowMillis, int maxBatchSize) {
+        checkArgument(windowMillis >= 0, "windowMillis cannot be negative");
+        checkArgument(maxBatchSize > 0, "maxBatchSize should be positive");
+        mDataSource = checkNotNull(dataSource, "dataSource cannot be null");
+        mWorker = checkNotNull(scheduler, "scheduler cannot be null").createWorker();
+        mWindowMillis = windowMillis;
+        mMaxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @return an Observable that emits the task with this id, once its batch is loaded, and
+     * completes. It completes without task if the task doesn't exist.
+     */
+    @NonNull
+    public Observable<Task> load(@NonNull String taskId) {
+        checkNotNull(taskId);
+        return Observable.defer(() -> {
+            AsyncSubject<Task> result;
+            synchronized (this) {
+                result = mPending.get(taskId);
+                if (result == null) {
+                    result = AsyncSubject.create();
+                    mPending.put(taskId, result);
+                    if (mPending.size() == 1) {
+                        mWorker.schedule(this::flush, mWindowMillis, TimeUnit.MILLISECONDS);
+                    } else if (mPending.size() == mMaxBatchSize) {
+                        mWorker.schedule(this::flush);
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    private void flush() {
+        Map<String, AsyncSubject<Task>> batch;
+        synchronized (this) {
+            if (mPending.isEmpty()) {
+                // already sent when it was full
+                return;
+            }
+            batch = mPending;
+            mPending = new LinkedHashMap<>();
+        }
+        mDataSource.getTasks(new ArrayList<>(batch.keySet()))
+                .subscribe(
+                        // on next
+                        tasks -> {
+                            for (Task task : tasks) {
+                                AsyncSubject<Task> result = batch.get(task.getId());
+                                if (result != null) {
+                                    result.onNext(task);
+                                }
+                            }
+                        },
+                        // on error
+                        throwable -> {
+                            for (AsyncSubject<Task> result : batch.values()) {
+                                result.onError(throwable);
+                            }
+                        },
+                        // on completed
+                        () -> {
+                            for (AsyncSubject<Task> result : batch.values()) {
+                                result.onCompleted();
+                            }
+                        });
+    }
+}
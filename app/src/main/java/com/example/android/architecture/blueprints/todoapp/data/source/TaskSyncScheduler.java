@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.Priority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import rx.Completable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.subjects.AsyncSubject;
+import rx.subscriptions.CompositeSubscription;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Refreshes the tasks periodically, while the app is running.
+ * <p>
+ * The interval adapts to how often the tasks actually change: it is halved after a sync that
+ * changed the tasks and doubled after a sync that didn't, or that failed, within the min and max
+ * intervals. Every wake-up is moved randomly by up to a fraction of the interval, so that the
+ * clients don't all sync at the same time.
+ * <p>
+ * A wake-up is skipped if the tasks were refreshed less than half an interval before, by the user
+ * for example. The outbound work given to {@link #enqueue(Completable)} is run in order right
+ * before the refresh of the next wake-up, which is brought forward to the end of a short batching
+ * window, so the work queued together shares one wake-up. While started, the writes of the
+ * repository to the remote are queued that way, and its refreshes {@link #flush()} the queue
+ * first. The tasks read after a sync to adapt the interval are read at
+ * {@link Priority#BACKGROUND}, behind the queries of the screens.
+ * <p>
+ * All the timings use the clock of the given scheduler, so the scheduler can be tested on a
+ * virtual clock.
+ */
+public final class TaskSyncScheduler implements TasksRepository.OutboundQueue {
+
+    @VisibleForTesting
+    static final long DEFAULT_MIN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @VisibleForTesting
+    static final long DEFAULT_MAX_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    @VisibleForTesting
+    static final long DEFAULT_BATCH_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    // the fraction of the interval by which a wake-up can be moved, both ways
+    @VisibleForTesting
+    static final double JITTER = 0.1;
+
+    @NonNull
+    private final TasksRepository mRepository;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @NonNull
+    private final Random mRandom;
+
+    private final long mMinIntervalMillis;
+
+    private final long mMaxIntervalMillis;
+
+    private final long mBatchWindowMillis;
+
+    // the work not done yet, in order, the head being the work running if a flush is running
+    @NonNull
+    private final List<Completable> mPending = new ArrayList<>();
+
+    // completes when the running flush has emptied the queue, null if no flush is running
+    @Nullable
+    private AsyncSubject<Void> mFlush;
+
+    private long mIntervalMillis;
+
+    // the time of the last successful refresh, negative if there was none
+    private long mLastRefreshMillis = -1;
+
+    // the tasks after the last sync, to detect whether the next sync changed them
+    @Nullable
+    private List<Task> mLastTasks;
+
+    @Nullable
+    private CompositeSubscription mSubscriptions;
+
+    @Nullable
+    private Subscription mNextWakeUp;
+
+    private long mNextWakeUpMillis;
+
+    private boolean mSyncing;
+
+    public TaskSyncScheduler(@NonNull TasksRepository repository, @NonNull Scheduler scheduler,
+                             long seed) {
+        this(repository, scheduler, seed, DEFAULT_MIN_INTERVAL_MILLIS,
+                DEFAULT_MAX_INTERVAL_MILLIS, DEFAULT_BATCH_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param repository        the repository whose tasks are refreshed.
+     * @param scheduler         the scheduler on which the wake-ups are scheduled.
+     * @param seed              the seed of the jitter.
+     * @param minIntervalMillis the shortest interval, used when the tasks change often.
+     * @param maxIntervalMillis the longest interval, used when the tasks don't change.
+     * @param batchWindowMillis the delay after which the queued outbound work is sent.
+     */
+    public TaskSyncScheduler(@NonNull TasksRepository repository, @NonNull Scheduler scheduler,
+                             long seed, long minIntervalMillis, long maxIntervalMillis,
+                             long batchWindowMillis) {
+        checkArgument(minIntervalMillis > 0 && minIntervalMillis <= maxIntervalMillis,
+                "invalid intervals");
+        checkArgument(batchWindowMillis >= 0, "batchWindowMillis cannot be negative");
+        mRepository = checkNotNull(repository, "repository cannot be null");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+        mRandom = new Random(seed);
+        mMinIntervalMillis = minIntervalMillis;
+        mMaxIntervalMillis = maxIntervalMillis;
+        mBatchWindowMillis = batchWindowMillis;
+        mIntervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * Schedules the first wake-up, one interval from now, and queues the outbound writes of the
+     * repository from now on.
+     */
+    public synchronized void start() {
+        checkState(mSubscriptions == null, "already started");
+        mRepository.setOutboundQueue(this);
+        mSubscriptions = new CompositeSubscription();
+        mSubscriptions.add(mRepository.getRefreshes()
+                .subscribe(__ -> onRefreshed()));
+        scheduleWakeUp(jitter(mIntervalMillis));
+    }
+
+    /**
+     * Cancels the next wake-up. The queued work is kept for the next start, and the repository
+     * sends its writes right away until then.
+     */
+    public synchronized void stop() {
+        if (mSubscriptions != null) {
+            mRepository.setOutboundQueue(null);
+            mSubscriptions.unsubscribe();
+            mSubscriptions = null;
+            mNextWakeUp = null;
+        }
+    }
+
+    /**
+     * Queues outbound work, run before the refresh of the next wake-up. The work is run again at
+     * the following wake-up if it fails.
+     */
+    @Override
+    public synchronized void enqueue(@NonNull Completable work) {
+        mPending.add(checkNotNull(work));
+        if (mSubscriptions != null && !mSyncing
+                && mNextWakeUpMillis > mScheduler.now() + mBatchWindowMillis) {
+            scheduleWakeUp(mBatchWindowMillis);
+        }
+    }
+
+    /**
+     * Runs the queued work one piece after the other, in the order it was queued, as a write can
+     * undo the previous one, like the deletion of a saved task. The work queued meanwhile is run
+     * by the same flush. The queue stops at the first failure, which is run again first.
+     *
+     * @return a Completable that completes once the queue is empty, or emits the first failure.
+     */
+    @NonNull
+    @Override
+    public Completable flush() {
+        return Completable.defer(() -> {
+            AsyncSubject<Void> flush;
+            boolean start;
+            synchronized (this) {
+                start = mFlush == null;
+                if (start) {
+                    mFlush = AsyncSubject.create();
+                }
+                flush = mFlush;
+            }
+            if (start) {
+                runHead(flush);
+            }
+            return flush.toCompletable();
+        });
+    }
+
+    /**
+     * @return the current interval between two syncs, without the jitter.
+     */
+    public synchronized long getIntervalMillis() {
+        return mIntervalMillis;
+    }
+
+    private synchronized void onRefreshed() {
+        mLastRefreshMillis = mScheduler.now();
+    }
+
+    private void wakeUp() {
+        synchronized (this) {
+            if (mSubscriptions == null) {
+                return;
+            }
+            long sinceRefresh = mScheduler.now() - mLastRefreshMillis;
+            if (mPending.isEmpty() && mLastRefreshMillis >= 0
+                    && sinceRefresh < mIntervalMillis / 2) {
+                // refreshed recently, so wait one interval after that refresh
+                scheduleWakeUp(jitter(mIntervalMillis - sinceRefresh));
+                return;
+            }
+            mSyncing = true;
+        }
+        sync();
+    }
+
+    private void runHead(@NonNull AsyncSubject<Void> flush) {
+        Completable head;
+        synchronized (this) {
+            head = mPending.isEmpty() ? null : mPending.get(0);
+            if (head == null) {
+                mFlush = null;
+            }
+        }
+        if (head == null) {
+            flush.onCompleted();
+            return;
+        }
+        head.subscribe(
+                // on completed
+                () -> {
+                    synchronized (this) {
+                        mPending.remove(0);
+                    }
+                    runHead(flush);
+                },
+                // on error, the work stays at the head of the queue
+                throwable -> {
+                    synchronized (this) {
+                        mFlush = null;
+                    }
+                    flush.onError(throwable);
+                });
+    }
+
+    private void sync() {
+        flush().andThen(mRepository.refreshTasks())
+                .subscribe(
+                        // on completed
+                        () -> mRepository.getTasks(Priority.BACKGROUND).first().subscribe(
+                                this::onSynced,
+                                throwable -> onSynced(null)),
+                        // on error
+                        throwable -> onSynced(null));
+    }
+
+    // @param tasks the tasks after the sync, or null if the sync failed.
+    private synchronized void onSynced(@Nullable List<Task> tasks) {
+        mSyncing = false;
+        if (tasks == null || mLastTasks != null && tasks.equals(mLastTasks)) {
+            mIntervalMillis = Math.min(mMaxIntervalMillis, mIntervalMillis * 2);
+        } else if (mLastTasks != null) {
+            mIntervalMillis = Math.max(mMinIntervalMillis, mIntervalMillis / 2);
+        }
+        if (tasks != null) {
+            mLastTasks = tasks;
+        }
+        if (mSubscriptions != null) {
+            // the work queued during a successful sync doesn't wait for the next interval
+            boolean batchQueued = tasks != null && !mPending.isEmpty();
+            scheduleWakeUp(batchQueued ? mBatchWindowMillis : jitter(mIntervalMillis));
+        }
+    }
+
+    private void scheduleWakeUp(long delayMillis) {
+        if (mNextWakeUp != null) {
+            mSubscriptions.remove(mNextWakeUp);
+        }
+        mNextWakeUpMillis = mScheduler.now() + delayMillis;
+        Scheduler.Worker worker = mScheduler.createWorker();
+        worker.schedule(this::wakeUp, delayMillis, TimeUnit.MILLISECONDS);
+        mSubscriptions.add(worker);
+        mNextWakeUp = worker;
+    }
+
+    private long jitter(long intervalMillis) {
+        double offset = (mRandom.nextDouble() * 2 - 1) * JITTER;
+        return Math.max(0, Math.round(intervalMillis * (1 + offset)));
+    }
+}
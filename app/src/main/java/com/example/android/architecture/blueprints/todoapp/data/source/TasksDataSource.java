@@ -20,6 +20,7 @@ package com.example.android.architecture.blueprints.todoapp.data.source;
 import androidx.annotation.NonNull;
 
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
 
 import java.util.List;
 
@@ -35,15 +36,39 @@ public interface TasksDataSource {
     @NonNull
     Observable<List<Task>> getTasks();
 
+    /**
+     * @param pageSize the maximum number of tasks in a page.
+     * @return an Observable that emits the tasks in pages, as soon as every page is available,
+     * and completes after the last page.
+     */
+    @NonNull
+    Observable<List<Task>> getTaskPages(int pageSize);
+
     @NonNull
     Observable<Task> getTask(@NonNull String taskId);
 
+    /**
+     * @param taskIds the ids of the tasks, without duplicates.
+     * @return an Observable that emits the tasks with these ids in one list and completes. The
+     * tasks that don't exist are left out.
+     */
+    @NonNull
+    Observable<List<Task>> getTasks(@NonNull List<String> taskIds);
+
     @NonNull
     Completable saveTask(@NonNull Task task);
 
     @NonNull
     Completable saveTasks(@NonNull List<Task> tasks);
 
+    /**
+     * @param patch the edited fields of a task.
+     * @return a Completable that completes when only the edited fields are updated. Nothing is
+     * updated if the task doesn't exist.
+     */
+    @NonNull
+    Completable updateTask(@NonNull TaskPatch patch);
+
     @NonNull
     Completable completeTask(@NonNull Task task);
 
@@ -19,14 +19,29 @@ package com.example.android.architecture.blueprints.todoapp.data.source;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.CircuitOpenException;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.TaskChange;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.TaskMutation;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.BaseSchedulerProvider;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.Priority;
+import com.google.common.collect.Lists;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import rx.Completable;
 import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func2;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -36,9 +51,46 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * For simplicity, this implements a dumb synchronisation between locally persisted data and data
  * obtained from the server, by using the remote data source only if the local database doesn't
  * exist or is empty.
+ * <p>
+ * The edits are stamped field by field against the local version of the tasks and the tasks
+ * received from the remote are merged with their local version, see {@link Task#merge(Task)}. So
+ * the edits made concurrently on several devices don't overwrite each other.
+ * <p>
+ * The queries of the screens are {@link Priority#INTERACTIVE} and the refreshes, bulk saves and
+ * remote changes are {@link Priority#BACKGROUND}, their writes running on background workers of
+ * the database scheduler, so a big sync doesn't delay the queries waiting for the database.
+ * <p>
+ * The writes to the remote follow the local writes, right away or through the
+ * {@link OutboundQueue} given to {@link #setOutboundQueue(OutboundQueue)}, which sends them in
+ * order with the next sync. A refresh flushes the queue before fetching the tasks, so it doesn't
+ * bring back a task whose deletion is still queued.
  */
 public class TasksRepository implements TasksDataSource {
 
+    /**
+     * The writes to the remote waiting to be sent.
+     */
+    public interface OutboundQueue {
+
+        /**
+         * Queues the write, sent after the writes queued before it.
+         */
+        void enqueue(@NonNull Completable write);
+
+        /**
+         * @return a Completable sending the queued writes, that completes once they are all sent.
+         */
+        @NonNull
+        Completable flush();
+    }
+
+    // the number of tasks fetched and saved at once while refreshing
+    @VisibleForTesting
+    static final int REFRESH_PAGE_SIZE = 50;
+
+    // the number of local tasks looked up at once, below the number of parameters of a query
+    private static final int LOOKUP_SIZE = 500;
+
     @Nullable
     private static TasksRepository INSTANCE = null;
 
@@ -51,6 +103,15 @@ public class TasksRepository implements TasksDataSource {
     @NonNull
     private final BaseSchedulerProvider mBaseSchedulerProvider;
 
+    // the refreshes can complete on any thread
+    @NonNull
+    private final SerializedSubject<Void, Void> mRefreshes =
+            PublishSubject.<Void>create().toSerialized();
+
+    // the queue of the writes to the remote, null to send them right away
+    @Nullable
+    private volatile OutboundQueue mOutboundQueue;
+
     // Prevent direct instantiation.
     private TasksRepository(@NonNull TasksDataSource tasksRemoteDataSource,
                             @NonNull TasksDataSource tasksLocalDataSource,
@@ -85,12 +146,39 @@ public class TasksRepository implements TasksDataSource {
         INSTANCE = null;
     }
 
+    /**
+     * Queues the writes to the remote instead of sending them right away. The local writes are
+     * still done right away, and the writes complete once queued.
+     *
+     * @param queue the queue of the writes, or null to send them right away again.
+     */
+    public void setOutboundQueue(@Nullable OutboundQueue queue) {
+        mOutboundQueue = queue;
+    }
+
     /**
      * Gets tasks from  local data source (SQLite).
      */
     @Override
     public Observable<List<Task>> getTasks() {
-        return mTasksLocalDataSource.getTasks();
+        return getTasks(Priority.INTERACTIVE);
+    }
+
+    /**
+     * Gets tasks from the local data source (SQLite), with the priority of the work needing them.
+     */
+    @NonNull
+    public Observable<List<Task>> getTasks(@NonNull Priority priority) {
+        return checkNotNull(priority).apply(mTasksLocalDataSource.getTasks());
+    }
+
+    /**
+     * Gets the pages of tasks from the local data source (SQLite).
+     */
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTaskPages(int pageSize) {
+        return Priority.INTERACTIVE.apply(mTasksLocalDataSource.getTaskPages(pageSize));
     }
 
     /**
@@ -103,8 +191,11 @@ public class TasksRepository implements TasksDataSource {
     @Override
     public Completable saveTask(@NonNull Task task) {
         checkNotNull(task);
-        return mTasksLocalDataSource.saveTask(task)
-                .andThen(mTasksRemoteDataSource.saveTask(task));
+        return stampChanges(Collections.singletonList(task))
+                .flatMap(stamped -> mTasksLocalDataSource.saveTask(stamped.get(0))
+                        .andThen(toRemote(mTasksRemoteDataSource.saveTask(stamped.get(0))))
+                        .<Void>toObservable())
+                .toCompletable();
     }
 
     /**
@@ -116,41 +207,143 @@ public class TasksRepository implements TasksDataSource {
     @Override
     public Completable saveTasks(@NonNull List<Task> tasks) {
         checkNotNull(tasks);
+        return Priority.BACKGROUND.apply(stampChanges(tasks)
+                .flatMap(stamped -> saveInBackground(stamped)
+                        .andThen(toRemote(mTasksRemoteDataSource.saveTasks(stamped)))
+                        .<Void>toObservable())
+                .toCompletable());
+    }
+
+    /**
+     * @return a Completable sending the write when subscribed, or queueing it if there is an
+     * outbound queue.
+     */
+    @NonNull
+    private Completable toRemote(@NonNull Completable write) {
+        return Completable.defer(() -> {
+            OutboundQueue queue = mOutboundQueue;
+            if (queue == null) {
+                return write;
+            }
+            queue.enqueue(write);
+            return Completable.complete();
+        });
+    }
+
+    @NonNull
+    private Completable flushOutboundQueue() {
+        return Completable.defer(() -> {
+            OutboundQueue queue = mOutboundQueue;
+            return queue != null ? queue.flush() : Completable.complete();
+        });
+    }
+
+    // the transaction runs on the thread subscribing, so it is moved to a background worker of the
+    // database scheduler rather than holding the thread of an interactive query
+    @NonNull
+    private Completable saveInBackground(@NonNull List<Task> tasks) {
         return mTasksLocalDataSource.saveTasks(tasks)
-                .andThen(mTasksRemoteDataSource.saveTasks(tasks));
+                .subscribeOn(mBaseSchedulerProvider.database(Priority.BACKGROUND));
+    }
+
+    // only the fields that differ from the local version are stamped with the time of the edit
+    @NonNull
+    private Observable<List<Task>> stampChanges(@NonNull List<Task> tasks) {
+        long now = System.currentTimeMillis();
+        return withLocalVersions(tasks, (task, local) -> task.stampChanges(local, now));
+    }
+
+    @NonNull
+    private Observable<List<Task>> mergeWithLocal(@NonNull List<Task> tasks) {
+        return withLocalVersions(tasks, (task, local) -> local == null ? task : local.merge(task));
+    }
+
+    /**
+     * @param combine called with every task and its local version, null if the task is not saved
+     *                locally.
+     * @return an Observable that emits the combined tasks, in the same order, and completes.
+     */
+    @NonNull
+    private Observable<List<Task>> withLocalVersions(@NonNull List<Task> tasks,
+                                                     @NonNull Func2<Task, Task, Task> combine) {
+        List<String> ids = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return Observable.from(Lists.partition(ids, LOOKUP_SIZE))
+                .concatMap(mTasksLocalDataSource::getTasks)
+                .collect(HashMap<String, Task>::new, (locals, page) -> {
+                    for (Task local : page) {
+                        locals.put(local.getId(), local);
+                    }
+                })
+                .map(locals -> combineAll(tasks, locals, combine));
+    }
+
+    @NonNull
+    private static List<Task> combineAll(@NonNull List<Task> tasks,
+                                         @NonNull Map<String, Task> locals,
+                                         @NonNull Func2<Task, Task, Task> combine) {
+        List<Task> combined = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            combined.add(combine.call(task, locals.get(task.getId())));
+        }
+        return combined;
+    }
+
+    /**
+     * Stamps the patch with the time of the edit and updates the edited fields in the local and
+     * then in the remote repository. An empty patch is not sent.
+     *
+     * @param patch the edited fields of a task
+     * @return a completable that emits when the task was updated or in case of error.
+     */
+    @NonNull
+    @Override
+    public Completable updateTask(@NonNull TaskPatch patch) {
+        checkNotNull(patch);
+        if (patch.isEmpty()) {
+            return Completable.complete();
+        }
+        TaskPatch stamped = patch.withTimestamp(System.currentTimeMillis());
+        return mTasksLocalDataSource.updateTask(stamped)
+                .andThen(toRemote(mTasksRemoteDataSource.updateTask(stamped)));
     }
 
     @Override
     public Completable completeTask(@NonNull Task task) {
         checkNotNull(task);
-        return mTasksLocalDataSource.completeTask(task)
-                .andThen(mTasksRemoteDataSource.completeTask(task));
+        return completeTask(task.getId());
     }
 
+    /**
+     * Completes the task with a patch of its completion, stamped once by
+     * {@link #updateTask(TaskPatch)}, so the local and the remote versions have the same time.
+     */
     @Override
     public Completable completeTask(@NonNull String taskId) {
         checkNotNull(taskId);
-        return mTasksLocalDataSource.completeTask(taskId)
-                .andThen(mTasksRemoteDataSource.completeTask(taskId));
+        return updateTask(TaskPatch.completion(taskId, true, 0));
     }
 
     @Override
     public Completable activateTask(@NonNull Task task) {
         checkNotNull(task);
-        return mTasksLocalDataSource.activateTask(task)
-                .andThen(mTasksRemoteDataSource.activateTask(task));
+        return activateTask(task.getId());
     }
 
+    /**
+     * Activates the task like {@link #completeTask(String)}.
+     */
     @Override
     public Completable activateTask(@NonNull String taskId) {
         checkNotNull(taskId);
-        return mTasksLocalDataSource.activateTask(taskId)
-                .andThen(mTasksRemoteDataSource.activateTask(taskId));
+        return updateTask(TaskPatch.completion(taskId, false, 0));
     }
 
     @Override
     public void clearCompletedTasks() {
-        mTasksRemoteDataSource.clearCompletedTasks();
+        toRemote(Completable.fromAction(mTasksRemoteDataSource::clearCompletedTasks)).subscribe();
         mTasksLocalDataSource.clearCompletedTasks();
     }
 
@@ -160,26 +353,115 @@ public class TasksRepository implements TasksDataSource {
     @Override
     public Observable<Task> getTask(@NonNull final String taskId) {
         checkNotNull(taskId);
-        return mTasksLocalDataSource.getTask(taskId);
+        return Priority.INTERACTIVE.apply(mTasksLocalDataSource.getTask(taskId));
     }
 
     /**
-     * Get the tasks from the remote data source and save them in the local data source.
+     * Gets tasks from local data source (sqlite).
+     */
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTasks(@NonNull List<String> taskIds) {
+        checkNotNull(taskIds);
+        return mTasksLocalDataSource.getTasks(taskIds);
+    }
+
+    /**
+     * Get the tasks from the remote data source, merge them with their local version and save them
+     * in the local data source. Every page is saved as soon as it arrives, so the list of tasks is
+     * updated before the last page. While the remote is unhealthy, the refresh completes right away
+     * and the local tasks are served. The queued writes are sent first, so the tasks fetched have
+     * them.
      */
     @Override
     public Completable refreshTasks() {
-        return mTasksRemoteDataSource.getTasks()
+        return flushOutboundQueue()
+                .andThen(Observable.defer(
+                        () -> mTasksRemoteDataSource.getTaskPages(REFRESH_PAGE_SIZE)))
                 .subscribeOn(mBaseSchedulerProvider.io())
-                .doOnNext(mTasksLocalDataSource::saveTasks)
+                // the pages arrive on the threads of the remote, the priority is declared for each
+                .concatMap(page -> Priority.BACKGROUND.apply(mergeWithLocal(page)
+                        .concatMap(merged -> saveInBackground(merged)
+                                .<List<Task>>toObservable())))
+                .toCompletable()
+                .doOnCompleted(() -> mRefreshes.onNext(null))
+                .onErrorResumeNext(error -> error instanceof CircuitOpenException
+                        ? Completable.complete()
+                        : Completable.error(error));
+    }
+
+    /**
+     * Applies the changes made on the backend to the local data source, one by one and in order,
+     * instead of refreshing all the tasks.
+     *
+     * @param changes   the changes, usually the endless stream of a change feed.
+     * @param onApplied called with the event id of every change once it is applied, to
+     *                  acknowledge it to the feed.
+     * @return a Completable that completes when the changes complete and every change is applied.
+     */
+    @NonNull
+    public Completable applyChanges(@NonNull Observable<TaskChange> changes,
+                                    @NonNull Action1<Long> onApplied) {
+        checkNotNull(changes);
+        checkNotNull(onApplied);
+        return changes
+                .concatMap(change -> applyToLocal(change.getMutation())
+                        .subscribeOn(mBaseSchedulerProvider.database(Priority.BACKGROUND))
+                        .doOnCompleted(() -> onApplied.call(change.getEventId()))
+                        .<Void>toObservable())
                 .toCompletable();
     }
 
+    @NonNull
+    private Completable applyToLocal(@NonNull TaskMutation mutation) {
+        switch (mutation.getType()) {
+            case SAVE:
+                return mergeWithLocal(Collections.singletonList(mutation.getTask()))
+                        .flatMap(merged -> mTasksLocalDataSource.saveTask(merged.get(0))
+                                .<Void>toObservable())
+                        .toCompletable();
+            case UPDATE:
+            case COMPLETE:
+            case ACTIVATE:
+                // merged like a save, so an older patch doesn't overwrite a newer local edit
+                TaskPatch patch = mutation.getPatch();
+                return mTasksLocalDataSource.getTasks(Collections.singletonList(patch.getTaskId()))
+                        .flatMap(locals -> {
+                            if (locals.isEmpty()) {
+                                return Observable.empty();
+                            }
+                            Task local = locals.get(0);
+                            Task patched = patch.applyTo(local);
+                            return patched == local
+                                    ? Observable.<Void>empty()
+                                    : mTasksLocalDataSource.saveTask(patched).<Void>toObservable();
+                        })
+                        .toCompletable();
+            case DELETE:
+                return Completable.fromAction(
+                        () -> mTasksLocalDataSource.deleteTask(mutation.getTaskId()));
+            case CLEAR_COMPLETED:
+                return Completable.fromAction(mTasksLocalDataSource::clearCompletedTasks);
+            default:
+                throw new IllegalArgumentException("Unknown mutation " + mutation);
+        }
+    }
+
+    /**
+     * @return a stream that emits every time a refresh of the tasks completes, without emitting
+     * the refreshes skipped while the remote is unhealthy.
+     */
+    @NonNull
+    public Observable<Void> getRefreshes() {
+        return mRefreshes.asObservable();
+    }
+
     /**
      * Delete tasks from remote and local repositories.
      */
     @Override
     public void deleteAllTasks() {
-        mTasksRemoteDataSource.deleteAllTasks();
+        toRemote(Completable.fromAction(mTasksRemoteDataSource::deleteAllTasks)).subscribe();
         mTasksLocalDataSource.deleteAllTasks();
     }
 
@@ -190,7 +472,9 @@ public class TasksRepository implements TasksDataSource {
      */
     @Override
     public void deleteTask(@NonNull String taskId) {
-        mTasksRemoteDataSource.deleteTask(checkNotNull(taskId));
-        mTasksLocalDataSource.deleteTask(checkNotNull(taskId));
+        checkNotNull(taskId);
+        toRemote(Completable.fromAction(() -> mTasksRemoteDataSource.deleteTask(taskId)))
+                .subscribe();
+        mTasksLocalDataSource.deleteTask(taskId);
     }
 }
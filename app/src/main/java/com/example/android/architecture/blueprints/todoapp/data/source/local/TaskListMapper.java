@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.data.source.local;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.TaskEntry;
+import com.google.common.base.Objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the rows of a tasks query to a list of {@link Task}s, reusing the {@link Task} instance
+ * emitted by the previous query when the row did not change. Like this, unchanged tasks can be
+ * compared by reference and only the changed rows produce new objects.
+ */
+final class TaskListMapper {
+
+    // the tasks emitted by the previous query, by id
+    @NonNull
+    private Map<String, Task> mPreviousGeneration = Collections.emptyMap();
+
+    /**
+     * @param cursor the result of the tasks query. The cursor is closed after mapping.
+     * @return the tasks of the query or null if the query returned no cursor.
+     */
+    @Nullable
+    synchronized List<Task> map(@Nullable Cursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            int idIndex = cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_ENTRY_ID);
+            int titleIndex = cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_TITLE);
+            int descriptionIndex = cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION);
+            int completedIndex = cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED);
+            int titleTimestampIndex =
+                    cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP);
+            int descriptionTimestampIndex =
+                    cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP);
+            int completedTimestampIndex =
+                    cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP);
+
+            int count = cursor.getCount();
+            List<Task> tasks = new ArrayList<>(count);
+            Map<String, Task> generation = new HashMap<>(count * 4 / 3 + 1);
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(idIndex);
+                String title = cursor.getString(titleIndex);
+                String description = cursor.getString(descriptionIndex);
+                boolean completed = cursor.getInt(completedIndex) == 1;
+                long titleTimestamp = cursor.getLong(titleTimestampIndex);
+                long descriptionTimestamp = cursor.getLong(descriptionTimestampIndex);
+                long completedTimestamp = cursor.getLong(completedTimestampIndex);
+
+                Task task = reuseOrCreate(mPreviousGeneration.get(id), id, title, description,
+                        completed, titleTimestamp, descriptionTimestamp, completedTimestamp);
+                tasks.add(task);
+                generation.put(id, task);
+            }
+            mPreviousGeneration = generation;
+            return tasks;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @NonNull
+    private static Task reuseOrCreate(@Nullable Task previous, @NonNull String id,
+                                      @Nullable String title, @Nullable String description,
+                                      boolean completed, long titleTimestamp,
+                                      long descriptionTimestamp, long completedTimestamp) {
+        if (previous != null
+                && previous.isCompleted() == completed
+                && Objects.equal(previous.getTitle(), title)
+                && Objects.equal(previous.getDescription(), description)
+                && previous.getTitleTimestamp() == titleTimestamp
+                && previous.getDescriptionTimestamp() == descriptionTimestamp
+                && previous.getCompletedTimestamp() == completedTimestamp) {
+            return previous;
+        }
+        return new Task(title, description, id, completed, titleTimestamp, descriptionTimestamp,
+                completedTimestamp);
+    }
+}
@@ -21,7 +21,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
 public class TasksDbHelper extends SQLiteOpenHelper {
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 2;
 
     public static final String DATABASE_NAME = "Tasks.db";
 
@@ -29,6 +29,8 @@ public class TasksDbHelper extends SQLiteOpenHelper {
 
     private static final String BOOLEAN_TYPE = " INTEGER";
 
+    private static final String TIMESTAMP_TYPE = " INTEGER NOT NULL DEFAULT 0";
+
     private static final String COMMA_SEP = ",";
 
     private static final String SQL_CREATE_ENTRIES =
@@ -36,9 +38,22 @@ public class TasksDbHelper extends SQLiteOpenHelper {
                     TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE + " PRIMARY KEY," +
                     TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
                     TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + TEXT_TYPE + COMMA_SEP +
-                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED + BOOLEAN_TYPE +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED + BOOLEAN_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP + TIMESTAMP_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP + TIMESTAMP_TYPE + COMMA_SEP +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP + TIMESTAMP_TYPE +
             " )";
 
+    // the timestamps of the edits of the fields, added in version 2
+    private static final String[] SQL_ADD_TIMESTAMPS = {
+            "ALTER TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME + " ADD COLUMN " +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP + TIMESTAMP_TYPE,
+            "ALTER TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME + " ADD COLUMN " +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP + TIMESTAMP_TYPE,
+            "ALTER TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME + " ADD COLUMN " +
+                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP + TIMESTAMP_TYPE
+    };
+
     public TasksDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -48,10 +63,14 @@ public class TasksDbHelper extends SQLiteOpenHelper {
     }
 
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Not required as at version 1
+        if (oldVersion < 2) {
+            for (String sql : SQL_ADD_TIMESTAMPS) {
+                db.execSQL(sql);
+            }
+        }
     }
 
     public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Not required as at version 1
+        // Not required, the older versions ignore the columns they don't know
     }
 }
@@ -25,15 +25,20 @@ import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
 
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.TaskEntry;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.BaseSchedulerProvider;
+import com.google.common.collect.Lists;
 import com.squareup.sqlbrite.BriteDatabase;
 import com.squareup.sqlbrite.SqlBrite;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 import rx.Completable;
 import rx.Observable;
@@ -47,24 +52,54 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class TasksLocalDataSource implements TasksDataSource {
 
+    /**
+     * Maximum length of the descriptions loaded for the list of tasks. The full description is
+     * only loaded by {@link #getTask(String)}.
+     */
+    public static final int LIST_DESCRIPTION_LENGTH = 100;
+
+    private static final int TASK_CACHE_SIZE = 32;
+
+    private static final String[] TASK_PROJECTION = {
+            TaskEntry.COLUMN_NAME_ENTRY_ID,
+            TaskEntry.COLUMN_NAME_TITLE,
+            TaskEntry.COLUMN_NAME_DESCRIPTION,
+            TaskEntry.COLUMN_NAME_COMPLETED,
+            TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP,
+            TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP,
+            TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP
+    };
+
     @Nullable
     private static TasksLocalDataSource INSTANCE;
 
     @NonNull
     private final BriteDatabase mDatabaseHelper;
 
+    @NonNull
+    private final BaseSchedulerProvider mSchedulerProvider;
+
     @NonNull
     private Func1<Cursor, Task> mTaskMapperFunction;
 
+    @NonNull
+    private final TaskListMapper mTaskListMapper;
+
+    // fully loaded tasks, by id
+    @NonNull
+    private final LruCache<String, Task> mTaskCache;
+
     // Prevent direct instantiation.
     private TasksLocalDataSource(@NonNull Context context,
                                  @NonNull BaseSchedulerProvider schedulerProvider) {
         checkNotNull(context, "context cannot be null");
-        checkNotNull(schedulerProvider, "scheduleProvider cannot be null");
+        mSchedulerProvider = checkNotNull(schedulerProvider, "scheduleProvider cannot be null");
         TasksDbHelper dbHelper = new TasksDbHelper(context);
         SqlBrite sqlBrite = new SqlBrite.Builder().build();
-        mDatabaseHelper = sqlBrite.wrapDatabaseHelper(dbHelper, schedulerProvider.io());
+        mDatabaseHelper = sqlBrite.wrapDatabaseHelper(dbHelper, schedulerProvider.database());
         mTaskMapperFunction = this::getTask;
+        mTaskListMapper = new TaskListMapper();
+        mTaskCache = new LruCache<>(TASK_CACHE_SIZE);
     }
 
     public static TasksLocalDataSource getInstance(
@@ -88,38 +123,106 @@ public class TasksLocalDataSource implements TasksDataSource {
                 c.getString(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION));
         boolean completed =
                 c.getInt(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED)) == 1;
-        return new Task(title, description, itemId, completed);
+        long titleTimestamp =
+                c.getLong(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP));
+        long descriptionTimestamp =
+                c.getLong(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP));
+        long completedTimestamp =
+                c.getLong(c.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP));
+        return new Task(title, description, itemId, completed, titleTimestamp,
+                descriptionTimestamp, completedTimestamp);
     }
 
     /**
      * @return an Observable that emits the list of tasks in the database, every time the Tasks
-     * table is modified
+     * table is modified. Tasks whose row did not change since the previous emission are emitted as
+     * the same instance. The descriptions are truncated to {@link #LIST_DESCRIPTION_LENGTH}
+     * characters, use {@link #getTask(String)} to get the full task. The lists are emitted on the
+     * computation scheduler, so the work of the subscribers doesn't hold the database thread.
      */
     @Override
     public Observable<List<Task>> getTasks() {
+        String listDescription = String.format(Locale.US, "substr(%1$s, 1, %2$d) AS %1$s",
+                TaskEntry.COLUMN_NAME_DESCRIPTION, LIST_DESCRIPTION_LENGTH);
         String[] projection = {
                 TaskEntry.COLUMN_NAME_ENTRY_ID,
                 TaskEntry.COLUMN_NAME_TITLE,
-                TaskEntry.COLUMN_NAME_DESCRIPTION,
-                TaskEntry.COLUMN_NAME_COMPLETED
+                listDescription,
+                TaskEntry.COLUMN_NAME_COMPLETED,
+                TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP,
+                TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP,
+                TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP
         };
         String sql = String.format("SELECT %s FROM %s", TextUtils.join(",", projection), TaskEntry.TABLE_NAME);
         return mDatabaseHelper.createQuery(TaskEntry.TABLE_NAME, sql)
-                .mapToList(mTaskMapperFunction);
+                .map(query -> mTaskListMapper.map(query.run()))
+                .filter(tasks -> tasks != null)
+                .observeOn(mSchedulerProvider.computation());
+    }
+
+    /**
+     * @return an Observable that emits the current tasks of the database in pages and completes.
+     * The descriptions are truncated like in {@link #getTasks()}.
+     */
+    @Override
+    public Observable<List<Task>> getTaskPages(int pageSize) {
+        return getTasks()
+                .first()
+                .concatMap(tasks -> Observable.from(Lists.partition(tasks, pageSize)));
     }
 
+    /**
+     * @return an Observable that emits the fully loaded task, every time the Tasks table is
+     * modified, on the computation scheduler. If the task was recently loaded when subscribing, the
+     * cached task is emitted first.
+     */
     @Override
     public Observable<Task> getTask(@NonNull String taskId) {
-        String[] projection = {
-                TaskEntry.COLUMN_NAME_ENTRY_ID,
-                TaskEntry.COLUMN_NAME_TITLE,
-                TaskEntry.COLUMN_NAME_DESCRIPTION,
-                TaskEntry.COLUMN_NAME_COMPLETED
-        };
         String sql = String.format("SELECT %s FROM %s WHERE %s LIKE ?",
-                TextUtils.join(",", projection), TaskEntry.TABLE_NAME, TaskEntry.COLUMN_NAME_ENTRY_ID);
-        return mDatabaseHelper.createQuery(TaskEntry.TABLE_NAME, sql, taskId)
-                .mapToOneOrDefault(mTaskMapperFunction, null);
+                TextUtils.join(",", TASK_PROJECTION), TaskEntry.TABLE_NAME,
+                TaskEntry.COLUMN_NAME_ENTRY_ID);
+        Observable<Task> task = mDatabaseHelper.createQuery(TaskEntry.TABLE_NAME, sql, taskId)
+                .mapToOneOrDefault(mTaskMapperFunction, null)
+                .doOnNext(loadedTask -> cacheTask(taskId, loadedTask))
+                .observeOn(mSchedulerProvider.computation());
+
+        // the cache is read at every subscription, not when the Observable is built
+        return Observable.defer(() -> {
+            Task cachedTask = mTaskCache.get(taskId);
+            if (cachedTask == null) {
+                return task;
+            }
+            return task.startWith(cachedTask)
+                    .distinctUntilChanged();
+        });
+    }
+
+    /**
+     * @return an Observable that emits the fully loaded tasks with these ids and completes. There
+     * are at most 999 ids, the number of parameters of a query.
+     */
+    @Override
+    public Observable<List<Task>> getTasks(@NonNull List<String> taskIds) {
+        checkNotNull(taskIds);
+        if (taskIds.isEmpty()) {
+            return Observable.just(Collections.emptyList());
+        }
+        String placeholders = TextUtils.join(",", Collections.nCopies(taskIds.size(), "?"));
+        String sql = String.format("SELECT %s FROM %s WHERE %s IN (%s)",
+                TextUtils.join(",", TASK_PROJECTION), TaskEntry.TABLE_NAME,
+                TaskEntry.COLUMN_NAME_ENTRY_ID, placeholders);
+        return mDatabaseHelper.createQuery(TaskEntry.TABLE_NAME, sql,
+                taskIds.toArray(new String[taskIds.size()]))
+                .mapToList(mTaskMapperFunction)
+                .first();
+    }
+
+    private void cacheTask(@NonNull String taskId, @Nullable Task task) {
+        if (task != null) {
+            mTaskCache.put(taskId, task);
+        } else {
+            mTaskCache.remove(taskId);
+        }
     }
 
     @Override
@@ -128,6 +231,7 @@ public class TasksLocalDataSource implements TasksDataSource {
         return Completable.fromAction(() -> {
             ContentValues values = toContentValues(task);
             mDatabaseHelper.insert(TaskEntry.TABLE_NAME, values, SQLiteDatabase.CONFLICT_REPLACE);
+            mTaskCache.put(task.getId(), task);
         });
     }
 
@@ -149,8 +253,10 @@ public class TasksLocalDataSource implements TasksDataSource {
 
         return Observable.from(tasks)
                 .doOnNext(task -> {
+                    mTaskCache.remove(task.getId());
                     ContentValues values = toContentValues(task);
-                    mDatabaseHelper.insert(TaskEntry.TABLE_NAME, values);
+                    mDatabaseHelper.insert(TaskEntry.TABLE_NAME, values,
+                            SQLiteDatabase.CONFLICT_REPLACE);
                 })
                 .doOnCompleted(transaction::markSuccessful)
                 .toList();
@@ -162,25 +268,55 @@ public class TasksLocalDataSource implements TasksDataSource {
         values.put(TaskEntry.COLUMN_NAME_TITLE, task.getTitle());
         values.put(TaskEntry.COLUMN_NAME_DESCRIPTION, task.getDescription());
         values.put(TaskEntry.COLUMN_NAME_COMPLETED, task.isCompleted());
+        values.put(TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP, task.getTitleTimestamp());
+        values.put(TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP, task.getDescriptionTimestamp());
+        values.put(TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP, task.getCompletedTimestamp());
         return values;
     }
 
+    /**
+     * Updates only the columns of the edited fields, with the timestamp of the patch. The patch is
+     * an edit made on this device, so it is written without merging.
+     */
+    @Override
+    public Completable updateTask(@NonNull TaskPatch patch) {
+        checkNotNull(patch);
+        return Completable.fromAction(() -> {
+            ContentValues values = new ContentValues();
+            if (patch.hasTitle()) {
+                values.put(TaskEntry.COLUMN_NAME_TITLE, patch.getTitle());
+                values.put(TaskEntry.COLUMN_NAME_TITLE_TIMESTAMP, patch.getTimestamp());
+            }
+            if (patch.hasDescription()) {
+                values.put(TaskEntry.COLUMN_NAME_DESCRIPTION, patch.getDescription());
+                values.put(TaskEntry.COLUMN_NAME_DESCRIPTION_TIMESTAMP, patch.getTimestamp());
+            }
+            if (patch.hasCompleted()) {
+                values.put(TaskEntry.COLUMN_NAME_COMPLETED, patch.isCompleted());
+                values.put(TaskEntry.COLUMN_NAME_COMPLETED_TIMESTAMP, patch.getTimestamp());
+            }
+            if (values.size() == 0) {
+                return;
+            }
+
+            String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
+            String[] selectionArgs = {patch.getTaskId()};
+            mTaskCache.remove(patch.getTaskId());
+            mDatabaseHelper.update(TaskEntry.TABLE_NAME, values, selection, selectionArgs);
+        });
+    }
+
     @Override
     public Completable completeTask(@NonNull Task task) {
         checkNotNull(task);
         return completeTask(task.getId());
     }
 
+    // the repository completes the tasks with a stamped patch, this stamps direct calls only
     @Override
     public Completable completeTask(@NonNull String taskId) {
-        return Completable.fromAction(() -> {
-            ContentValues values = new ContentValues();
-            values.put(TaskEntry.COLUMN_NAME_COMPLETED, true);
-
-            String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
-            String[] selectionArgs = {taskId};
-            mDatabaseHelper.update(TaskEntry.TABLE_NAME, values, selection, selectionArgs);
-        });
+        return Completable.defer(() ->
+                updateTask(TaskPatch.completion(taskId, true, System.currentTimeMillis())));
     }
 
     @Override
@@ -190,20 +326,15 @@ public class TasksLocalDataSource implements TasksDataSource {
 
     @Override
     public Completable activateTask(@NonNull String taskId) {
-        return Completable.fromAction(() -> {
-            ContentValues values = new ContentValues();
-            values.put(TaskEntry.COLUMN_NAME_COMPLETED, false);
-
-            String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
-            String[] selectionArgs = {taskId};
-            mDatabaseHelper.update(TaskEntry.TABLE_NAME, values, selection, selectionArgs);
-        });
+        return Completable.defer(() ->
+                updateTask(TaskPatch.completion(taskId, false, System.currentTimeMillis())));
     }
 
     @Override
     public void clearCompletedTasks() {
         String selection = TaskEntry.COLUMN_NAME_COMPLETED + " LIKE ?";
         String[] selectionArgs = {"1"};
+        mTaskCache.evictAll();
         mDatabaseHelper.delete(TaskEntry.TABLE_NAME, selection, selectionArgs);
     }
 
@@ -216,6 +347,7 @@ public class TasksLocalDataSource implements TasksDataSource {
 
     @Override
     public void deleteAllTasks() {
+        mTaskCache.evictAll();
         mDatabaseHelper.delete(TaskEntry.TABLE_NAME, null);
     }
 
@@ -223,6 +355,7 @@ public class TasksLocalDataSource implements TasksDataSource {
     public void deleteTask(@NonNull String taskId) {
         String selection = TaskEntry.COLUMN_NAME_ENTRY_ID + " LIKE ?";
         String[] selectionArgs = {taskId};
+        mTaskCache.remove(taskId);
         mDatabaseHelper.delete(TaskEntry.TABLE_NAME, selection, selectionArgs);
     }
 }
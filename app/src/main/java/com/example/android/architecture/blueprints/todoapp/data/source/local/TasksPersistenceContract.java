@@ -34,5 +34,8 @@ public final class TasksPersistenceContract {
         public static final String COLUMN_NAME_TITLE = "title";
         public static final String COLUMN_NAME_DESCRIPTION = "description";
         public static final String COLUMN_NAME_COMPLETED = "completed";
+        public static final String COLUMN_NAME_TITLE_TIMESTAMP = "titletimestamp";
+        public static final String COLUMN_NAME_DESCRIPTION_TIMESTAMP = "descriptiontimestamp";
+        public static final String COLUMN_NAME_COMPLETED_TIMESTAMP = "completedtimestamp";
     }
 }
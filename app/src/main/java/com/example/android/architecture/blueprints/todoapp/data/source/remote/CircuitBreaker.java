@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stops the calls to an unhealthy remote. After a number of consecutive failures the circuit opens
+ * and the calls fail fast. Once the open duration elapsed, one trial call is let through: the
+ * circuit closes if it succeeds and opens again if it fails.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * The source of the current time, in milliseconds.
+     */
+    public interface Clock {
+        long now();
+    }
+
+    private final int mFailureThreshold;
+
+    private final long mOpenMillis;
+
+    @NonNull
+    private final Clock mClock;
+
+    @NonNull
+    private final RemoteCallMetrics mMetrics;
+
+    @NonNull
+    private State mState = State.CLOSED;
+
+    private int mConsecutiveFailures;
+
+    private long mOpenedAtMillis;
+
+    private boolean mTrialInFlight;
+
+    /**
+     * @param failureThreshold the number of consecutive failures that open the circuit.
+     * @param openMillis       the time the circuit stays open before a trial call.
+     * @param clock            the source of the current time.
+     * @param metrics          where the state changes are recorded.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, @NonNull Clock clock,
+                          @NonNull RemoteCallMetrics metrics) {
+        checkArgument(failureThreshold > 0, "failureThreshold should be positive");
+        checkArgument(openMillis >= 0, "openMillis cannot be negative");
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+        mClock = checkNotNull(clock, "clock cannot be null");
+        mMetrics = checkNotNull(metrics, "metrics cannot be null");
+    }
+
+    /**
+     * @return true if a call can be made. When it's the trial call of a half open circuit, its
+     * outcome must be reported with {@link #onSuccess()}, {@link #onFailure()} or
+     * {@link #onAbandoned()}.
+     */
+    public synchronized boolean allowRequest() {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (mClock.now() - mOpenedAtMillis < mOpenMillis) {
+                    return false;
+                }
+                setState(State.HALF_OPEN);
+                mTrialInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (mTrialInFlight) {
+                    return false;
+                }
+                mTrialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        mConsecutiveFailures = 0;
+        mTrialInFlight = false;
+        if (mState != State.CLOSED) {
+            setState(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        mTrialInFlight = false;
+        mConsecutiveFailures++;
+        if (mState == State.HALF_OPEN
+                || (mState == State.CLOSED && mConsecutiveFailures >= mFailureThreshold)) {
+            mOpenedAtMillis = mClock.now();
+            setState(State.OPEN);
+        }
+    }
+
+    /**
+     * Reports a call that was cancelled before its outcome was known.
+     */
+    public synchronized void onAbandoned() {
+        mTrialInFlight = false;
+    }
+
+    @NonNull
+    public synchronized State getState() {
+        return mState;
+    }
+
+    private void setState(@NonNull State state) {
+        mState = state;
+        mMetrics.onCircuitStateChanged(state);
+    }
+}
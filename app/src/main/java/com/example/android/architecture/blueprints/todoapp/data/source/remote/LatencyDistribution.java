@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Distribution of the latencies of a simulated network, in milliseconds. The samples only depend
+ * on the {@link Random} they are drawn from, so a seeded random replays the same latencies.
+ */
+public abstract class LatencyDistribution {
+
+    /**
+     * No latency.
+     */
+    public static final LatencyDistribution NONE = fixed(0);
+
+    /**
+     * @return a distribution that always returns the given latency.
+     */
+    @NonNull
+    public static LatencyDistribution fixed(long millis) {
+        checkArgument(millis >= 0, "millis cannot be negative");
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis(@NonNull Random random) {
+                return millis;
+            }
+        };
+    }
+
+    /**
+     * @return a distribution of latencies uniformly spread between the bounds, inclusive.
+     */
+    @NonNull
+    public static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        checkArgument(minMillis >= 0 && minMillis <= maxMillis, "invalid bounds");
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis(@NonNull Random random) {
+                return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+            }
+        };
+    }
+
+    /**
+     * Latencies of real networks are mostly close to the median, with a long tail of slow
+     * requests, which a lognormal distribution models well.
+     *
+     * @param medianMillis the median latency.
+     * @param sigma        the standard deviation of the logarithm of the latency. The larger it
+     *                     is, the longer the tail.
+     */
+    @NonNull
+    public static LatencyDistribution logNormal(long medianMillis, double sigma) {
+        checkArgument(medianMillis > 0, "medianMillis should be positive");
+        checkArgument(sigma >= 0, "sigma cannot be negative");
+        double mu = Math.log(medianMillis);
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis(@NonNull Random random) {
+                return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            }
+        };
+    }
+
+    /**
+     * @return a sample of the distribution, never negative.
+     */
+    public abstract long sampleMillis(@NonNull Random random);
+
+    /**
+     * @param probability the probability that a sample is a spike.
+     * @param spikeMillis the latency added to the samples that are spikes.
+     * @return this distribution, with occasional latency spikes.
+     */
+    @NonNull
+    public LatencyDistribution withSpikes(double probability, long spikeMillis) {
+        checkArgument(probability >= 0 && probability <= 1, "probability should be in [0, 1]");
+        checkArgument(spikeMillis >= 0, "spikeMillis cannot be negative");
+        LatencyDistribution base = this;
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis(@NonNull Random random) {
+                long latency = base.sampleMillis(random);
+                return random.nextDouble() < probability ? latency + spikeMillis : latency;
+            }
+        };
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable conditions of a simulated network: the latency of the requests, the rates of errors
+ * and timeouts and the bandwidth used to transfer the bodies.
+ */
+public final class NetworkConditions {
+
+    /**
+     * An ideal network, without latency nor faults.
+     */
+    public static final NetworkConditions NONE = new Builder().build();
+
+    /**
+     * Unlimited bandwidth.
+     */
+    public static final long UNLIMITED = 0;
+
+    @NonNull
+    private final LatencyDistribution mLatency;
+
+    private final double mErrorRate;
+
+    private final double mTimeoutRate;
+
+    private final long mTimeoutMillis;
+
+    private final long mBandwidthBytesPerSecond;
+
+    private NetworkConditions(@NonNull Builder builder) {
+        mLatency = builder.mLatency;
+        mErrorRate = builder.mErrorRate;
+        mTimeoutRate = builder.mTimeoutRate;
+        mTimeoutMillis = builder.mTimeoutMillis;
+        mBandwidthBytesPerSecond = builder.mBandwidthBytesPerSecond;
+    }
+
+    @NonNull
+    public LatencyDistribution getLatency() {
+        return mLatency;
+    }
+
+    public double getErrorRate() {
+        return mErrorRate;
+    }
+
+    public double getTimeoutRate() {
+        return mTimeoutRate;
+    }
+
+    public long getTimeoutMillis() {
+        return mTimeoutMillis;
+    }
+
+    public long getBandwidthBytesPerSecond() {
+        return mBandwidthBytesPerSecond;
+    }
+
+    /**
+     * @return the time to transfer a body of the given size.
+     */
+    long getTransferMillis(long bytes) {
+        if (mBandwidthBytesPerSecond == UNLIMITED) {
+            return 0;
+        }
+        return bytes * 1000 / mBandwidthBytesPerSecond;
+    }
+
+    @NonNull
+    public Builder newBuilder() {
+        return new Builder()
+                .setLatency(mLatency)
+                .setErrorRate(mErrorRate)
+                .setTimeout(mTimeoutRate, mTimeoutMillis)
+                .setBandwidth(mBandwidthBytesPerSecond);
+    }
+
+    public static final class Builder {
+
+        @NonNull
+        private LatencyDistribution mLatency = LatencyDistribution.NONE;
+
+        private double mErrorRate;
+
+        private double mTimeoutRate;
+
+        private long mTimeoutMillis;
+
+        private long mBandwidthBytesPerSecond = UNLIMITED;
+
+        @NonNull
+        public Builder setLatency(@NonNull LatencyDistribution latency) {
+            mLatency = checkNotNull(latency, "latency cannot be null");
+            return this;
+        }
+
+        /**
+         * @param errorRate the probability that a request fails after its latency.
+         */
+        @NonNull
+        public Builder setErrorRate(double errorRate) {
+            checkArgument(errorRate >= 0 && errorRate <= 1, "errorRate should be in [0, 1]");
+            mErrorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * @param timeoutRate   the probability that a request gets no response.
+         * @param timeoutMillis the time after which a request without response times out.
+         */
+        @NonNull
+        public Builder setTimeout(double timeoutRate, long timeoutMillis) {
+            checkArgument(timeoutRate >= 0 && timeoutRate <= 1, "timeoutRate should be in [0, 1]");
+            checkArgument(timeoutMillis >= 0, "timeoutMillis cannot be negative");
+            mTimeoutRate = timeoutRate;
+            mTimeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param bytesPerSecond the bandwidth, or {@link #UNLIMITED}.
+         */
+        @NonNull
+        public Builder setBandwidth(long bytesPerSecond) {
+            checkArgument(bytesPerSecond >= 0, "bytesPerSecond cannot be negative");
+            mBandwidthBytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        @NonNull
+        public NetworkConditions build() {
+            checkArgument(mErrorRate + mTimeoutRate <= 1,
+                    "the sum of the error and timeout rates cannot exceed 1");
+            return new NetworkConditions(this);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import rx.Observable;
+import rx.subjects.BehaviorSubject;
+
+/**
+ * Counters of the calls made to the remote data source, per {@link RemoteOperation}, and the
+ * state of its {@link CircuitBreaker}.
+ */
+public final class RemoteCallMetrics {
+
+    private static final int OPERATIONS = RemoteOperation.values().length;
+
+    @NonNull
+    private final AtomicLongArray mAttempts = new AtomicLongArray(OPERATIONS);
+
+    @NonNull
+    private final AtomicLongArray mRetries = new AtomicLongArray(OPERATIONS);
+
+    @NonNull
+    private final AtomicLongArray mFailures = new AtomicLongArray(OPERATIONS);
+
+    @NonNull
+    private final AtomicLongArray mTimeouts = new AtomicLongArray(OPERATIONS);
+
+    @NonNull
+    private final AtomicLongArray mRejections = new AtomicLongArray(OPERATIONS);
+
+    @NonNull
+    private final AtomicLong mStateChanges = new AtomicLong();
+
+    // using a BehaviorSubject so that new observers get the current state first
+    @NonNull
+    private final BehaviorSubject<CircuitBreaker.State> mCircuitState =
+            BehaviorSubject.create(CircuitBreaker.State.CLOSED);
+
+    void onAttempt(@NonNull RemoteOperation operation) {
+        mAttempts.incrementAndGet(operation.ordinal());
+    }
+
+    void onRetry(@NonNull RemoteOperation operation) {
+        mRetries.incrementAndGet(operation.ordinal());
+    }
+
+    void onFailure(@NonNull RemoteOperation operation) {
+        mFailures.incrementAndGet(operation.ordinal());
+    }
+
+    void onTimeout(@NonNull RemoteOperation operation) {
+        mTimeouts.incrementAndGet(operation.ordinal());
+    }
+
+    void onRejected(@NonNull RemoteOperation operation) {
+        mRejections.incrementAndGet(operation.ordinal());
+    }
+
+    void onCircuitStateChanged(@NonNull CircuitBreaker.State state) {
+        mStateChanges.incrementAndGet();
+        mCircuitState.onNext(state);
+    }
+
+    /**
+     * @return the number of calls made to the remote, retries included.
+     */
+    public long getAttemptCount(@NonNull RemoteOperation operation) {
+        return mAttempts.get(operation.ordinal());
+    }
+
+    public long getRetryCount(@NonNull RemoteOperation operation) {
+        return mRetries.get(operation.ordinal());
+    }
+
+    public long getRetryCount() {
+        return sum(mRetries);
+    }
+
+    /**
+     * @return the number of calls that failed, timeouts included.
+     */
+    public long getFailureCount(@NonNull RemoteOperation operation) {
+        return mFailures.get(operation.ordinal());
+    }
+
+    public long getTimeoutCount(@NonNull RemoteOperation operation) {
+        return mTimeouts.get(operation.ordinal());
+    }
+
+    /**
+     * @return the number of calls that failed fast because the circuit was open.
+     */
+    public long getRejectedCount(@NonNull RemoteOperation operation) {
+        return mRejections.get(operation.ordinal());
+    }
+
+    public long getCircuitStateChangeCount() {
+        return mStateChanges.get();
+    }
+
+    /**
+     * @return a stream of the states of the circuit, starting with the current one.
+     */
+    @NonNull
+    public Observable<CircuitBreaker.State> getCircuitStates() {
+        return mCircuitState.asObservable();
+    }
+
+    private static long sum(@NonNull AtomicLongArray counters) {
+        long sum = 0;
+        for (int i = 0; i < counters.length(); i++) {
+            sum += counters.get(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+/**
+ * The kinds of calls made to the remote data source, which can be configured separately.
+ */
+public enum RemoteOperation {
+
+    /**
+     * Loading the list of tasks, or one of its pages.
+     */
+    GET_TASKS,
+
+    /**
+     * Loading one task.
+     */
+    GET_TASK,
+
+    /**
+     * Saving tasks, which replaces the tasks with the same ids.
+     */
+    SAVE,
+
+    /**
+     * Completing or activating a task.
+     */
+    UPDATE,
+
+    /**
+     * Deleting tasks.
+     */
+    DELETE;
+
+    /**
+     * @return true if the operation can be repeated without changing its result. Saves replace the
+     * tasks by id and updates set the state of a task, so all the operations of the tasks API are
+     * idempotent.
+     */
+    public boolean isIdempotent() {
+        return true;
+    }
+}
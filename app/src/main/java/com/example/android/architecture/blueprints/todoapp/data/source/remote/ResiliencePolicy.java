@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable configuration of the {@link ResilientTasksDataSource}: the timeout of every
+ * operation, the retries of the failed idempotent operations and the thresholds of the circuit
+ * breaker.
+ */
+public final class ResiliencePolicy {
+
+    public static final ResiliencePolicy DEFAULT = new Builder().build();
+
+    @NonNull
+    private final Map<RemoteOperation, Long> mTimeoutsMillis;
+
+    private final int mMaxAttempts;
+
+    private final long mBaseBackoffMillis;
+
+    private final long mMaxBackoffMillis;
+
+    private final long mJitterSeed;
+
+    private final int mFailureThreshold;
+
+    private final long mOpenCircuitMillis;
+
+    private ResiliencePolicy(@NonNull Builder builder) {
+        mTimeoutsMillis = new EnumMap<>(builder.mTimeoutsMillis);
+        mMaxAttempts = builder.mMaxAttempts;
+        mBaseBackoffMillis = builder.mBaseBackoffMillis;
+        mMaxBackoffMillis = builder.mMaxBackoffMillis;
+        mJitterSeed = builder.mJitterSeed;
+        mFailureThreshold = builder.mFailureThreshold;
+        mOpenCircuitMillis = builder.mOpenCircuitMillis;
+    }
+
+    public long getTimeoutMillis(@NonNull RemoteOperation operation) {
+        return mTimeoutsMillis.get(operation);
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * @param retry the number of the retry, starting at 1.
+     * @return the upper bound of the delay before the retry, which doubles with every retry.
+     */
+    public long getMaxBackoffMillis(int retry) {
+        // capped before shifting too far
+        int shift = Math.min(retry - 1, 30);
+        return Math.min(mMaxBackoffMillis, mBaseBackoffMillis << shift);
+    }
+
+    public long getJitterSeed() {
+        return mJitterSeed;
+    }
+
+    public int getFailureThreshold() {
+        return mFailureThreshold;
+    }
+
+    public long getOpenCircuitMillis() {
+        return mOpenCircuitMillis;
+    }
+
+    public static final class Builder {
+
+        @NonNull
+        private final Map<RemoteOperation, Long> mTimeoutsMillis =
+                new EnumMap<>(RemoteOperation.class);
+
+        private int mMaxAttempts = 3;
+
+        private long mBaseBackoffMillis = 200;
+
+        private long mMaxBackoffMillis = TimeUnit.SECONDS.toMillis(5);
+
+        private long mJitterSeed = System.nanoTime();
+
+        private int mFailureThreshold = 5;
+
+        private long mOpenCircuitMillis = TimeUnit.SECONDS.toMillis(30);
+
+        public Builder() {
+            // loading the list transfers more than the other operations
+            mTimeoutsMillis.put(RemoteOperation.GET_TASKS, TimeUnit.SECONDS.toMillis(15));
+            mTimeoutsMillis.put(RemoteOperation.GET_TASK, TimeUnit.SECONDS.toMillis(10));
+            mTimeoutsMillis.put(RemoteOperation.SAVE, TimeUnit.SECONDS.toMillis(15));
+            mTimeoutsMillis.put(RemoteOperation.UPDATE, TimeUnit.SECONDS.toMillis(10));
+            mTimeoutsMillis.put(RemoteOperation.DELETE, TimeUnit.SECONDS.toMillis(10));
+        }
+
+        @NonNull
+        public Builder setTimeout(@NonNull RemoteOperation operation, long millis) {
+            checkArgument(millis > 0, "millis should be positive");
+            mTimeoutsMillis.put(checkNotNull(operation), millis);
+            return this;
+        }
+
+        /**
+         * @param maxAttempts the maximum number of calls of an idempotent operation, the first one
+         *                    included. 1 for no retry.
+         */
+        @NonNull
+        public Builder setMaxAttempts(int maxAttempts) {
+            checkArgument(maxAttempts > 0, "maxAttempts should be positive");
+            mMaxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * The delay before a retry is random, between 0 and the base delay doubled at every retry
+         * and capped to the max delay, so that the clients don't retry all at the same time.
+         */
+        @NonNull
+        public Builder setBackoff(long baseMillis, long maxMillis) {
+            checkArgument(baseMillis > 0 && baseMillis <= maxMillis, "invalid backoff");
+            mBaseBackoffMillis = baseMillis;
+            mMaxBackoffMillis = maxMillis;
+            return this;
+        }
+
+        @NonNull
+        public Builder setJitterSeed(long seed) {
+            mJitterSeed = seed;
+            return this;
+        }
+
+        /**
+         * @param failureThreshold the number of consecutive failures that open the circuit.
+         * @param openMillis       the time the calls fail fast before a trial call.
+         */
+        @NonNull
+        public Builder setCircuitBreaker(int failureThreshold, long openMillis) {
+            checkArgument(failureThreshold > 0, "failureThreshold should be positive");
+            checkArgument(openMillis >= 0, "openMillis cannot be negative");
+            mFailureThreshold = failureThreshold;
+            mOpenCircuitMillis = openMillis;
+            return this;
+        }
+
+        @NonNull
+        public ResiliencePolicy build() {
+            return new ResiliencePolicy(this);
+        }
+    }
+}
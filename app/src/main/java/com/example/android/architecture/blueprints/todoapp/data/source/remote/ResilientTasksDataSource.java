@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Completable;
+import rx.Observable;
+import rx.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Makes the calls to a remote data source resilient. Every call has a timeout, the idempotent
+ * calls that failed with a network error are retried after a jittered exponential backoff, and a
+ * {@link CircuitBreaker} fails the calls fast with a {@link CircuitOpenException} while the remote
+ * is unhealthy.
+ * <p>
+ * The void operations are not observed, so they are only forwarded.
+ */
+public class ResilientTasksDataSource implements TasksDataSource {
+
+    @NonNull
+    private final TasksDataSource mDelegate;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @NonNull
+    private final ResiliencePolicy mPolicy;
+
+    @NonNull
+    private final RemoteCallMetrics mMetrics;
+
+    @NonNull
+    private final CircuitBreaker mCircuitBreaker;
+
+    @NonNull
+    private final Random mJitter;
+
+    /**
+     * @param delegate  the remote data source.
+     * @param scheduler the scheduler of the timeouts and the retries, also used as clock.
+     * @param policy    the timeouts, retries and circuit breaker thresholds.
+     */
+    public ResilientTasksDataSource(@NonNull TasksDataSource delegate,
+                                    @NonNull Scheduler scheduler,
+                                    @NonNull ResiliencePolicy policy) {
+        mDelegate = checkNotNull(delegate, "delegate cannot be null");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+        mPolicy = checkNotNull(policy, "policy cannot be null");
+        mMetrics = new RemoteCallMetrics();
+        mCircuitBreaker = new CircuitBreaker(policy.getFailureThreshold(),
+                policy.getOpenCircuitMillis(), scheduler::now, mMetrics);
+        mJitter = new Random(policy.getJitterSeed());
+    }
+
+    @NonNull
+    public RemoteCallMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    @NonNull
+    public CircuitBreaker.State getCircuitState() {
+        return mCircuitBreaker.getState();
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTasks() {
+        return call(RemoteOperation.GET_TASKS, mDelegate.getTasks());
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTaskPages(int pageSize) {
+        // the timeout applies to every page, a retry starts again from the first page
+        return call(RemoteOperation.GET_TASKS, mDelegate.getTaskPages(pageSize));
+    }
+
+    @NonNull
+    @Override
+    public Observable<Task> getTask(@NonNull String taskId) {
+        return call(RemoteOperation.GET_TASK, mDelegate.getTask(taskId));
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTasks(@NonNull List<String> taskIds) {
+        return call(RemoteOperation.GET_TASK, mDelegate.getTasks(taskIds));
+    }
+
+    @NonNull
+    @Override
+    public Completable saveTask(@NonNull Task task) {
+        return call(RemoteOperation.SAVE, mDelegate.saveTask(task));
+    }
+
+    @NonNull
+    @Override
+    public Completable saveTasks(@NonNull List<Task> tasks) {
+        return call(RemoteOperation.SAVE, mDelegate.saveTasks(tasks));
+    }
+
+    @NonNull
+    @Override
+    public Completable updateTask(@NonNull TaskPatch patch) {
+        return call(RemoteOperation.UPDATE, mDelegate.updateTask(patch));
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTask(@NonNull Task task) {
+        return call(RemoteOperation.UPDATE, mDelegate.completeTask(task));
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTask(@NonNull String taskId) {
+        return call(RemoteOperation.UPDATE, mDelegate.completeTask(taskId));
+    }
+
+    @Override
+    public Completable activateTask(@NonNull Task task) {
+        return call(RemoteOperation.UPDATE, mDelegate.activateTask(task));
+    }
+
+    @Override
+    public Completable activateTask(@NonNull String taskId) {
+        return call(RemoteOperation.UPDATE, mDelegate.activateTask(taskId));
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        mDelegate.clearCompletedTasks();
+    }
+
+    @NonNull
+    @Override
+    public Completable refreshTasks() {
+        return mDelegate.refreshTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        mDelegate.deleteAllTasks();
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        mDelegate.deleteTask(taskId);
+    }
+
+    @NonNull
+    private Completable call(@NonNull RemoteOperation operation, @NonNull Completable call) {
+        return call(operation, call.toObservable()).toCompletable();
+    }
+
+    @NonNull
+    private <T> Observable<T> call(@NonNull RemoteOperation operation,
+                                   @NonNull Observable<T> call) {
+        Observable<T> attempt = attempt(operation, call);
+        if (!operation.isIdempotent() || mPolicy.getMaxAttempts() == 1) {
+            return attempt;
+        }
+        return Observable.defer(() -> {
+            AtomicInteger retries = new AtomicInteger();
+            return attempt.retryWhen(errors -> errors.flatMap(error -> {
+                int retry = retries.incrementAndGet();
+                if (retry >= mPolicy.getMaxAttempts() || !isNetworkError(error)
+                        || error instanceof CircuitOpenException) {
+                    return Observable.error(error);
+                }
+                mMetrics.onRetry(operation);
+                return Observable.timer(getBackoffMillis(retry), TimeUnit.MILLISECONDS,
+                        mScheduler);
+            }));
+        });
+    }
+
+    @NonNull
+    private <T> Observable<T> attempt(@NonNull RemoteOperation operation,
+                                      @NonNull Observable<T> call) {
+        return Observable.defer(() -> {
+            if (!mCircuitBreaker.allowRequest()) {
+                mMetrics.onRejected(operation);
+                return Observable.error(new CircuitOpenException(
+                        "The remote is unavailable, " + operation + " not attempted"));
+            }
+            mMetrics.onAttempt(operation);
+            AtomicBoolean terminated = new AtomicBoolean();
+            return call.timeout(mPolicy.getTimeoutMillis(operation), TimeUnit.MILLISECONDS,
+                    mScheduler)
+                    .doOnCompleted(() -> {
+                        terminated.set(true);
+                        mCircuitBreaker.onSuccess();
+                    })
+                    .doOnError(error -> {
+                        terminated.set(true);
+                        onError(operation, error);
+                    })
+                    .doOnUnsubscribe(() -> {
+                        if (!terminated.get()) {
+                            mCircuitBreaker.onAbandoned();
+                        }
+                    });
+        });
+    }
+
+    private void onError(@NonNull RemoteOperation operation, @NonNull Throwable error) {
+        mMetrics.onFailure(operation);
+        if (error instanceof TimeoutException) {
+            mMetrics.onTimeout(operation);
+        }
+        if (isNetworkError(error)) {
+            mCircuitBreaker.onFailure();
+        } else {
+            // the remote answered, it's healthy even if the call failed
+            mCircuitBreaker.onSuccess();
+        }
+    }
+
+    private long getBackoffMillis(int retry) {
+        long maxBackoff = mPolicy.getMaxBackoffMillis(retry);
+        synchronized (mJitter) {
+            return (long) (mJitter.nextDouble() * maxBackoff);
+        }
+    }
+
+    private static boolean isNetworkError(@NonNull Throwable error) {
+        return error instanceof IOException || error instanceof TimeoutException;
+    }
+}
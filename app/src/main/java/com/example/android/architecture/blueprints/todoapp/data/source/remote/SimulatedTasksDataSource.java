@@ -0,0 +1,318 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import rx.Completable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func1;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Data source that simulates the network in front of another data source. Every operation is
+ * delayed by a latency sampled from its {@link NetworkConditions} and by the transfer of its
+ * bodies, and can fail with an error or a timeout, in which case it is not applied to the other
+ * data source. The requests can also be limited to a number per second.
+ * <p>
+ * The latencies and faults are drawn from a seeded random, so the same sequence of operations
+ * replays the same network behaviour. With {@link NetworkConditions#NONE}, the operations are
+ * forwarded as they are.
+ */
+public class SimulatedTasksDataSource implements TasksDataSource {
+
+    // approximate size of the fields names and the syntax of a task in a body
+    private static final int TASK_OVERHEAD_BYTES = 64;
+
+    @NonNull
+    private final TasksDataSource mDelegate;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @NonNull
+    private final Random mRandom;
+
+    // replaced as a whole when the conditions change
+    @NonNull
+    private volatile Map<RemoteOperation, NetworkConditions> mConditions;
+
+    private long mMinRequestIntervalMillis;
+
+    private long mNextRequestMillis;
+
+    /**
+     * @param delegate  the data source behind the simulated network.
+     * @param scheduler the scheduler on which the delays are spent.
+     * @param seed      the seed of the latencies and faults.
+     */
+    public SimulatedTasksDataSource(@NonNull TasksDataSource delegate,
+                                    @NonNull Scheduler scheduler,
+                                    long seed) {
+        mDelegate = checkNotNull(delegate, "delegate cannot be null");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+        mRandom = new Random(seed);
+        mConditions = createConditions(NetworkConditions.NONE);
+    }
+
+    /**
+     * Sets the conditions of all the operations.
+     */
+    public synchronized void setConditions(@NonNull NetworkConditions conditions) {
+        mConditions = createConditions(checkNotNull(conditions));
+    }
+
+    /**
+     * Sets the conditions of one operation.
+     */
+    public synchronized void setConditions(@NonNull RemoteOperation operation,
+                                           @NonNull NetworkConditions conditions) {
+        Map<RemoteOperation, NetworkConditions> updated = new EnumMap<>(mConditions);
+        updated.put(checkNotNull(operation), checkNotNull(conditions));
+        mConditions = updated;
+    }
+
+    /**
+     * @param requestsPerSecond the maximum number of requests started per second, the next
+     *                          requests wait for their turn. 0 for no limit.
+     */
+    public synchronized void setMaxRequestsPerSecond(int requestsPerSecond) {
+        checkArgument(requestsPerSecond >= 0, "requestsPerSecond cannot be negative");
+        mMinRequestIntervalMillis = requestsPerSecond == 0 ? 0 : 1000 / requestsPerSecond;
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTasks() {
+        return simulate(RemoteOperation.GET_TASKS, 0, mDelegate.getTasks(),
+                SimulatedTasksDataSource::estimateBytes);
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTaskPages(int pageSize) {
+        // every page is a request of its own
+        return mDelegate.getTaskPages(pageSize)
+                .concatMap(page -> simulate(RemoteOperation.GET_TASKS, 0, Observable.just(page),
+                        SimulatedTasksDataSource::estimateBytes));
+    }
+
+    @NonNull
+    @Override
+    public Observable<Task> getTask(@NonNull String taskId) {
+        return simulate(RemoteOperation.GET_TASK, 0, mDelegate.getTask(taskId),
+                SimulatedTasksDataSource::estimateBytes);
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTasks(@NonNull List<String> taskIds) {
+        return simulate(RemoteOperation.GET_TASK, estimateIdsBytes(taskIds),
+                mDelegate.getTasks(taskIds), SimulatedTasksDataSource::estimateBytes);
+    }
+
+    @NonNull
+    @Override
+    public Completable saveTask(@NonNull Task task) {
+        return simulate(RemoteOperation.SAVE, estimateBytes(task), mDelegate.saveTask(task));
+    }
+
+    @NonNull
+    @Override
+    public Completable saveTasks(@NonNull List<Task> tasks) {
+        return simulate(RemoteOperation.SAVE, estimateBytes(tasks), mDelegate.saveTasks(tasks));
+    }
+
+    @NonNull
+    @Override
+    public Completable updateTask(@NonNull TaskPatch patch) {
+        return simulate(RemoteOperation.UPDATE, estimateBytes(patch), mDelegate.updateTask(patch));
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTask(@NonNull Task task) {
+        return simulate(RemoteOperation.UPDATE, 0, mDelegate.completeTask(task));
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTask(@NonNull String taskId) {
+        return simulate(RemoteOperation.UPDATE, 0, mDelegate.completeTask(taskId));
+    }
+
+    @Override
+    public Completable activateTask(@NonNull Task task) {
+        return simulate(RemoteOperation.UPDATE, 0, mDelegate.activateTask(task));
+    }
+
+    @Override
+    public Completable activateTask(@NonNull String taskId) {
+        return simulate(RemoteOperation.UPDATE, 0, mDelegate.activateTask(taskId));
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        simulateAndForget(RemoteOperation.DELETE, mDelegate::clearCompletedTasks);
+    }
+
+    @NonNull
+    @Override
+    public Completable refreshTasks() {
+        return mDelegate.refreshTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        simulateAndForget(RemoteOperation.DELETE, mDelegate::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        simulateAndForget(RemoteOperation.DELETE, () -> mDelegate.deleteTask(taskId));
+    }
+
+    @NonNull
+    private Completable simulate(@NonNull RemoteOperation operation, long requestBytes,
+                                 @NonNull Completable call) {
+        return simulate(operation, requestBytes, call.toObservable(), __ -> 0L).toCompletable();
+    }
+
+    private void simulateAndForget(@NonNull RemoteOperation operation, @NonNull Action0 call) {
+        simulate(operation, 0, Completable.fromAction(call))
+                .subscribe(
+                        // on completed
+                        () -> {
+                        },
+                        // the void operations are not observed, a fault only drops the operation
+                        throwable -> {
+                        });
+    }
+
+    @NonNull
+    private <T> Observable<T> simulate(@NonNull RemoteOperation operation, long requestBytes,
+                                       @NonNull Observable<T> call,
+                                       @NonNull Func1<T, Long> responseBytes) {
+        return Observable.defer(() -> {
+            NetworkConditions conditions = mConditions.get(operation);
+            long waitMillis = reserveRequestSlot();
+            long latencyMillis;
+            double fault;
+            // sampled together, so that concurrent requests draw consistent pairs
+            synchronized (mRandom) {
+                latencyMillis = conditions.getLatency().sampleMillis(mRandom);
+                fault = mRandom.nextDouble();
+            }
+
+            if (fault < conditions.getTimeoutRate()) {
+                return Observable.<T>error(new SocketTimeoutException(
+                        "Simulated timeout of " + operation))
+                        .delaySubscription(waitMillis + conditions.getTimeoutMillis(),
+                                TimeUnit.MILLISECONDS, mScheduler);
+            }
+            long requestMillis = waitMillis + latencyMillis
+                    + conditions.getTransferMillis(requestBytes);
+            if (fault < conditions.getTimeoutRate() + conditions.getErrorRate()) {
+                return Observable.<T>error(new IOException("Simulated error of " + operation))
+                        .delaySubscription(requestMillis, TimeUnit.MILLISECONDS, mScheduler);
+            }
+            Observable<T> response = conditions.getBandwidthBytesPerSecond()
+                    == NetworkConditions.UNLIMITED
+                    ? call
+                    : call.concatMap(value -> delay(value,
+                    conditions.getTransferMillis(responseBytes.call(value))));
+            return requestMillis == 0
+                    ? response
+                    : response.delaySubscription(requestMillis, TimeUnit.MILLISECONDS,
+                    mScheduler);
+        });
+    }
+
+    @NonNull
+    private <T> Observable<T> delay(@NonNull T value, long millis) {
+        Observable<T> just = Observable.just(value);
+        return millis == 0 ? just : just.delay(millis, TimeUnit.MILLISECONDS, mScheduler);
+    }
+
+    // @return the time the request waits before it can be sent
+    private synchronized long reserveRequestSlot() {
+        if (mMinRequestIntervalMillis == 0) {
+            return 0;
+        }
+        long now = mScheduler.now();
+        long start = Math.max(now, mNextRequestMillis);
+        mNextRequestMillis = start + mMinRequestIntervalMillis;
+        return start - now;
+    }
+
+    @NonNull
+    private static Map<RemoteOperation, NetworkConditions> createConditions(
+            @NonNull NetworkConditions conditions) {
+        Map<RemoteOperation, NetworkConditions> map = new EnumMap<>(RemoteOperation.class);
+        for (RemoteOperation operation : RemoteOperation.values()) {
+            map.put(operation, conditions);
+        }
+        return map;
+    }
+
+    private static long estimateIdsBytes(@NonNull List<String> taskIds) {
+        long bytes = 0;
+        for (String taskId : taskIds) {
+            // quoted and separated
+            bytes += taskId.length() + 3;
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(@NonNull List<Task> tasks) {
+        long bytes = 0;
+        for (Task task : tasks) {
+            bytes += estimateBytes(task);
+        }
+        return bytes;
+    }
+
+    // only the edited fields are sent
+    private static long estimateBytes(@NonNull TaskPatch patch) {
+        return TASK_OVERHEAD_BYTES + patch.getTaskId().length()
+                + (patch.getTitle() != null ? patch.getTitle().length() : 0)
+                + (patch.getDescription() != null ? patch.getDescription().length() : 0);
+    }
+
+    private static long estimateBytes(@NonNull Task task) {
+        return TASK_OVERHEAD_BYTES + task.getId().length()
+                + (task.getTitle() != null ? task.getTitle().length() : 0)
+                + (task.getDescription() != null ? task.getDescription().length() : 0);
+    }
+}
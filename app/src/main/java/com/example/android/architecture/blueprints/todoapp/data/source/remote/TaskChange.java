@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Objects;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A change made to the tasks on the backend, by this device or by another one, with the id of its
+ * event in the change feed of the backend.
+ */
+public final class TaskChange {
+
+    private final long mEventId;
+
+    @NonNull
+    private final TaskMutation mMutation;
+
+    public TaskChange(long eventId, @NonNull TaskMutation mutation) {
+        mEventId = eventId;
+        mMutation = checkNotNull(mutation, "mutation cannot be null");
+    }
+
+    /**
+     * @return the id of the event, greater than the ids of all the previous events.
+     */
+    public long getEventId() {
+        return mEventId;
+    }
+
+    @NonNull
+    public TaskMutation getMutation() {
+        return mMutation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskChange change = (TaskChange) o;
+        return mEventId == change.mEventId &&
+                Objects.equal(mMutation, change.mMutation);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(mEventId, mMutation);
+    }
+
+    @Override
+    public String toString() {
+        return mEventId + " " + mMutation;
+    }
+}
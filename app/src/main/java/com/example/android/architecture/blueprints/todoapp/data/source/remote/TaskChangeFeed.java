@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Continuous feed of the changes made to the tasks on the backend, pushed as they happen instead
+ * of downloading all the tasks again.
+ * <p>
+ * The {@link TaskChangeSource} is polled again as soon as it answers. When a poll fails, the feed
+ * reconnects after a delay, doubled after every consecutive failure. The polls of a subscription
+ * resume after the last event received, and a new subscription resumes after the last event
+ * {@link #acknowledge(long) acknowledged}, so a change received but not applied before
+ * unsubscribing is received again rather than missed.
+ */
+public final class TaskChangeFeed {
+
+    @VisibleForTesting
+    static final long DEFAULT_BASE_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    @VisibleForTesting
+    static final long DEFAULT_MAX_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @NonNull
+    private final TaskChangeSource mSource;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    private final long mBaseRetryMillis;
+
+    private final long mMaxRetryMillis;
+
+    // the last event applied by the subscriber
+    private volatile long mLastEventId;
+
+    public TaskChangeFeed(@NonNull TaskChangeSource source, @NonNull Scheduler scheduler,
+                          long afterEventId) {
+        this(source, scheduler, afterEventId, DEFAULT_BASE_RETRY_MILLIS,
+                DEFAULT_MAX_RETRY_MILLIS);
+    }
+
+    /**
+     * @param source          the source of the changes.
+     * @param scheduler       the scheduler on which the reconnections are delayed.
+     * @param afterEventId    the id of the last event already applied, 0 for all the events.
+     * @param baseRetryMillis the delay before reconnecting after a first failure.
+     * @param maxRetryMillis  the longest delay before reconnecting.
+     */
+    public TaskChangeFeed(@NonNull TaskChangeSource source, @NonNull Scheduler scheduler,
+                          long afterEventId, long baseRetryMillis, long maxRetryMillis) {
+        checkArgument(baseRetryMillis > 0 && baseRetryMillis <= maxRetryMillis,
+                "invalid retry delays");
+        mSource = checkNotNull(source, "source cannot be null");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+        mLastEventId = afterEventId;
+        mBaseRetryMillis = baseRetryMillis;
+        mMaxRetryMillis = maxRetryMillis;
+    }
+
+    /**
+     * @return an Observable that emits the changes after the last event acknowledged, until it is
+     * unsubscribed. It never completes and doesn't emit the errors of the source.
+     */
+    @NonNull
+    public Observable<TaskChange> getChanges() {
+        return Observable.defer(() -> {
+            // the consecutive failures and the last event received of this subscription
+            int[] failures = new int[1];
+            long[] received = {mLastEventId};
+            return Observable.defer(() -> mSource.pollChanges(received[0]))
+                    .doOnNext(changes -> {
+                        failures[0] = 0;
+                        if (!changes.isEmpty()) {
+                            received[0] = changes.get(changes.size() - 1).getEventId();
+                        }
+                    })
+                    .repeat()
+                    .retryWhen(errors -> errors.flatMap(error -> Observable.timer(
+                            getRetryMillis(++failures[0]), TimeUnit.MILLISECONDS, mScheduler)))
+                    .concatMap(Observable::from);
+        });
+    }
+
+    /**
+     * Records that a change was applied, so the next subscription resumes after it. Called with
+     * the event ids of the changes in the order they are emitted.
+     *
+     * @param eventId the event id of the applied change.
+     */
+    public void acknowledge(long eventId) {
+        mLastEventId = eventId;
+    }
+
+    /**
+     * @return the id of the last event acknowledged, from which the next subscription resumes.
+     */
+    public long getLastEventId() {
+        return mLastEventId;
+    }
+
+    private long getRetryMillis(int failures) {
+        // capped before shifting too far
+        int shift = Math.min(failures - 1, 30);
+        return Math.min(mMaxRetryMillis, mBaseRetryMillis << shift);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * Source of the changes made to the tasks on the backend.
+ */
+public interface TaskChangeSource {
+
+    /**
+     * Waits for the changes made after an event. The source answers as soon as there are changes,
+     * or with no change after a delay, so it should be polled again right away.
+     *
+     * @param afterEventId the id of the last event received, 0 for all the events.
+     * @return an Observable that emits the changes after the event, in order, and completes.
+     */
+    @NonNull
+    Observable<List<TaskChange>> pollChanges(long afterEventId);
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+import com.google.common.base.Objects;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A change to the tasks, as sent to the backend in a batch of mutations.
+ */
+public final class TaskMutation {
+
+    public enum Type {
+        SAVE, UPDATE, COMPLETE, ACTIVATE, DELETE, CLEAR_COMPLETED
+    }
+
+    @NonNull
+    private final Type mType;
+
+    @Nullable
+    private final String mTaskId;
+
+    @Nullable
+    private final Task mTask;
+
+    @Nullable
+    private final TaskPatch mPatch;
+
+    private TaskMutation(@NonNull Type type, @Nullable String taskId, @Nullable Task task,
+                         @Nullable TaskPatch patch) {
+        mType = type;
+        mTaskId = taskId;
+        mTask = task;
+        mPatch = patch;
+    }
+
+    @NonNull
+    public static TaskMutation save(@NonNull Task task) {
+        checkNotNull(task);
+        return new TaskMutation(Type.SAVE, task.getId(), task, null);
+    }
+
+    @NonNull
+    public static TaskMutation update(@NonNull TaskPatch patch) {
+        checkNotNull(patch);
+        return new TaskMutation(Type.UPDATE, patch.getTaskId(), null, patch);
+    }
+
+    /**
+     * @param taskId    id of the completed task
+     * @param timestamp time of the completion, so it merges like the other edits
+     */
+    @NonNull
+    public static TaskMutation complete(@NonNull String taskId, long timestamp) {
+        return new TaskMutation(Type.COMPLETE, checkNotNull(taskId), null,
+                TaskPatch.completion(taskId, true, timestamp));
+    }
+
+    /**
+     * @param taskId    id of the activated task
+     * @param timestamp time of the activation, so it merges like the other edits
+     */
+    @NonNull
+    public static TaskMutation activate(@NonNull String taskId, long timestamp) {
+        return new TaskMutation(Type.ACTIVATE, checkNotNull(taskId), null,
+                TaskPatch.completion(taskId, false, timestamp));
+    }
+
+    @NonNull
+    public static TaskMutation delete(@NonNull String taskId) {
+        return new TaskMutation(Type.DELETE, checkNotNull(taskId), null, null);
+    }
+
+    @NonNull
+    public static TaskMutation clearCompleted() {
+        return new TaskMutation(Type.CLEAR_COMPLETED, null, null, null);
+    }
+
+    @NonNull
+    public Type getType() {
+        return mType;
+    }
+
+    /**
+     * @return the id of the changed task, null when clearing the completed tasks.
+     */
+    @Nullable
+    public String getTaskId() {
+        return mTaskId;
+    }
+
+    /**
+     * @return the saved task, null for the other types.
+     */
+    @Nullable
+    public Task getTask() {
+        return mTask;
+    }
+
+    /**
+     * @return the edited fields of the task, only its completion for a completion or an
+     * activation, null for the other types.
+     */
+    @Nullable
+    public TaskPatch getPatch() {
+        return mPatch;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskMutation mutation = (TaskMutation) o;
+        return mType == mutation.mType &&
+                Objects.equal(mTaskId, mutation.mTaskId) &&
+                Objects.equal(mTask, mutation.mTask) &&
+                Objects.equal(mPatch, mutation.mPatch);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(mType, mTaskId, mTask, mPatch);
+    }
+
+    @Override
+    public String toString() {
+        return mType + " " + mTaskId;
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.UUID;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Utf8;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compact binary encoding of the tasks and of the batches of {@link TaskMutation}s exchanged with
+ * the backend.
+ * <p>
+ * A payload starts with a version byte, followed by records and ends with an end tag. A record
+ * starts with a one byte tag, the type of the record. A task is a byte of flags, followed by the
+ * id and by the title and the description when they are present. The flags replace the names of
+ * the fields: they hold the completion of the task, which fields are present and whether the id is
+ * a UUID, written as 16 bytes. Other ids and the texts are written in UTF-8, after their length as
+ * a varint. The timestamps of the last edits of the fields follow as varints, unless they are all
+ * 0. The records of a mutation on an id hold the UUID flag in the high bits of their tag. The
+ * records of a completion and of an activation by id are followed by the timestamp of the edit
+ * as a varint, so they merge like any other edit.
+ * <p>
+ * A patch is written like a task, but only with its edited fields: the flags tell which fields
+ * are edited and which edited texts are null, and the timestamp of the edit follows as a varint.
+ * So the record of a completion is about as small as the record of a completion by id.
+ * <p>
+ * A {@link TaskChange} of the feed is an event record, holding the event id given by the backend
+ * as a varint, followed by the record of its mutation. The event ids aren't contiguous, so they
+ * are never derived from the position of the change in the payload.
+ * <p>
+ * The records are written to and read from a stream one by one, so a payload never needs to be
+ * held in memory as a whole.
+ */
+public final class TaskWireFormat {
+
+    public static final String CONTENT_TYPE = "application/vnd.todo.tasks";
+
+    // 2: the completions and activations by id hold their timestamp
+    private static final int VERSION = 2;
+
+    // record tags
+    private static final int TAG_END = 0;
+    private static final int TAG_TASK = 1;
+    private static final int TAG_COMPLETE = 2;
+    private static final int TAG_ACTIVATE = 3;
+    private static final int TAG_DELETE = 4;
+    private static final int TAG_CLEAR_COMPLETED = 5;
+    private static final int TAG_UPDATE = 6;
+    private static final int TAG_EVENT = 7;
+
+    // task flags
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_TITLE = 1 << 1;
+    private static final int FLAG_DESCRIPTION = 1 << 2;
+    private static final int FLAG_UUID_ID = 1 << 3;
+    private static final int FLAG_TIMESTAMPS = 1 << 4;
+
+    // patch flags, next to the completed, title, description and UUID flags of the tasks
+    private static final int FLAG_HAS_COMPLETED = 1 << 5;
+    private static final int FLAG_NULL_TITLE = 1 << 6;
+    private static final int FLAG_NULL_DESCRIPTION = 1 << 7;
+
+    private static final int UUID_STRING_LENGTH = 36;
+
+    private TaskWireFormat() {
+    }
+
+    /**
+     * Writes the records of a payload to a sink. {@link #close()} ends the payload and flushes the
+     * sink, without closing it.
+     */
+    public static final class Encoder implements Closeable {
+
+        @NonNull
+        private final BufferedSink mSink;
+
+        private boolean mClosed;
+
+        public Encoder(@NonNull BufferedSink sink) throws IOException {
+            mSink = checkNotNull(sink, "sink cannot be null");
+            mSink.writeByte(VERSION);
+        }
+
+        public void writeTask(@NonNull Task task) throws IOException {
+            mSink.writeByte(TAG_TASK);
+            writeTaskFields(task);
+        }
+
+        public void writeMutation(@NonNull TaskMutation mutation) throws IOException {
+            switch (mutation.getType()) {
+                case SAVE:
+                    writeTask(mutation.getTask());
+                    break;
+                case UPDATE:
+                    mSink.writeByte(TAG_UPDATE);
+                    writePatchFields(mutation.getPatch());
+                    break;
+                case COMPLETE:
+                    writeIdRecord(TAG_COMPLETE, mutation.getTaskId());
+                    writeVarint(mutation.getPatch().getTimestamp());
+                    break;
+                case ACTIVATE:
+                    writeIdRecord(TAG_ACTIVATE, mutation.getTaskId());
+                    writeVarint(mutation.getPatch().getTimestamp());
+                    break;
+                case DELETE:
+                    writeIdRecord(TAG_DELETE, mutation.getTaskId());
+                    break;
+                case CLEAR_COMPLETED:
+                    mSink.writeByte(TAG_CLEAR_COMPLETED);
+                    break;
+            }
+        }
+
+        public void writeChange(@NonNull TaskChange change) throws IOException {
+            mSink.writeByte(TAG_EVENT);
+            writeVarint(change.getEventId());
+            writeMutation(change.getMutation());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            mSink.writeByte(TAG_END);
+            mSink.flush();
+        }
+
+        private void writeIdRecord(int tag, @NonNull String taskId) throws IOException {
+            UUID uuid = toUuid(taskId);
+            mSink.writeByte(uuid != null ? tag | FLAG_UUID_ID << 4 : tag);
+            writeId(taskId, uuid);
+        }
+
+        private void writeTaskFields(@NonNull Task task) throws IOException {
+            String title = task.getTitle();
+            String description = task.getDescription();
+            UUID uuid = toUuid(task.getId());
+            int flags = 0;
+            if (task.isCompleted()) {
+                flags |= FLAG_COMPLETED;
+            }
+            if (title != null) {
+                flags |= FLAG_TITLE;
+            }
+            if (description != null) {
+                flags |= FLAG_DESCRIPTION;
+            }
+            if (uuid != null) {
+                flags |= FLAG_UUID_ID;
+            }
+            boolean timestamps = task.getTitleTimestamp() != 0
+                    || task.getDescriptionTimestamp() != 0
+                    || task.getCompletedTimestamp() != 0;
+            if (timestamps) {
+                flags |= FLAG_TIMESTAMPS;
+            }
+            mSink.writeByte(flags);
+            writeId(task.getId(), uuid);
+            if (title != null) {
+                writeString(title);
+            }
+            if (description != null) {
+                writeString(description);
+            }
+            if (timestamps) {
+                writeVarint(task.getTitleTimestamp());
+                writeVarint(task.getDescriptionTimestamp());
+                writeVarint(task.getCompletedTimestamp());
+            }
+        }
+
+        private void writePatchFields(@NonNull TaskPatch patch) throws IOException {
+            String title = patch.getTitle();
+            String description = patch.getDescription();
+            UUID uuid = toUuid(patch.getTaskId());
+            int flags = 0;
+            if (patch.hasTitle()) {
+                flags |= title != null ? FLAG_TITLE : FLAG_TITLE | FLAG_NULL_TITLE;
+            }
+            if (patch.hasDescription()) {
+                flags |= description != null
+                        ? FLAG_DESCRIPTION
+                        : FLAG_DESCRIPTION | FLAG_NULL_DESCRIPTION;
+            }
+            if (patch.hasCompleted()) {
+                flags |= patch.isCompleted()
+                        ? FLAG_HAS_COMPLETED | FLAG_COMPLETED
+                        : FLAG_HAS_COMPLETED;
+            }
+            if (uuid != null) {
+                flags |= FLAG_UUID_ID;
+            }
+            mSink.writeByte(flags);
+            writeId(patch.getTaskId(), uuid);
+            if (title != null) {
+                writeString(title);
+            }
+            if (description != null) {
+                writeString(description);
+            }
+            writeVarint(patch.getTimestamp());
+        }
+
+        private void writeId(@NonNull String id, @Nullable UUID uuid) throws IOException {
+            if (uuid != null) {
+                mSink.writeLong(uuid.getMostSignificantBits());
+                mSink.writeLong(uuid.getLeastSignificantBits());
+            } else {
+                writeString(id);
+            }
+        }
+
+        private void writeString(@NonNull String value) throws IOException {
+            writeVarint(Utf8.size(value));
+            mSink.writeUtf8(value);
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                mSink.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            mSink.writeByte((int) value);
+        }
+    }
+
+    /**
+     * Reads the records of a payload from a source, one by one.
+     */
+    public static final class Decoder {
+
+        @NonNull
+        private final BufferedSource mSource;
+
+        private boolean mEnded;
+
+        public Decoder(@NonNull BufferedSource source) throws IOException {
+            mSource = checkNotNull(source, "source cannot be null");
+            int version = mSource.readByte() & 0xFF;
+            if (version != VERSION) {
+                throw new ProtocolException("Unsupported version " + version);
+            }
+        }
+
+        /**
+         * @return the next task, or null at the end of the payload.
+         */
+        @Nullable
+        public Task readTask() throws IOException {
+            TaskMutation mutation = readMutation();
+            if (mutation == null) {
+                return null;
+            }
+            if (mutation.getType() != TaskMutation.Type.SAVE) {
+                throw new ProtocolException("Expected a task, got " + mutation.getType());
+            }
+            return mutation.getTask();
+        }
+
+        /**
+         * @return the next mutation, or null at the end of the payload. A task record is read as
+         * a {@link TaskMutation.Type#SAVE}.
+         */
+        @Nullable
+        public TaskMutation readMutation() throws IOException {
+            if (mEnded) {
+                return null;
+            }
+            int header = mSource.readByte() & 0xFF;
+            int tag = header & 0x0F;
+            boolean uuidId = (header >> 4 & FLAG_UUID_ID) != 0;
+            switch (tag) {
+                case TAG_END:
+                    mEnded = true;
+                    return null;
+                case TAG_TASK:
+                    return TaskMutation.save(readTaskFields());
+                case TAG_UPDATE:
+                    return TaskMutation.update(readPatchFields());
+                case TAG_COMPLETE:
+                    return TaskMutation.complete(readId(uuidId), readVarint());
+                case TAG_ACTIVATE:
+                    return TaskMutation.activate(readId(uuidId), readVarint());
+                case TAG_DELETE:
+                    return TaskMutation.delete(readId(uuidId));
+                case TAG_CLEAR_COMPLETED:
+                    return TaskMutation.clearCompleted();
+                default:
+                    throw new ProtocolException("Unknown record " + tag);
+            }
+        }
+
+        /**
+         * @return the next change, or null at the end of the payload.
+         */
+        @Nullable
+        public TaskChange readChange() throws IOException {
+            if (mEnded) {
+                return null;
+            }
+            int tag = mSource.readByte() & 0xFF;
+            if (tag == TAG_END) {
+                mEnded = true;
+                return null;
+            }
+            if (tag != TAG_EVENT) {
+                throw new ProtocolException("Expected a change, got record " + tag);
+            }
+            long eventId = readVarint();
+            TaskMutation mutation = readMutation();
+            if (mutation == null) {
+                throw new ProtocolException("Change " + eventId + " without a mutation");
+            }
+            return new TaskChange(eventId, mutation);
+        }
+
+        @NonNull
+        private Task readTaskFields() throws IOException {
+            int flags = mSource.readByte() & 0xFF;
+            String id = readId((flags & FLAG_UUID_ID) != 0);
+            String title = (flags & FLAG_TITLE) != 0 ? readString() : null;
+            String description = (flags & FLAG_DESCRIPTION) != 0 ? readString() : null;
+            boolean completed = (flags & FLAG_COMPLETED) != 0;
+            if ((flags & FLAG_TIMESTAMPS) == 0) {
+                return new Task(title, description, id, completed);
+            }
+            return new Task(title, description, id, completed, readVarint(), readVarint(),
+                    readVarint());
+        }
+
+        @NonNull
+        private TaskPatch readPatchFields() throws IOException {
+            int flags = mSource.readByte() & 0xFF;
+            String id = readId((flags & FLAG_UUID_ID) != 0);
+            boolean hasTitle = (flags & FLAG_TITLE) != 0;
+            String title = hasTitle && (flags & FLAG_NULL_TITLE) == 0 ? readString() : null;
+            boolean hasDescription = (flags & FLAG_DESCRIPTION) != 0;
+            String description = hasDescription && (flags & FLAG_NULL_DESCRIPTION) == 0
+                    ? readString()
+                    : null;
+            return new TaskPatch(id, hasTitle, title, hasDescription, description,
+                    (flags & FLAG_HAS_COMPLETED) != 0, (flags & FLAG_COMPLETED) != 0,
+                    readVarint());
+        }
+
+        @NonNull
+        private String readId(boolean uuid) throws IOException {
+            if (uuid) {
+                return new UUID(mSource.readLong(), mSource.readLong()).toString();
+            }
+            return readString();
+        }
+
+        @NonNull
+        private String readString() throws IOException {
+            return mSource.readUtf8(readVarint());
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = mSource.readByte() & 0xFF;
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new ProtocolException("Malformed varint");
+        }
+    }
+
+    // @return the UUID of the id, if the id is the canonical form of a UUID
+    @Nullable
+    private static UUID toUuid(@NonNull String id) {
+        if (id.length() != UUID_STRING_LENGTH) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,557 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.google.common.base.Joiner;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import rx.Completable;
+import rx.Observable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Implementation of the data source that talks to the tasks backend over HTTP.
+ * <p>
+ * All the calls share one client, so the connections are kept alive and reused. The tasks are
+ * sent and preferably received in the {@link TaskWireFormat}, encoded and decoded while they are
+ * streamed. The bodies of the tasks are gzipped and the client transparently asks for and unzips
+ * gzipped responses. An edit of some fields of a task only sends these fields, in a patch. The
+ * list of tasks is requested with the ETag of the previous response, so when the tasks did not
+ * change the backend only answers 304 and the previous list is emitted again.
+ * <p>
+ * The pages of tasks are requested one after the other with an offset and a limit. The first page
+ * is also conditional, on the ETag of the last complete paged fetch, so no page is emitted when
+ * the tasks did not change since then.
+ * <p>
+ * The changes are long-polled: the backend holds the request until there are changes after the
+ * given event, or answers with no content after {@link #LONG_POLL_SECONDS}. The changes are
+ * numbered one after the other from the given event.
+ */
+public class TasksHttpDataSource implements TasksDataSource, TaskChangeSource {
+
+    private static final String TAG = TasksHttpDataSource.class.getSimpleName();
+
+    private static final MediaType TASKS = MediaType.parse(TaskWireFormat.CONTENT_TYPE);
+
+    // JSON is still accepted from backends that don't support the wire format
+    private static final String ACCEPT = TaskWireFormat.CONTENT_TYPE + ", application/json;q=0.5";
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    // shorter than the read timeout, so a poll without changes doesn't time out
+    private static final long LONG_POLL_SECONDS = 20;
+
+    @Nullable
+    private static TasksHttpDataSource INSTANCE;
+
+    @NonNull
+    private final HttpUrl mTasksUrl;
+
+    @NonNull
+    private final OkHttpClient mClient;
+
+    // the last list of tasks and its ETag, null until a response with an ETag is received
+    @Nullable
+    private volatile TasksSnapshot mTasksSnapshot;
+
+    // the ETag of the last complete paged fetch
+    @Nullable
+    private volatile String mPagesETag;
+
+    // Prevent direct instantiation.
+    private TasksHttpDataSource(@NonNull String baseUrl) {
+        checkNotNull(baseUrl, "baseUrl cannot be null");
+        mTasksUrl = HttpUrl.get(baseUrl).newBuilder().addPathSegment("tasks").build();
+        mClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES,
+                        TimeUnit.MINUTES))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @param baseUrl the url of the backend, the tasks are under {@code <baseUrl>/tasks}.
+     */
+    public static TasksHttpDataSource getInstance(@NonNull String baseUrl) {
+        if (INSTANCE == null) {
+            INSTANCE = new TasksHttpDataSource(baseUrl);
+        }
+        return INSTANCE;
+    }
+
+    public static void destroyInstance() {
+        INSTANCE = null;
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTasks() {
+        return Observable.fromCallable(this::fetchTasks);
+    }
+
+    @NonNull
+    private List<Task> fetchTasks() throws Exception {
+        TasksSnapshot snapshot = mTasksSnapshot;
+        Request.Builder request = newRequest(mTasksUrl);
+        if (snapshot != null) {
+            request.header("If-None-Match", snapshot.mETag);
+        }
+        Response response = mClient.newCall(request.build()).execute();
+        try {
+            if (snapshot != null && response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return snapshot.mTasks;
+            }
+            checkSuccessful(response);
+            List<Task> tasks = Collections.unmodifiableList(
+                    readTasks(response));
+            String eTag = response.header("ETag");
+            mTasksSnapshot = eTag != null ? new TasksSnapshot(eTag, tasks) : null;
+            return tasks;
+        } finally {
+            response.close();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTaskPages(int pageSize) {
+        return Observable.defer(() -> {
+            PagedFetch fetch = new PagedFetch(mPagesETag);
+            return getPagesFrom(fetch, 0, pageSize)
+                    .doOnCompleted(() -> {
+                        // pages from different versions of the list don't make a complete fetch
+                        if (fetch.mConsistent) {
+                            mPagesETag = fetch.mETag;
+                        }
+                    });
+        });
+    }
+
+    @NonNull
+    private Observable<List<Task>> getPagesFrom(@NonNull PagedFetch fetch, int offset,
+                                                int pageSize) {
+        return Observable.fromCallable(() -> fetchPage(fetch, offset, pageSize))
+                .concatMap(page -> {
+                    if (page.size() < pageSize) {
+                        return page.isEmpty() ? Observable.empty() : Observable.just(page);
+                    }
+                    return Observable.just(page).concatWith(
+                            Observable.defer(() -> getPagesFrom(fetch, offset + pageSize,
+                                    pageSize)));
+                });
+    }
+
+    @NonNull
+    private List<Task> fetchPage(@NonNull PagedFetch fetch, int offset, int pageSize)
+            throws Exception {
+        HttpUrl url = mTasksUrl.newBuilder()
+                .addQueryParameter("offset", String.valueOf(offset))
+                .addQueryParameter("limit", String.valueOf(pageSize))
+                .build();
+        Request.Builder request = newRequest(url);
+        if (offset == 0 && fetch.mETag != null) {
+            request.header("If-None-Match", fetch.mETag);
+        }
+        Response response = mClient.newCall(request.build()).execute();
+        try {
+            if (offset == 0 && response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return Collections.emptyList();
+            }
+            checkSuccessful(response);
+            fetch.onPage(offset, response.header("ETag"));
+            return readTasks(response);
+        } finally {
+            response.close();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Observable<Task> getTask(@NonNull String taskId) {
+        checkNotNull(taskId);
+        return Observable.fromCallable(() -> fetchTask(taskId))
+                .filter(task -> task != null);
+    }
+
+    @Nullable
+    private Task fetchTask(@NonNull String taskId) throws Exception {
+        Request request = newRequest(taskUrl(taskId)).build();
+        Response response = mClient.newCall(request).execute();
+        try {
+            if (response.code() == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            checkSuccessful(response);
+            return readTask(response);
+        } finally {
+            response.close();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<Task>> getTasks(@NonNull List<String> taskIds) {
+        checkNotNull(taskIds);
+        if (taskIds.isEmpty()) {
+            return Observable.just(Collections.emptyList());
+        }
+        // one request for all the tasks
+        HttpUrl url = mTasksUrl.newBuilder()
+                .addQueryParameter("ids", Joiner.on(',').join(taskIds))
+                .build();
+        return Observable.fromCallable(() -> {
+            Response response = mClient.newCall(newRequest(url).build()).execute();
+            try {
+                checkSuccessful(response);
+                return readTasks(response);
+            } finally {
+                response.close();
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public Observable<List<TaskChange>> pollChanges(long afterEventId) {
+        HttpUrl url = mTasksUrl.newBuilder()
+                .addPathSegment("changes")
+                .addQueryParameter("after", Long.toString(afterEventId))
+                .addQueryParameter("wait", Long.toString(LONG_POLL_SECONDS))
+                .build();
+        return Observable.defer(() -> {
+            // the poll can last long, so it is cancelled when unsubscribed
+            Call call = mClient.newCall(newRequest(url).build());
+            return Observable.fromCallable(() -> {
+                Response response = call.execute();
+                try {
+                    checkSuccessful(response);
+                    return readChanges(response);
+                } finally {
+                    response.close();
+                }
+            }).doOnUnsubscribe(call::cancel);
+        });
+    }
+
+    @NonNull
+    private static List<TaskChange> readChanges(@NonNull Response response) throws Exception {
+        if (response.code() == HttpURLConnection.HTTP_NO_CONTENT) {
+            return Collections.emptyList();
+        }
+        ResponseBody body = response.body();
+        if (!isWireFormat(body)) {
+            throw new ProtocolException("Unexpected changes type " + body.contentType());
+        }
+        List<TaskChange> changes = new ArrayList<>();
+        TaskWireFormat.Decoder decoder = new TaskWireFormat.Decoder(body.source());
+        // the event ids are the backend's, they can skip the events of other lists
+        for (TaskChange change = decoder.readChange(); change != null;
+             change = decoder.readChange()) {
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    @NonNull
+    @Override
+    public Completable saveTask(@NonNull Task task) {
+        checkNotNull(task);
+        return execute(new Request.Builder()
+                .url(taskUrl(task.getId()))
+                .header("Content-Encoding", "gzip")
+                .put(gzippedTasks(Collections.singletonList(task)))
+                .build());
+    }
+
+    @NonNull
+    @Override
+    public Completable saveTasks(@NonNull List<Task> tasks) {
+        checkNotNull(tasks);
+        // one request for the whole list
+        return execute(new Request.Builder()
+                .url(mTasksUrl)
+                .header("Content-Encoding", "gzip")
+                .post(gzippedTasks(tasks))
+                .build());
+    }
+
+    @NonNull
+    @Override
+    public Completable updateTask(@NonNull TaskPatch patch) {
+        checkNotNull(patch);
+        return execute(new Request.Builder()
+                .url(taskUrl(patch.getTaskId()))
+                .patch(encodedPatch(patch))
+                .build());
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTask(@NonNull Task task) {
+        // tasks from the list might have a truncated description, so only the id is used.
+        return completeTask(task.getId());
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTask(@NonNull String taskId) {
+        checkNotNull(taskId);
+        return execute(postTo(taskId, "complete"));
+    }
+
+    @Override
+    public Completable activateTask(@NonNull Task task) {
+        // tasks from the list might have a truncated description, so only the id is used.
+        return activateTask(task.getId());
+    }
+
+    @Override
+    public Completable activateTask(@NonNull String taskId) {
+        checkNotNull(taskId);
+        return execute(postTo(taskId, "activate"));
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        enqueue(new Request.Builder()
+                .url(mTasksUrl.newBuilder().addQueryParameter("completed", "true").build())
+                .delete()
+                .build());
+    }
+
+    @NonNull
+    @Override
+    public Completable refreshTasks() {
+        // Not required because the {@link TasksRepository} handles the logic of refreshing the
+        // tasks from all the available data sources.
+        return Completable.complete();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        enqueue(new Request.Builder().url(mTasksUrl).delete().build());
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        checkNotNull(taskId);
+        enqueue(new Request.Builder().url(taskUrl(taskId)).delete().build());
+    }
+
+    @NonNull
+    private HttpUrl taskUrl(@NonNull String taskId) {
+        return mTasksUrl.newBuilder().addPathSegment(taskId).build();
+    }
+
+    @NonNull
+    private Request postTo(@NonNull String taskId, @NonNull String action) {
+        HttpUrl url = mTasksUrl.newBuilder().addPathSegment(taskId).addPathSegment(action).build();
+        return new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(null, new byte[0]))
+                .build();
+    }
+
+    @NonNull
+    private Completable execute(@NonNull Request request) {
+        return Completable.fromCallable(() -> {
+            Response response = mClient.newCall(request).execute();
+            try {
+                checkSuccessful(response);
+            } finally {
+                response.close();
+            }
+            return null;
+        });
+    }
+
+    // the void methods of the data source are not observed, so their requests are fired and
+    // their failures only logged
+    private void enqueue(@NonNull Request request) {
+        mClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                Log.e(TAG, "Request failed: " + call.request().url(), e);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                if (!response.isSuccessful()) {
+                    Log.e(TAG, "Request failed: " + call.request().url() + " " + response.code());
+                }
+                response.close();
+            }
+        });
+    }
+
+    private static void checkSuccessful(@NonNull Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Unexpected response " + response.code() + " for "
+                    + response.request().url());
+        }
+    }
+
+    @NonNull
+    private static Request.Builder newRequest(@NonNull HttpUrl url) {
+        return new Request.Builder().url(url).header("Accept", ACCEPT);
+    }
+
+    @NonNull
+    private static List<Task> readTasks(@NonNull Response response) throws Exception {
+        ResponseBody body = response.body();
+        if (!isWireFormat(body)) {
+            return TasksJson.toTasks(body.string());
+        }
+        List<Task> tasks = new ArrayList<>();
+        TaskWireFormat.Decoder decoder = new TaskWireFormat.Decoder(body.source());
+        for (Task task = decoder.readTask(); task != null; task = decoder.readTask()) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @NonNull
+    private static Task readTask(@NonNull Response response) throws Exception {
+        ResponseBody body = response.body();
+        if (!isWireFormat(body)) {
+            return TasksJson.toTask(body.string());
+        }
+        Task task = new TaskWireFormat.Decoder(body.source()).readTask();
+        if (task == null) {
+            throw new ProtocolException("Empty task response");
+        }
+        return task;
+    }
+
+    private static boolean isWireFormat(@NonNull ResponseBody body) {
+        MediaType type = body.contentType();
+        return type != null && TASKS.type().equals(type.type())
+                && TASKS.subtype().equals(type.subtype());
+    }
+
+    // the tasks are encoded and gzipped while the body is written, so the payload is never held
+    // in memory
+    @NonNull
+    private static RequestBody gzippedTasks(@NonNull List<Task> tasks) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return TASKS;
+            }
+
+            @Override
+            public void writeTo(@NonNull BufferedSink sink) throws IOException {
+                BufferedSink gzip = Okio.buffer(new GzipSink(sink));
+                TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(gzip);
+                for (Task task : tasks) {
+                    encoder.writeTask(task);
+                }
+                encoder.close();
+                gzip.close();
+            }
+        };
+    }
+
+    // a patch is a few bytes, so it is not gzipped
+    @NonNull
+    private static RequestBody encodedPatch(@NonNull TaskPatch patch) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return TASKS;
+            }
+
+            @Override
+            public void writeTo(@NonNull BufferedSink sink) throws IOException {
+                TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(sink);
+                encoder.writeMutation(TaskMutation.update(patch));
+                encoder.close();
+            }
+        };
+    }
+
+    private static final class PagedFetch {
+
+        @Nullable
+        String mETag;
+
+        boolean mConsistent = true;
+
+        PagedFetch(@Nullable String eTag) {
+            mETag = eTag;
+        }
+
+        void onPage(int offset, @Nullable String eTag) {
+            if (offset == 0) {
+                mETag = eTag;
+                mConsistent = eTag != null;
+            } else if (mETag == null || !mETag.equals(eTag)) {
+                mConsistent = false;
+            }
+        }
+    }
+
+    private static final class TasksSnapshot {
+
+        @NonNull
+        final String mETag;
+
+        @NonNull
+        final List<Task> mTasks;
+
+        TasksSnapshot(@NonNull String eTag, @NonNull List<Task> tasks) {
+            mETag = eTag;
+            mTasks = tasks;
+        }
+    }
+}
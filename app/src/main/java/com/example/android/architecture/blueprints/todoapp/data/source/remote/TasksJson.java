@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the tasks to and from the JSON bodies exchanged with the tasks backend.
+ */
+final class TasksJson {
+
+    static final String ID = "id";
+
+    static final String TITLE = "title";
+
+    static final String DESCRIPTION = "description";
+
+    static final String COMPLETED = "completed";
+
+    static final String TITLE_TIMESTAMP = "titleTimestamp";
+
+    static final String DESCRIPTION_TIMESTAMP = "descriptionTimestamp";
+
+    static final String COMPLETED_TIMESTAMP = "completedTimestamp";
+
+    private TasksJson() {
+    }
+
+    @NonNull
+    static String toJson(@NonNull Task task) {
+        return toJsonObject(task).toString();
+    }
+
+    @NonNull
+    static String toJson(@NonNull List<Task> tasks) {
+        JSONArray array = new JSONArray();
+        for (Task task : tasks) {
+            array.put(toJsonObject(task));
+        }
+        return array.toString();
+    }
+
+    @NonNull
+    static Task toTask(@NonNull String json) throws JSONException {
+        return toTask(new JSONObject(json));
+    }
+
+    @NonNull
+    static List<Task> toTasks(@NonNull String json) throws JSONException {
+        JSONArray array = new JSONArray(json);
+        List<Task> tasks = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            tasks.add(toTask(array.getJSONObject(i)));
+        }
+        return tasks;
+    }
+
+    @NonNull
+    private static JSONObject toJsonObject(@NonNull Task task) {
+        try {
+            return new JSONObject()
+                    .put(ID, task.getId())
+                    .put(TITLE, task.getTitle())
+                    .put(DESCRIPTION, task.getDescription())
+                    .put(COMPLETED, task.isCompleted())
+                    .put(TITLE_TIMESTAMP, task.getTitleTimestamp())
+                    .put(DESCRIPTION_TIMESTAMP, task.getDescriptionTimestamp())
+                    .put(COMPLETED_TIMESTAMP, task.getCompletedTimestamp());
+        } catch (JSONException e) {
+            // only thrown for non finite numbers
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NonNull
+    private static Task toTask(@NonNull JSONObject object) throws JSONException {
+        return new Task(optString(object, TITLE), optString(object, DESCRIPTION),
+                object.getString(ID), object.optBoolean(COMPLETED),
+                object.optLong(TITLE_TIMESTAMP), object.optLong(DESCRIPTION_TIMESTAMP),
+                object.optLong(COMPLETED_TIMESTAMP));
+    }
+
+    @Nullable
+    private static String optString(@NonNull JSONObject object, @NonNull String name) {
+        // JSONObject#optString returns "null" for null values
+        return object.isNull(name) ? null : object.optString(name);
+    }
+}
@@ -20,8 +20,11 @@ package com.example.android.architecture.blueprints.todoapp.data.source.remote;
 import androidx.annotation.NonNull;
 
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.google.common.collect.Lists;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -40,6 +43,9 @@ public class TasksRemoteDataSource implements TasksDataSource {
 
     private static final int SERVICE_LATENCY_IN_MILLIS = 5000;
 
+    // the time to transfer a page once the first one arrived
+    private static final int PAGE_LATENCY_IN_MILLIS = 500;
+
     private final static Map<String, Task> TASKS_SERVICE_DATA;
 
     static {
@@ -72,6 +78,18 @@ public class TasksRemoteDataSource implements TasksDataSource {
                 .toList();
     }
 
+    @Override
+    public Observable<List<Task>> getTaskPages(int pageSize) {
+        return Observable.defer(() -> {
+            List<Task> tasks = new ArrayList<>(TASKS_SERVICE_DATA.values());
+            return Observable.from(Lists.partition(tasks, pageSize))
+                    .concatMap(page -> Observable.just(page)
+                            .delay(PAGE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS))
+                    .delaySubscription(SERVICE_LATENCY_IN_MILLIS - PAGE_LATENCY_IN_MILLIS,
+                            TimeUnit.MILLISECONDS);
+        });
+    }
+
     @Override
     public Observable<Task> getTask(@NonNull String taskId) {
         final Task task = TASKS_SERVICE_DATA.get(taskId);
@@ -82,50 +100,78 @@ public class TasksRemoteDataSource implements TasksDataSource {
         }
     }
 
+    @Override
+    public Observable<List<Task>> getTasks(@NonNull List<String> taskIds) {
+        // one request for all the tasks
+        return Observable.fromCallable(() -> {
+            List<Task> tasks = new ArrayList<>(taskIds.size());
+            for (String taskId : taskIds) {
+                Task task = TASKS_SERVICE_DATA.get(taskId);
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+            return tasks;
+        }).delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public Completable saveTask(@NonNull Task task) {
-        return Completable.fromAction(() -> TASKS_SERVICE_DATA.put(task.getId(), task));
+        return Completable.fromAction(() -> merge(task));
     }
 
     @Override
     public Completable saveTasks(@NonNull List<Task> tasks) {
-        return Observable.from(tasks)
-                .doOnNext(this::saveTask)
-                .toCompletable();
+        return Completable.fromAction(() -> {
+            for (Task task : tasks) {
+                merge(task);
+            }
+        });
+    }
+
+    // the saves are merged with the saved task, so the concurrent edits of a task are all kept
+    private static void merge(@NonNull Task task) {
+        synchronized (TASKS_SERVICE_DATA) {
+            Task saved = TASKS_SERVICE_DATA.get(task.getId());
+            TASKS_SERVICE_DATA.put(task.getId(), saved == null ? task : saved.merge(task));
+        }
     }
 
     @Override
-    public Completable completeTask(@NonNull Task task) {
+    public Completable updateTask(@NonNull TaskPatch patch) {
         return Completable.fromAction(() -> {
-            Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
-            TASKS_SERVICE_DATA.put(task.getId(), completedTask);
+            synchronized (TASKS_SERVICE_DATA) {
+                Task saved = TASKS_SERVICE_DATA.get(patch.getTaskId());
+                if (saved != null) {
+                    TASKS_SERVICE_DATA.put(saved.getId(), patch.applyTo(saved));
+                }
+            }
         });
     }
 
+    @Override
+    public Completable completeTask(@NonNull Task task) {
+        // tasks from the list might have a truncated description, so only the id is used.
+        return completeTask(task.getId());
+    }
+
+    // the repository completes the tasks with a stamped patch, this stamps direct calls only
     @Override
     public Completable completeTask(@NonNull String taskId) {
-        return Completable.fromAction(() -> {
-            Task task = TASKS_SERVICE_DATA.get(taskId);
-            task = new Task(task.getTitle(), task.getDescription(), taskId, true);
-            TASKS_SERVICE_DATA.put(task.getId(), task);
-        });
+        return Completable.defer(() ->
+                updateTask(TaskPatch.completion(taskId, true, System.currentTimeMillis())));
     }
 
     @Override
     public Completable activateTask(@NonNull Task task) {
-        return Completable.fromAction(() -> {
-            Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
-            TASKS_SERVICE_DATA.put(task.getId(), activeTask);
-        });
+        // tasks from the list might have a truncated description, so only the id is used.
+        return activateTask(task.getId());
     }
 
     @Override
     public Completable activateTask(@NonNull String taskId) {
-        return Completable.fromAction(() -> {
-            Task task = TASKS_SERVICE_DATA.get(taskId);
-            task = new Task(task.getTitle(), task.getDescription(), taskId, false);
-            TASKS_SERVICE_DATA.put(task.getId(), task);
-        });
+        return Completable.defer(() ->
+                updateTask(TaskPatch.completion(taskId, false, System.currentTimeMillis())));
     }
 
     @Override
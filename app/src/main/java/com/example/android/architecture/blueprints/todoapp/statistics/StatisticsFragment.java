@@ -27,6 +27,7 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.android.architecture.blueprints.todoapp.R;
+import com.example.android.architecture.blueprints.todoapp.util.frames.JankMonitor;
 import com.google.common.base.Preconditions;
 
 import rx.android.schedulers.AndroidSchedulers;
@@ -52,6 +53,13 @@ public class StatisticsFragment extends Fragment {
         return new StatisticsFragment();
     }
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // keep the ViewModel and its latest UI model across configuration changes
+        setRetainInstance(true);
+    }
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -59,7 +67,11 @@ public class StatisticsFragment extends Fragment {
         View root = inflater.inflate(R.layout.statistics_frag, container, false);
         mStatisticsTV = root.findViewById(R.id.statistics);
 
-        mViewModel = StatisticsModule.createStatisticsViewModel(getContext());
+        if (mViewModel == null) {
+            // using the application context, since the ViewModel outlives the Activity
+            mViewModel = StatisticsModule.createStatisticsViewModel(
+                    requireContext().getApplicationContext());
+        }
 
         return root;
     }
@@ -76,6 +88,15 @@ public class StatisticsFragment extends Fragment {
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        // the fragment is not retained anymore, so the ViewModel can release its subscriptions
+        if (mViewModel != null) {
+            mViewModel.clear();
+        }
+        super.onDestroy();
+    }
+
     private void bindViewModel() {
         Preconditions.checkNotNull(mViewModel);
         // using a CompositeSubscription to gather all the subscriptions
@@ -102,6 +123,7 @@ public class StatisticsFragment extends Fragment {
     }
 
     private void updateStatistics(@NonNull StatisticsUiModel statistics) {
+        JankMonitor.getInstance().markEvent("StatisticsUiModel");
         mStatisticsTV.setText(statistics.getText());
     }
 }
@@ -23,8 +23,11 @@ import com.example.android.architecture.blueprints.todoapp.R;
 import com.example.android.architecture.blueprints.todoapp.data.Task;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.util.EspressoIdlingResource;
+import com.example.android.architecture.blueprints.todoapp.util.RetainedStream;
 import com.example.android.architecture.blueprints.todoapp.util.providers.BaseResourceProvider;
 
+import java.util.List;
+
 import rx.Observable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -40,41 +43,66 @@ public class StatisticsViewModel {
     @NonNull
     private final BaseResourceProvider mResourceProvider;
 
+    // the statistics stay subscribed while the view is paused and are replayed when it's bound
+    // again, so the tasks are not refreshed every time the view is resumed
+    @NonNull
+    private final RetainedStream<StatisticsUiModel> mUiModel;
+
     public StatisticsViewModel(@NonNull TasksRepository tasksRepository,
                                @NonNull BaseResourceProvider resourceProvider) {
         mTasksRepository = checkNotNull(tasksRepository, "tasksRepository cannot be null");
         mResourceProvider = checkNotNull(resourceProvider, "resourceProvider cannot be null");
+        mUiModel = new RetainedStream<>(Observable.defer(this::createUiModel));
     }
 
     /**
-     * @return A stream of statistics to be displayed.
+     * @return A stream of statistics to be displayed. The latest statistics are replayed to every
+     * new subscriber and updated when the tasks change.
      */
     @NonNull
     public Observable<StatisticsUiModel> getUiModel() {
+        return mUiModel.get();
+    }
+
+    /**
+     * Releases the subscription to the tasks. Call it when the view is destroyed for good.
+     */
+    public void clear() {
+        mUiModel.clear();
+    }
+
+    @NonNull
+    private Observable<StatisticsUiModel> createUiModel() {
         // The network request might be handled in a different thread so make sure Espresso knows
         // that the app is busy until the response is handled.
         EspressoIdlingResource.increment(); // App is busy until further notice
 
-        Observable<Task> tasks = mTasksRepository
+        // the statistics follow the tasks, since the stream is kept while the view is paused
+        Observable<String> statistics = mTasksRepository
                 .refreshTasks()
-                .andThen(mTasksRepository.getTasks()
-                        .first())
-                .flatMap(Observable::from);
-
-        Observable<Integer> completedTasks = tasks.filter(Task::isCompleted).count();
-        Observable<Integer> activeTasks = tasks.filter(Task::isActive).count();
+                .andThen(mTasksRepository.getTasks())
+                .map(this::getStatisticsString);
 
         return Observable.merge(
                 Observable.just(mResourceProvider.getString(R.string.loading)),
-                Observable.zip(completedTasks,
-                        activeTasks,
-                        (completed, active) -> getStatisticsString(active, completed))
+                statistics
                         .onErrorResumeNext(throwable -> {
                             return Observable.just(mResourceProvider.getString(R.string.loading_tasks_error));
                         }))
                 .map(StatisticsUiModel::new);
     }
 
+    @NonNull
+    private String getStatisticsString(@NonNull List<Task> tasks) {
+        int completedTasks = 0;
+        for (Task task : tasks) {
+            if (task.isCompleted()) {
+                completedTasks++;
+            }
+        }
+        return getStatisticsString(tasks.size() - completedTasks, completedTasks);
+    }
+
     @NonNull
     private String getStatisticsString(int numberOfActiveTasks, int numberOfCompletedTasks) {
         if (numberOfCompletedTasks == 0 && numberOfActiveTasks == 0) {
@@ -34,6 +34,7 @@ import androidx.annotation.StringRes;
 import androidx.fragment.app.Fragment;
 
 import com.example.android.architecture.blueprints.todoapp.R;
+import com.example.android.architecture.blueprints.todoapp.util.frames.JankMonitor;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 import com.google.common.base.Preconditions;
@@ -74,6 +75,13 @@ public class TaskDetailFragment extends Fragment {
         return fragment;
     }
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // keep the ViewModel and its latest UI model across configuration changes
+        setRetainInstance(true);
+    }
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -87,7 +95,9 @@ public class TaskDetailFragment extends Fragment {
 
         setupFab();
 
-        mViewModel = TaskDetailModule.createTaskDetailsViewModel(getTaskId(), getActivity());
+        if (mViewModel == null) {
+            mViewModel = TaskDetailModule.createTaskDetailsViewModel(getTaskId(), this);
+        }
 
         return root;
     }
@@ -104,6 +114,15 @@ public class TaskDetailFragment extends Fragment {
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        // the fragment is not retained anymore, so the ViewModel can release its subscriptions
+        if (mViewModel != null) {
+            mViewModel.clear();
+        }
+        super.onDestroy();
+    }
+
     private void setupFab() {
         FloatingActionButton fab =
                 getActivity().findViewById(R.id.fab_edit_task);
@@ -158,6 +177,7 @@ public class TaskDetailFragment extends Fragment {
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
+        JankMonitor.getInstance().markEvent("menu:" + item.getTitle());
         switch (item.getItemId()) {
             case R.id.menu_delete:
                 deleteTask();
@@ -173,6 +193,7 @@ public class TaskDetailFragment extends Fragment {
     }
 
     private void updateView(TaskUiModel model) {
+        JankMonitor.getInstance().markEvent("TaskUiModel");
         int titleVisibility = model.isShowTitle() ? View.VISIBLE : View.GONE;
         int descriptionVisibility = model.isShowDescription() ? View.VISIBLE : View.GONE;
 
@@ -195,6 +216,7 @@ public class TaskDetailFragment extends Fragment {
     }
 
     private void taskCheckChanged(final boolean checked) {
+        JankMonitor.getInstance().markEvent("taskChecked");
         getSubscription().add(getViewModel().taskCheckChanged(checked)
                 .subscribeOn(Schedulers.computation())
                 .observeOn(AndroidSchedulers.mainThread())
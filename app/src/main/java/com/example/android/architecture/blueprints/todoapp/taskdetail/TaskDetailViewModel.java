@@ -24,6 +24,7 @@ import androidx.annotation.Nullable;
 import com.example.android.architecture.blueprints.todoapp.R;
 import com.example.android.architecture.blueprints.todoapp.data.Task;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.util.RetainedStream;
 import com.google.common.base.Strings;
 
 import rx.Completable;
@@ -58,6 +59,10 @@ public class TaskDetailViewModel {
     @NonNull
     private final PublishSubject<Integer> mSnackbarText;
 
+    // the task stays subscribed while the view is paused and is replayed when it's bound again
+    @NonNull
+    private final RetainedStream<TaskUiModel> mTaskUiModel;
+
     public TaskDetailViewModel(@Nullable String taskId,
                                @NonNull TasksRepository tasksRepository,
                                @NonNull TaskDetailNavigator navigator) {
@@ -66,6 +71,7 @@ public class TaskDetailViewModel {
         mNavigator = checkNotNull(navigator, "navigator cannot be null");
         mLoadingSubject = BehaviorSubject.create(false);
         mSnackbarText = PublishSubject.create();
+        mTaskUiModel = new RetainedStream<>(Observable.defer(this::createTaskUiModel));
     }
 
     /**
@@ -79,10 +85,23 @@ public class TaskDetailViewModel {
     /**
      * @return a stream containing the task model. An error will be emitted
      * if the task id is invalid. The loading is updated before retrieving the task and when the
-     * task has been retrieved.
+     * task has been retrieved. The latest model is replayed to every new subscriber, without
+     * loading the task again.
      */
     @NonNull
     public Observable<TaskUiModel> getTaskUiModel() {
+        return mTaskUiModel.get();
+    }
+
+    /**
+     * Releases the subscription to the task. Call it when the view is destroyed for good.
+     */
+    public void clear() {
+        mTaskUiModel.clear();
+    }
+
+    @NonNull
+    private Observable<TaskUiModel> createTaskUiModel() {
         if (Strings.isNullOrEmpty(mTaskId)) {
             return Observable.error(new Exception("Task id null or empty"));
         }
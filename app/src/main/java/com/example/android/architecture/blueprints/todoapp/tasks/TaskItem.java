@@ -2,56 +2,98 @@ package com.example.android.architecture.blueprints.todoapp.tasks;
 
 
 import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import com.example.android.architecture.blueprints.todoapp.data.Task;
-
-import rx.functions.Action0;
-import rx.functions.Action1;
+import com.google.common.base.Objects;
 
 /**
  * A task that should be displayed as an item in a list of tasks.
- * Contains the task, the action that should be triggered when taping on the task, the action that
- * should be triggered when checking or unchecking a task and the background that should be used for
- * this task.
+ * Contains the id of the task, the title that should be displayed, whether the task is completed
+ * and the background that should be used for this task. The actions triggered when taping or
+ * checking the item are handled by a {@link TaskItemActionHandler}, shared by all the items.
  */
 final class TaskItem {
 
-    private Task mTask;
+    // FNV-1a, 64 bits
+    private static final long STABLE_ID_OFFSET_BASIS = 0xcbf29ce484222325L;
 
-    @DrawableRes
-    private int mBackground;
+    private static final long STABLE_ID_PRIME = 0x100000001b3L;
+
+    @NonNull
+    private final String mId;
+
+    private final long mStableId;
+
+    @Nullable
+    private final String mTitle;
 
-    private Action0 mOnClickAction;
+    private final boolean mCompleted;
 
-    private Action1<Boolean> mOnCheckAction;
+    @DrawableRes
+    private final int mBackground;
 
-    public TaskItem(Task task, @DrawableRes int background,
-                    Action0 onClickAction, Action1<Boolean> onCheckAction) {
-        mTask = task;
+    public TaskItem(@NonNull String id, @Nullable String title, boolean completed,
+                    @DrawableRes int background) {
+        mId = id;
+        mStableId = stableId(id);
+        mTitle = title;
+        mCompleted = completed;
         mBackground = background;
-        mOnClickAction = onClickAction;
-        mOnCheckAction = onCheckAction;
     }
 
-    public Task getTask() {
-        return mTask;
+    @NonNull
+    public String getId() {
+        return mId;
+    }
+
+    /**
+     * @return a 64-bit hash of the task id, the same for all the items of the task. The ids are
+     * UUIDs, so two tasks of a list practically never share it.
+     */
+    public long getStableId() {
+        return mStableId;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public boolean isCompleted() {
+        return mCompleted;
     }
 
     public int getBackground() {
         return mBackground;
     }
 
-    /**
-     * @return the action to be triggered on click events
-     */
-    public Action0 getOnClickAction() {
-        return mOnClickAction;
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskItem taskItem = (TaskItem) o;
+        return mCompleted == taskItem.mCompleted &&
+                mBackground == taskItem.mBackground &&
+                mId.equals(taskItem.mId) &&
+                Objects.equal(mTitle, taskItem.mTitle);
     }
 
-    /**
-     * @return the action to be triggered when the task is checked (marked as done or active)
-     */
-    public Action1<Boolean> getOnCheckAction() {
-        return mOnCheckAction;
+    @Override
+    public int hashCode() {
+        int result = mId.hashCode();
+        result = 31 * result + (mTitle != null ? mTitle.hashCode() : 0);
+        result = 31 * result + (mCompleted ? 1 : 0);
+        result = 31 * result + mBackground;
+        return result;
+    }
+
+    private static long stableId(@NonNull String id) {
+        long hash = STABLE_ID_OFFSET_BASIS;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= STABLE_ID_PRIME;
+        }
+        return hash;
     }
 }
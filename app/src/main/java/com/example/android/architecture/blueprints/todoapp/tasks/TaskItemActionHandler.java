@@ -0,0 +1,19 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Handles the actions triggered on the items of the list of tasks, based on the id of the task.
+ */
+interface TaskItemActionHandler {
+
+    /**
+     * Called when the item of a task is tapped.
+     */
+    void onTaskTapped(@NonNull String taskId);
+
+    /**
+     * Called when a task is checked (marked as done) or unchecked (marked as active).
+     */
+    void onTaskChecked(@NonNull String taskId, boolean checked);
+}
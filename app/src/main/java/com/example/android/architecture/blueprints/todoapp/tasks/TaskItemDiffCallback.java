@@ -0,0 +1,27 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * Compares {@link TaskItem}s: two items are the same if they display the same task and have the
+ * same contents if they are equal.
+ */
+final class TaskItemDiffCallback extends DiffUtil.ItemCallback<TaskItem> {
+
+    static final TaskItemDiffCallback INSTANCE = new TaskItemDiffCallback();
+
+    private TaskItemDiffCallback() {
+    }
+
+    @Override
+    public boolean areItemsTheSame(@NonNull TaskItem oldItem, @NonNull TaskItem newItem) {
+        return oldItem.getId().equals(newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull TaskItem oldItem, @NonNull TaskItem newItem) {
+        // items of unchanged tasks are reused, so equals returns early
+        return oldItem.equals(newItem);
+    }
+}
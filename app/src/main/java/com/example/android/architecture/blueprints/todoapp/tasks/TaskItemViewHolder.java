@@ -5,15 +5,19 @@ import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.TextView;
 
-import com.example.android.architecture.blueprints.todoapp.R;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
 
-import rx.functions.Action0;
-import rx.functions.Action1;
+import com.example.android.architecture.blueprints.todoapp.R;
+import com.example.android.architecture.blueprints.todoapp.util.frames.JankMonitor;
 
 /**
- * View holder for the task item.
+ * View holder for the task item. The listeners are set once and dispatch the actions with the id
+ * of the bound task.
  */
-final class TaskItemViewHolder implements View.OnClickListener, CheckBox.OnCheckedChangeListener {
+final class TaskItemViewHolder extends RecyclerView.ViewHolder
+        implements View.OnClickListener, CheckBox.OnCheckedChangeListener {
 
     private View mRow;
 
@@ -21,41 +25,53 @@ final class TaskItemViewHolder implements View.OnClickListener, CheckBox.OnCheck
 
     private CheckBox mCheckBox;
 
-    private Action0 mOnItemClickAction;
+    @NonNull
+    private final TaskItemActionHandler mActionHandler;
+
+    @NonNull
+    private final TaskTitleLayouts mTitleLayouts;
+
+    @Nullable
+    private String mTaskId;
 
-    private Action1<Boolean> mOnCheckAction;
+    // true while the views are updated, so the check listener ignores the changes
+    private boolean mIsBinding;
 
-    public TaskItemViewHolder(View rowView) {
+    public TaskItemViewHolder(View rowView, @NonNull TaskItemActionHandler actionHandler,
+                              @NonNull TaskTitleLayouts titleLayouts) {
+        super(rowView);
         mRow = rowView;
         mTitle = rowView.findViewById(R.id.title);
         mCheckBox = rowView.findViewById(R.id.complete);
+        mActionHandler = actionHandler;
+        mTitleLayouts = titleLayouts;
 
         rowView.setOnClickListener(this);
+        mCheckBox.setOnCheckedChangeListener(this);
     }
 
     public void bindItem(TaskItem taskItem) {
-        // disable the listener for the setup
-        mCheckBox.setOnCheckedChangeListener(null);
-        mTitle.setText(taskItem.getTask().getTitleForList());
-        mCheckBox.setChecked(taskItem.getTask().isCompleted());
+        mIsBinding = true;
+        mTaskId = taskItem.getId();
+        mTitleLayouts.setTitle(mTitle, taskItem.getTitle());
+        mCheckBox.setChecked(taskItem.isCompleted());
         mRow.setBackgroundResource(taskItem.getBackground());
-
-        mOnCheckAction = taskItem.getOnCheckAction();
-        mOnItemClickAction = taskItem.getOnClickAction();
-        mCheckBox.setOnCheckedChangeListener(this);
+        mIsBinding = false;
     }
 
     @Override
     public void onClick(View v) {
-        if (mOnItemClickAction != null) {
-            mOnItemClickAction.call();
+        if (mTaskId != null) {
+            JankMonitor.getInstance().markEvent("taskTapped");
+            mActionHandler.onTaskTapped(mTaskId);
         }
     }
 
     @Override
     public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-        if (mOnCheckAction != null) {
-            mOnCheckAction.call(isChecked);
+        if (!mIsBinding && mTaskId != null) {
+            JankMonitor.getInstance().markEvent("taskChecked");
+            mActionHandler.onTaskChecked(mTaskId, isChecked);
         }
     }
 }
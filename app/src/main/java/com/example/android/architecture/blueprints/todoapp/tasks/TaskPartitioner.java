@@ -0,0 +1,233 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.android.architecture.blueprints.todoapp.R;
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.util.ParallelListBuilder;
+import com.google.common.base.Objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps the {@link TaskPartitions} of the last list of tasks and updates them when a new list is
+ * emitted. Only the tasks that changed produce new {@link TaskItem}s, and a list with the same
+ * task instances as the previous one returns the previous partitions.
+ * <p>
+ * When a few tasks changed in place, like a task completed or renamed, their rows are applied to
+ * the previous partitions: the partitions they are in are copied with the new items, the others
+ * are reused as they are, and the other tasks aren't mapped nor split again. Otherwise, like when
+ * tasks are added, deleted or moved, the partitions are rebuilt and large lists are mapped to
+ * items in parallel by a {@link ParallelListBuilder}.
+ */
+final class TaskPartitioner {
+
+    private static final int MAX_STALE_TASK_ITEMS = 64;
+
+    // applying a row costs a copy of the partitions, so many changed rows rebuild them instead
+    private static final int MAX_APPLIED_ROWS = 16;
+
+    @NonNull
+    private final ParallelListBuilder mListBuilder;
+
+    // the last item built for every task id, reused while the task doesn't change
+    @NonNull
+    private final Map<String, TaskItem> mTaskItems = new HashMap<>();
+
+    // the tasks and the items of the last list, by position
+    @NonNull
+    private Task[] mTasks = new Task[0];
+
+    @NonNull
+    private List<TaskItem> mItems = Collections.emptyList();
+
+    @NonNull
+    private List<TaskItem> mActive = Collections.emptyList();
+
+    @NonNull
+    private List<TaskItem> mCompleted = Collections.emptyList();
+
+    // the position of every item of the last list in its active or completed partition
+    @NonNull
+    private int[] mPartitionPositions = new int[0];
+
+    @NonNull
+    private TaskPartitions mPartitions = TaskPartitions.EMPTY;
+
+    TaskPartitioner(@NonNull ParallelListBuilder listBuilder) {
+        mListBuilder = checkNotNull(listBuilder, "listBuilder cannot be null");
+    }
+
+    /**
+     * @param tasks the new list of tasks.
+     * @return the partitions of the list, the previous ones if none of the tasks changed.
+     */
+    @NonNull
+    synchronized TaskPartitions update(@NonNull List<Task> tasks) {
+        int[] changedRows = findChangedRows(tasks);
+        if (changedRows == null) {
+            rebuild(tasks);
+        } else if (changedRows.length > 0) {
+            applyChangedRows(tasks, changedRows);
+        }
+        return mPartitions;
+    }
+
+    /**
+     * @return the positions of the tasks replaced by a new version, or null if the tasks were
+     * added, deleted or moved, or if too many of them changed to be applied one by one.
+     */
+    @Nullable
+    private int[] findChangedRows(@NonNull List<Task> tasks) {
+        if (tasks.size() != mTasks.length) {
+            return null;
+        }
+        int[] rows = new int[MAX_APPLIED_ROWS];
+        int count = 0;
+        for (int i = 0; i < mTasks.length; i++) {
+            Task task = tasks.get(i);
+            if (task == mTasks[i]) {
+                continue;
+            }
+            if (count == MAX_APPLIED_ROWS || !task.getId().equals(mTasks[i].getId())) {
+                return null;
+            }
+            rows[count++] = i;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private void applyChangedRows(@NonNull List<Task> tasks, @NonNull int[] rows) {
+        Task[] newTasks = mTasks.clone();
+        List<TaskItem> items = null;
+        List<TaskItem> active = null;
+        List<TaskItem> completed = null;
+        for (int row : rows) {
+            Task task = tasks.get(row);
+            newTasks[row] = task;
+            TaskItem previous = mItems.get(row);
+            TaskItem item = getTaskItem(task);
+            if (item == previous) {
+                // like a new description, which isn't displayed in the list
+                continue;
+            }
+            mTaskItems.put(item.getId(), item);
+            // the lists of the previous partitions may still be displayed, so they are copied
+            if (items == null) {
+                items = new ArrayList<>(mItems);
+            }
+            items.set(row, item);
+            if (active == null && !(item.isCompleted() && previous.isCompleted())) {
+                active = new ArrayList<>(mActive);
+            }
+            if (completed == null && (item.isCompleted() || previous.isCompleted())) {
+                completed = new ArrayList<>(mCompleted);
+            }
+            int position = mPartitionPositions[row];
+            if (item.isCompleted() == previous.isCompleted()) {
+                (item.isCompleted() ? completed : active).set(position, item);
+            } else {
+                move(items, row, position, item.isCompleted() ? active : completed,
+                        item.isCompleted() ? completed : active);
+            }
+        }
+
+        mTasks = newTasks;
+        if (items != null) {
+            mItems = items;
+            mActive = active != null ? active : mActive;
+            mCompleted = completed != null ? completed : mCompleted;
+            mPartitions = mPartitions.withItems(items, active, completed);
+        }
+    }
+
+    /**
+     * Moves the item of a row to the other partition. The items of the other partition before it
+     * are the rows before it minus the items of its partition before it.
+     */
+    private void move(@NonNull List<TaskItem> items, int row, int position,
+                      @NonNull List<TaskItem> from, @NonNull List<TaskItem> to) {
+        TaskItem item = items.get(row);
+        from.remove(position);
+        to.add(row - position, item);
+        mPartitionPositions[row] = row - position;
+        for (int i = row + 1; i < mPartitionPositions.length; i++) {
+            mPartitionPositions[i] += items.get(i).isCompleted() == item.isCompleted() ? 1 : -1;
+        }
+    }
+
+    private void rebuild(@NonNull List<Task> tasks) {
+        // the items are mapped concurrently, so the cache is only read until all are mapped
+        Task[] previousTasks = mTasks;
+        List<TaskItem> previousItems = mItems;
+        List<TaskItem> items = mListBuilder.map(tasks, (index, task) ->
+                isSameTask(previousTasks, index, task)
+                        ? previousItems.get(index)
+                        : getTaskItem(task));
+
+        int size = tasks.size();
+        boolean refillCache = mTaskItems.size() > 2 * size + MAX_STALE_TASK_ITEMS;
+        if (refillCache) {
+            // drop the items of the deleted tasks
+            mTaskItems.clear();
+        }
+        Task[] newTasks = tasks.toArray(new Task[size]);
+        List<TaskItem> active = new ArrayList<>();
+        List<TaskItem> completed = new ArrayList<>();
+        int[] partitionPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            TaskItem item = items.get(i);
+            if (refillCache || !isSameTask(previousTasks, i, newTasks[i])) {
+                mTaskItems.put(item.getId(), item);
+            }
+            if (item.isCompleted()) {
+                partitionPositions[i] = completed.size();
+                completed.add(item);
+            } else {
+                partitionPositions[i] = active.size();
+                active.add(item);
+            }
+        }
+
+        mTasks = newTasks;
+        mItems = items;
+        mActive = active;
+        mCompleted = completed;
+        mPartitionPositions = partitionPositions;
+        mPartitions = new TaskPartitions(items, active, completed);
+    }
+
+    private static boolean isSameTask(@NonNull Task[] tasks, int index, @NonNull Task task) {
+        return index < tasks.length && tasks[index] == task;
+    }
+
+    @NonNull
+    private TaskItem getTaskItem(@NonNull Task task) {
+        TaskItem item = mTaskItems.get(task.getId());
+        return isUpToDate(item, task) ? item : constructTaskItem(task);
+    }
+
+    private static boolean isUpToDate(@Nullable TaskItem item, @NonNull Task task) {
+        return item != null
+                && item.isCompleted() == task.isCompleted()
+                && Objects.equal(item.getTitle(), task.getTitleForList());
+    }
+
+    @NonNull
+    private static TaskItem constructTaskItem(@NonNull Task task) {
+        @DrawableRes int background = task.isCompleted()
+                ? R.drawable.list_completed_touch_feedback
+                : R.drawable.touch_feedback;
+
+        return new TaskItem(task.getId(), task.getTitleForList(), task.isCompleted(), background);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The task items of a list of tasks, split by filter. The lists are built once per list of tasks,
+ * so switching the filter only selects another list. A list without changed items is shared with
+ * the partitions of the previous list of tasks.
+ */
+final class TaskPartitions {
+
+    static final TaskPartitions EMPTY = new TaskPartitions(Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList());
+
+    @NonNull
+    private final List<TaskItem> mAll;
+
+    @NonNull
+    private final List<TaskItem> mActive;
+
+    @NonNull
+    private final List<TaskItem> mCompleted;
+
+    TaskPartitions(@NonNull List<TaskItem> all, @NonNull List<TaskItem> active,
+                   @NonNull List<TaskItem> completed) {
+        mAll = Collections.unmodifiableList(all);
+        mActive = Collections.unmodifiableList(active);
+        mCompleted = Collections.unmodifiableList(completed);
+    }
+
+    private TaskPartitions(@NonNull TaskPartitions previous, @NonNull List<TaskItem> all,
+                           @Nullable List<TaskItem> active, @Nullable List<TaskItem> completed) {
+        mAll = Collections.unmodifiableList(all);
+        mActive = active != null ? Collections.unmodifiableList(active) : previous.mActive;
+        mCompleted = completed != null
+                ? Collections.unmodifiableList(completed)
+                : previous.mCompleted;
+    }
+
+    /**
+     * @return partitions with the given items, and the active or completed items of these
+     * partitions where null.
+     */
+    @NonNull
+    TaskPartitions withItems(@NonNull List<TaskItem> all, @Nullable List<TaskItem> active,
+                             @Nullable List<TaskItem> completed) {
+        return new TaskPartitions(this, all, active, completed);
+    }
+
+    /**
+     * @return the items that should be displayed for the filter. The list cannot be modified.
+     */
+    @NonNull
+    List<TaskItem> get(@NonNull TasksFilterType filterType) {
+        switch (filterType) {
+            case ACTIVE_TASKS:
+                return mActive;
+            case COMPLETED_TASKS:
+                return mCompleted;
+            case ALL_TASKS:
+            default:
+                return mAll;
+        }
+    }
+}
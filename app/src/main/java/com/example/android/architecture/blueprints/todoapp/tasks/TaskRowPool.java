@@ -0,0 +1,90 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.core.widget.TextViewCompat;
+
+import com.example.android.architecture.blueprints.todoapp.R;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Rows of the list of tasks inflated on a background thread, so the first rows displayed don't
+ * have to be inflated during the first layout of the list.
+ */
+final class TaskRowPool {
+
+    @NonNull
+    private final TaskTitleLayouts mTitleLayouts;
+
+    @NonNull
+    private final Deque<View> mRows = new ArrayDeque<>();
+
+    // incremented when the pool is cleared, so the rows inflated before are dropped
+    private int mGeneration;
+
+    TaskRowPool(@NonNull TaskTitleLayouts titleLayouts) {
+        mTitleLayouts = checkNotNull(titleLayouts, "titleLayouts cannot be null");
+    }
+
+    /**
+     * Starts inflating rows for the list in the background. The rows are added to the pool on the
+     * main thread, as soon as they are inflated.
+     */
+    @MainThread
+    void prewarm(@NonNull ViewGroup list, int count) {
+        int generation = mGeneration;
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(list.getContext());
+        for (int i = 0; i < count; i++) {
+            inflater.inflate(R.layout.task_item, list, (view, resid, parent) -> {
+                if (generation == mGeneration) {
+                    onRowInflated(view);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return a row inflated in advance or null if there is none left.
+     */
+    @MainThread
+    @Nullable
+    View acquire() {
+        return mRows.pollFirst();
+    }
+
+    /**
+     * @return the number of rows in the pool.
+     */
+    @MainThread
+    int size() {
+        return mRows.size();
+    }
+
+    /**
+     * Drops the rows in the pool and the ones still being inflated.
+     */
+    @MainThread
+    void clear() {
+        mGeneration++;
+        mRows.clear();
+    }
+
+    private void onRowInflated(@NonNull View row) {
+        if (mRows.isEmpty()) {
+            // the titles of the list are measured like the title of the rows
+            TextView title = row.findViewById(R.id.title);
+            mTitleLayouts.setParams(TextViewCompat.getTextMetricsParams(title));
+        }
+        mRows.addLast(row);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.List;
+
+/**
+ * Text layouts of the task titles, measured on a background thread before the items are bound.
+ * Like this, binding a row on the main thread only sets the measured text. The layouts are
+ * measured with the text parameters of the title of a row, so nothing is precomputed until
+ * {@link #setParams(PrecomputedTextCompat.Params)} is called.
+ */
+final class TaskTitleLayouts {
+
+    // enough for the rows visible when the list is displayed and the ones scrolled to next
+    private static final int MAX_LAYOUTS = 128;
+
+    @NonNull
+    private final LruCache<String, PrecomputedTextCompat> mLayouts = new LruCache<>(MAX_LAYOUTS);
+
+    @Nullable
+    private volatile PrecomputedTextCompat.Params mParams;
+
+    /**
+     * Sets the parameters of the title of the rows. The layouts measured with other parameters are
+     * dropped.
+     */
+    void setParams(@NonNull PrecomputedTextCompat.Params params) {
+        if (!params.equals(mParams)) {
+            mParams = params;
+            mLayouts.evictAll();
+        }
+    }
+
+    /**
+     * Measures the titles of the first items of the list that were not measured yet. Should be
+     * called on a background thread.
+     */
+    void precompute(@NonNull List<TaskItem> items) {
+        PrecomputedTextCompat.Params params = mParams;
+        if (params == null) {
+            return;
+        }
+        int count = Math.min(items.size(), MAX_LAYOUTS);
+        for (int i = 0; i < count; i++) {
+            String title = items.get(i).getTitle();
+            if (title != null && mLayouts.get(title) == null) {
+                mLayouts.put(title, PrecomputedTextCompat.create(title, params));
+            }
+        }
+    }
+
+    /**
+     * Sets the title on the view, using the precomputed layout when there is one for the text
+     * parameters of the view.
+     */
+    void setTitle(@NonNull TextView view, @Nullable String title) {
+        PrecomputedTextCompat layout = title != null ? mLayouts.get(title) : null;
+        if (layout != null
+                && layout.getParams().equals(TextViewCompat.getTextMetricsParams(view))) {
+            TextViewCompat.setPrecomputedText(view, layout);
+        } else {
+            view.setText(title);
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.example.android.architecture.blueprints.todoapp.tasks;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 
 import com.example.android.architecture.blueprints.todoapp.R;
 
@@ -12,58 +14,63 @@ import java.util.List;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Adapter for the list of tasks.
+ * Adapter for the list of tasks. The difference between the current and the new list of tasks is
+ * computed on a background thread, so only the rows of the tasks that changed are rebound. New
+ * rows are taken from a pool of rows inflated in advance, when there are some left.
  */
-final class TasksAdapter extends BaseAdapter {
+final class TasksAdapter extends ListAdapter<TaskItem, TaskItemViewHolder> {
 
-    private List<TaskItem> mTasks;
+    @NonNull
+    private final TaskItemActionHandler mActionHandler;
 
-    public TasksAdapter(List<TaskItem> tasks) {
-        setList(tasks);
-    }
+    @NonNull
+    private final TaskRowPool mRowPool;
 
-    public void replaceData(List<TaskItem> tasks) {
-        setList(tasks);
-        notifyDataSetChanged();
-    }
+    @NonNull
+    private final TaskTitleLayouts mTitleLayouts;
 
-    private void setList(List<TaskItem> tasks) {
-        mTasks = checkNotNull(tasks);
+    public TasksAdapter(@NonNull TaskItemActionHandler actionHandler) {
+        this(actionHandler, new TaskTitleLayouts());
     }
 
-    @Override
-    public int getCount() {
-        return mTasks.size();
+    private TasksAdapter(@NonNull TaskItemActionHandler actionHandler,
+                         @NonNull TaskTitleLayouts titleLayouts) {
+        this(actionHandler, new TaskRowPool(titleLayouts), titleLayouts);
     }
 
-    @Override
-    public TaskItem getItem(int i) {
-        return mTasks.get(i);
+    public TasksAdapter(@NonNull TaskItemActionHandler actionHandler,
+                        @NonNull TaskRowPool rowPool,
+                        @NonNull TaskTitleLayouts titleLayouts) {
+        super(TaskItemDiffCallback.INSTANCE);
+        mActionHandler = checkNotNull(actionHandler);
+        mRowPool = checkNotNull(rowPool);
+        mTitleLayouts = checkNotNull(titleLayouts);
+        setHasStableIds(true);
     }
 
-    @Override
-    public long getItemId(int i) {
-        return i;
+    public void replaceData(List<TaskItem> tasks) {
+        submitList(checkNotNull(tasks));
     }
 
+    @NonNull
     @Override
-    public View getView(int i, View view, ViewGroup viewGroup) {
-        View rowView = view;
-        TaskItemViewHolder viewHolder;
-
+    public TaskItemViewHolder onCreateViewHolder(@NonNull ViewGroup viewGroup, int viewType) {
+        View rowView = mRowPool.acquire();
         if (rowView == null) {
             LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
             rowView = inflater.inflate(R.layout.task_item, viewGroup, false);
-
-            viewHolder = new TaskItemViewHolder(rowView);
-            rowView.setTag(viewHolder);
-        } else {
-            viewHolder = (TaskItemViewHolder) rowView.getTag();
         }
+        return new TaskItemViewHolder(rowView, mActionHandler, mTitleLayouts);
+    }
 
-        final TaskItem taskItem = getItem(i);
-        viewHolder.bindItem(taskItem);
+    @Override
+    public void onBindViewHolder(@NonNull TaskItemViewHolder viewHolder, int position) {
+        viewHolder.bindItem(getItem(position));
+    }
 
-        return rowView;
+    @Override
+    public long getItemId(int position) {
+        // derived from the task id, so nothing is kept for the tasks no longer displayed
+        return getItem(position).getStableId();
     }
 }
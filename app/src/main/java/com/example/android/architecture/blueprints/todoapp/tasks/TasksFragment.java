@@ -28,7 +28,6 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
-import android.widget.ListView;
 import android.widget.TextView;
 
 import androidx.annotation.Nullable;
@@ -36,14 +35,18 @@ import androidx.annotation.StringRes;
 import androidx.appcompat.widget.PopupMenu;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.android.architecture.blueprints.todoapp.R;
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.util.frames.FrameClock;
+import com.example.android.architecture.blueprints.todoapp.util.frames.FrameConflater;
+import com.example.android.architecture.blueprints.todoapp.util.frames.JankMonitor;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import rx.android.schedulers.AndroidSchedulers;
@@ -57,10 +60,20 @@ public class TasksFragment extends Fragment {
 
     private static final String TAG = TasksFragment.class.getSimpleName();
 
+    // enough rows to fill the screen when the list is displayed
+    private static final int PREWARMED_ROWS = 12;
+
     private TasksViewModel mViewModel;
 
     private TasksAdapter mListAdapter;
 
+    // the measured titles don't depend on the Activity, so they are kept with the fragment
+    private final TaskTitleLayouts mTitleLayouts = new TaskTitleLayouts();
+
+    // the rows are inflated with the context of the Activity, so the pool is recreated with the view
+    @Nullable
+    private TaskRowPool mRowPool;
+
     private View mNoTasksView;
 
     private ImageView mNoTaskIcon;
@@ -75,6 +88,10 @@ public class TasksFragment extends Fragment {
 
     private CompositeSubscription mSubscription = new CompositeSubscription();
 
+    // delivers at most one UI model per frame, dropping the ones replaced before the frame
+    private final FrameConflater<TasksUiModel> mUiModelConflater =
+            new FrameConflater<>(FrameClock.getInstance());
+
     public TasksFragment() {
         // Requires empty public constructor
     }
@@ -89,17 +106,34 @@ public class TasksFragment extends Fragment {
         mViewModel.handleActivityResult(requestCode, resultCode);
     }
 
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // keep the ViewModel and its latest UI model across configuration changes
+        setRetainInstance(true);
+    }
+
     @Nullable
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
-        mListAdapter = new TasksAdapter(new ArrayList<>(0));
+        if (mViewModel == null) {
+            mViewModel = TasksModule.createTasksViewModel(this);
+            mViewModel.restoreState(savedInstanceState);
+        }
+
+        mRowPool = new TaskRowPool(mTitleLayouts);
+        mListAdapter = new TasksAdapter(mViewModel.getTaskItemActionHandler(), mRowPool,
+                mTitleLayouts);
 
         View root = inflater.inflate(R.layout.tasks_frag, container, false);
 
         // Set up tasks view
-        ListView listView = root.findViewById(R.id.tasks_list);
+        RecyclerView listView = root.findViewById(R.id.tasks_list);
+        listView.setLayoutManager(new LinearLayoutManager(getContext()));
         listView.setAdapter(mListAdapter);
+        // inflate the first rows in the background while the tasks are loaded
+        mRowPool.prewarm(listView, PREWARMED_ROWS);
         mFilteringLabelView = root.findViewById(R.id.filteringLabel);
         mTasksView = root.findViewById(R.id.tasksLL);
 
@@ -109,12 +143,18 @@ public class TasksFragment extends Fragment {
 
         setHasOptionsMenu(true);
 
-        mViewModel = TasksModule.createTasksViewModel(getActivity());
-        mViewModel.restoreState(savedInstanceState);
-
         return root;
     }
 
+    @Override
+    public void onDestroyView() {
+        if (mRowPool != null) {
+            mRowPool.clear();
+            mRowPool = null;
+        }
+        super.onDestroyView();
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -127,6 +167,15 @@ public class TasksFragment extends Fragment {
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        // the fragment is not retained anymore, so the ViewModel can release its subscriptions
+        if (mViewModel != null) {
+            mViewModel.clear();
+        }
+        super.onDestroy();
+    }
+
     private void bindViewModel() {
         // using a CompositeSubscription to gather all the subscriptions, so all of them can be
         // later unsubscribed together
@@ -134,9 +183,13 @@ public class TasksFragment extends Fragment {
 
         // The ViewModel holds an observable containing the state of the UI.
         // subscribe to the emissions of the Ui Model
-        // update the view at every emission fo the Ui Model
+        // update the view at every emission fo the Ui Model, at most once per frame
+        // only the titles of the models kept by the conflater are measured, off the main thread
         mSubscription.add(mViewModel.getUiModel()
                 .subscribeOn(Schedulers.computation())
+                .compose(mUiModelConflater)
+                .observeOn(Schedulers.computation())
+                .doOnNext(model -> mTitleLayouts.precompute(model.getItemList()))
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
                         //onNext
@@ -173,9 +226,11 @@ public class TasksFragment extends Fragment {
     private void unbindViewModel() {
         // unsubscribing from all the subscriptions to ensure we don't have any memory leaks
         mSubscription.unsubscribe();
+        Log.d(TAG, "UI models dropped by conflation: " + mUiModelConflater.getDroppedCount());
     }
 
     private void updateView(TasksUiModel model) {
+        JankMonitor.getInstance().markEvent("TasksUiModel");
         int tasksListVisiblity = model.isTasksListVisible() ? View.VISIBLE : View.GONE;
         int noTasksViewVisibility = model.isNoTasksViewVisible() ? View.VISIBLE : View.GONE;
         mTasksView.setVisibility(tasksListVisiblity);
@@ -199,7 +254,7 @@ public class TasksFragment extends Fragment {
         mNoTaskAddView.setOnClickListener(__ -> mViewModel.addNewTask());
     }
 
-    private void setupSwipeRefreshLayout(View root, ListView listView) {
+    private void setupSwipeRefreshLayout(View root, RecyclerView listView) {
         final ScrollChildSwipeRefreshLayout swipeRefreshLayout =
                 root.findViewById(R.id.refresh_layout);
         swipeRefreshLayout.setColorSchemeColors(
@@ -229,6 +284,7 @@ public class TasksFragment extends Fragment {
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
+        JankMonitor.getInstance().markEvent("menu:" + item.getTitle());
         switch (item.getItemId()) {
             case R.id.menu_clear:
                 clearCompletedTasks();
@@ -282,6 +338,7 @@ public class TasksFragment extends Fragment {
         popup.getMenuInflater().inflate(R.menu.filter_tasks, popup.getMenu());
 
         popup.setOnMenuItemClickListener(item -> {
+            JankMonitor.getInstance().markEvent("filter:" + item.getTitle());
             switch (item.getItemId()) {
                 case R.id.active:
                     mViewModel.filter(TasksFilterType.ACTIVE_TASKS);
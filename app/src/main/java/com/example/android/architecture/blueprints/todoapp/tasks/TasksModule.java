@@ -1,9 +1,9 @@
 package com.example.android.architecture.blueprints.todoapp.tasks;
 
-import android.app.Activity;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
 
 import com.example.android.architecture.blueprints.todoapp.Injection;
 import com.example.android.architecture.blueprints.todoapp.util.providers.BaseNavigator;
@@ -14,9 +14,9 @@ import com.example.android.architecture.blueprints.todoapp.util.providers.BaseNa
 class TasksModule {
 
     @NonNull
-    public static TasksViewModel createTasksViewModel(@NonNull Activity activity) {
-        Context appContext = activity.getApplicationContext();
-        BaseNavigator navigationProvider = Injection.createNavigationProvider(activity);
+    public static TasksViewModel createTasksViewModel(@NonNull Fragment fragment) {
+        Context appContext = fragment.requireContext().getApplicationContext();
+        BaseNavigator navigationProvider = Injection.createNavigationProvider(fragment);
         return new TasksViewModel(Injection.provideTasksRepository(appContext),
                 createTasksNavigator(navigationProvider), Injection.provideSchedulerProvider());
     }
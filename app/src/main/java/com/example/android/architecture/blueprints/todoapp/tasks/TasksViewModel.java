@@ -4,17 +4,16 @@ import android.app.Activity;
 import android.os.Bundle;
 import android.util.Log;
 
-import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.annotation.VisibleForTesting;
-import androidx.core.util.Pair;
 
 import com.example.android.architecture.blueprints.todoapp.R;
 import com.example.android.architecture.blueprints.todoapp.addedittask.AddEditTaskActivity;
-import com.example.android.architecture.blueprints.todoapp.data.Task;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.util.ParallelListBuilder;
+import com.example.android.architecture.blueprints.todoapp.util.RetainedStream;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.BaseSchedulerProvider;
 
 import java.util.List;
@@ -58,37 +57,77 @@ public final class TasksViewModel {
     @NonNull
     private final PublishSubject<Integer> mSnackbarText;
 
+    // shared by all the task items, dispatching the actions based on the task id
+    @NonNull
+    private final TaskItemActionHandler mTaskItemActionHandler;
+
+    // the items of the last list of tasks, split by filter
+    @NonNull
+    private final TaskPartitioner mTaskPartitioner;
+
+    // the UI model stays subscribed while the view is paused and is replayed when it's bound again
+    @NonNull
+    private final RetainedStream<TasksUiModel> mUiModel;
+
     public TasksViewModel(@NonNull TasksRepository tasksRepository,
                           @NonNull TasksNavigator navigationProvider,
                           @NonNull BaseSchedulerProvider schedulerProvider) {
         mTasksRepository = checkNotNull(tasksRepository, "TaskRepository cannot be null");
         mNavigator = checkNotNull(navigationProvider, "Navigator cannot be null");
         mSchedulerProvider = checkNotNull(schedulerProvider, "SchedulerProvider cannot be null");
+        mTaskPartitioner = new TaskPartitioner(
+                new ParallelListBuilder(mSchedulerProvider.computation()));
 
         mLoadingIndicatorSubject = BehaviorSubject.create(false);
         mFilter = BehaviorSubject.create(TasksFilterType.ALL_TASKS);
         mSnackbarText = PublishSubject.create();
+        mTaskItemActionHandler = new TaskItemActionHandler() {
+            @Override
+            public void onTaskTapped(@NonNull String taskId) {
+                handleTaskTaped(taskId);
+            }
+
+            @Override
+            public void onTaskChecked(@NonNull String taskId, boolean checked) {
+                handleTaskChecked(taskId, checked);
+            }
+        };
+        mUiModel = new RetainedStream<>(Observable.defer(this::createUiModel));
     }
 
 
     /**
-     * @return the model for the tasks list.
+     * @return the model for the tasks list. The latest model is replayed to every new subscriber,
+     * without loading the tasks again.
      */
     @NonNull
     public Observable<TasksUiModel> getUiModel() {
-        return getTaskItems()
+        return mUiModel.get();
+    }
+
+    /**
+     * Releases the subscription to the tasks. Call it when the view is destroyed for good.
+     */
+    public void clear() {
+        mUiModel.clear();
+    }
+
+    @NonNull
+    private Observable<TasksUiModel> createUiModel() {
+        Observable<TaskPartitions> partitions = mTasksRepository.getTasks()
+                .map(mTaskPartitioner::update)
                 .doOnSubscribe(() -> mLoadingIndicatorSubject.onNext(true))
                 .doOnNext(__ -> mLoadingIndicatorSubject.onNext(false))
-                .doOnError(__ -> mSnackbarText.onNext(R.string.loading_tasks_error))
-                .switchMap(tasks -> mFilter.map(filterType -> Pair.create(tasks, filterType)))
-                .map(this::constructTasksModel);
+                .doOnError(__ -> mSnackbarText.onNext(R.string.loading_tasks_error));
+        // switching the filter only selects another partition, without going through the tasks
+        return Observable.combineLatest(partitions, mFilter,
+                (taskPartitions, filterType) ->
+                        constructTasksModel(taskPartitions.get(filterType), filterType));
     }
 
     @NonNull
-    private TasksUiModel constructTasksModel(Pair<List<TaskItem>, TasksFilterType> pair) {
-        List<TaskItem> tasks = pair.first;
-        TasksFilterType filterType = pair.second;
-
+    private TasksUiModel constructTasksModel(@NonNull List<TaskItem> tasks,
+                                             @NonNull TasksFilterType filterType) {
         int filterTextResId = getFilterText(filterType);
         boolean isTasksListVisible = !tasks.isEmpty();
         boolean isNoTasksViewVisible = !isTasksListVisible;
@@ -101,16 +140,6 @@ public final class TasksViewModel {
                 noTasksModel);
     }
 
-    private Observable<List<TaskItem>> getTaskItems() {
-        return Observable.combineLatest(mTasksRepository.getTasks(),
-                mFilter,
-                Pair::create)
-                .flatMap(pair -> Observable.from(pair.first)
-                        .filter(task -> shouldFilterTask(task, pair.second))
-                        .map(this::constructTaskItem)
-                        .toList());
-    }
-
     private NoTasksModel getNoTasksModel(TasksFilterType mCurrentFiltering) {
         switch (mCurrentFiltering) {
             case ACTIVE_TASKS:
@@ -125,23 +154,20 @@ public final class TasksViewModel {
         }
     }
 
+    /**
+     * @return the handler of the actions triggered on the task items.
+     */
     @NonNull
-    private TaskItem constructTaskItem(Task task) {
-        @DrawableRes int background = task.isCompleted()
-                ? R.drawable.list_completed_touch_feedback
-                : R.drawable.touch_feedback;
-
-        return new TaskItem(task, background,
-                () -> handleTaskTaped(task),
-                checked -> handleTaskChecked(task, checked));
+    TaskItemActionHandler getTaskItemActionHandler() {
+        return mTaskItemActionHandler;
     }
 
-    private void handleTaskTaped(Task task) {
-        mNavigator.openTaskDetails(task.getId());
+    private void handleTaskTaped(String taskId) {
+        mNavigator.openTaskDetails(taskId);
     }
 
-    private void handleTaskChecked(Task task, boolean checked) {
-        Completable checkTask = checked ? completeTask(task) : activateTask(task);
+    private void handleTaskChecked(String taskId, boolean checked) {
+        Completable checkTask = checked ? completeTask(taskId) : activateTask(taskId);
         checkTask.subscribeOn(mSchedulerProvider.computation())
                 .observeOn(mSchedulerProvider.computation())
                 .subscribe(
@@ -153,13 +179,13 @@ public final class TasksViewModel {
                 );
     }
 
-    private Completable completeTask(Task completedTask) {
-        return mTasksRepository.completeTask(completedTask)
+    private Completable completeTask(String taskId) {
+        return mTasksRepository.completeTask(taskId)
                 .doOnCompleted(() -> mSnackbarText.onNext(R.string.task_marked_complete));
     }
 
-    private Completable activateTask(Task activeTask) {
-        return mTasksRepository.activateTask(activeTask)
+    private Completable activateTask(String taskId) {
+        return mTasksRepository.activateTask(taskId)
                 .doOnCompleted(() -> mSnackbarText.onNext(R.string.task_marked_active));
     }
 
@@ -193,19 +219,6 @@ public final class TasksViewModel {
         }
     }
 
-    @NonNull
-    private Boolean shouldFilterTask(Task task, TasksFilterType filter) {
-        switch (filter) {
-            case ACTIVE_TASKS:
-                return task.isActive();
-            case COMPLETED_TASKS:
-                return task.isCompleted();
-            case ALL_TASKS:
-            default:
-                return true;
-        }
-    }
-
     @StringRes
     private int getFilterText(TasksFilterType filter) {
         switch (filter) {
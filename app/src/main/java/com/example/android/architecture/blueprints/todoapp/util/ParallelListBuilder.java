@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Scheduler;
+import rx.exceptions.Exceptions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Maps the items of a list to a new list, in order. Lists with at least {@code threshold} items
+ * are split in chunks that are mapped in parallel by the calling thread and by up to
+ * {@code parallelism - 1} workers of a scheduler; smaller lists are mapped on the calling thread.
+ * <p>
+ * The calling thread maps chunks too, instead of only waiting for the workers, so the mapping
+ * completes even when all the workers of the scheduler are busy.
+ */
+public final class ParallelListBuilder {
+
+    /**
+     * Size from which a list is mapped in parallel by default.
+     */
+    public static final int DEFAULT_THRESHOLD = 4096;
+
+    // more chunks than threads, so a slow thread doesn't hold back the whole list
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int MIN_CHUNK_SIZE = 512;
+
+    /**
+     * Maps an item of the list. Called concurrently, so it should be thread safe.
+     */
+    public interface Mapper<T, R> {
+
+        R map(int index, T item);
+    }
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    private final int mParallelism;
+
+    private final int mThreshold;
+
+    public ParallelListBuilder(@NonNull Scheduler scheduler) {
+        this(scheduler, Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param scheduler   the scheduler whose workers map the chunks, next to the calling thread.
+     * @param parallelism the maximum number of threads mapping a list, including the calling one.
+     * @param threshold   the size from which a list is mapped in parallel.
+     */
+    public ParallelListBuilder(@NonNull Scheduler scheduler, int parallelism, int threshold) {
+        checkArgument(parallelism > 0, "parallelism should be positive");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+        mParallelism = parallelism;
+        mThreshold = threshold;
+    }
+
+    /**
+     * @return the items mapped in the order of the list. The list cannot be resized.
+     */
+    @NonNull
+    public <T, R> List<R> map(@NonNull List<T> items,
+                              @NonNull Mapper<? super T, ? extends R> mapper) {
+        int size = items.size();
+        Object[] results = new Object[size];
+        int chunkCount = getChunkCount(size);
+        if (chunkCount < 2) {
+            mapRange(items, results, mapper, 0, size);
+        } else {
+            mapInParallel(items, results, mapper, chunkCount);
+        }
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) Arrays.asList(results);
+        return list;
+    }
+
+    private int getChunkCount(int size) {
+        if (size < mThreshold || mParallelism < 2) {
+            return 1;
+        }
+        return Math.min(mParallelism * CHUNKS_PER_THREAD, size / MIN_CHUNK_SIZE);
+    }
+
+    private <T, R> void mapInParallel(@NonNull List<T> items, @NonNull Object[] results,
+                                      @NonNull Mapper<? super T, ? extends R> mapper,
+                                      int chunkCount) {
+        ChunkJob<T, R> job = new ChunkJob<>(items, results, mapper, chunkCount);
+        int workerCount = Math.min(mParallelism, chunkCount) - 1;
+        for (int i = 0; i < workerCount; i++) {
+            Scheduler.Worker worker = mScheduler.createWorker();
+            worker.schedule(() -> {
+                try {
+                    job.run();
+                } finally {
+                    worker.unsubscribe();
+                }
+            });
+        }
+        job.run();
+        job.await();
+    }
+
+    private static <T, R> void mapRange(@NonNull List<T> items, @NonNull Object[] results,
+                                        @NonNull Mapper<? super T, ? extends R> mapper,
+                                        int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = mapper.map(i, items.get(i));
+        }
+    }
+
+    /**
+     * The chunks of a list, taken one after the other by the threads mapping the list.
+     */
+    private static final class ChunkJob<T, R> {
+
+        @NonNull
+        private final List<T> mItems;
+
+        @NonNull
+        private final Object[] mResults;
+
+        @NonNull
+        private final Mapper<? super T, ? extends R> mMapper;
+
+        private final int mChunkCount;
+
+        private final AtomicInteger mNextChunk = new AtomicInteger();
+
+        @NonNull
+        private final CountDownLatch mRemainingChunks;
+
+        private final AtomicReference<Throwable> mError = new AtomicReference<>();
+
+        ChunkJob(@NonNull List<T> items, @NonNull Object[] results,
+                 @NonNull Mapper<? super T, ? extends R> mapper, int chunkCount) {
+            mItems = items;
+            mResults = results;
+            mMapper = mapper;
+            mChunkCount = chunkCount;
+            mRemainingChunks = new CountDownLatch(chunkCount);
+        }
+
+        void run() {
+            int chunk;
+            while ((chunk = mNextChunk.getAndIncrement()) < mChunkCount) {
+                try {
+                    if (mError.get() == null) {
+                        mapRange(mItems, mResults, mMapper, getChunkStart(chunk),
+                                getChunkStart(chunk + 1));
+                    }
+                } catch (Throwable error) {
+                    mError.compareAndSet(null, error);
+                } finally {
+                    mRemainingChunks.countDown();
+                }
+            }
+        }
+
+        void await() {
+            try {
+                // only waits for the chunks that were already taken by the workers
+                mRemainingChunks.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Exceptions.propagate(e);
+            }
+            Throwable error = mError.get();
+            if (error != null) {
+                throw Exceptions.propagate(error);
+            }
+        }
+
+        private int getChunkStart(int chunk) {
+            return (int) ((long) mItems.size() * chunk / mChunkCount);
+        }
+    }
+}
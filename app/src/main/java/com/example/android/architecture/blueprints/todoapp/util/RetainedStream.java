@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import rx.Observable;
+import rx.Subscription;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps one subscription to a source stream while the views bound to it come and go, and replays
+ * the latest item of the source to every new subscriber. Like this, a view that is bound again
+ * after a pause or a configuration change is updated immediately, without subscribing to the
+ * source again.
+ * <p>
+ * The source is subscribed to by the first subscriber and stays subscribed until {@link #clear()}
+ * is called. If the source emits an error, the next subscriber subscribes to the source again.
+ */
+public final class RetainedStream<T> {
+
+    @NonNull
+    private final Observable<T> mSource;
+
+    @Nullable
+    private Observable<T> mStream;
+
+    @Nullable
+    private Subscription mConnection;
+
+    // incremented every time the stream is discarded, so a late connection is not kept
+    private int mGeneration;
+
+    public RetainedStream(@NonNull Observable<T> source) {
+        mSource = checkNotNull(source, "source cannot be null");
+    }
+
+    /**
+     * @return the stream replaying the latest item of the source.
+     */
+    @NonNull
+    public synchronized Observable<T> get() {
+        if (mStream == null) {
+            int generation = mGeneration;
+            mStream = mSource
+                    .doOnError(__ -> discard(generation))
+                    .replay(1)
+                    .autoConnect(1, connection -> onConnected(generation, connection));
+        }
+        return mStream;
+    }
+
+    /**
+     * Unsubscribes from the source and drops the latest item. The next subscriber subscribes to
+     * the source again.
+     */
+    public synchronized void clear() {
+        Subscription connection = mConnection;
+        discard(mGeneration);
+        if (connection != null) {
+            connection.unsubscribe();
+        }
+    }
+
+    private synchronized void onConnected(int generation, @NonNull Subscription connection) {
+        if (generation == mGeneration) {
+            mConnection = connection;
+        } else {
+            connection.unsubscribe();
+        }
+    }
+
+    private synchronized void discard(int generation) {
+        if (generation == mGeneration) {
+            mGeneration++;
+            mStream = null;
+            mConnection = null;
+        }
+    }
+}
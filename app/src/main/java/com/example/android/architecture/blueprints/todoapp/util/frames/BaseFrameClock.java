@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import androidx.annotation.NonNull;
+
+import rx.Observable;
+
+/**
+ * Source of display frame ticks.
+ */
+public interface BaseFrameClock {
+
+    /**
+     * @return a stream that emits the frame time, in nanoseconds, when the next frame starts and
+     * then completes.
+     */
+    @NonNull
+    Observable<Long> nextFrame();
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import rx.Observable;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Provides the frame ticks of the display, based on the main thread's {@link Choreographer}.
+ */
+public class FrameClock implements BaseFrameClock {
+
+    @Nullable
+    private static FrameClock INSTANCE;
+
+    // Prevent direct instantiation.
+    private FrameClock() {
+    }
+
+    public static synchronized FrameClock getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new FrameClock();
+        }
+        return INSTANCE;
+    }
+
+    @NonNull
+    @Override
+    public Observable<Long> nextFrame() {
+        return Observable.<Long>create(subscriber -> {
+            // the Choreographer is thread local, so this is subscribed on the main thread
+            Choreographer choreographer = Choreographer.getInstance();
+            Choreographer.FrameCallback callback = frameTimeNanos -> {
+                subscriber.onNext(frameTimeNanos);
+                subscriber.onCompleted();
+            };
+            choreographer.postFrameCallback(callback);
+            subscriber.add(Subscriptions.create(
+                    () -> choreographer.removeFrameCallback(callback)));
+        }).subscribeOn(AndroidSchedulers.mainThread());
+    }
+}
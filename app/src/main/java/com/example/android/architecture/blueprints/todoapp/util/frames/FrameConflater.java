@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.observers.SerializedSubscriber;
+import rx.subscriptions.SerialSubscription;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Delivers at most one item per display frame: the latest item emitted before the frame. The items
+ * replaced by a newer one before the frame are dropped and counted.
+ * <p>
+ * Use it with {@link Observable#compose(Observable.Transformer)}, before the items are handled on
+ * the main thread.
+ */
+public final class FrameConflater<T> implements Observable.Transformer<T, T> {
+
+    @NonNull
+    private final BaseFrameClock mFrameClock;
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    public FrameConflater(@NonNull BaseFrameClock frameClock) {
+        mFrameClock = checkNotNull(frameClock, "frameClock cannot be null");
+    }
+
+    /**
+     * @return the number of items dropped because a newer item was emitted before the next frame.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    @Override
+    public Observable<T> call(Observable<T> source) {
+        return Observable.create(subscriber -> {
+            ConflatingSubscriber<T> parent = new ConflatingSubscriber<>(
+                    new SerializedSubscriber<>(subscriber), mFrameClock, mDroppedCount);
+            subscriber.add(parent);
+            source.unsafeSubscribe(parent);
+        });
+    }
+
+    private static final class ConflatingSubscriber<T> extends Subscriber<T> {
+
+        @NonNull
+        private final Subscriber<T> mChild;
+
+        @NonNull
+        private final BaseFrameClock mFrameClock;
+
+        @NonNull
+        private final AtomicLong mDroppedCount;
+
+        @NonNull
+        private final SerialSubscription mFrame = new SerialSubscription();
+
+        @Nullable
+        private T mPending;
+
+        private boolean mHasPending;
+
+        private boolean mFrameRequested;
+
+        private boolean mDone;
+
+        ConflatingSubscriber(@NonNull Subscriber<T> child, @NonNull BaseFrameClock frameClock,
+                             @NonNull AtomicLong droppedCount) {
+            mChild = child;
+            mFrameClock = frameClock;
+            mDroppedCount = droppedCount;
+            add(mFrame);
+        }
+
+        @Override
+        public void onNext(T item) {
+            boolean requestFrame;
+            synchronized (this) {
+                if (mHasPending) {
+                    mDroppedCount.incrementAndGet();
+                }
+                mPending = item;
+                mHasPending = true;
+                requestFrame = !mFrameRequested;
+                mFrameRequested = true;
+            }
+            if (requestFrame) {
+                mFrame.set(mFrameClock.nextFrame()
+                        .subscribe(__ -> emitPending(), mChild::onError));
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            mChild.onError(e);
+        }
+
+        @Override
+        public void onCompleted() {
+            synchronized (this) {
+                if (mHasPending) {
+                    // completes after the pending item is emitted
+                    mDone = true;
+                    return;
+                }
+            }
+            mChild.onCompleted();
+        }
+
+        private void emitPending() {
+            T item;
+            boolean done;
+            synchronized (this) {
+                if (!mHasPending) {
+                    return;
+                }
+                item = mPending;
+                mPending = null;
+                mHasPending = false;
+                mFrameRequested = false;
+                done = mDone;
+            }
+            mChild.onNext(item);
+            if (done) {
+                mChild.onCompleted();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Aggregated durations of the frames of a screen. Counts the frames per duration bucket, the janky
+ * frames, which missed at least one display refresh, and the frozen ones. The slow frames are also
+ * counted per tag, the event that happened during the frame.
+ */
+public final class FrameHistogram {
+
+    /**
+     * Frames longer than one refresh at 60Hz are janky.
+     */
+    public static final long JANKY_FRAME_NANOS = TimeUnit.MICROSECONDS.toNanos(16_700);
+
+    /**
+     * Frames of at least 700ms are frozen.
+     */
+    public static final long FROZEN_FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(700);
+
+    // upper bounds of the buckets, in ms. The last bucket counts the longer frames.
+    private static final int[] BUCKET_BOUNDS_MS = {8, 16, 24, 32, 50, 100, 250, 700};
+
+    @NonNull
+    private final String mScreen;
+
+    @NonNull
+    private final int[] mBuckets = new int[BUCKET_BOUNDS_MS.length + 1];
+
+    @NonNull
+    private final Map<String, Integer> mSlowFrameTags = new HashMap<>();
+
+    private int mFrameCount;
+
+    private int mJankyFrameCount;
+
+    private int mFrozenFrameCount;
+
+    public FrameHistogram(@NonNull String screen) {
+        mScreen = checkNotNull(screen, "screen cannot be null");
+    }
+
+    /**
+     * @param durationNanos the duration of the frame.
+     * @param tag           the event that happened during the frame, if any.
+     */
+    public void record(long durationNanos, @Nullable String tag) {
+        mFrameCount++;
+        mBuckets[getBucket(durationNanos)]++;
+        if (durationNanos < JANKY_FRAME_NANOS) {
+            return;
+        }
+        mJankyFrameCount++;
+        if (durationNanos >= FROZEN_FRAME_NANOS) {
+            mFrozenFrameCount++;
+        }
+        if (tag != null) {
+            Integer count = mSlowFrameTags.get(tag);
+            mSlowFrameTags.put(tag, count == null ? 1 : count + 1);
+        }
+    }
+
+    @NonNull
+    public String getScreen() {
+        return mScreen;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getJankyFrameCount() {
+        return mJankyFrameCount;
+    }
+
+    public int getFrozenFrameCount() {
+        return mFrozenFrameCount;
+    }
+
+    /**
+     * @return the number of slow frames that happened after the event with this tag.
+     */
+    public int getSlowFrameCount(@NonNull String tag) {
+        Integer count = mSlowFrameTags.get(tag);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return the number of frames per bucket. The upper bounds of the buckets are 8, 16, 24, 32,
+     * 50, 100, 250 and 700ms, and the last bucket counts the longer frames.
+     */
+    @NonNull
+    public int[] getBuckets() {
+        return Arrays.copyOf(mBuckets, mBuckets.length);
+    }
+
+    /**
+     * @return the histogram on one line, as it's written to the frame metrics log.
+     */
+    @NonNull
+    public String encode() {
+        StringBuilder builder = new StringBuilder()
+                .append("screen=").append(mScreen)
+                .append(" frames=").append(mFrameCount)
+                .append(" janky=").append(mJankyFrameCount)
+                .append(" frozen=").append(mFrozenFrameCount)
+                .append(" buckets=");
+        for (int i = 0; i < mBuckets.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(i < BUCKET_BOUNDS_MS.length ? "<" + BUCKET_BOUNDS_MS[i] : ">=700")
+                    .append(':').append(mBuckets[i]);
+        }
+        builder.append(" slowAfter=");
+        boolean first = true;
+        for (Map.Entry<String, Integer> tag : mSlowFrameTags.entrySet()) {
+            if (!first) {
+                builder.append(',');
+            }
+            builder.append(tag.getKey()).append(':').append(tag.getValue());
+            first = false;
+        }
+        return builder.toString();
+    }
+
+    private static int getBucket(long durationNanos) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (durationMs < BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Ring buffer of frame metrics records, kept in a file of fixed size. When the buffer is full, a
+ * new record replaces the oldest one.
+ * <p>
+ * The file starts with the index of the next slot and the number of records, followed by the
+ * slots, and has the size of all its slots from its creation. A slot holds the length of its
+ * record followed by the record in UTF-8, truncated to the size of the slot on a character
+ * boundary.
+ */
+public final class FrameMetricsLog {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int HEADER_SIZE = 2 * 4;
+
+    private static final int LENGTH_SIZE = 2;
+
+    @NonNull
+    private final File mFile;
+
+    private final int mSlotCount;
+
+    private final int mSlotSize;
+
+    // the encoder and the buffer of the record being appended
+    @NonNull
+    private final CharsetEncoder mEncoder;
+
+    @NonNull
+    private final ByteBuffer mRecordBuffer;
+
+    /**
+     * @param file      the file of the buffer, created when the first record is appended.
+     * @param slotCount the maximum number of records kept.
+     * @param slotSize  the size of a slot in bytes, including the length of the record.
+     */
+    public FrameMetricsLog(@NonNull File file, int slotCount, int slotSize) {
+        checkArgument(slotCount > 0, "slotCount should be positive");
+        checkArgument(slotSize > LENGTH_SIZE, "slotSize should be larger than %s", LENGTH_SIZE);
+        mFile = checkNotNull(file, "file cannot be null");
+        mSlotCount = slotCount;
+        mSlotSize = slotSize;
+        mEncoder = UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        mRecordBuffer = ByteBuffer.allocate(slotSize - LENGTH_SIZE);
+    }
+
+    /**
+     * Appends a record, replacing the oldest one if the buffer is full.
+     */
+    @WorkerThread
+    public synchronized void append(@NonNull String record) throws IOException {
+        // the encoder stops before a character that doesn't fit, rather than splitting it
+        mEncoder.reset();
+        mRecordBuffer.clear();
+        if (!mEncoder.encode(CharBuffer.wrap(record), mRecordBuffer, true).isOverflow()) {
+            mEncoder.flush(mRecordBuffer);
+        }
+        int length = mRecordBuffer.position();
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            int[] header = readHeader(file);
+            int slot = header[0];
+            int count = header[1];
+
+            long size = getSlotOffset(mSlotCount);
+            if (file.length() != size) {
+                file.setLength(size);
+            }
+            file.seek(getSlotOffset(slot));
+            file.writeShort(length);
+            file.write(mRecordBuffer.array(), 0, length);
+
+            file.seek(0);
+            file.writeInt((slot + 1) % mSlotCount);
+            file.writeInt(Math.min(count + 1, mSlotCount));
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @return the records of the buffer, from the oldest to the newest.
+     */
+    @WorkerThread
+    @NonNull
+    public synchronized List<String> readAll() throws IOException {
+        List<String> records = new ArrayList<>();
+        if (!mFile.exists()) {
+            return records;
+        }
+        RandomAccessFile file = new RandomAccessFile(mFile, "r");
+        try {
+            int[] header = readHeader(file);
+            int next = header[0];
+            int count = header[1];
+            int first = (next - count + mSlotCount) % mSlotCount;
+            byte[] buffer = new byte[mSlotSize];
+            for (int i = 0; i < count; i++) {
+                file.seek(getSlotOffset((first + i) % mSlotCount));
+                int length = file.readUnsignedShort();
+                file.readFully(buffer, 0, length);
+                records.add(new String(buffer, 0, length, UTF_8));
+            }
+        } finally {
+            file.close();
+        }
+        return records;
+    }
+
+    @NonNull
+    private int[] readHeader(@NonNull RandomAccessFile file) throws IOException {
+        if (file.length() < HEADER_SIZE) {
+            return new int[]{0, 0};
+        }
+        file.seek(0);
+        int next = file.readInt();
+        int count = file.readInt();
+        if (next < 0 || next >= mSlotCount || count < 0 || count > mSlotCount) {
+            // written with another number of slots, start again
+            return new int[]{0, 0};
+        }
+        return new int[]{next, count};
+    }
+
+    private long getSlotOffset(int slot) {
+        return HEADER_SIZE + (long) slot * mSlotSize;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+import java.io.File;
+
+import rx.Completable;
+import rx.schedulers.Schedulers;
+
+/**
+ * Records the duration of the frames of the visible screen, the resumed fragment, from the frame
+ * callbacks of the {@link Choreographer}. A frame is tagged with the last event marked with
+ * {@link #markEvent(String)} since the previous frame, like the emission of a UI model or a user
+ * action, so the slow frames can be related to what caused them.
+ * <p>
+ * When a screen is paused, its {@link FrameHistogram} is written to a {@link FrameMetricsLog} in
+ * the files of the app. The frames are only followed while a screen is resumed, since requesting a
+ * callback for every frame keeps the display refresh signal active.
+ */
+public final class JankMonitor implements Choreographer.FrameCallback {
+
+    private static final String TAG = JankMonitor.class.getSimpleName();
+
+    private static final String LOG_FILE_NAME = "frame_metrics.log";
+
+    private static final int LOG_SLOTS = 256;
+
+    private static final int LOG_SLOT_SIZE = 512;
+
+    @Nullable
+    private static JankMonitor INSTANCE;
+
+    @Nullable
+    private FrameMetricsLog mLog;
+
+    // the histogram of the resumed screen or null when no screen is resumed
+    @Nullable
+    private FrameHistogram mHistogram;
+
+    private long mLastFrameNanos;
+
+    @Nullable
+    private String mLastEvent;
+
+    private long mLastEventNanos;
+
+    // Prevent direct instantiation.
+    private JankMonitor() {
+    }
+
+    public static synchronized JankMonitor getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new JankMonitor();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Starts following the screens of the app.
+     */
+    @MainThread
+    public void start(@NonNull Application application) {
+        if (mLog != null) {
+            return;
+        }
+        mLog = new FrameMetricsLog(new File(application.getFilesDir(), LOG_FILE_NAME), LOG_SLOTS,
+                LOG_SLOT_SIZE);
+        application.registerActivityLifecycleCallbacks(new ActivityCallbacks());
+    }
+
+    /**
+     * Marks an event, like the emission of a UI model or a user action. The next frame is tagged
+     * with the event.
+     */
+    @MainThread
+    public void markEvent(@NonNull String event) {
+        mLastEvent = event;
+        mLastEventNanos = System.nanoTime();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        FrameHistogram histogram = mHistogram;
+        if (histogram == null) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            String tag = mLastEvent != null && mLastEventNanos >= mLastFrameNanos
+                    ? mLastEvent
+                    : null;
+            histogram.record(frameTimeNanos - mLastFrameNanos, tag);
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void onScreenResumed(@NonNull String screen) {
+        Choreographer choreographer = Choreographer.getInstance();
+        choreographer.removeFrameCallback(this);
+        mHistogram = new FrameHistogram(screen);
+        mLastFrameNanos = 0;
+        choreographer.postFrameCallback(this);
+    }
+
+    private void onScreenPaused(@NonNull String screen) {
+        FrameHistogram histogram = mHistogram;
+        if (histogram == null || !histogram.getScreen().equals(screen)) {
+            return;
+        }
+        Choreographer.getInstance().removeFrameCallback(this);
+        mHistogram = null;
+        if (histogram.getFrameCount() > 0) {
+            write(histogram);
+        }
+    }
+
+    private void write(@NonNull FrameHistogram histogram) {
+        FrameMetricsLog log = mLog;
+        if (log == null) {
+            return;
+        }
+        String record = System.currentTimeMillis() + " " + histogram.encode();
+        Log.d(TAG, record);
+        Completable.fromCallable(() -> {
+            log.append(record);
+            return null;
+        })
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        // onCompleted
+                        () -> {
+                        },
+                        // onError
+                        error -> Log.e(TAG, "Error writing frame metrics", error));
+    }
+
+    private class FragmentCallbacks extends FragmentManager.FragmentLifecycleCallbacks {
+
+        @Override
+        public void onFragmentResumed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+            onScreenResumed(f.getClass().getSimpleName());
+        }
+
+        @Override
+        public void onFragmentPaused(@NonNull FragmentManager fm, @NonNull Fragment f) {
+            onScreenPaused(f.getClass().getSimpleName());
+        }
+    }
+
+    private class ActivityCallbacks implements Application.ActivityLifecycleCallbacks {
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            if (activity instanceof FragmentActivity) {
+                ((FragmentActivity) activity).getSupportFragmentManager()
+                        .registerFragmentLifecycleCallbacks(new FragmentCallbacks(), false);
+            }
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+}
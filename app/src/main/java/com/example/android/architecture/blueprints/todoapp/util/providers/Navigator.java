@@ -3,6 +3,9 @@ package com.example.android.architecture.blueprints.todoapp.util.providers;
 import android.app.Activity;
 import android.content.Intent;
 
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
 import java.lang.ref.WeakReference;
 
 /**
@@ -10,42 +13,70 @@ import java.lang.ref.WeakReference;
  */
 public final class Navigator implements BaseNavigator {
 
+    @Nullable
     private final WeakReference<Activity> mActivity;
 
+    @Nullable
+    private final WeakReference<Fragment> mFragment;
+
     public Navigator(Activity activity) {
         mActivity = new WeakReference<>(activity);
+        mFragment = null;
+    }
+
+    /**
+     * Creates a navigator that uses the Activity the fragment is attached to at the time of the
+     * navigation. Like this, the navigator can be kept by a fragment retained across configuration
+     * changes.
+     */
+    public Navigator(Fragment fragment) {
+        mActivity = null;
+        mFragment = new WeakReference<>(fragment);
     }
 
     @Override
     public void finishActivity() {
-        if (mActivity.get() != null) {
-            mActivity.get().finish();
+        Activity activity = getActivity();
+        if (activity != null) {
+            activity.finish();
         }
     }
 
     @Override
     public void finishActivityWithResult(int resultCode) {
-        if (mActivity.get() != null) {
-            mActivity.get().setResult(resultCode);
-            mActivity.get().finish();
+        Activity activity = getActivity();
+        if (activity != null) {
+            activity.setResult(resultCode);
+            activity.finish();
         }
     }
 
     @Override
     public void startActivityForResult(Class cls, int requestCode) {
-        if (mActivity.get() != null) {
-            Intent intent = new Intent(mActivity.get(), cls);
-            mActivity.get().startActivityForResult(intent, requestCode);
+        Activity activity = getActivity();
+        if (activity != null) {
+            Intent intent = new Intent(activity, cls);
+            activity.startActivityForResult(intent, requestCode);
         }
     }
 
     @Override
     public void startActivityForResultWithExtra(Class cls, int requestCode, String extraKey,
             String extraValue) {
-        if (mActivity.get() != null) {
-            Intent intent = new Intent(mActivity.get(), cls);
+        Activity activity = getActivity();
+        if (activity != null) {
+            Intent intent = new Intent(activity, cls);
             intent.putExtra(extraKey, extraValue);
-            mActivity.get().startActivityForResult(intent, requestCode);
+            activity.startActivityForResult(intent, requestCode);
+        }
+    }
+
+    @Nullable
+    private Activity getActivity() {
+        if (mActivity != null) {
+            return mActivity.get();
         }
+        Fragment fragment = mFragment != null ? mFragment.get() : null;
+        return fragment != null ? fragment.getActivity() : null;
     }
 }
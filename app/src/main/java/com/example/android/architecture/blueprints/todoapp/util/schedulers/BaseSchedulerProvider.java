@@ -16,6 +16,21 @@ public interface BaseSchedulerProvider {
     @NonNull
     Scheduler io();
 
+    /**
+     * @return the scheduler of the database work, with no more threads than the database has
+     * connections, so that a burst of queries waits in a queue rather than on a connection lock.
+     * The queued work gets a thread by {@link Priority}.
+     */
+    @NonNull
+    Scheduler database();
+
+    /**
+     * @return the {@link #database()} scheduler, running its actions with the given priority
+     * whatever the thread subscribing.
+     */
+    @NonNull
+    Scheduler database(@NonNull Priority priority);
+
     @NonNull
     Scheduler ui();
 }
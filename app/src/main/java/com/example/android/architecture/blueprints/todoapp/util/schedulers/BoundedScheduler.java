@@ -0,0 +1,382 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.BooleanSubscription;
+import rx.subscriptions.MultipleAssignmentSubscription;
+import rx.subscriptions.Subscriptions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Scheduler running its actions on a fixed number of threads, with a bounded queue. Unlike the
+ * io scheduler, a burst of work doesn't start a thread per action: the actions wait in the queue
+ * for one of the threads, and what happens when the queue is full is set by an
+ * {@link OverflowPolicy}.
+ * <p>
+ * The actions of a worker run one after the other, so the queue holds the workers waiting for a
+ * thread rather than single actions. The queued workers get a thread by {@link Priority}, then in
+ * the order they were queued, but a worker is only overtaken by the {@link #AGING_STEP} workers
+ * queued after it for every priority it is below. So the background work waits while there is
+ * more urgent work, but not forever. A worker has the priority of the thread creating it, unless
+ * given to {@link #createWorker(Priority)} or created by {@link #withPriority(Priority)}.
+ */
+public final class BoundedScheduler extends Scheduler {
+
+    /**
+     * What to do with the work scheduled while the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The scheduling thread waits for room in the queue. Don't use it with work scheduled
+         * from the main thread. The work scheduled by the actions of the scheduler runs on their
+         * thread instead, as the room they would wait for could be theirs.
+         */
+        BLOCK,
+        /**
+         * The work runs on the scheduling thread.
+         */
+        CALLER_RUNS,
+        /**
+         * The scheduling throws a {@link RejectedExecutionException}, which is emitted as an
+         * error by the operators that subscribe on the scheduler.
+         */
+        FAIL
+    }
+
+    /**
+     * The number of workers queued later that can go first, for every priority a worker is below.
+     */
+    @VisibleForTesting
+    static final int AGING_STEP = 64;
+
+    @NonNull
+    private final ThreadPoolExecutor mExecutor;
+
+    @NonNull
+    private final OverflowPolicy mPolicy;
+
+    // a permit for every worker running or waiting for a thread
+    @NonNull
+    private final Semaphore mPermits;
+
+    // orders the queued workers
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    @NonNull
+    private final ScheduledExecutorService mTimer;
+
+    private final AtomicLong mBlockedNanos = new AtomicLong();
+
+    private final AtomicLong mOverflowCount = new AtomicLong();
+
+    private final AtomicInteger mPeakQueueLength = new AtomicInteger();
+
+    // the number of workers draining on the current thread, nested when the work of a worker
+    // runs on the thread scheduling it
+    private final ThreadLocal<int[]> mDrainDepth = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /**
+     * @param name          the prefix of the names of the threads.
+     * @param threads       the number of threads.
+     * @param queueCapacity the number of workers that can wait for a thread.
+     * @param policy        what to do when the queue is full.
+     */
+    public BoundedScheduler(@NonNull String name, int threads, int queueCapacity,
+                            @NonNull OverflowPolicy policy) {
+        checkNotNull(name, "name cannot be null");
+        checkArgument(threads > 0, "threads must be positive");
+        checkArgument(queueCapacity > 0, "queueCapacity must be positive");
+        mPolicy = checkNotNull(policy, "policy cannot be null");
+        mPermits = new Semaphore(threads + queueCapacity);
+        mExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), newThreadFactory(name));
+        mTimer = Executors.newSingleThreadScheduledExecutor(newThreadFactory(name + "-timer"));
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new BoundedWorker(Priority.current());
+    }
+
+    @NonNull
+    public Worker createWorker(@NonNull Priority priority) {
+        return new BoundedWorker(checkNotNull(priority, "priority cannot be null"));
+    }
+
+    /**
+     * @return a scheduler running its actions on this one, with the priority whatever the thread
+     * creating its workers.
+     */
+    @NonNull
+    public Scheduler withPriority(@NonNull Priority priority) {
+        checkNotNull(priority, "priority cannot be null");
+        return new Scheduler() {
+            @Override
+            public Worker createWorker() {
+                return BoundedScheduler.this.createWorker(priority);
+            }
+        };
+    }
+
+    /**
+     * @return the number of threads started, never more than the number of threads given.
+     */
+    public int getThreadCount() {
+        return mExecutor.getPoolSize();
+    }
+
+    /**
+     * @return the number of workers waiting for a thread.
+     */
+    public int getQueueLength() {
+        return mExecutor.getQueue().size();
+    }
+
+    public int getPeakQueueLength() {
+        return mPeakQueueLength.get();
+    }
+
+    /**
+     * @return the time the scheduling threads spent waiting for room in the queue, in
+     * nanoseconds.
+     */
+    public long getBlockedNanos() {
+        return mBlockedNanos.get();
+    }
+
+    /**
+     * @return the number of times the queue was full.
+     */
+    public long getOverflowCount() {
+        return mOverflowCount.get();
+    }
+
+    /**
+     * Stops the threads once the queued work is done. The work scheduled afterwards is rejected.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+        mTimer.shutdown();
+    }
+
+    /**
+     * Queues the worker, or runs it on the calling thread if the queue is full and the policy
+     * says so.
+     */
+    private void execute(@NonNull BoundedWorker worker) {
+        if (!mPermits.tryAcquire()) {
+            mOverflowCount.incrementAndGet();
+            switch (mPolicy) {
+                case BLOCK:
+                    if (mDrainDepth.get()[0] > 0) {
+                        worker.drain();
+                        return;
+                    }
+                    acquireBlocking();
+                    break;
+                case CALLER_RUNS:
+                    worker.drain();
+                    return;
+                case FAIL:
+                    throw new RejectedExecutionException("Queue full");
+            }
+        }
+        worker.mRank = mNextSequence.incrementAndGet()
+                + worker.mPriority.ordinal() * (long) AGING_STEP;
+        try {
+            mExecutor.execute(worker);
+        } catch (RejectedExecutionException e) {
+            mPermits.release();
+            throw e;
+        }
+        int queueLength = mExecutor.getQueue().size();
+        int peak;
+        do {
+            peak = mPeakQueueLength.get();
+        } while (queueLength > peak && !mPeakQueueLength.compareAndSet(peak, queueLength));
+    }
+
+    private void acquireBlocking() {
+        long start = System.nanoTime();
+        try {
+            mPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while blocked", e);
+        } finally {
+            mBlockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @NonNull
+    private static ThreadFactory newThreadFactory(@NonNull String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class BoundedWorker extends Worker
+            implements Runnable, Comparable<BoundedWorker> {
+
+        @NonNull
+        private final Priority mPriority;
+
+        // its sequence in the queue, delayed by its priority, set before the worker is queued
+        private volatile long mRank;
+
+        private final Queue<ScheduledAction> mQueue = new ConcurrentLinkedQueue<>();
+
+        // the number of actions to run, the worker is queued when it goes from 0 to 1
+        private final AtomicInteger mWip = new AtomicInteger();
+
+        private final BooleanSubscription mSubscription = new BooleanSubscription();
+
+        BoundedWorker(@NonNull Priority priority) {
+            mPriority = priority;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+            ScheduledAction scheduled = new ScheduledAction(action);
+            mQueue.offer(scheduled);
+            if (mWip.getAndIncrement() == 0) {
+                try {
+                    execute(this);
+                } catch (RejectedExecutionException e) {
+                    // the worker isn't queued, so the pending actions are dropped
+                    mQueue.clear();
+                    mWip.set(0);
+                    throw e;
+                }
+            }
+            return scheduled;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+            if (delayTime <= 0) {
+                return schedule(action);
+            }
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+            MultipleAssignmentSubscription subscription = new MultipleAssignmentSubscription();
+            ScheduledFuture<?> future = mTimer.schedule(() -> {
+                if (!subscription.isUnsubscribed()) {
+                    subscription.set(schedule(action));
+                }
+            }, delayTime, unit);
+            subscription.set(Subscriptions.from(future));
+            return subscription;
+        }
+
+        @Override
+        public void run() {
+            try {
+                drain();
+            } finally {
+                mPermits.release();
+            }
+        }
+
+        void drain() {
+            Priority previous = mPriority.enter();
+            int[] depth = mDrainDepth.get();
+            depth[0]++;
+            try {
+                do {
+                    ScheduledAction scheduled = mQueue.poll();
+                    if (scheduled != null && !isUnsubscribed()) {
+                        scheduled.run();
+                    }
+                } while (mWip.decrementAndGet() > 0);
+            } finally {
+                depth[0]--;
+                Priority.restore(previous);
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull BoundedWorker other) {
+            int byRank = Long.compare(mRank, other.mRank);
+            return byRank != 0 ? byRank : mPriority.compareTo(other.mPriority);
+        }
+
+        @Override
+        public void unsubscribe() {
+            mSubscription.unsubscribe();
+            mQueue.clear();
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return mSubscription.isUnsubscribed();
+        }
+    }
+
+    private static final class ScheduledAction implements Subscription {
+
+        @NonNull
+        private final Action0 mAction;
+
+        private volatile boolean mUnsubscribed;
+
+        ScheduledAction(@NonNull Action0 action) {
+            mAction = action;
+        }
+
+        void run() {
+            if (mUnsubscribed) {
+                return;
+            }
+            try {
+                mAction.call();
+            } catch (Throwable error) {
+                // like the other schedulers, the errors not handled by the action crash the thread
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            mUnsubscribed = true;
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return mUnsubscribed;
+        }
+    }
+}
@@ -23,6 +23,18 @@ public class ImmediateSchedulerProvider implements BaseSchedulerProvider {
         return Schedulers.immediate();
     }
 
+    @NonNull
+    @Override
+    public Scheduler database() {
+        return Schedulers.immediate();
+    }
+
+    @NonNull
+    @Override
+    public Scheduler database(@NonNull Priority priority) {
+        return Schedulers.immediate();
+    }
+
     @NonNull
     @Override
     public Scheduler ui() {
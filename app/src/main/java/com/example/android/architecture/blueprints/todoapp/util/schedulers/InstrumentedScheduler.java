@@ -0,0 +1,119 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+
+/**
+ * Scheduler running its actions on another scheduler and recording, for its pool and its task,
+ * how long every action waited after it was due and how long it ran.
+ */
+final class InstrumentedScheduler extends Scheduler {
+
+    @NonNull
+    private final Scheduler mDelegate;
+
+    @NonNull
+    private final Ticker mTicker;
+
+    @NonNull
+    private final SchedulerMetrics.Counter mPoolCounter;
+
+    @Nullable
+    private final SchedulerMetrics.Counter mTaskCounter;
+
+    InstrumentedScheduler(@NonNull Scheduler delegate, @NonNull Ticker ticker,
+                          @NonNull SchedulerMetrics.Counter poolCounter,
+                          @Nullable SchedulerMetrics.Counter taskCounter) {
+        mDelegate = delegate;
+        mTicker = ticker;
+        mPoolCounter = poolCounter;
+        mTaskCounter = taskCounter;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new InstrumentedWorker(mDelegate.createWorker());
+    }
+
+    @Override
+    public long now() {
+        return mDelegate.now();
+    }
+
+    private final class InstrumentedWorker extends Worker {
+
+        @NonNull
+        private final Worker mWorker;
+
+        InstrumentedWorker(@NonNull Worker worker) {
+            mWorker = worker;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            return mWorker.schedule(new TimedAction(action, mTicker.read()));
+        }
+
+        // the periodic actions of the base worker are scheduled through this method too
+        @Override
+        public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+            long dueNanos = mTicker.read() + unit.toNanos(Math.max(0, delayTime));
+            return mWorker.schedule(new TimedAction(action, dueNanos), delayTime, unit);
+        }
+
+        @Override
+        public long now() {
+            return mWorker.now();
+        }
+
+        @Override
+        public void unsubscribe() {
+            mWorker.unsubscribe();
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return mWorker.isUnsubscribed();
+        }
+    }
+
+    private final class TimedAction implements Action0 {
+
+        @NonNull
+        private final Action0 mAction;
+
+        private final long mDueNanos;
+
+        TimedAction(@NonNull Action0 action, long dueNanos) {
+            mAction = action;
+            mDueNanos = dueNanos;
+        }
+
+        @Override
+        public void call() {
+            long start = mTicker.read();
+            long queueWait = Math.max(0, start - mDueNanos);
+            mPoolCounter.onStarted(queueWait);
+            if (mTaskCounter != null) {
+                mTaskCounter.onStarted(queueWait);
+            }
+            try {
+                mAction.call();
+            } finally {
+                long execution = mTicker.read() - start;
+                mPoolCounter.onFinished(execution);
+                if (mTaskCounter != null) {
+                    mTaskCounter.onFinished(execution);
+                }
+            }
+        }
+    }
+}
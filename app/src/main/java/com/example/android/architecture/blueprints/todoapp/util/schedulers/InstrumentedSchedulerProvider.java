@@ -0,0 +1,171 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.google.common.base.Ticker;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import rx.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Implementation of the {@link BaseSchedulerProvider} that runs the actions on the schedulers of
+ * another provider and measures them: for every pool, and for every task named with
+ * {@link #forTask(String)}, how long the actions waited after they were due, how long they ran,
+ * how many are running and the peak number of threads running them. The measures are read with
+ * {@link #getMetrics()}.
+ * <p>
+ * The work scheduled on an immediate scheduler runs inline, so with an
+ * {@link ImmediateSchedulerProvider} the metrics are complete as soon as the work completes.
+ */
+public class InstrumentedSchedulerProvider implements BaseSchedulerProvider {
+
+    public static final String COMPUTATION = "computation";
+
+    public static final String IO = "io";
+
+    public static final String DATABASE = "database";
+
+    public static final String UI = "ui";
+
+    @NonNull
+    private final BaseSchedulerProvider mDelegate;
+
+    @NonNull
+    private final Ticker mTicker;
+
+    @NonNull
+    private final SchedulerMetrics mMetrics;
+
+    @NonNull
+    private final TaskSchedulers mPoolSchedulers;
+
+    public InstrumentedSchedulerProvider(@NonNull BaseSchedulerProvider delegate) {
+        this(delegate, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    InstrumentedSchedulerProvider(@NonNull BaseSchedulerProvider delegate,
+                                  @NonNull Ticker ticker) {
+        mDelegate = checkNotNull(delegate, "delegate cannot be null");
+        mTicker = checkNotNull(ticker, "ticker cannot be null");
+        mMetrics = new SchedulerMetrics();
+        mPoolSchedulers = new TaskSchedulers(null);
+    }
+
+    @NonNull
+    @Override
+    public Scheduler computation() {
+        return mPoolSchedulers.computation();
+    }
+
+    @NonNull
+    @Override
+    public Scheduler io() {
+        return mPoolSchedulers.io();
+    }
+
+    @NonNull
+    @Override
+    public Scheduler database() {
+        return mPoolSchedulers.database();
+    }
+
+    @NonNull
+    @Override
+    public Scheduler database(@NonNull Priority priority) {
+        return mPoolSchedulers.database(priority);
+    }
+
+    @NonNull
+    @Override
+    public Scheduler ui() {
+        return mPoolSchedulers.ui();
+    }
+
+    /**
+     * @param task the name of the task
+     * @return a provider of the same schedulers, whose actions are also measured as the task.
+     */
+    @NonNull
+    public BaseSchedulerProvider forTask(@NonNull String task) {
+        return new TaskSchedulers(checkNotNull(task, "task cannot be null"));
+    }
+
+    @NonNull
+    public SchedulerMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    @NonNull
+    private Scheduler instrument(@NonNull Scheduler scheduler, @NonNull String pool,
+                                 @Nullable String task) {
+        return new InstrumentedScheduler(scheduler, mTicker, mMetrics.counter(pool, null),
+                task != null ? mMetrics.counter(pool, task) : null);
+    }
+
+    private final class TaskSchedulers implements BaseSchedulerProvider {
+
+        @NonNull
+        private final Scheduler mComputation;
+
+        @NonNull
+        private final Scheduler mIo;
+
+        @NonNull
+        private final Scheduler mDatabase;
+
+        @NonNull
+        private final Map<Priority, Scheduler> mPrioritizedDatabase =
+                new EnumMap<>(Priority.class);
+
+        @NonNull
+        private final Scheduler mUi;
+
+        TaskSchedulers(@Nullable String task) {
+            mComputation = instrument(mDelegate.computation(), COMPUTATION, task);
+            mIo = instrument(mDelegate.io(), IO, task);
+            mDatabase = instrument(mDelegate.database(), DATABASE, task);
+            for (Priority priority : Priority.values()) {
+                mPrioritizedDatabase.put(priority,
+                        instrument(mDelegate.database(priority), DATABASE, task));
+            }
+            mUi = instrument(mDelegate.ui(), UI, task);
+        }
+
+        @NonNull
+        @Override
+        public Scheduler computation() {
+            return mComputation;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler io() {
+            return mIo;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler database() {
+            return mDatabase;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler database(@NonNull Priority priority) {
+            return mPrioritizedDatabase.get(checkNotNull(priority, "priority cannot be null"));
+        }
+
+        @NonNull
+        @Override
+        public Scheduler ui() {
+            return mUi;
+        }
+    }
+}
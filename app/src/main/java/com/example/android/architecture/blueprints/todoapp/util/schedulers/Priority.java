@@ -0,0 +1,99 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import androidx.annotation.NonNull;
+
+import rx.Completable;
+import rx.Observable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The class of some work, for the schedulers that run the queued work by priority like the
+ * {@link BaseSchedulerProvider#database()} scheduler.
+ * <p>
+ * The priority belongs to the thread: the workers created on a thread, like those of
+ * {@code subscribeOn} and {@code observeOn} when subscribing, take its priority, and the actions
+ * of a prioritized worker run with the priority of the worker. So a priority declared with
+ * {@link #apply(Observable)} follows the work from one prioritized scheduler to the next.
+ */
+public enum Priority {
+
+    /**
+     * The work the user is waiting on, like the queries of the screen.
+     */
+    INTERACTIVE,
+
+    /**
+     * The work with no declared priority.
+     */
+    NORMAL,
+
+    /**
+     * The work nobody waits on, like refreshes, bulk saves and migrations. It only runs when no
+     * other work is queued.
+     */
+    BACKGROUND;
+
+    private static final ThreadLocal<Priority> CURRENT = new ThreadLocal<Priority>() {
+        @Override
+        protected Priority initialValue() {
+            return NORMAL;
+        }
+    };
+
+    /**
+     * @return the priority of the work running on the current thread.
+     */
+    @NonNull
+    public static Priority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return an Observable subscribing to the source with this priority.
+     */
+    @NonNull
+    public <T> Observable<T> apply(@NonNull Observable<T> source) {
+        checkNotNull(source, "source cannot be null");
+        return Observable.create(subscriber -> {
+            Priority previous = enter();
+            try {
+                source.unsafeSubscribe(subscriber);
+            } finally {
+                restore(previous);
+            }
+        });
+    }
+
+    /**
+     * @return a Completable subscribing to the source with this priority.
+     */
+    @NonNull
+    public Completable apply(@NonNull Completable source) {
+        checkNotNull(source, "source cannot be null");
+        return Completable.create(subscriber -> {
+            Priority previous = enter();
+            try {
+                source.subscribe(subscriber);
+            } finally {
+                restore(previous);
+            }
+        });
+    }
+
+    /**
+     * Makes this the priority of the current thread.
+     *
+     * @return the previous priority, to restore once the work is done.
+     */
+    @NonNull
+    Priority enter() {
+        Priority previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    static void restore(@NonNull Priority previous) {
+        CURRENT.set(previous);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The metrics recorded by an {@link InstrumentedSchedulerProvider}, for every pool and for every
+ * named task on every pool. Thread safe.
+ */
+public final class SchedulerMetrics {
+
+    // by pool and task, the stats of the whole pool having a null task
+    @NonNull
+    private final ConcurrentMap<Key, Counter> mCounters = new ConcurrentHashMap<>();
+
+    /**
+     * @return the stats of every pool and named task, sorted by pool, the stats of a whole pool
+     * before the stats of its tasks.
+     */
+    @NonNull
+    public List<SchedulerStats> snapshot() {
+        List<SchedulerStats> stats = new ArrayList<>(mCounters.size());
+        for (Counter counter : mCounters.values()) {
+            stats.add(counter.snapshot());
+        }
+        Collections.sort(stats, (first, second) -> {
+            int byPool = first.getPool().compareTo(second.getPool());
+            if (byPool != 0) {
+                return byPool;
+            }
+            if (first.getTask() == null || second.getTask() == null) {
+                return first.getTask() == null ? (second.getTask() == null ? 0 : -1) : 1;
+            }
+            return first.getTask().compareTo(second.getTask());
+        });
+        return stats;
+    }
+
+    /**
+     * @param pool the name of the pool
+     * @param task the name of the task, null for the whole pool
+     * @return the stats of the pool or task, null if it has no scheduler.
+     */
+    @Nullable
+    public SchedulerStats getStats(@NonNull String pool, @Nullable String task) {
+        Counter counter = mCounters.get(new Key(pool, task));
+        return counter != null ? counter.snapshot() : null;
+    }
+
+    @NonNull
+    Counter counter(@NonNull String pool, @Nullable String task) {
+        Key key = new Key(pool, task);
+        Counter counter = mCounters.get(key);
+        if (counter == null) {
+            Counter created = new Counter(pool, task);
+            counter = mCounters.putIfAbsent(key, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Counts the actions of a pool or task while they run.
+     */
+    static final class Counter {
+
+        @NonNull
+        private final String mPool;
+
+        @Nullable
+        private final String mTask;
+
+        // the number of actions running on the current thread, nested when an action runs
+        // another one inline, so that a thread is only counted once
+        private final ThreadLocal<int[]> mDepth = new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[1];
+            }
+        };
+
+        private long mStartedCount;
+
+        private long mExecutedCount;
+
+        private long mTotalQueueWaitNanos;
+
+        private long mMaxQueueWaitNanos;
+
+        private long mTotalExecutionNanos;
+
+        private long mMaxExecutionNanos;
+
+        private int mInFlightCount;
+
+        private int mThreadCount;
+
+        private int mPeakThreadCount;
+
+        Counter(@NonNull String pool, @Nullable String task) {
+            mPool = pool;
+            mTask = task;
+        }
+
+        void onStarted(long queueWaitNanos) {
+            boolean newThread = mDepth.get()[0]++ == 0;
+            synchronized (this) {
+                mStartedCount++;
+                mInFlightCount++;
+                mTotalQueueWaitNanos += queueWaitNanos;
+                mMaxQueueWaitNanos = Math.max(mMaxQueueWaitNanos, queueWaitNanos);
+                if (newThread) {
+                    mThreadCount++;
+                    mPeakThreadCount = Math.max(mPeakThreadCount, mThreadCount);
+                }
+            }
+        }
+
+        void onFinished(long executionNanos) {
+            boolean leftThread = --mDepth.get()[0] == 0;
+            synchronized (this) {
+                mExecutedCount++;
+                mInFlightCount--;
+                mTotalExecutionNanos += executionNanos;
+                mMaxExecutionNanos = Math.max(mMaxExecutionNanos, executionNanos);
+                if (leftThread) {
+                    mThreadCount--;
+                }
+            }
+        }
+
+        @NonNull
+        synchronized SchedulerStats snapshot() {
+            return new SchedulerStats(mPool, mTask, mStartedCount, mExecutedCount,
+                    mTotalQueueWaitNanos, mMaxQueueWaitNanos, mTotalExecutionNanos,
+                    mMaxExecutionNanos, mInFlightCount, mPeakThreadCount);
+        }
+    }
+
+    private static final class Key {
+
+        @NonNull
+        private final String mPool;
+
+        @Nullable
+        private final String mTask;
+
+        Key(@NonNull String pool, @Nullable String task) {
+            mPool = pool;
+            mTask = task;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return mPool.equals(key.mPool) && Objects.equal(mTask, key.mTask);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(mPool, mTask);
+        }
+    }
+}
@@ -13,9 +13,19 @@ import rx.schedulers.Schedulers;
  */
 public class SchedulerProvider implements BaseSchedulerProvider {
 
+    // the size of the SQLite connection pool: without write-ahead logging, the reads and the
+    // writes share a single connection
+    private static final int DATABASE_THREADS = 1;
+
+    // the number of subscribers waiting for the database before the callers block
+    private static final int DATABASE_QUEUE_CAPACITY = 64;
+
     @Nullable
     private static SchedulerProvider INSTANCE;
 
+    @Nullable
+    private BoundedScheduler mDatabase;
+
     // Prevent direct instantiation.
     private SchedulerProvider() {
     }
@@ -39,6 +49,22 @@ public class SchedulerProvider implements BaseSchedulerProvider {
         return Schedulers.io();
     }
 
+    @Override
+    @NonNull
+    public synchronized BoundedScheduler database() {
+        if (mDatabase == null) {
+            mDatabase = new BoundedScheduler("database", DATABASE_THREADS, DATABASE_QUEUE_CAPACITY,
+                    BoundedScheduler.OverflowPolicy.BLOCK);
+        }
+        return mDatabase;
+    }
+
+    @Override
+    @NonNull
+    public Scheduler database(@NonNull Priority priority) {
+        return database().withPriority(priority);
+    }
+
     @Override
     @NonNull
     public Scheduler ui() {
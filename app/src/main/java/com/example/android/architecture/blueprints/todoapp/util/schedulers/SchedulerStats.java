@@ -0,0 +1,125 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the work run on a scheduler, for a whole pool or for one named task on
+ * that pool. The times are in nanoseconds.
+ */
+public final class SchedulerStats {
+
+    @NonNull
+    private final String mPool;
+
+    @Nullable
+    private final String mTask;
+
+    private final long mStartedCount;
+
+    private final long mExecutedCount;
+
+    private final long mTotalQueueWaitNanos;
+
+    private final long mMaxQueueWaitNanos;
+
+    private final long mTotalExecutionNanos;
+
+    private final long mMaxExecutionNanos;
+
+    private final int mInFlightCount;
+
+    private final int mPeakThreadCount;
+
+    SchedulerStats(@NonNull String pool, @Nullable String task, long startedCount,
+                   long executedCount, long totalQueueWaitNanos, long maxQueueWaitNanos,
+                   long totalExecutionNanos, long maxExecutionNanos, int inFlightCount,
+                   int peakThreadCount) {
+        mPool = pool;
+        mTask = task;
+        mStartedCount = startedCount;
+        mExecutedCount = executedCount;
+        mTotalQueueWaitNanos = totalQueueWaitNanos;
+        mMaxQueueWaitNanos = maxQueueWaitNanos;
+        mTotalExecutionNanos = totalExecutionNanos;
+        mMaxExecutionNanos = maxExecutionNanos;
+        mInFlightCount = inFlightCount;
+        mPeakThreadCount = peakThreadCount;
+    }
+
+    /**
+     * @return the name of the pool: computation, io or ui.
+     */
+    @NonNull
+    public String getPool() {
+        return mPool;
+    }
+
+    /**
+     * @return the name of the task, null for the stats of the whole pool.
+     */
+    @Nullable
+    public String getTask() {
+        return mTask;
+    }
+
+    /**
+     * @return the number of actions that ran to completion.
+     */
+    public long getExecutedCount() {
+        return mExecutedCount;
+    }
+
+    /**
+     * @return the average time between the moment an action was due and the moment it started.
+     */
+    public long getAverageQueueWaitNanos() {
+        return mStartedCount == 0 ? 0 : mTotalQueueWaitNanos / mStartedCount;
+    }
+
+    public long getMaxQueueWaitNanos() {
+        return mMaxQueueWaitNanos;
+    }
+
+    public long getTotalExecutionNanos() {
+        return mTotalExecutionNanos;
+    }
+
+    public long getAverageExecutionNanos() {
+        return mExecutedCount == 0 ? 0 : mTotalExecutionNanos / mExecutedCount;
+    }
+
+    public long getMaxExecutionNanos() {
+        return mMaxExecutionNanos;
+    }
+
+    /**
+     * @return the number of actions running when the snapshot was taken.
+     */
+    public int getInFlightCount() {
+        return mInFlightCount;
+    }
+
+    /**
+     * @return the largest number of threads that ran actions at the same time.
+     */
+    public int getPeakThreadCount() {
+        return mPeakThreadCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s%s: %d executed, wait avg %d us max %d us, run avg %d us max %d us, "
+                        + "%d in flight, %d peak threads",
+                mPool, mTask != null ? "/" + mTask : "", mExecutedCount,
+                TimeUnit.NANOSECONDS.toMicros(getAverageQueueWaitNanos()),
+                TimeUnit.NANOSECONDS.toMicros(mMaxQueueWaitNanos),
+                TimeUnit.NANOSECONDS.toMicros(getAverageExecutionNanos()),
+                TimeUnit.NANOSECONDS.toMicros(mMaxExecutionNanos),
+                mInFlightCount, mPeakThreadCount);
+    }
+}
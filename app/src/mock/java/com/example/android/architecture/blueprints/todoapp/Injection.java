@@ -22,16 +22,24 @@ import android.app.Activity;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
 
 import com.example.android.architecture.blueprints.todoapp.data.FakeTasksRemoteDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskSyncScheduler;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.ResiliencePolicy;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.ResilientTasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.SimulatedTasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.util.providers.BaseNavigator;
 import com.example.android.architecture.blueprints.todoapp.util.providers.BaseResourceProvider;
 import com.example.android.architecture.blueprints.todoapp.util.providers.Navigator;
 import com.example.android.architecture.blueprints.todoapp.util.providers.ResourceProvider;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.BaseSchedulerProvider;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.InstrumentedSchedulerProvider;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.SchedulerMetrics;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.SchedulerProvider;
 
 /**
@@ -41,17 +49,101 @@ import com.example.android.architecture.blueprints.todoapp.util.schedulers.Sched
  */
 public class Injection {
 
+    // the network conditions are replayed identically from one run to the other
+    private static final long NETWORK_SEED = 42;
+
+    @Nullable
+    private static SimulatedTasksDataSource sNetworkSimulator;
+
+    @Nullable
+    private static ResilientTasksDataSource sRemoteDataSource;
+
+    @Nullable
+    private static TaskSyncScheduler sSyncScheduler;
+
+    @Nullable
+    private static InstrumentedSchedulerProvider sInstrumentedSchedulerProvider;
+
     @NonNull
     public static TasksRepository provideTasksRepository(@NonNull Context context) {
         checkNotNull(context);
-        return TasksRepository.getInstance(FakeTasksRemoteDataSource.getInstance(),
-                TasksLocalDataSource.getInstance(context, provideSchedulerProvider()),
-                provideSchedulerProvider());
+        return TasksRepository.getInstance(provideRemoteDataSource(),
+                TasksLocalDataSource.getInstance(context, provideSchedulerProvider("database")),
+                provideSchedulerProvider("repository"));
+    }
+
+    /**
+     * @return the remote data source, with timeouts, retries and a circuit breaker, behind the
+     * simulated network.
+     */
+    @NonNull
+    public static synchronized ResilientTasksDataSource provideRemoteDataSource() {
+        if (sRemoteDataSource == null) {
+            sRemoteDataSource = new ResilientTasksDataSource(provideNetworkSimulator(),
+                    provideSchedulerProvider("remote").computation(), ResiliencePolicy.DEFAULT);
+        }
+        return sRemoteDataSource;
+    }
+
+    /**
+     * @return the simulated network in front of the fake remote data source. The network is ideal
+     * until its conditions are set, for example to load test the app.
+     */
+    @NonNull
+    public static synchronized SimulatedTasksDataSource provideNetworkSimulator() {
+        if (sNetworkSimulator == null) {
+            sNetworkSimulator = new SimulatedTasksDataSource(
+                    FakeTasksRemoteDataSource.getInstance(),
+                    provideSchedulerProvider("network").computation(), NETWORK_SEED);
+        }
+        return sNetworkSimulator;
     }
 
+    /**
+     * @return the scheduler of the periodic syncs of the tasks, started with the app.
+     */
     @NonNull
-    public static BaseSchedulerProvider provideSchedulerProvider() {
-        return SchedulerProvider.getInstance();
+    public static synchronized TaskSyncScheduler provideSyncScheduler(@NonNull Context context) {
+        if (sSyncScheduler == null) {
+            sSyncScheduler = new TaskSyncScheduler(provideTasksRepository(context),
+                    provideSchedulerProvider("sync").computation(), System.nanoTime());
+        }
+        return sSyncScheduler;
+    }
+
+    /**
+     * @return the schedulers, measured in debug builds.
+     */
+    @NonNull
+    public static synchronized BaseSchedulerProvider provideSchedulerProvider() {
+        if (!BuildConfig.DEBUG) {
+            return SchedulerProvider.getInstance();
+        }
+        if (sInstrumentedSchedulerProvider == null) {
+            sInstrumentedSchedulerProvider =
+                    new InstrumentedSchedulerProvider(SchedulerProvider.getInstance());
+        }
+        return sInstrumentedSchedulerProvider;
+    }
+
+    /**
+     * @return the metrics of the schedulers, null in release builds.
+     */
+    @Nullable
+    public static SchedulerMetrics provideSchedulerMetrics() {
+        BaseSchedulerProvider provider = provideSchedulerProvider();
+        return provider instanceof InstrumentedSchedulerProvider
+                ? ((InstrumentedSchedulerProvider) provider).getMetrics()
+                : null;
+    }
+
+    // in debug builds, the work of the task is also measured on its own
+    @NonNull
+    private static BaseSchedulerProvider provideSchedulerProvider(@NonNull String task) {
+        BaseSchedulerProvider provider = provideSchedulerProvider();
+        return provider instanceof InstrumentedSchedulerProvider
+                ? ((InstrumentedSchedulerProvider) provider).forTask(task)
+                : provider;
     }
 
     @NonNull
@@ -63,4 +155,9 @@ public class Injection {
     public static BaseNavigator createNavigationProvider(@NonNull Activity activity) {
         return new Navigator(activity);
     }
+
+    @NonNull
+    public static BaseNavigator createNavigationProvider(@NonNull Fragment fragment) {
+        return new Navigator(fragment);
+    }
 }
@@ -21,6 +21,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.google.common.collect.Lists;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -56,57 +57,87 @@ public class FakeTasksRemoteDataSource implements TasksDataSource {
         return Observable.just(values);
     }
 
+    @Override
+    public Observable<List<Task>> getTaskPages(int pageSize) {
+        List<Task> values = new ArrayList<>(TASKS_SERVICE_DATA.values());
+        return Observable.from(Lists.partition(values, pageSize));
+    }
+
     @Override
     public Observable<Task> getTask(@NonNull String taskId) {
         Task task = TASKS_SERVICE_DATA.get(taskId);
         return Observable.just(task);
     }
 
+    @Override
+    public Observable<List<Task>> getTasks(@NonNull List<String> taskIds) {
+        List<Task> tasks = new ArrayList<>(taskIds.size());
+        for (String taskId : taskIds) {
+            Task task = TASKS_SERVICE_DATA.get(taskId);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return Observable.just(tasks);
+    }
+
     @Override
     public Completable saveTask(@NonNull Task task) {
-        return Completable.fromAction(() -> TASKS_SERVICE_DATA.put(task.getId(), task));
+        return Completable.fromAction(() -> merge(task));
     }
 
 
     @Override
     public Completable saveTasks(@NonNull List<Task> tasks) {
-        return Observable.from(tasks)
-                .doOnNext(this::saveTask)
-                .toCompletable();
+        return Completable.fromAction(() -> {
+            for (Task task : tasks) {
+                merge(task);
+            }
+        });
+    }
+
+    // the saves are merged with the saved task, so the concurrent edits of a task are all kept
+    private static void merge(@NonNull Task task) {
+        synchronized (TASKS_SERVICE_DATA) {
+            Task saved = TASKS_SERVICE_DATA.get(task.getId());
+            TASKS_SERVICE_DATA.put(task.getId(), saved == null ? task : saved.merge(task));
+        }
     }
 
     @Override
-    public Completable completeTask(@NonNull Task task) {
+    public Completable updateTask(@NonNull TaskPatch patch) {
         return Completable.fromAction(() -> {
-            Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
-            TASKS_SERVICE_DATA.put(task.getId(), completedTask);
+            synchronized (TASKS_SERVICE_DATA) {
+                Task saved = TASKS_SERVICE_DATA.get(patch.getTaskId());
+                if (saved != null) {
+                    TASKS_SERVICE_DATA.put(saved.getId(), patch.applyTo(saved));
+                }
+            }
         });
     }
 
+    @Override
+    public Completable completeTask(@NonNull Task task) {
+        // tasks from the list might have a truncated description, so only the id is used.
+        return completeTask(task.getId());
+    }
+
     @Override
     public Completable completeTask(@NonNull String taskId) {
-        return Completable.fromAction(() -> {
-            Task task = TASKS_SERVICE_DATA.get(taskId);
-            Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
-            TASKS_SERVICE_DATA.put(taskId, completedTask);
-        });
+        return Completable.defer(() ->
+                updateTask(TaskPatch.completion(taskId, true, System.currentTimeMillis())));
     }
 
     @Override
     public Completable activateTask(@NonNull Task task) {
-        return Completable.fromAction(() -> {
-            Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
-            TASKS_SERVICE_DATA.put(task.getId(), activeTask);
-        });
+        // tasks from the list might have a truncated description, so only the id is used.
+        return activateTask(task.getId());
     }
 
     @Override
     public Completable activateTask(@NonNull String taskId) {
-        return Completable.fromAction(() -> {
-            Task task = TASKS_SERVICE_DATA.get(taskId);
-            Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
-            TASKS_SERVICE_DATA.put(taskId, activeTask);
-        });
+        return Completable.defer(() ->
+                updateTask(TaskPatch.completion(taskId, false, System.currentTimeMillis())));
     }
 
     @Override
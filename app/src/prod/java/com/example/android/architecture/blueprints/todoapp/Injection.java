@@ -19,16 +19,24 @@ package com.example.android.architecture.blueprints.todoapp;
 import android.app.Activity;
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import androidx.fragment.app.Fragment;
+
+import com.example.android.architecture.blueprints.todoapp.data.source.TaskSyncScheduler;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksLocalDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.ResiliencePolicy;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.ResilientTasksDataSource;
 import com.example.android.architecture.blueprints.todoapp.data.source.remote.TasksRemoteDataSource;
 import com.example.android.architecture.blueprints.todoapp.util.providers.BaseNavigator;
 import com.example.android.architecture.blueprints.todoapp.util.providers.BaseResourceProvider;
 import com.example.android.architecture.blueprints.todoapp.util.providers.Navigator;
 import com.example.android.architecture.blueprints.todoapp.util.providers.ResourceProvider;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.BaseSchedulerProvider;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.InstrumentedSchedulerProvider;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.SchedulerMetrics;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.SchedulerProvider;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -39,17 +47,80 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class Injection {
 
+    @Nullable
+    private static ResilientTasksDataSource sRemoteDataSource;
+
+    @Nullable
+    private static TaskSyncScheduler sSyncScheduler;
+
+    @Nullable
+    private static InstrumentedSchedulerProvider sInstrumentedSchedulerProvider;
+
     @NonNull
     public static TasksRepository provideTasksRepository(@NonNull Context context) {
         checkNotNull(context);
-        return TasksRepository.getInstance(TasksRemoteDataSource.getInstance(),
-                TasksLocalDataSource.getInstance(context, provideSchedulerProvider()),
-                provideSchedulerProvider());
+        return TasksRepository.getInstance(provideRemoteDataSource(),
+                TasksLocalDataSource.getInstance(context, provideSchedulerProvider("database")),
+                provideSchedulerProvider("repository"));
+    }
+
+    /**
+     * @return the remote data source, with timeouts, retries and a circuit breaker.
+     */
+    @NonNull
+    public static synchronized ResilientTasksDataSource provideRemoteDataSource() {
+        if (sRemoteDataSource == null) {
+            sRemoteDataSource = new ResilientTasksDataSource(TasksRemoteDataSource.getInstance(),
+                    provideSchedulerProvider("remote").computation(), ResiliencePolicy.DEFAULT);
+        }
+        return sRemoteDataSource;
+    }
+
+    /**
+     * @return the scheduler of the periodic syncs of the tasks, started with the app.
+     */
+    @NonNull
+    public static synchronized TaskSyncScheduler provideSyncScheduler(@NonNull Context context) {
+        if (sSyncScheduler == null) {
+            sSyncScheduler = new TaskSyncScheduler(provideTasksRepository(context),
+                    provideSchedulerProvider("sync").computation(), System.nanoTime());
+        }
+        return sSyncScheduler;
     }
 
+    /**
+     * @return the schedulers, measured in debug builds.
+     */
     @NonNull
-    public static BaseSchedulerProvider provideSchedulerProvider() {
-        return SchedulerProvider.getInstance();
+    public static synchronized BaseSchedulerProvider provideSchedulerProvider() {
+        if (!BuildConfig.DEBUG) {
+            return SchedulerProvider.getInstance();
+        }
+        if (sInstrumentedSchedulerProvider == null) {
+            sInstrumentedSchedulerProvider =
+                    new InstrumentedSchedulerProvider(SchedulerProvider.getInstance());
+        }
+        return sInstrumentedSchedulerProvider;
+    }
+
+    /**
+     * @return the metrics of the schedulers, null in release builds.
+     */
+    @Nullable
+    public static SchedulerMetrics provideSchedulerMetrics() {
+        BaseSchedulerProvider provider = provideSchedulerProvider();
+        return provider instanceof InstrumentedSchedulerProvider
+                ? ((InstrumentedSchedulerProvider) provider).getMetrics()
+                : null;
+    }
+
+    // in debug builds, the work of the task is also measured on its own
+    @NonNull
+    private static BaseSchedulerProvider provideSchedulerProvider(@NonNull String task) {
+        BaseSchedulerProvider provider = provideSchedulerProvider();
+        return provider instanceof InstrumentedSchedulerProvider
+                ? ((InstrumentedSchedulerProvider) provider).forTask(task)
+                : provider;
     }
 
     @NonNull
@@ -61,4 +132,9 @@ public class Injection {
     public static BaseNavigator createNavigationProvider(@NonNull Activity activity) {
         return new Navigator(activity);
     }
+
+    @NonNull
+    public static BaseNavigator createNavigationProvider(@NonNull Fragment fragment) {
+        return new Navigator(fragment);
+    }
 }
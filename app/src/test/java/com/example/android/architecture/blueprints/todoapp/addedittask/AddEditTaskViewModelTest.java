@@ -2,6 +2,7 @@ package com.example.android.architecture.blueprints.todoapp.addedittask;
 
 import com.example.android.architecture.blueprints.todoapp.R;
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
 
 import org.junit.Before;
@@ -199,6 +200,42 @@ public class AddEditTaskViewModelTest {
         mCompletableTestSubscriber.assertCompleted();
     }
 
+    @Test
+    public void saveTask_withLoadedTask_updatesOnlyTheEditedFields() {
+        // Given a completed task loaded from the repository
+        Task completedTask = TASK.withCompleted(true);
+        when(mTasksRepository.getTask(TASK.getId())).thenReturn(Observable.just(completedTask));
+        when(mTasksRepository.updateTask(any(TaskPatch.class)))
+                .thenReturn(Completable.complete());
+        mViewModel = new AddEditTaskViewModel(TASK.getId(), mTasksRepository, mNavigator);
+        mViewModel.getUiModel().subscribe(mTaskTestSubscriber);
+
+        // When saving the task with a new title only
+        mViewModel.saveTask(NEW_TITLE, TASK.getDescription()).subscribe(mCompletableTestSubscriber);
+
+        // Then only the title is updated, the task stays completed
+        verify(mTasksRepository).updateTask(
+                TaskPatch.diff(completedTask, completedTask.withTitle(NEW_TITLE)));
+        verify(mTasksRepository, never()).saveTask(any(Task.class));
+        mCompletableTestSubscriber.assertCompleted();
+    }
+
+    @Test
+    public void saveTask_withLoadedTaskUnchanged_doesntUpdateTask() {
+        // Given a task loaded from the repository
+        when(mTasksRepository.getTask(TASK.getId())).thenReturn(Observable.just(TASK));
+        mViewModel = new AddEditTaskViewModel(TASK.getId(), mTasksRepository, mNavigator);
+        mViewModel.getUiModel().subscribe(mTaskTestSubscriber);
+
+        // When saving the task without changes
+        mViewModel.saveTask(TASK.getTitle(), TASK.getDescription()).subscribe();
+
+        // Then nothing is written but the navigation is triggered
+        verify(mTasksRepository, never()).updateTask(any(TaskPatch.class));
+        verify(mTasksRepository, never()).saveTask(any(Task.class));
+        verify(mNavigator).onTaskSaved();
+    }
+
     @Test
     public void restoreTask_withTitleUpdated() {
         // Given a task in the repository
@@ -0,0 +1,25 @@
+package com.example.android.architecture.blueprints.todoapp.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists of tasks for the tests that need many of them.
+ */
+public final class TaskFixtures {
+
+    private TaskFixtures() {
+    }
+
+    /**
+     * @return the given number of tasks, with the ids "id0", "id1"... and every other task
+     * completed, starting with the first.
+     */
+    public static List<Task> createTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task("Title" + i, "Description" + i, "id" + i, i % 2 == 0));
+        }
+        return tasks;
+    }
+}
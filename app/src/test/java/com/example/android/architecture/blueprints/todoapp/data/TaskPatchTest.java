@@ -0,0 +1,56 @@
+package com.example.android.architecture.blueprints.todoapp.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link TaskPatch}.
+ */
+public class TaskPatchTest {
+
+    private static final Task TASK = new Task("title", "description", "id", false, 10, 10, 10);
+
+    @Test
+    public void diff_onlyHasTheEditedFields() {
+        TaskPatch patch = TaskPatch.diff(TASK, TASK.withTitle("new title"));
+
+        assertTrue(patch.hasTitle());
+        assertEquals("new title", patch.getTitle());
+        assertFalse(patch.hasDescription());
+        assertFalse(patch.hasCompleted());
+    }
+
+    @Test
+    public void diff_unchangedTask_isEmpty() {
+        assertTrue(TaskPatch.diff(TASK, TASK).isEmpty());
+    }
+
+    @Test
+    public void applyTo_newerPatch_updatesOnlyTheEditedFields() {
+        Task patched = TaskPatch.completion(TASK.getId(), true, 20).applyTo(TASK);
+
+        assertEquals(TASK.withCompleted(true), patched);
+        assertEquals(20, patched.getCompletedTimestamp());
+        assertEquals(10, patched.getTitleTimestamp());
+    }
+
+    @Test
+    public void applyTo_olderPatch_returnsSameTask() {
+        TaskPatch patch = TaskPatch.diff(TASK, TASK.withTitle("old title")).withTimestamp(5);
+
+        assertSame(TASK, patch.applyTo(TASK));
+    }
+
+    @Test
+    public void applyTo_isLikeMergingTheEditedTask() {
+        Task edited = TASK.withTitle("new title").withCompleted(true).stampChanges(TASK, 20);
+
+        TaskPatch patch = TaskPatch.diff(TASK, edited).withTimestamp(20);
+
+        assertEquals(TASK.merge(edited), patch.applyTo(TASK));
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.android.architecture.blueprints.todoapp.data;
+
+import com.example.android.architecture.blueprints.todoapp.util.AllocationMeter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link Task}.
+ */
+public class TaskTest {
+
+    private static final int LIST_SIZE = 10_000;
+
+    private static final Task TASK = new Task("title", "description", "id", false);
+
+    private static final int REPLICAS = 4;
+
+    private static final int SHARED_TASKS = 20;
+
+    private static final int ROUNDS = 500;
+
+    @Test
+    public void equals_takesCompletionIntoAccount() {
+        Task completed = new Task("title", "description", "id", true);
+
+        assertNotEquals(TASK, completed);
+    }
+
+    @Test
+    public void hashCode_equalForEqualTasks() {
+        Task copy = new Task("title", "description", "id", false);
+
+        assertEquals(TASK, copy);
+        assertEquals(TASK.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void withCompleted_sameState_returnsSameInstance() {
+        assertSame(TASK, TASK.withCompleted(false));
+    }
+
+    @Test
+    public void withCompleted_sharesUnchangedFields() {
+        Task completed = TASK.withCompleted(true);
+
+        assertTrue(completed.isCompleted());
+        assertSame(TASK.getId(), completed.getId());
+        assertSame(TASK.getTitle(), completed.getTitle());
+        assertSame(TASK.getDescription(), completed.getDescription());
+    }
+
+    @Test
+    public void withTitle_sameTitle_returnsSameInstance() {
+        assertSame(TASK, TASK.withTitle("title"));
+    }
+
+    @Test
+    public void withTitle_keepsCompletion() {
+        Task completed = TASK.withCompleted(true);
+
+        Task renamed = completed.withTitle("new title");
+
+        assertEquals("new title", renamed.getTitle());
+        assertTrue(renamed.isCompleted());
+        assertSame(completed.getDescription(), renamed.getDescription());
+    }
+
+    @Test
+    public void stampChanges_onlyStampsEditedFields() {
+        Task previous = new Task("title", "description", "id", false, 1, 2, 3);
+
+        Task stamped = previous.withTitle("edited").stampChanges(previous, 10);
+
+        assertEquals(10, stamped.getTitleTimestamp());
+        assertEquals(2, stamped.getDescriptionTimestamp());
+        assertEquals(3, stamped.getCompletedTimestamp());
+    }
+
+    @Test
+    public void merge_keepsTheLastEditOfEveryField() {
+        Task base = new Task("title", "description", "id", false, 1, 1, 1);
+        Task renamed = base.withTitle("renamed").stampChanges(base, 2);
+        Task completed = base.withCompleted(true).stampChanges(base, 3);
+
+        Task merged = renamed.merge(completed);
+
+        assertEquals("renamed", merged.getTitle());
+        assertEquals("description", merged.getDescription());
+        assertTrue(merged.isCompleted());
+    }
+
+    @Test
+    public void merge_isCommutativeAssociativeAndIdempotent() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            Task a = randomVersion(random, "id");
+            Task b = randomVersion(random, "id");
+            Task c = randomVersion(random, "id");
+
+            assertSameVersion(a.merge(b), b.merge(a));
+            assertSameVersion(a.merge(b).merge(c), a.merge(b.merge(c)));
+            assertSameVersion(a, a.merge(a));
+        }
+    }
+
+    @Test
+    public void replicas_editingConcurrently_converge() {
+        // Given replicas editing the same tasks and exchanging them in a random order
+        Random random = new Random(42);
+        List<Map<String, Task>> replicas = new ArrayList<>(REPLICAS);
+        for (int i = 0; i < REPLICAS; i++) {
+            replicas.add(new LinkedHashMap<>());
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            Map<String, Task> replica = replicas.get(random.nextInt(REPLICAS));
+            if (random.nextBoolean()) {
+                String id = "id" + random.nextInt(SHARED_TASKS);
+                Task previous = replica.get(id);
+                Task edited = previous == null
+                        ? new Task("title", "description", id)
+                        : randomEdit(random, previous);
+                // the clocks of the replicas are not synchronized
+                replica.put(id, edited.stampChanges(previous, random.nextInt(ROUNDS)));
+            } else {
+                // the tasks are not exchanged at once
+                Map<String, Task> other = replicas.get(random.nextInt(REPLICAS));
+                for (Task task : other.values()) {
+                    if (random.nextBoolean()) {
+                        mergeInto(replica, task);
+                    }
+                }
+            }
+        }
+
+        // When all the replicas finally exchange all their tasks, in different orders
+        List<Map<String, Task>> snapshots = new ArrayList<>(REPLICAS);
+        for (Map<String, Task> replica : replicas) {
+            snapshots.add(new LinkedHashMap<>(replica));
+        }
+        for (int i = 0; i < REPLICAS; i++) {
+            for (int j = 0; j < REPLICAS; j++) {
+                Map<String, Task> other = snapshots.get((i + j) % REPLICAS);
+                for (Task task : other.values()) {
+                    mergeInto(replicas.get(i), task);
+                }
+            }
+        }
+
+        // Then all the replicas have the same tasks
+        for (Map<String, Task> replica : replicas) {
+            assertEquals(replicas.get(0).keySet(), replica.keySet());
+            for (Task task : replica.values()) {
+                assertSameVersion(replicas.get(0).get(task.getId()), task);
+            }
+        }
+    }
+
+    @Test
+    public void listRebuild_hashingDoesNotAllocate() {
+        // Given a list of tasks rebuilt after toggling every other task
+        List<Task> tasks = TaskFixtures.createTasks(LIST_SIZE);
+        List<Task> rebuilt = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            Task task = tasks.get(i);
+            rebuilt.add(task.withCompleted(i % 2 == 0 ? !task.isCompleted() : task.isCompleted()));
+        }
+
+        // When hashing and comparing every task of the new list
+        int[] changed = new int[1];
+        long allocated = AllocationMeter.bytesAllocated(() -> {
+            for (int i = 0; i < LIST_SIZE; i++) {
+                Task task = rebuilt.get(i);
+                if (task.hashCode() != tasks.get(i).hashCode() || !task.equals(tasks.get(i))) {
+                    changed[0]++;
+                }
+            }
+        });
+
+        // Then only the toggled tasks are different and hashing allocated no per-task garbage
+        assertEquals(LIST_SIZE / 2, changed[0]);
+        assertTrue("allocated " + allocated + " bytes", allocated < LIST_SIZE);
+    }
+
+    private static void mergeInto(Map<String, Task> replica, Task task) {
+        Task saved = replica.get(task.getId());
+        replica.put(task.getId(), saved == null ? task : saved.merge(task));
+    }
+
+    private static Task randomEdit(Random random, Task task) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return task.withTitle("title" + random.nextInt(5));
+            case 1:
+                return task.withDescription("description" + random.nextInt(5));
+            default:
+                return task.withCompleted(!task.isCompleted());
+        }
+    }
+
+    // few values and timestamps, so that there are ties
+    private static Task randomVersion(Random random, String id) {
+        return new Task(random.nextBoolean() ? "title" + random.nextInt(3) : null,
+                "description" + random.nextInt(3), id, random.nextBoolean(),
+                random.nextInt(3), random.nextInt(3), random.nextInt(3));
+    }
+
+    // equal tasks with the same timestamps
+    private static void assertSameVersion(Task expected, Task actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getTitleTimestamp(), actual.getTitleTimestamp());
+        assertEquals(expected.getDescriptionTimestamp(), actual.getDescriptionTimestamp());
+        assertEquals(expected.getCompletedTimestamp(), actual.getCompletedTimestamp());
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TaskBatchLoader}.
+ */
+public class TaskBatchLoaderTest {
+
+    private static final Task TASK_1 = new Task("title1", "description1", "1", false);
+
+    private static final Task TASK_2 = new Task("title2", "description2", "2", false);
+
+    private TasksDataSource mDataSource;
+
+    private TestScheduler mScheduler;
+
+    private TaskBatchLoader mLoader;
+
+    @Before
+    public void setUp() {
+        mDataSource = mock(TasksDataSource.class);
+        mScheduler = new TestScheduler();
+        mLoader = new TaskBatchLoader(mDataSource, mScheduler, 10, 3);
+        when(mDataSource.getTasks(anyListOf(String.class)))
+                .thenReturn(Observable.just(Arrays.asList(TASK_1, TASK_2)));
+    }
+
+    @Test
+    public void load_withinWindow_sendsOneBatchWithoutDuplicates() {
+        // Given three lookups of two tasks within the window
+        TestSubscriber<Task> first = new TestSubscriber<>();
+        TestSubscriber<Task> second = new TestSubscriber<>();
+        TestSubscriber<Task> duplicate = new TestSubscriber<>();
+        mLoader.load("1").subscribe(first);
+        mLoader.load("2").subscribe(second);
+        mLoader.load("1").subscribe(duplicate);
+        verify(mDataSource, never()).getTasks(anyListOf(String.class));
+
+        // When the window elapses
+        mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        // Then one batch with both ids is sent and every caller gets its task
+        verify(mDataSource).getTasks(Arrays.asList("1", "2"));
+        first.assertValue(TASK_1);
+        second.assertValue(TASK_2);
+        duplicate.assertValue(TASK_1);
+        first.assertCompleted();
+    }
+
+    @Test
+    public void load_missingTask_completesEmpty() {
+        TestSubscriber<Task> subscriber = new TestSubscriber<>();
+
+        mLoader.load("3").subscribe(subscriber);
+        mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        subscriber.assertNoValues();
+        subscriber.assertCompleted();
+    }
+
+    @Test
+    public void load_fullBatch_isSentWithoutWaiting() {
+        mLoader.load("1").subscribe(new TestSubscriber<>());
+        mLoader.load("2").subscribe(new TestSubscriber<>());
+        mLoader.load("3").subscribe(new TestSubscriber<>());
+
+        mScheduler.triggerActions();
+
+        verify(mDataSource).getTasks(Arrays.asList("1", "2", "3"));
+    }
+
+    @Test
+    public void load_afterWindow_startsNewBatch() {
+        mLoader.load("1").subscribe(new TestSubscriber<>());
+        mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        mLoader.load("1").subscribe(new TestSubscriber<>());
+        mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        verify(mDataSource, times(2)).getTasks(Collections.singletonList("1"));
+    }
+
+    @Test
+    public void load_batchError_isDeliveredToEveryCaller() {
+        when(mDataSource.getTasks(anyListOf(String.class)))
+                .thenReturn(Observable.<List<Task>>error(new IOException()));
+        TestSubscriber<Task> first = new TestSubscriber<>();
+        TestSubscriber<Task> second = new TestSubscriber<>();
+
+        mLoader.load("1").subscribe(first);
+        mLoader.load("2").subscribe(second);
+        mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        first.assertError(IOException.class);
+        second.assertError(IOException.class);
+    }
+}
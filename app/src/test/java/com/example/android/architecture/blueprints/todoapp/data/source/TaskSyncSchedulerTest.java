@@ -0,0 +1,256 @@
+package com.example.android.architecture.blueprints.todoapp.data.source;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.Priority;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Completable;
+import rx.Observable;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TaskSyncScheduler}, on a virtual clock.
+ */
+public class TaskSyncSchedulerTest {
+
+    private static final long MIN_INTERVAL_MILLIS = 1000;
+
+    private static final long MAX_INTERVAL_MILLIS = 8000;
+
+    private static final long BATCH_WINDOW_MILLIS = 100;
+
+    private static final long STEP_MILLIS = 10;
+
+    private static final List<Task> TASKS =
+            Collections.singletonList(new Task("title", "description", "1", false));
+
+    private static final List<Task> CHANGED_TASKS =
+            Collections.singletonList(new Task("title", "description", "1", true));
+
+    private TasksRepository mRepository;
+
+    private PublishSubject<Void> mRefreshes;
+
+    private TestScheduler mScheduler;
+
+    private TaskSyncScheduler mSyncScheduler;
+
+    private int mSyncCount;
+
+    @Before
+    public void setUp() {
+        mRepository = mock(TasksRepository.class);
+        mRefreshes = PublishSubject.create();
+        when(mRepository.getRefreshes()).thenReturn(mRefreshes);
+        when(mRepository.refreshTasks()).thenReturn(Completable.fromAction(() -> mSyncCount++));
+        when(mRepository.getTasks(Priority.BACKGROUND)).thenReturn(Observable.just(TASKS));
+        mScheduler = new TestScheduler();
+        mSyncScheduler = new TaskSyncScheduler(mRepository, mScheduler, 42,
+                MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS, BATCH_WINDOW_MILLIS);
+    }
+
+    @Test
+    public void start_syncsAfterOneInterval() {
+        mSyncScheduler.start();
+
+        // not before the interval minus the jitter
+        advance((long) (MIN_INTERVAL_MILLIS * (1 - TaskSyncScheduler.JITTER)) - 1);
+        assertEquals(0, mSyncCount);
+
+        // but before the interval plus the jitter
+        advance((long) (MIN_INTERVAL_MILLIS * 2 * TaskSyncScheduler.JITTER) + 1);
+        assertEquals(1, mSyncCount);
+    }
+
+    @Test
+    public void unchangedTasks_intervalDoublesUpToMax() {
+        mSyncScheduler.start();
+        advanceToNextSync();
+        assertEquals(MIN_INTERVAL_MILLIS, mSyncScheduler.getIntervalMillis());
+
+        for (long interval = MIN_INTERVAL_MILLIS * 2; interval <= MAX_INTERVAL_MILLIS;
+             interval *= 2) {
+            advanceToNextSync();
+            assertEquals(interval, mSyncScheduler.getIntervalMillis());
+        }
+        advanceToNextSync();
+        assertEquals(MAX_INTERVAL_MILLIS, mSyncScheduler.getIntervalMillis());
+    }
+
+    @Test
+    public void changedTasks_intervalHalves() {
+        // Given a scheduler that backed off to the max interval
+        mSyncScheduler.start();
+        for (int i = 0; i < 5; i++) {
+            advanceToNextSync();
+        }
+        assertEquals(MAX_INTERVAL_MILLIS, mSyncScheduler.getIntervalMillis());
+
+        // When the next sync changes the tasks
+        when(mRepository.getTasks(Priority.BACKGROUND))
+                .thenReturn(Observable.just(CHANGED_TASKS));
+        advanceToNextSync();
+
+        // Then the interval is halved
+        assertEquals(MAX_INTERVAL_MILLIS / 2, mSyncScheduler.getIntervalMillis());
+    }
+
+    @Test
+    public void recentRefresh_skipsSync() {
+        // Given the tasks refreshed by the user right before the wake-up
+        mSyncScheduler.start();
+        advance(MIN_INTERVAL_MILLIS * 8 / 10);
+        mRefreshes.onNext(null);
+
+        // When the wake-up is due
+        advance(MIN_INTERVAL_MILLIS * 3 / 10);
+
+        // Then there is no sync until one interval after the refresh
+        assertEquals(0, mSyncCount);
+        advanceToNextSync();
+    }
+
+    @Test
+    public void enqueue_batchesWorkIntoOneWakeUp() {
+        // Given two pieces of outbound work queued together
+        mSyncScheduler.start();
+        int[] workCount = new int[1];
+        mSyncScheduler.enqueue(Completable.fromAction(() -> workCount[0]++));
+        mSyncScheduler.enqueue(Completable.fromAction(() -> workCount[0]++));
+
+        // When the batching window ends
+        advance(BATCH_WINDOW_MILLIS);
+
+        // Then both are run with a single refresh
+        assertEquals(2, workCount[0]);
+        assertEquals(1, mSyncCount);
+    }
+
+    @Test
+    public void enqueue_failedWorkIsRunAgainAtNextWakeUp() {
+        // Given outbound work that fails once
+        mSyncScheduler.start();
+        int[] attempts = new int[1];
+        mSyncScheduler.enqueue(Completable.fromAction(() -> {
+            if (attempts[0]++ == 0) {
+                throw new IllegalStateException("offline");
+            }
+        }));
+        advance(BATCH_WINDOW_MILLIS);
+        assertEquals(1, attempts[0]);
+        assertEquals(0, mSyncCount);
+
+        // When the next wake-up is due
+        advanceToNextSync();
+
+        // Then the work is run again, before the refresh
+        assertEquals(2, attempts[0]);
+    }
+
+    @Test
+    public void start_queuesTheWritesOfTheRepository() {
+        // Given a started scheduler
+        mSyncScheduler.start();
+        verify(mRepository).setOutboundQueue(mSyncScheduler);
+
+        // When the repository queues a write
+        int[] writeCount = new int[1];
+        mSyncScheduler.enqueue(Completable.fromAction(() -> writeCount[0]++));
+
+        // Then it is sent with the sync at the end of the batching window
+        advance(BATCH_WINDOW_MILLIS);
+        assertEquals(1, writeCount[0]);
+        assertEquals(1, mSyncCount);
+    }
+
+    @Test
+    public void enqueue_saveThenDelete_runsTheDeleteAfterTheSave() {
+        // Given a save that takes a while, then the deletion of the saved task
+        mSyncScheduler.start();
+        List<String> sent = new ArrayList<>();
+        mSyncScheduler.enqueue(Completable.timer(50, TimeUnit.MILLISECONDS, mScheduler)
+                .doOnCompleted(() -> sent.add("save")));
+        mSyncScheduler.enqueue(Completable.fromAction(() -> sent.add("delete")));
+
+        // When the batching window ends and the save completes
+        advance(BATCH_WINDOW_MILLIS);
+        assertEquals(Collections.emptyList(), sent);
+        advance(50);
+
+        // Then the deletion was sent after the save, and the refresh after both
+        assertEquals(Arrays.asList("save", "delete"), sent);
+        assertEquals(1, mSyncCount);
+    }
+
+    @Test
+    public void flush_afterAFailure_runsTheFailedWorkFirst() {
+        // Given a first piece of work that fails once, then a second one
+        List<String> sent = new ArrayList<>();
+        int[] attempts = new int[1];
+        mSyncScheduler.enqueue(Completable.fromAction(() -> {
+            if (attempts[0]++ == 0) {
+                throw new IllegalStateException("offline");
+            }
+            sent.add("first");
+        }));
+        mSyncScheduler.enqueue(Completable.fromAction(() -> sent.add("second")));
+
+        // When flushing twice
+        assertTrue(mSyncScheduler.flush().get() != null);
+        assertNull(mSyncScheduler.flush().get());
+
+        // Then the second piece of work waited for the first one
+        assertEquals(Arrays.asList("first", "second"), sent);
+    }
+
+    @Test
+    public void stop_letsTheRepositorySendItsWritesRightAway() {
+        mSyncScheduler.start();
+
+        mSyncScheduler.stop();
+
+        verify(mRepository).setOutboundQueue(null);
+    }
+
+    @Test
+    public void stop_cancelsNextWakeUp() {
+        mSyncScheduler.start();
+
+        mSyncScheduler.stop();
+        advance(MAX_INTERVAL_MILLIS);
+
+        assertEquals(0, mSyncCount);
+    }
+
+    private void advance(long millis) {
+        mScheduler.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private void advanceToNextSync() {
+        int syncCount = mSyncCount;
+        for (long elapsed = 0; elapsed <= 2 * MAX_INTERVAL_MILLIS; elapsed += STEP_MILLIS) {
+            advance(STEP_MILLIS);
+            if (mSyncCount > syncCount) {
+                return;
+            }
+        }
+        fail("no sync");
+    }
+}
@@ -19,23 +19,41 @@ package com.example.android.architecture.blueprints.todoapp.data.source;
 import android.content.Context;
 
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.CircuitOpenException;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.TaskChange;
+import com.example.android.architecture.blueprints.todoapp.data.source.remote.TaskMutation;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.ImmediateSchedulerProvider;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.Priority;
 import com.google.common.collect.Lists;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import rx.Completable;
 import rx.Observable;
 import rx.observers.TestSubscriber;
-
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -79,6 +97,10 @@ public class TasksRepositoryTest {
                 mTasksRemoteDataSource, mTasksLocalDataSource, new ImmediateSchedulerProvider());
 
         mTasksTestSubscriber = new TestSubscriber<>();
+
+        // no local version of the saved tasks by default
+        when(mTasksLocalDataSource.getTasks(anyListOf(String.class)))
+                .thenReturn(Observable.just(Collections.emptyList()));
     }
 
     @After
@@ -101,6 +123,23 @@ public class TasksRepositoryTest {
         mTasksTestSubscriber.assertValue(TASKS);
     }
 
+    @Test
+    public void getTasks_queriesLocalDataSourceWithInteractivePriority() {
+        // Given a local data source recording the priority of its query
+        Priority[] priority = new Priority[1];
+        when(mTasksLocalDataSource.getTasks()).thenReturn(Observable.defer(() -> {
+            priority[0] = Priority.current();
+            return Observable.just(TASKS);
+        }));
+
+        // When tasks are requested from the tasks repository
+        mTasksRepository.getTasks().subscribe(mTasksTestSubscriber);
+
+        // Then the query is interactive
+        mTasksTestSubscriber.assertValue(TASKS);
+        assertEquals(Priority.INTERACTIVE, priority[0]);
+    }
+
     @Test
     public void saveTasks_savesTasksToRemoteDataSource() {
         // Given that a task is saved successfully in local and remote data sources
@@ -137,8 +176,8 @@ public class TasksRepositoryTest {
     public void completeTask_completesTask() {
         // Given that a task is completed successfully in local and remote data source
         new ArrangeBuilder()
-                .withCompletedTask(mTasksLocalDataSource, ACTIVE_TASK)
-                .withCompletedTask(mTasksRemoteDataSource, ACTIVE_TASK);
+                .withTaskUpdated(mTasksLocalDataSource)
+                .withTaskUpdated(mTasksRemoteDataSource);
 
         // When a task is completed to the tasks repository
         mTasksRepository.completeTask(ACTIVE_TASK)
@@ -149,13 +188,32 @@ public class TasksRepositoryTest {
         mTestSubscriber.assertNoErrors();
     }
 
+    @Test
+    public void completeTask_withOutboundQueue_queuesTheRemoteWrite() {
+        // Given an outbound queue and a remote data source that can't be reached
+        RecordingOutboundQueue queue = new RecordingOutboundQueue();
+        mTasksRepository.setOutboundQueue(queue);
+        new ArrangeBuilder()
+                .withTaskUpdated(mTasksLocalDataSource)
+                .withTaskUpdatedWithError(mTasksRemoteDataSource, new Exception("offline"));
+
+        // When a task is completed to the tasks repository
+        mTasksRepository.completeTask(ACTIVE_TASK)
+                .subscribe(mTestSubscriber);
+
+        // Then the task is completed locally and the remote write waits in the queue
+        mTestSubscriber.assertCompleted();
+        mTestSubscriber.assertNoErrors();
+        assertEquals(1, queue.mWrites.size());
+    }
+
     @Test
     public void completeTask_whenLocalDataSourceCompletesWithError_doesNotComplete() {
         // Given that a task is not completed successfully in local data source
         Exception exception = new RuntimeException("test");
         new ArrangeBuilder()
-                .withTaskCompletesWithError(mTasksLocalDataSource, ACTIVE_TASK, exception)
-                .withCompletedTask(mTasksRemoteDataSource, ACTIVE_TASK);
+                .withTaskUpdatedWithError(mTasksLocalDataSource, exception)
+                .withTaskUpdated(mTasksRemoteDataSource);
 
         // When a task is completed to the tasks repository
         mTasksRepository.completeTask(ACTIVE_TASK)
@@ -169,8 +227,8 @@ public class TasksRepositoryTest {
     public void completeTaskId_completesTask() {
         // Given that a task is completed successfully in local and remote data source
         new ArrangeBuilder()
-                .withCompletedTaskId(mTasksLocalDataSource, ACTIVE_TASK.getId())
-                .withCompletedTaskId(mTasksRemoteDataSource, ACTIVE_TASK.getId());
+                .withTaskUpdated(mTasksLocalDataSource)
+                .withTaskUpdated(mTasksRemoteDataSource);
 
         // When a task is completed to the tasks repository
         mTasksRepository.completeTask(ACTIVE_TASK.getId())
@@ -182,12 +240,32 @@ public class TasksRepositoryTest {
     }
 
 
+    @Test
+    public void completeTask_stampsLocalAndRemoteWithTheSameTime() {
+        // Given that a task is completed successfully in local and remote data source
+        new ArrangeBuilder()
+                .withTaskUpdated(mTasksLocalDataSource)
+                .withTaskUpdated(mTasksRemoteDataSource);
+
+        // When a task is completed to the tasks repository
+        mTasksRepository.completeTask(ACTIVE_TASK).subscribe(mTestSubscriber);
+
+        // Then both data sources get the same stamped completion
+        ArgumentCaptor<TaskPatch> captor = ArgumentCaptor.forClass(TaskPatch.class);
+        verify(mTasksLocalDataSource).updateTask(captor.capture());
+        verify(mTasksRemoteDataSource).updateTask(captor.getValue());
+        TaskPatch completion = captor.getValue();
+        assertEquals(ACTIVE_TASK.getId(), completion.getTaskId());
+        assertTrue(completion.hasCompleted() && completion.isCompleted());
+        assertTrue(completion.getTimestamp() > 0);
+    }
+
     @Test
     public void activateTask_activatesTask() {
         // Given that a task is activated successfully in local and remote data source
         new ArrangeBuilder()
-                .withActivatedTask(mTasksLocalDataSource, COMPLETED_TASK)
-                .withActivatedTask(mTasksRemoteDataSource, COMPLETED_TASK);
+                .withTaskUpdated(mTasksLocalDataSource)
+                .withTaskUpdated(mTasksRemoteDataSource);
 
         // When a completed task is activated to the tasks repository
         mTasksRepository.activateTask(COMPLETED_TASK)
@@ -202,8 +280,8 @@ public class TasksRepositoryTest {
     public void activateTaskId_activatesTask() {
         // Given that a task is activated successfully in local and remote data source
         new ArrangeBuilder()
-                .withActivatedTaskId(mTasksLocalDataSource, COMPLETED_TASK.getId())
-                .withActivatedTaskId(mTasksRemoteDataSource, COMPLETED_TASK.getId());
+                .withTaskUpdated(mTasksLocalDataSource)
+                .withTaskUpdated(mTasksRemoteDataSource);
 
         // When a completed task is activated with its id to the tasks repository
         mTasksRepository.activateTask(COMPLETED_TASK.getId())
@@ -311,6 +389,203 @@ public class TasksRepositoryTest {
         mTasksTestSubscriber.assertCompleted();
     }
 
+    @Test
+    public void refreshTasks_whileADeletionIsQueued_sendsTheDeletionBeforeFetching() {
+        // Given a deletion waiting in the queue of a started sync scheduler
+        new TaskSyncScheduler(mTasksRepository, new TestScheduler(), 42).start();
+        new ArrangeBuilder()
+                .withTasksAvailable(mTasksRemoteDataSource, TASKS)
+                .withTasksSaved(mTasksLocalDataSource, TASKS);
+        mTasksRepository.deleteTask(COMPLETED_TASK.getId());
+        verify(mTasksRemoteDataSource, never()).deleteTask(COMPLETED_TASK.getId());
+
+        // When refreshing tasks
+        mTasksRepository.refreshTasks().subscribe(mTasksTestSubscriber);
+
+        // Then the deletion is sent before the remote tasks are fetched
+        mTasksTestSubscriber.assertCompleted();
+        InOrder inOrder = inOrder(mTasksRemoteDataSource);
+        inOrder.verify(mTasksRemoteDataSource).deleteTask(COMPLETED_TASK.getId());
+        inOrder.verify(mTasksRemoteDataSource).getTaskPages(anyInt());
+    }
+
+    @Test
+    public void refreshTasks_savesEveryPageWhenItArrives() {
+        // Given that the remote data source emits two pages
+        List<Task> firstPage = Collections.singletonList(ACTIVE_TASK);
+        List<Task> secondPage = Collections.singletonList(COMPLETED_TASK);
+        PublishSubject<List<Task>> pages = PublishSubject.create();
+        when(mTasksRemoteDataSource.getTaskPages(TasksRepository.REFRESH_PAGE_SIZE))
+                .thenReturn(pages);
+        new ArrangeBuilder()
+                .withTasksSaved(mTasksLocalDataSource, firstPage)
+                .withTasksSaved(mTasksLocalDataSource, secondPage);
+        mTasksRepository.refreshTasks().subscribe(mTasksTestSubscriber);
+
+        // When the first page arrives
+        pages.onNext(firstPage);
+
+        // Then it is saved before the second page arrives
+        verify(mTasksLocalDataSource).saveTasks(firstPage);
+        mTasksTestSubscriber.assertNotCompleted();
+
+        // When the last page arrives
+        pages.onNext(secondPage);
+        pages.onCompleted();
+
+        // Then it is saved and the refresh completes
+        verify(mTasksLocalDataSource).saveTasks(secondPage);
+        mTasksTestSubscriber.assertCompleted();
+    }
+
+    @Test
+    public void refreshTasks_savesEveryPageWithBackgroundPriority() {
+        // Given a local data source recording the priority of its saves
+        Priority[] priority = new Priority[1];
+        new ArrangeBuilder().withTasksAvailable(mTasksRemoteDataSource, TASKS);
+        when(mTasksLocalDataSource.saveTasks(TASKS))
+                .thenReturn(Completable.fromAction(() -> priority[0] = Priority.current()));
+
+        // When refreshing tasks
+        mTasksRepository.refreshTasks().subscribe(mTasksTestSubscriber);
+
+        // Then the page is saved in the background
+        mTasksTestSubscriber.assertCompleted();
+        assertEquals(Priority.BACKGROUND, priority[0]);
+    }
+
+    @Test
+    public void refreshTasks_withOpenCircuit_completesWithLocalTasks() {
+        // Given a remote data source that is unhealthy
+        when(mTasksRemoteDataSource.getTaskPages(TasksRepository.REFRESH_PAGE_SIZE))
+                .thenReturn(Observable.error(new CircuitOpenException("unavailable")));
+
+        // When refreshing tasks
+        mTasksRepository.refreshTasks().subscribe(mTasksTestSubscriber);
+
+        // Then the refresh completes without saving anything
+        mTasksTestSubscriber.assertCompleted();
+        verify(mTasksLocalDataSource, never()).saveTasks(anyListOf(Task.class));
+    }
+
+    @Test
+    public void saveTask_stampsOnlyTheEditedFields() {
+        // Given a task saved locally
+        Task saved = new Task(TASK_TITLE, "description", "id", false, 1, 2, 3);
+        when(mTasksLocalDataSource.getTasks(Collections.singletonList("id")))
+                .thenReturn(Observable.just(Collections.singletonList(saved)));
+        Task edited = saved.withTitle("edited");
+        new ArrangeBuilder()
+                .withTaskSaved(mTasksLocalDataSource, edited)
+                .withTaskSaved(mTasksRemoteDataSource, edited);
+
+        // When its title is edited
+        mTasksRepository.saveTask(edited).subscribe(mTasksTestSubscriber);
+
+        // Then only the title is stamped with the time of the edit
+        ArgumentCaptor<Task> captor = ArgumentCaptor.forClass(Task.class);
+        verify(mTasksRemoteDataSource).saveTask(captor.capture());
+        assertTrue(captor.getValue().getTitleTimestamp() > 3);
+        assertEquals(2, captor.getValue().getDescriptionTimestamp());
+        assertEquals(3, captor.getValue().getCompletedTimestamp());
+    }
+
+    @Test
+    public void updateTask_stampsThePatchAndUpdatesLocalThenRemote() {
+        // Given data sources that update the tasks
+        when(mTasksLocalDataSource.updateTask(any(TaskPatch.class)))
+                .thenReturn(Completable.complete());
+        when(mTasksRemoteDataSource.updateTask(any(TaskPatch.class)))
+                .thenReturn(Completable.complete());
+        TaskPatch patch = TaskPatch.completion("id", true, 0);
+
+        // When a task is updated
+        mTasksRepository.updateTask(patch).subscribe(mTasksTestSubscriber);
+
+        // Then the same stamped patch is applied locally and then remotely
+        ArgumentCaptor<TaskPatch> captor = ArgumentCaptor.forClass(TaskPatch.class);
+        InOrder inOrder = inOrder(mTasksLocalDataSource, mTasksRemoteDataSource);
+        inOrder.verify(mTasksLocalDataSource).updateTask(captor.capture());
+        inOrder.verify(mTasksRemoteDataSource).updateTask(captor.getValue());
+        assertTrue(captor.getValue().getTimestamp() > 0);
+        mTasksTestSubscriber.assertCompleted();
+    }
+
+    @Test
+    public void updateTask_emptyPatch_isNotSent() {
+        TaskPatch patch = TaskPatch.diff(ACTIVE_TASK, ACTIVE_TASK);
+
+        mTasksRepository.updateTask(patch).subscribe(mTasksTestSubscriber);
+
+        verify(mTasksLocalDataSource, never()).updateTask(any(TaskPatch.class));
+        verify(mTasksRemoteDataSource, never()).updateTask(any(TaskPatch.class));
+        mTasksTestSubscriber.assertCompleted();
+    }
+
+    @Test
+    public void refreshTasks_mergesRemoteTasksWithLocalVersions() {
+        // Given a task whose title was edited locally and whose description was edited remotely
+        Task local = new Task("local title", "description", "id", false, 10, 1, 1);
+        Task remote = new Task(TASK_TITLE, "remote description", "id", false, 1, 10, 1);
+        when(mTasksLocalDataSource.getTasks(Collections.singletonList("id")))
+                .thenReturn(Observable.just(Collections.singletonList(local)));
+        List<Task> merged = Collections.singletonList(
+                new Task("local title", "remote description", "id", false));
+        new ArrangeBuilder()
+                .withTasksAvailable(mTasksRemoteDataSource, Collections.singletonList(remote))
+                .withTasksSaved(mTasksLocalDataSource, merged);
+
+        // When refreshing the tasks
+        mTasksRepository.refreshTasks().subscribe(mTasksTestSubscriber);
+
+        // Then both edits are kept
+        mTasksTestSubscriber.assertCompleted();
+        verify(mTasksLocalDataSource).saveTasks(merged);
+    }
+
+    @Test
+    public void applyChanges_appliesEveryChangeToLocalInOrder() {
+        // Given changes pushed by the backend
+        Task completed = TaskPatch.completion(ACTIVE_TASK.getId(), true, 42).applyTo(ACTIVE_TASK);
+        when(mTasksLocalDataSource.saveTask(any(Task.class))).thenReturn(Completable.complete());
+        when(mTasksLocalDataSource.getTasks(Collections.singletonList(ACTIVE_TASK.getId())))
+                .thenReturn(Observable.just(Collections.<Task>emptyList()),
+                        Observable.just(Collections.singletonList(ACTIVE_TASK)));
+        Observable<TaskChange> changes = Observable.just(
+                new TaskChange(1, TaskMutation.save(ACTIVE_TASK)),
+                new TaskChange(2, TaskMutation.complete(ACTIVE_TASK.getId(), 42)),
+                new TaskChange(3, TaskMutation.delete(COMPLETED_TASK.getId())),
+                new TaskChange(4, TaskMutation.clearCompleted()));
+
+        // When applying them
+        List<Long> applied = new ArrayList<>();
+        mTasksRepository.applyChanges(changes, applied::add).subscribe(mTasksTestSubscriber);
+
+        // Then they are applied to the local data source only, in order, and acknowledged
+        mTasksTestSubscriber.assertCompleted();
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), applied);
+        InOrder inOrder = inOrder(mTasksLocalDataSource);
+        inOrder.verify(mTasksLocalDataSource).saveTask(ACTIVE_TASK);
+        inOrder.verify(mTasksLocalDataSource).saveTask(completed);
+        inOrder.verify(mTasksLocalDataSource).deleteTask(COMPLETED_TASK.getId());
+        inOrder.verify(mTasksLocalDataSource).clearCompletedTasks();
+        verify(mTasksRemoteDataSource, never()).saveTask(ACTIVE_TASK);
+    }
+
+    private static class RecordingOutboundQueue implements TasksRepository.OutboundQueue {
+
+        final List<Completable> mWrites = new ArrayList<>();
+
+        @Override
+        public void enqueue(Completable write) {
+            mWrites.add(write);
+        }
+
+        @Override
+        public Completable flush() {
+            return Completable.complete();
+        }
+    }
 
     class ArrangeBuilder {
 
@@ -322,6 +597,7 @@ public class TasksRepositoryTest {
         ArrangeBuilder withTasksAvailable(TasksDataSource dataSource, List<Task> tasks) {
             // don't allow the data sources to complete.
             when(dataSource.getTasks()).thenReturn(Observable.just(tasks));
+            when(dataSource.getTaskPages(anyInt())).thenReturn(Observable.just(tasks));
             return this;
         }
 
@@ -335,30 +611,14 @@ public class TasksRepositoryTest {
             return this;
         }
 
-        ArrangeBuilder withActivatedTask(TasksDataSource dataSource, Task task) {
-            when(dataSource.activateTask(task)).thenReturn(Completable.complete());
-            return this;
-        }
-
-        ArrangeBuilder withActivatedTaskId(TasksDataSource dataSource, String taskId) {
-            when(dataSource.activateTask(taskId)).thenReturn(Completable.complete());
-            return this;
-        }
-
-        ArrangeBuilder withCompletedTask(TasksDataSource dataSource, Task task) {
-            when(dataSource.completeTask(task)).thenReturn(Completable.complete());
-            return this;
-        }
-
-        ArrangeBuilder withCompletedTaskId(TasksDataSource dataSource, String taskId) {
-            when(dataSource.completeTask(taskId)).thenReturn(Completable.complete());
+        ArrangeBuilder withTaskUpdated(TasksDataSource dataSource) {
+            when(dataSource.updateTask(any(TaskPatch.class))).thenReturn(Completable.complete());
             return this;
         }
 
-        ArrangeBuilder withTaskCompletesWithError(TasksDataSource dataSource,
-                                                  Task task,
-                                                  Exception exception) {
-            when(dataSource.completeTask(task)).thenReturn(Completable.error(exception));
+        ArrangeBuilder withTaskUpdatedWithError(TasksDataSource dataSource, Exception exception) {
+            when(dataSource.updateTask(any(TaskPatch.class)))
+                    .thenReturn(Completable.error(exception));
             return this;
         }
 
@@ -0,0 +1,119 @@
+package com.example.android.architecture.blueprints.todoapp.data.source.local;
+
+import android.database.Cursor;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.source.local.TasksPersistenceContract.TaskEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TaskListMapper}.
+ */
+public class TaskListMapperTest {
+
+    private static final int ID = 0;
+    private static final int TITLE = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int COMPLETED = 3;
+
+    private TaskListMapper mMapper;
+
+    @Before
+    public void setUp() {
+        mMapper = new TaskListMapper();
+    }
+
+    @Test
+    public void map_nullCursor_returnsNull() {
+        assertNull(mMapper.map(null));
+    }
+
+    @Test
+    public void map_closesCursor() {
+        Cursor cursor = cursorWithRows(new String[]{"1", "title", "description", "0"});
+
+        mMapper.map(cursor);
+
+        verify(cursor).close();
+    }
+
+    @Test
+    public void map_unchangedRow_reusesPreviousInstance() {
+        // Given a first query with two tasks
+        List<Task> first = mMapper.map(cursorWithRows(
+                new String[]{"1", "title1", "description1", "0"},
+                new String[]{"2", "title2", "description2", "0"}));
+
+        // When the second task is completed and the table is queried again
+        List<Task> second = mMapper.map(cursorWithRows(
+                new String[]{"1", "title1", "description1", "0"},
+                new String[]{"2", "title2", "description2", "1"}));
+
+        // Then the unchanged task is the same instance and only the changed one is new
+        assertSame(first.get(0), second.get(0));
+        assertNotSame(first.get(1), second.get(1));
+        assertTrue(second.get(1).isCompleted());
+    }
+
+    @Test
+    public void map_removedRow_isNotReusedAfterReinsertion() {
+        // Given a task that was emitted and then removed
+        List<Task> first = mMapper.map(cursorWithRows(
+                new String[]{"1", "title1", "description1", "0"}));
+        mMapper.map(cursorWithRows());
+
+        // When the task is inserted again
+        List<Task> third = mMapper.map(cursorWithRows(
+                new String[]{"1", "title1", "description1", "0"}));
+
+        // Then only the previous generation is kept, so a new instance is created
+        assertEquals(first.get(0), third.get(0));
+        assertNotSame(first.get(0), third.get(0));
+    }
+
+    private static Cursor cursorWithRows(String[]... rows) {
+        Cursor cursor = mock(Cursor.class);
+        when(cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_ENTRY_ID)).thenReturn(ID);
+        when(cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_TITLE)).thenReturn(TITLE);
+        when(cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_DESCRIPTION)).thenReturn(DESCRIPTION);
+        when(cursor.getColumnIndexOrThrow(TaskEntry.COLUMN_NAME_COMPLETED)).thenReturn(COMPLETED);
+        when(cursor.getCount()).thenReturn(rows.length);
+
+        if (rows.length == 0) {
+            when(cursor.moveToNext()).thenReturn(false);
+            return cursor;
+        }
+        Boolean[] moves = new Boolean[rows.length];
+        String[] ids = new String[rows.length - 1];
+        String[] titles = new String[rows.length - 1];
+        String[] descriptions = new String[rows.length - 1];
+        Integer[] completed = new Integer[rows.length - 1];
+        for (int i = 1; i < rows.length; i++) {
+            moves[i - 1] = true;
+            ids[i - 1] = rows[i][ID];
+            titles[i - 1] = rows[i][TITLE];
+            descriptions[i - 1] = rows[i][DESCRIPTION];
+            completed[i - 1] = Integer.valueOf(rows[i][COMPLETED]);
+        }
+        moves[rows.length - 1] = false;
+        when(cursor.moveToNext()).thenReturn(true, moves);
+        when(cursor.getString(ID)).thenReturn(rows[0][ID], ids);
+        when(cursor.getString(TITLE)).thenReturn(rows[0][TITLE], titles);
+        when(cursor.getString(DESCRIPTION)).thenReturn(rows[0][DESCRIPTION], descriptions);
+        when(cursor.getInt(COMPLETED)).thenReturn(Integer.valueOf(rows[0][COMPLETED]), completed);
+        return cursor;
+    }
+}
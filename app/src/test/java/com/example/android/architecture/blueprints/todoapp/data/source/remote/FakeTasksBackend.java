@@ -0,0 +1,370 @@
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Stand-in for the tasks backend, served by a {@link okhttp3.mockwebserver.MockWebServer}. Keeps
+ * the tasks in memory, versions the list with an ETag and records the requests and the bytes
+ * transferred, so the sync efficiency of the clients can be asserted. The list can be requested
+ * in pages, with the offset and limit query parameters, and some tasks can be requested at once
+ * with the ids query parameter.
+ * <p>
+ * Every change is also logged, so the changes after an event can be long-polled. The poll is held
+ * until there are changes or for a short while only, so the server can be shut down quickly.
+ */
+class FakeTasksBackend extends Dispatcher {
+
+    // the longest a poll of the changes is held, whatever the client asks for
+    private static final long MAX_POLL_WAIT_MILLIS = 500;
+
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+
+    // in the order of their event ids, which can skip the events of other lists
+    private final List<TaskChange> mChanges = new ArrayList<>();
+
+    private long mLastEventId;
+
+    private boolean mShutdown;
+
+    private int mFailingPolls;
+
+    private int mVersion;
+
+    private int mRequestCount;
+
+    private int mConnectionCount;
+
+    private int mNotModifiedCount;
+
+    private long mRequestBytes;
+
+    private long mResponseBytes;
+
+    @Override
+    public synchronized MockResponse dispatch(RecordedRequest request) {
+        mRequestCount++;
+        if (request.getSequenceNumber() == 0) {
+            mConnectionCount++;
+        }
+        mRequestBytes += request.getBodySize();
+        try {
+            return handle(request);
+        } catch (Exception e) {
+            return new MockResponse().setResponseCode(HttpURLConnection.HTTP_BAD_REQUEST);
+        }
+    }
+
+    private MockResponse handle(RecordedRequest request) throws Exception {
+        List<String> path = request.getRequestUrl().pathSegments();
+        String method = request.getMethod();
+        if (path.size() == 1) {
+            switch (method) {
+                case "GET":
+                    String ids = request.getRequestUrl().queryParameter("ids");
+                    if (ids != null) {
+                        return tasks(request, getTasks(ids.split(",")));
+                    }
+                    String eTag = getETag();
+                    if (eTag.equals(request.getHeader("If-None-Match"))) {
+                        mNotModifiedCount++;
+                        return new MockResponse()
+                                .setResponseCode(HttpURLConnection.HTTP_NOT_MODIFIED)
+                                .setHeader("ETag", eTag);
+                    }
+                    return tasks(request, getPage(request.getRequestUrl()))
+                            .setHeader("ETag", eTag);
+                case "POST":
+                    for (Task task : readTasks(request)) {
+                        put(task);
+                    }
+                    return noContent();
+                case "DELETE":
+                    if ("true".equals(request.getRequestUrl().queryParameter("completed"))) {
+                        removeCompleted();
+                    } else {
+                        for (String id : mTasks.keySet()) {
+                            addChange(TaskMutation.delete(id));
+                        }
+                        mTasks.clear();
+                        mVersion++;
+                    }
+                    return noContent();
+            }
+        }
+        String taskId = path.get(1);
+        if (path.size() == 2 && "changes".equals(taskId) && "GET".equals(method)) {
+            return pollChanges(request);
+        }
+        Task task = mTasks.get(taskId);
+        if (path.size() == 3) {
+            if (task == null) {
+                return notFound();
+            }
+            put(task.withCompleted("complete".equals(path.get(2)))
+                    .stampChanges(task, System.currentTimeMillis()));
+            return noContent();
+        }
+        switch (method) {
+            case "GET":
+                return task == null
+                        ? notFound()
+                        : tasks(request, Collections.singletonList(task));
+            case "PUT":
+                put(readTasks(request).get(0));
+                return noContent();
+            case "PATCH":
+                if (task == null) {
+                    return notFound();
+                }
+                put(readPatch(request).applyTo(task));
+                return noContent();
+            case "DELETE":
+                if (mTasks.remove(taskId) != null) {
+                    mVersion++;
+                    addChange(TaskMutation.delete(taskId));
+                }
+                return noContent();
+        }
+        return new MockResponse().setResponseCode(HttpURLConnection.HTTP_BAD_METHOD);
+    }
+
+    // merged with the saved version, like a backend resolving the conflicts field by field
+    synchronized void put(Task task) {
+        Task saved = mTasks.get(task.getId());
+        Task merged = saved == null ? task : saved.merge(task);
+        mTasks.put(merged.getId(), merged);
+        if (merged != saved) {
+            mVersion++;
+            addChange(TaskMutation.save(merged));
+        }
+    }
+
+    /**
+     * Fails the next polls of the changes with a server error.
+     */
+    synchronized void failNextPolls(int count) {
+        mFailingPolls = count;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        mShutdown = true;
+        notifyAll();
+    }
+
+    /**
+     * Skips event ids, like the events of the other lists of the backend would.
+     */
+    synchronized void skipEvents(int count) {
+        mLastEventId += count;
+    }
+
+    synchronized List<Task> getTasks() {
+        return new ArrayList<>(mTasks.values());
+    }
+
+    synchronized int getRequestCount() {
+        return mRequestCount;
+    }
+
+    /**
+     * @return the number of connections opened by the clients.
+     */
+    synchronized int getConnectionCount() {
+        return mConnectionCount;
+    }
+
+    synchronized int getNotModifiedCount() {
+        return mNotModifiedCount;
+    }
+
+    /**
+     * @return the bytes of the request bodies, as sent by the clients.
+     */
+    synchronized long getRequestBytes() {
+        return mRequestBytes;
+    }
+
+    /**
+     * @return the bytes of the response bodies, as sent to the clients.
+     */
+    synchronized long getResponseBytes() {
+        return mResponseBytes;
+    }
+
+    private void removeCompleted() {
+        boolean removed = false;
+        Iterator<Task> it = mTasks.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isCompleted()) {
+                it.remove();
+                mVersion++;
+                removed = true;
+            }
+        }
+        if (removed) {
+            addChange(TaskMutation.clearCompleted());
+        }
+    }
+
+    private void addChange(TaskMutation mutation) {
+        mChanges.add(new TaskChange(++mLastEventId, mutation));
+        notifyAll();
+    }
+
+    // waiting releases the lock, so the changes can be made while the poll is held
+    private MockResponse pollChanges(RecordedRequest request) throws Exception {
+        if (mFailingPolls > 0) {
+            mFailingPolls--;
+            return new MockResponse().setResponseCode(HttpURLConnection.HTTP_UNAVAILABLE);
+        }
+        HttpUrl url = request.getRequestUrl();
+        long after = Long.parseLong(url.queryParameter("after"));
+        long waitMillis = Math.min(MAX_POLL_WAIT_MILLIS,
+                TimeUnit.SECONDS.toMillis(Long.parseLong(url.queryParameter("wait"))));
+        long deadline = System.currentTimeMillis() + waitMillis;
+        long remaining = waitMillis;
+        while (!hasChangesAfter(after) && remaining > 0 && !mShutdown) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        if (!hasChangesAfter(after)) {
+            return noContent();
+        }
+        Buffer body = new Buffer();
+        TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(body);
+        for (TaskChange change : mChanges) {
+            if (change.getEventId() > after) {
+                encoder.writeChange(change);
+            }
+        }
+        encoder.close();
+        return respond(request, body, TaskWireFormat.CONTENT_TYPE);
+    }
+
+    private boolean hasChangesAfter(long eventId) {
+        return !mChanges.isEmpty() && mChanges.get(mChanges.size() - 1).getEventId() > eventId;
+    }
+
+    private List<Task> getTasks(String[] ids) {
+        List<Task> tasks = new ArrayList<>(ids.length);
+        for (String id : ids) {
+            Task task = mTasks.get(id);
+            if (task != null) {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    private List<Task> getPage(HttpUrl url) {
+        List<Task> tasks = new ArrayList<>(mTasks.values());
+        String offset = url.queryParameter("offset");
+        if (offset == null) {
+            return tasks;
+        }
+        int from = Math.min(Integer.parseInt(offset), tasks.size());
+        int to = Math.min(from + Integer.parseInt(url.queryParameter("limit")), tasks.size());
+        return tasks.subList(from, to);
+    }
+
+    private String getETag() {
+        return "\"" + mVersion + "\"";
+    }
+
+    // encoded in the wire format if the client accepts it, in JSON otherwise
+    private MockResponse tasks(RecordedRequest request, List<Task> tasks) throws IOException {
+        Buffer body = new Buffer();
+        String accept = request.getHeader("Accept");
+        String contentType;
+        if (accept != null && accept.contains(TaskWireFormat.CONTENT_TYPE)) {
+            TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(body);
+            for (Task task : tasks) {
+                encoder.writeTask(task);
+            }
+            encoder.close();
+            contentType = TaskWireFormat.CONTENT_TYPE;
+        } else {
+            body.writeUtf8(tasks.size() == 1 && request.getRequestUrl().pathSegments().size() > 1
+                    ? TasksJson.toJson(tasks.get(0))
+                    : TasksJson.toJson(tasks));
+            contentType = "application/json; charset=utf-8";
+        }
+        return respond(request, body, contentType);
+    }
+
+    private MockResponse respond(RecordedRequest request, Buffer body, String contentType)
+            throws IOException {
+        MockResponse response = new MockResponse().setHeader("Content-Type", contentType);
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            Buffer gzipped = new Buffer();
+            GzipSink sink = new GzipSink(gzipped);
+            sink.write(body, body.size());
+            sink.close();
+            body = gzipped;
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        mResponseBytes += body.size();
+        return response.setBody(body);
+    }
+
+    private static List<Task> readTasks(RecordedRequest request) throws Exception {
+        InputStream input = request.getBody().inputStream();
+        if ("gzip".equals(request.getHeader("Content-Encoding"))) {
+            input = new GZIPInputStream(input);
+        }
+        BufferedSource body = Okio.buffer(Okio.source(input));
+        String contentType = request.getHeader("Content-Type");
+        if (contentType == null || !contentType.startsWith(TaskWireFormat.CONTENT_TYPE)) {
+            String json = body.readUtf8();
+            return json.startsWith("[")
+                    ? TasksJson.toTasks(json)
+                    : Collections.singletonList(TasksJson.toTask(json));
+        }
+        List<Task> tasks = new ArrayList<>();
+        TaskWireFormat.Decoder decoder = new TaskWireFormat.Decoder(body);
+        for (Task task = decoder.readTask(); task != null; task = decoder.readTask()) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static TaskPatch readPatch(RecordedRequest request) throws Exception {
+        TaskMutation mutation = new TaskWireFormat.Decoder(request.getBody()).readMutation();
+        if (mutation == null || mutation.getType() != TaskMutation.Type.UPDATE) {
+            throw new IllegalArgumentException("Expected a patch, got " + mutation);
+        }
+        return mutation.getPatch();
+    }
+
+    private static MockResponse noContent() {
+        return new MockResponse().setResponseCode(HttpURLConnection.HTTP_NO_CONTENT);
+    }
+
+    private static MockResponse notFound() {
+        return new MockResponse().setResponseCode(HttpURLConnection.HTTP_NOT_FOUND);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Completable;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ResilientTasksDataSource}, on virtual time.
+ */
+public class ResilientTasksDataSourceTest {
+
+    private static final List<Task> TASKS = Collections.singletonList(
+            new Task("title", "description", "id", false));
+
+    private static final ResiliencePolicy POLICY = new ResiliencePolicy.Builder()
+            .setTimeout(RemoteOperation.GET_TASKS, 1_000)
+            .setMaxAttempts(3)
+            .setBackoff(100, 1_000)
+            .setJitterSeed(1)
+            .setCircuitBreaker(3, 10_000)
+            .build();
+
+    private TasksDataSource mDelegate;
+
+    private TestScheduler mScheduler;
+
+    private ResilientTasksDataSource mDataSource;
+
+    private AtomicInteger mCalls;
+
+    @Before
+    public void setUp() {
+        mDelegate = mock(TasksDataSource.class);
+        mScheduler = new TestScheduler();
+        mDataSource = new ResilientTasksDataSource(mDelegate, mScheduler, POLICY);
+        mCalls = new AtomicInteger();
+    }
+
+    @Test
+    public void successfulCall_isNotRetried() {
+        withTasksCall(Observable.just(TASKS));
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        mDataSource.getTasks().subscribe(subscriber);
+
+        subscriber.assertValue(TASKS);
+        assertEquals(1, mCalls.get());
+        assertEquals(0, mDataSource.getMetrics().getRetryCount());
+    }
+
+    @Test
+    public void slowCall_timesOut() {
+        withTasksCall(Observable.never());
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        mDataSource.getTasks().subscribe(subscriber);
+        // three attempts of 1s, separated by backoffs of at most 100ms and 200ms
+        mScheduler.advanceTimeBy(3_300, TimeUnit.MILLISECONDS);
+
+        subscriber.assertError(TimeoutException.class);
+        assertEquals(3, mCalls.get());
+        assertEquals(3, mDataSource.getMetrics().getTimeoutCount(RemoteOperation.GET_TASKS));
+    }
+
+    @Test
+    public void networkError_isRetriedWithBackoff() {
+        // Given a remote that fails once and then succeeds
+        withTasksCall(Observable.error(new IOException()), Observable.just(TASKS));
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        // When loading the tasks
+        mDataSource.getTasks().subscribe(subscriber);
+
+        // Then the call is retried after the backoff and succeeds
+        assertEquals(1, mCalls.get());
+        mScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        subscriber.assertValue(TASKS);
+        assertEquals(2, mCalls.get());
+        assertEquals(1, mDataSource.getMetrics().getRetryCount(RemoteOperation.GET_TASKS));
+    }
+
+    @Test
+    public void otherError_isNotRetried() {
+        withTasksCall(Observable.error(new IllegalStateException()));
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        mDataSource.getTasks().subscribe(subscriber);
+
+        subscriber.assertError(IllegalStateException.class);
+        assertEquals(1, mCalls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, mDataSource.getCircuitState());
+    }
+
+    @Test
+    public void consecutiveFailures_openCircuitAndFailFast() {
+        // Given a remote that keeps failing
+        withTasksCall(Observable.error(new IOException()));
+        mDataSource.getTasks().subscribe(new TestSubscriber<>());
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        // When the tasks are loaded again
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+        mDataSource.getTasks().subscribe(subscriber);
+
+        // Then the circuit is open and the call fails without reaching the remote
+        assertEquals(CircuitBreaker.State.OPEN, mDataSource.getCircuitState());
+        subscriber.assertError(CircuitOpenException.class);
+        assertEquals(3, mCalls.get());
+        assertEquals(1, mDataSource.getMetrics().getRejectedCount(RemoteOperation.GET_TASKS));
+    }
+
+    @Test
+    public void openCircuit_closesAfterSuccessfulTrial() {
+        // Given an open circuit
+        withTasksCall(Observable.error(new IOException()), Observable.error(new IOException()),
+                Observable.error(new IOException()), Observable.just(TASKS));
+        List<CircuitBreaker.State> states = new ArrayList<>();
+        mDataSource.getMetrics().getCircuitStates().subscribe(states::add);
+        mDataSource.getTasks().subscribe(new TestSubscriber<>());
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        // When the remote is called after the open duration
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+        mDataSource.getTasks().subscribe(subscriber);
+
+        // Then the trial call succeeds and the circuit is closed again
+        subscriber.assertValue(TASKS);
+        assertEquals(CircuitBreaker.State.CLOSED, mDataSource.getCircuitState());
+        assertEquals(3, mDataSource.getMetrics().getCircuitStateChangeCount());
+        assertEquals(Arrays.asList(CircuitBreaker.State.CLOSED,
+                CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN,
+                CircuitBreaker.State.CLOSED), states);
+    }
+
+    @Test
+    public void completable_isRetried() {
+        // Given a remote that fails twice to complete the task
+        AtomicInteger attempts = new AtomicInteger();
+        when(mDelegate.completeTask("id")).thenReturn(Completable.defer(() ->
+                attempts.incrementAndGet() <= 2
+                        ? Completable.error(new IOException())
+                        : Completable.complete()));
+        TestSubscriber<Void> subscriber = new TestSubscriber<>();
+
+        // When completing the task
+        mDataSource.completeTask("id").subscribe(subscriber);
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        // Then the third attempt succeeds
+        subscriber.assertCompleted();
+        assertEquals(2, mDataSource.getMetrics().getRetryCount(RemoteOperation.UPDATE));
+    }
+
+    @SafeVarargs
+    private final void withTasksCall(Observable<List<Task>>... results) {
+        when(mDelegate.getTasks()).thenReturn(Observable.defer(() -> {
+            int call = mCalls.getAndIncrement();
+            return results[Math.min(call, results.length - 1)];
+        }));
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksDataSource;
+import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.util.schedulers.ImmediateSchedulerProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Completable;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SimulatedTasksDataSource}, on virtual time.
+ */
+public class SimulatedTasksDataSourceTest {
+
+    private static final List<Task> TASKS = Collections.singletonList(
+            new Task("title", "description", "id", false));
+
+    private TasksDataSource mDelegate;
+
+    private TestScheduler mScheduler;
+
+    private AtomicInteger mSavedCount;
+
+    @Before
+    public void setUp() {
+        mDelegate = mock(TasksDataSource.class);
+        mScheduler = new TestScheduler();
+        mSavedCount = new AtomicInteger();
+        when(mDelegate.getTasks()).thenReturn(Observable.just(TASKS));
+        when(mDelegate.getTaskPages(anyInt())).thenReturn(Observable.just(TASKS, TASKS));
+        when(mDelegate.saveTasks(any())).thenReturn(
+                Completable.fromAction(mSavedCount::incrementAndGet));
+    }
+
+    @After
+    public void tearDown() {
+        TasksRepository.destroyInstance();
+    }
+
+    @Test
+    public void idealNetwork_forwardsWithoutDelay() {
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, mScheduler, 1);
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        simulator.getTasks().subscribe(subscriber);
+
+        subscriber.assertValue(TASKS);
+    }
+
+    @Test
+    public void fixedLatency_delaysResponse() {
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, mScheduler, 1);
+        simulator.setConditions(new NetworkConditions.Builder()
+                .setLatency(LatencyDistribution.fixed(300))
+                .build());
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        simulator.getTasks().subscribe(subscriber);
+        mScheduler.advanceTimeBy(299, TimeUnit.MILLISECONDS);
+        subscriber.assertNoValues();
+        mScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue(TASKS);
+    }
+
+    @Test
+    public void getTaskPages_delaysEveryPage() {
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, mScheduler, 1);
+        simulator.setConditions(new NetworkConditions.Builder()
+                .setLatency(LatencyDistribution.fixed(100))
+                .build());
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        simulator.getTaskPages(1).subscribe(subscriber);
+        mScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        subscriber.assertValueCount(1);
+        mScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValueCount(2);
+        subscriber.assertCompleted();
+    }
+
+    @Test
+    public void errors_failWithoutApplyingOperation() {
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, mScheduler, 1);
+        simulator.setConditions(RemoteOperation.SAVE, new NetworkConditions.Builder()
+                .setLatency(LatencyDistribution.fixed(50))
+                .setErrorRate(1)
+                .build());
+        TestSubscriber<Void> subscriber = new TestSubscriber<>();
+
+        simulator.saveTasks(TASKS).subscribe(subscriber);
+        mScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+
+        subscriber.assertError(IOException.class);
+        assertEquals(0, mSavedCount.get());
+    }
+
+    @Test
+    public void timeouts_failAfterTimeout() {
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, mScheduler, 1);
+        simulator.setConditions(new NetworkConditions.Builder()
+                .setTimeout(1, 10_000)
+                .build());
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        simulator.getTasks().subscribe(subscriber);
+        mScheduler.advanceTimeBy(9_999, TimeUnit.MILLISECONDS);
+        subscriber.assertNoTerminalEvent();
+        mScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        subscriber.assertError(SocketTimeoutException.class);
+    }
+
+    @Test
+    public void bandwidth_delaysLargeBodies() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new Task("title" + i, "description" + i));
+        }
+        when(mDelegate.getTasks()).thenReturn(Observable.just(tasks));
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, mScheduler, 1);
+        simulator.setConditions(new NetworkConditions.Builder()
+                .setBandwidth(1_000)
+                .build());
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        simulator.getTasks().subscribe(subscriber);
+        // more than 100 bytes per task
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        subscriber.assertNoValues();
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        subscriber.assertValueCount(1);
+    }
+
+    @Test
+    public void maxRequestsPerSecond_queuesRequests() {
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, mScheduler, 1);
+        simulator.setMaxRequestsPerSecond(2);
+        TestSubscriber<List<Task>> subscriber = new TestSubscriber<>();
+
+        for (int i = 0; i < 3; i++) {
+            simulator.getTasks().subscribe(subscriber);
+        }
+
+        subscriber.assertValueCount(1);
+        mScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        subscriber.assertValueCount(2);
+        mScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        subscriber.assertValueCount(3);
+    }
+
+    @Test
+    public void logNormal_hasMedianAndLongTail() {
+        LatencyDistribution latency = LatencyDistribution.logNormal(100, 0.8);
+        Random random = new Random(7);
+        List<Long> samples = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            samples.add(latency.sampleMillis(random));
+        }
+        Collections.sort(samples);
+
+        long median = samples.get(samples.size() / 2);
+        long p99 = samples.get(samples.size() * 99 / 100);
+        assertTrue("median " + median, median > 90 && median < 110);
+        assertTrue("p99 " + p99, p99 > 4 * median);
+    }
+
+    @Test
+    public void repositoryRefresh_onLossyNetwork_replaysWithSameSeed() {
+        List<String> first = refreshOnLossyNetwork(42);
+        List<String> second = refreshOnLossyNetwork(42);
+
+        assertEquals(first, second);
+        // some refreshes failed and some succeeded
+        assertTrue(first.toString(), first.toString().contains("error@"));
+        assertTrue(first.toString(), first.toString().contains("completed@"));
+    }
+
+    // @return the outcome and the virtual completion time of successive refreshes
+    private List<String> refreshOnLossyNetwork(long seed) {
+        TasksRepository.destroyInstance();
+        TestScheduler scheduler = new TestScheduler();
+        SimulatedTasksDataSource simulator = new SimulatedTasksDataSource(mDelegate, scheduler,
+                seed);
+        simulator.setConditions(new NetworkConditions.Builder()
+                .setLatency(LatencyDistribution.logNormal(150, 0.6).withSpikes(0.05, 2_000))
+                .setErrorRate(0.2)
+                .setTimeout(0.05, 5_000)
+                .setBandwidth(50_000)
+                .build());
+        TasksDataSource local = mock(TasksDataSource.class);
+        when(local.saveTasks(any())).thenReturn(Completable.complete());
+        TasksRepository repository = TasksRepository.getInstance(simulator, local,
+                new ImmediateSchedulerProvider());
+
+        List<String> outcomes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            repository.refreshTasks()
+                    .doOnCompleted(() -> outcomes.add("completed@" + scheduler.now()))
+                    .doOnError(throwable -> outcomes.add("error@" + scheduler.now()))
+                    .subscribe(new TestSubscriber<>());
+            scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockWebServer;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link TaskChangeFeed}, long-polling a {@link FakeTasksBackend} through a
+ * {@link TasksHttpDataSource}.
+ */
+public class TaskChangeFeedTest {
+
+    private static final long RETRY_MILLIS = 10;
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static final Task TASK_1 = new Task("title1", "description1", "1", false);
+
+    private static final Task TASK_2 = new Task("title2", "description2", "2", false);
+
+    private MockWebServer mServer;
+
+    private FakeTasksBackend mBackend;
+
+    private TaskChangeFeed mFeed;
+
+    private BlockingQueue<TaskChange> mReceived;
+
+    private Subscription mSubscription;
+
+    @Before
+    public void setUp() throws Exception {
+        mBackend = new FakeTasksBackend();
+        mServer = new MockWebServer();
+        mServer.setDispatcher(mBackend);
+        mServer.start();
+        TasksHttpDataSource dataSource =
+                TasksHttpDataSource.getInstance(mServer.url("/").toString());
+        mFeed = new TaskChangeFeed(dataSource, Schedulers.computation(), 0, RETRY_MILLIS,
+                RETRY_MILLIS);
+        mReceived = new LinkedBlockingQueue<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        unsubscribe();
+        TasksHttpDataSource.destroyInstance();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void getChanges_emitsChangesAsTheyHappen() throws Exception {
+        subscribe();
+
+        mBackend.put(TASK_1);
+        assertEquals(new TaskChange(1, TaskMutation.save(TASK_1)), nextChange());
+
+        mBackend.put(TASK_1.withCompleted(true));
+        assertEquals(new TaskChange(2, TaskMutation.save(TASK_1.withCompleted(true))),
+                nextChange());
+    }
+
+    @Test
+    public void getChanges_afterResubscribing_resumesFromLastEvent() throws Exception {
+        // Given a first change received, then a disconnection
+        subscribe();
+        mBackend.put(TASK_1);
+        nextChange();
+        unsubscribe();
+
+        // When tasks change while disconnected and the feed is subscribed again
+        mBackend.put(TASK_2);
+        mBackend.put(TASK_1.withCompleted(true));
+        subscribe();
+
+        // Then only the missed changes are received
+        assertEquals(new TaskChange(2, TaskMutation.save(TASK_2)), nextChange());
+        assertEquals(new TaskChange(3, TaskMutation.save(TASK_1.withCompleted(true))),
+                nextChange());
+        assertEquals(3, mFeed.getLastEventId());
+    }
+
+    @Test
+    public void getChanges_unsubscribedInTheMiddleOfABatch_resumesAfterTheLastAppliedChange()
+            throws Exception {
+        // Given two changes received in one batch, and a subscriber that leaves after the first
+        mBackend.put(TASK_1);
+        mBackend.put(TASK_2);
+        mSubscription = mFeed.getChanges()
+                .subscribeOn(Schedulers.io())
+                .take(1)
+                .subscribe(this::apply);
+        assertEquals(new TaskChange(1, TaskMutation.save(TASK_1)), nextChange());
+        unsubscribe();
+        assertEquals(1, mFeed.getLastEventId());
+
+        // When the feed is subscribed again
+        subscribe();
+
+        // Then the change that was not applied is received again
+        assertEquals(new TaskChange(2, TaskMutation.save(TASK_2)), nextChange());
+        assertEquals(2, mFeed.getLastEventId());
+    }
+
+    @Test
+    public void getChanges_afterFailedPolls_reconnects() throws Exception {
+        // Given a backend that fails the next polls
+        mBackend.failNextPolls(3);
+        subscribe();
+
+        // When a task changes
+        mBackend.put(TASK_1);
+
+        // Then the change is received once the feed reconnected
+        assertEquals(new TaskChange(1, TaskMutation.save(TASK_1)), nextChange());
+        assertNull(mReceived.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private void subscribe() {
+        // the polls block, so they are made on the io scheduler
+        mSubscription = mFeed.getChanges()
+                .subscribeOn(Schedulers.io())
+                .subscribe(this::apply);
+    }
+
+    // acknowledged before it is handed to the test, like a change applied by the repository
+    private void apply(TaskChange change) {
+        mFeed.acknowledge(change.getEventId());
+        mReceived.add(change);
+    }
+
+    private void unsubscribe() {
+        if (mSubscription != null) {
+            mSubscription.unsubscribe();
+            mSubscription = null;
+        }
+    }
+
+    private TaskChange nextChange() throws InterruptedException {
+        return mReceived.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+import com.example.android.architecture.blueprints.todoapp.util.BenchmarkReport;
+import com.example.android.architecture.blueprints.todoapp.util.Benchmarks;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import okio.Buffer;
+import okio.Utf8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link TaskWireFormat}.
+ */
+public class TaskWireFormatTest {
+
+    private static final int[] BENCHMARK_SIZES = {1_000, 10_000, 100_000};
+
+    private static final int BENCHMARK_RUNS = 5;
+
+    @Rule
+    public BenchmarkReport mReport = new BenchmarkReport();
+
+    @Test
+    public void tasks_roundTrip() throws IOException {
+        List<Task> tasks = Arrays.asList(
+                new Task("title", "description"),
+                new Task("title", null, "not-a-uuid", true),
+                new Task(null, "description", "", false),
+                new Task("täsk ✓", "描述 🚀", "id", false));
+
+        assertEquals(tasks, decodeTasks(encodeTasks(tasks)));
+    }
+
+    @Test
+    public void timestamps_roundTrip() throws IOException {
+        Task task = new Task("title", "description", "id", true, 1, 300, 1L << 40);
+
+        Task decoded = decodeTasks(encodeTasks(Arrays.asList(task))).get(0);
+
+        assertEquals(1, decoded.getTitleTimestamp());
+        assertEquals(300, decoded.getDescriptionTimestamp());
+        assertEquals(1L << 40, decoded.getCompletedTimestamp());
+    }
+
+    @Test
+    public void mutations_roundTrip() throws IOException {
+        Task task = new Task("title", "description");
+        List<TaskMutation> mutations = Arrays.asList(
+                TaskMutation.save(task),
+                TaskMutation.update(new TaskPatch(task.getId(), true, "title", true, null, false,
+                        false, 42)),
+                TaskMutation.update(TaskPatch.completion("not-a-uuid", true, 1L << 40)),
+                TaskMutation.complete(task.getId(), 42),
+                TaskMutation.activate("not-a-uuid", 1L << 40),
+                TaskMutation.delete(task.getId()),
+                TaskMutation.clearCompleted());
+        Buffer buffer = new Buffer();
+        TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(buffer);
+        for (TaskMutation mutation : mutations) {
+            encoder.writeMutation(mutation);
+        }
+        encoder.close();
+
+        List<TaskMutation> decoded = new ArrayList<>();
+        TaskWireFormat.Decoder decoder = new TaskWireFormat.Decoder(buffer);
+        for (TaskMutation mutation = decoder.readMutation(); mutation != null;
+             mutation = decoder.readMutation()) {
+            decoded.add(mutation);
+        }
+
+        assertEquals(mutations, decoded);
+    }
+
+    @Test
+    public void changes_roundTrip_keepTheirEventIds() throws IOException {
+        Task task = new Task("title", "description");
+        List<TaskChange> changes = Arrays.asList(
+                new TaskChange(3, TaskMutation.save(task)),
+                new TaskChange(4, TaskMutation.complete(task.getId(), 42)),
+                new TaskChange(1L << 40, TaskMutation.clearCompleted()));
+        Buffer buffer = new Buffer();
+        TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(buffer);
+        for (TaskChange change : changes) {
+            encoder.writeChange(change);
+        }
+        encoder.close();
+
+        List<TaskChange> decoded = new ArrayList<>();
+        TaskWireFormat.Decoder decoder = new TaskWireFormat.Decoder(buffer);
+        for (TaskChange change = decoder.readChange(); change != null;
+             change = decoder.readChange()) {
+            decoded.add(change);
+        }
+
+        assertEquals(changes, decoded);
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void readChange_ofAMutationWithoutEventId_throws() throws IOException {
+        Buffer buffer = new Buffer();
+        TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(buffer);
+        encoder.writeMutation(TaskMutation.clearCompleted());
+        encoder.close();
+
+        new TaskWireFormat.Decoder(buffer).readChange();
+    }
+
+    @Test
+    public void uuidId_isWrittenAsSixteenBytes() throws IOException {
+        Task task = new Task(null, null);
+
+        // version, tag, flags, id and end tag
+        assertEquals(1 + 1 + 1 + 16 + 1, encodeTasks(Arrays.asList(task)).size());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void decoder_unsupportedVersion_throws() throws IOException {
+        new TaskWireFormat.Decoder(new Buffer().writeByte(42));
+    }
+
+    @Test
+    public void readTask_afterEnd_returnsNull() throws IOException {
+        TaskWireFormat.Decoder decoder = new TaskWireFormat.Decoder(encodeTasks(new ArrayList<>()));
+
+        assertNull(decoder.readTask());
+        assertNull(decoder.readTask());
+    }
+
+    @Test
+    public void encodedTasks_areSmallerThanJson() throws IOException {
+        for (int size : BENCHMARK_SIZES) {
+            List<Task> tasks = createTasks(size);
+
+            assertTrue(encodeTasks(tasks).size()
+                    < new Buffer().writeUtf8(TasksJson.toJson(tasks)).size());
+        }
+    }
+
+    /**
+     * Compares the sizes and the encoding and decoding times of the binary format and of JSON.
+     * The results of every size are written by the {@link BenchmarkReport}.
+     */
+    @Test
+    public void benchmark_binaryAgainstJson() throws IOException {
+        Benchmarks.assumeEnabled();
+        boolean binaryFaster = true;
+        for (int size : BENCHMARK_SIZES) {
+            List<Task> tasks = createTasks(size);
+            Buffer binary = encodeTasks(tasks);
+            String json = TasksJson.toJson(tasks);
+
+            long[] binaryNanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+            long[] jsonNanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+            for (int run = 0; run < BENCHMARK_RUNS; run++) {
+                long start = System.nanoTime();
+                encodeTasks(tasks);
+                binaryNanos[0] = Math.min(binaryNanos[0], System.nanoTime() - start);
+
+                // the decoder consumes the buffer
+                Buffer copy = binary.clone();
+                start = System.nanoTime();
+                decodeTasks(copy);
+                binaryNanos[1] = Math.min(binaryNanos[1], System.nanoTime() - start);
+
+                start = System.nanoTime();
+                TasksJson.toJson(tasks);
+                jsonNanos[0] = Math.min(jsonNanos[0], System.nanoTime() - start);
+
+                start = System.nanoTime();
+                TasksJson.toTasks(json);
+                jsonNanos[1] = Math.min(jsonNanos[1], System.nanoTime() - start);
+            }
+            mReport.add("%6d tasks: binary %8d bytes, encode %6d us, decode %6d us",
+                    size, binary.size(), binaryNanos[0] / 1000, binaryNanos[1] / 1000);
+            mReport.add("%6d tasks: json   %8d bytes, encode %6d us, decode %6d us",
+                    size, Utf8.size(json), jsonNanos[0] / 1000, jsonNanos[1] / 1000);
+            binaryFaster &= binaryNanos[0] + binaryNanos[1] < jsonNanos[0] + jsonNanos[1];
+        }
+
+        assertTrue("binary slower than json", binaryFaster);
+    }
+
+    private static Buffer encodeTasks(List<Task> tasks) throws IOException {
+        Buffer buffer = new Buffer();
+        TaskWireFormat.Encoder encoder = new TaskWireFormat.Encoder(buffer);
+        for (Task task : tasks) {
+            encoder.writeTask(task);
+        }
+        encoder.close();
+        return buffer;
+    }
+
+    private static List<Task> decodeTasks(Buffer buffer) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        TaskWireFormat.Decoder decoder = new TaskWireFormat.Decoder(buffer);
+        for (Task task = decoder.readTask(); task != null; task = decoder.readTask()) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static List<Task> createTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task("title" + i, "description" + i, UUID.randomUUID().toString(),
+                    i % 3 == 0));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.android.architecture.blueprints.todoapp.data.source.remote;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskPatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link TasksHttpDataSource}, against a {@link FakeTasksBackend}.
+ */
+public class TasksHttpDataSourceTest {
+
+    private static final int TASKS_COUNT = 200;
+
+    private MockWebServer mServer;
+
+    private FakeTasksBackend mBackend;
+
+    private TasksHttpDataSource mDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        mBackend = new FakeTasksBackend();
+        mServer = new MockWebServer();
+        mServer.setDispatcher(mBackend);
+        mServer.start();
+        mDataSource = TasksHttpDataSource.getInstance(mServer.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TasksHttpDataSource.destroyInstance();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void saveTasks_thenGetTasks_returnsSavedTasks() {
+        List<Task> tasks = createTasks();
+
+        mDataSource.saveTasks(tasks).await();
+
+        assertEquals(tasks, mDataSource.getTasks().toBlocking().single());
+    }
+
+    @Test
+    public void getTasks_unchanged_isNotModifiedAndReusesList() {
+        // Given tasks that were already fetched once
+        mDataSource.saveTasks(createTasks()).await();
+        List<Task> first = mDataSource.getTasks().toBlocking().single();
+        long responseBytes = mBackend.getResponseBytes();
+
+        // When fetching them again without changes
+        List<Task> second = mDataSource.getTasks().toBlocking().single();
+
+        // Then the backend only answered not modified and the same list is emitted
+        assertEquals(1, mBackend.getNotModifiedCount());
+        assertEquals(responseBytes, mBackend.getResponseBytes());
+        assertSame(first, second);
+    }
+
+    @Test
+    public void getTasks_afterChange_fetchesTasksAgain() {
+        // Given tasks that were already fetched once
+        List<Task> tasks = createTasks();
+        mDataSource.saveTasks(tasks).await();
+        mDataSource.getTasks().toBlocking().single();
+
+        // When a task is completed
+        mDataSource.completeTask(tasks.get(3).getId()).await();
+
+        // Then the new list is fetched
+        List<Task> fetched = mDataSource.getTasks().toBlocking().single();
+        assertEquals(0, mBackend.getNotModifiedCount());
+        assertTrue(fetched.get(3).isCompleted());
+    }
+
+    @Test
+    public void getTask_missing_completesEmpty() {
+        assertNull(mDataSource.getTask("missing").toBlocking().singleOrDefault(null));
+    }
+
+    @Test
+    public void getTask_returnsTask() {
+        Task task = new Task("title", "description");
+        mDataSource.saveTask(task).await();
+
+        assertEquals(task, mDataSource.getTask(task.getId()).toBlocking().single());
+    }
+
+    @Test
+    public void getTasksByIds_sendsOneRequest() {
+        List<Task> tasks = createTasks();
+        mDataSource.saveTasks(tasks).await();
+        int requests = mBackend.getRequestCount();
+
+        List<Task> loaded = mDataSource.getTasks(Arrays.asList("id3", "missing", "id7"))
+                .toBlocking().single();
+
+        assertEquals(Arrays.asList(tasks.get(3), tasks.get(7)), loaded);
+        assertEquals(requests + 1, mBackend.getRequestCount());
+    }
+
+    @Test
+    public void updateTask_sendsOnlyTheEditedField() {
+        // Given a task with a long description
+        Task task = new Task("title", new String(new char[1000]).replace('\0', 'd'));
+        mDataSource.saveTask(task).await();
+        long requestBytes = mBackend.getRequestBytes();
+
+        // When only its title is edited
+        Task edited = task.withTitle("new title");
+        mDataSource.updateTask(TaskPatch.diff(task, edited).withTimestamp(1)).await();
+
+        // Then the task is updated with a body much smaller than the description
+        assertEquals(edited, mDataSource.getTask(task.getId()).toBlocking().single());
+        assertTrue(mBackend.getRequestBytes() - requestBytes < 50);
+    }
+
+    @Test
+    public void bodies_areGzipped() {
+        // Given a list of tasks sent and received
+        List<Task> tasks = createTasks();
+        mDataSource.saveTasks(tasks).await();
+        mDataSource.getTasks().toBlocking().single();
+
+        // Then both bodies are much smaller than the JSON of the tasks
+        int jsonBytes = TasksJson.toJson(tasks).length();
+        assertTrue(mBackend.getRequestBytes() < jsonBytes / 2);
+        assertTrue(mBackend.getResponseBytes() < jsonBytes / 2);
+    }
+
+    @Test
+    public void requests_reuseConnection() {
+        for (Task task : createTasks().subList(0, 10)) {
+            mDataSource.saveTask(task).await();
+        }
+        mDataSource.getTasks().toBlocking().single();
+
+        assertEquals(11, mBackend.getRequestCount());
+        assertEquals(1, mBackend.getConnectionCount());
+    }
+
+    @Test
+    public void getTaskPages_emitsAllTasksInPages() {
+        List<Task> tasks = createTasks();
+        mDataSource.saveTasks(tasks).await();
+
+        List<List<Task>> pages = mDataSource.getTaskPages(64).toList().toBlocking().single();
+
+        assertEquals(4, pages.size());
+        assertEquals(64, pages.get(0).size());
+        assertEquals(TASKS_COUNT % 64, pages.get(3).size());
+        List<Task> all = new ArrayList<>();
+        for (List<Task> page : pages) {
+            all.addAll(page);
+        }
+        assertEquals(tasks, all);
+    }
+
+    @Test
+    public void getTaskPages_unchanged_emitsNoPage() {
+        // Given tasks that were already fetched in pages
+        mDataSource.saveTasks(createTasks()).await();
+        mDataSource.getTaskPages(64).toList().toBlocking().single();
+        int requests = mBackend.getRequestCount();
+
+        // When fetching the pages again without changes
+        List<List<Task>> pages = mDataSource.getTaskPages(64).toList().toBlocking().single();
+
+        // Then only the first page was requested, and was not modified
+        assertTrue(pages.isEmpty());
+        assertEquals(requests + 1, mBackend.getRequestCount());
+        assertEquals(1, mBackend.getNotModifiedCount());
+    }
+
+    @Test
+    public void pollChanges_withNonContiguousEventIds_keepsTheIdsOfTheBackend() {
+        // Given changes with event ids skipped by the events of other lists
+        Task first = new Task("title1", "description1", "id1", false);
+        Task second = new Task("title2", "description2", "id2", false);
+        Task third = new Task("title3", "description3", "id3", false);
+        mBackend.put(first);
+        mBackend.skipEvents(3);
+        mBackend.put(second);
+        mBackend.skipEvents(3);
+        mBackend.put(third);
+
+        // When polling the changes after the second one
+        List<TaskChange> all = mDataSource.pollChanges(0).toBlocking().single();
+        List<TaskChange> afterSecond = mDataSource.pollChanges(5).toBlocking().single();
+
+        // Then the changes have the event ids of the backend
+        assertEquals(Arrays.asList(
+                new TaskChange(1, TaskMutation.save(first)),
+                new TaskChange(5, TaskMutation.save(second)),
+                new TaskChange(9, TaskMutation.save(third))), all);
+        assertEquals(Arrays.asList(new TaskChange(9, TaskMutation.save(third))), afterSecond);
+    }
+
+    private static List<Task> createTasks() {
+        List<Task> tasks = new ArrayList<>(TASKS_COUNT);
+        for (int i = 0; i < TASKS_COUNT; i++) {
+            tasks.add(new Task("title" + i, "description of the task " + i, "id" + i, false));
+        }
+        return tasks;
+    }
+}
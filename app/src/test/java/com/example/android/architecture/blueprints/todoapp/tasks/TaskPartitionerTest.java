@@ -0,0 +1,197 @@
+package com.example.android.architecture.blueprints.todoapp.tasks;
+
+import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskFixtures;
+import com.example.android.architecture.blueprints.todoapp.util.BenchmarkReport;
+import com.example.android.architecture.blueprints.todoapp.util.Benchmarks;
+import com.example.android.architecture.blueprints.todoapp.util.ParallelListBuilder;
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.schedulers.Schedulers;
+
+import static com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType.ACTIVE_TASKS;
+import static com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType.ALL_TASKS;
+import static com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType.COMPLETED_TASKS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Unit tests for {@link TaskPartitioner}.
+ */
+public class TaskPartitionerTest {
+
+    private static final int BENCHMARK_RUNS = 15;
+
+    @Rule
+    public BenchmarkReport mReport = new BenchmarkReport();
+
+    private List<Task> mTasks;
+
+    private TaskPartitioner mPartitioner;
+
+    @Before
+    public void setUp() {
+        mTasks = Lists.newArrayList(new Task("Title1", "Description1"),
+                new Task("Title2", "Description2", true), new Task("Title3", "Description3"));
+        mPartitioner = new TaskPartitioner(new ParallelListBuilder(Schedulers.immediate()));
+    }
+
+    @Test
+    public void update_splitsTasksByCompletion() {
+        TaskPartitions partitions = mPartitioner.update(mTasks);
+
+        assertIds(partitions.get(ALL_TASKS), mTasks.get(0), mTasks.get(1), mTasks.get(2));
+        assertIds(partitions.get(ACTIVE_TASKS), mTasks.get(0), mTasks.get(2));
+        assertIds(partitions.get(COMPLETED_TASKS), mTasks.get(1));
+    }
+
+    @Test
+    public void update_sameTasks_returnsPreviousPartitions() {
+        TaskPartitions partitions = mPartitioner.update(mTasks);
+
+        assertSame(partitions, mPartitioner.update(new ArrayList<>(mTasks)));
+    }
+
+    @Test
+    public void update_taskCompleted_onlyRebuildsItsItem() {
+        // Given the partitions of a list of tasks
+        TaskPartitions partitions = mPartitioner.update(mTasks);
+
+        // When the first task is completed
+        List<Task> newTasks = new ArrayList<>(mTasks);
+        newTasks.set(0, mTasks.get(0).withCompleted(true));
+        TaskPartitions newPartitions = mPartitioner.update(newTasks);
+
+        // Then the task moves to the completed partition and the other items are reused
+        List<TaskItem> all = newPartitions.get(ALL_TASKS);
+        assertNotSame(partitions.get(ALL_TASKS).get(0), all.get(0));
+        assertTrue(all.get(0).isCompleted());
+        assertSame(partitions.get(ALL_TASKS).get(1), all.get(1));
+        assertSame(partitions.get(ALL_TASKS).get(2), all.get(2));
+        assertIds(newPartitions.get(ACTIVE_TASKS), mTasks.get(2));
+        assertIds(newPartitions.get(COMPLETED_TASKS), mTasks.get(0), mTasks.get(1));
+    }
+
+    @Test
+    public void update_taskRenamed_reusesThePartitionItIsNotIn() {
+        // Given the partitions of a list of tasks
+        TaskPartitions partitions = mPartitioner.update(mTasks);
+
+        // When an active task is renamed
+        List<Task> newTasks = new ArrayList<>(mTasks);
+        newTasks.set(2, new Task("New title", "Description3", mTasks.get(2).getId(), false));
+        TaskPartitions newPartitions = mPartitioner.update(newTasks);
+
+        // Then its item is replaced and the completed items are the same list
+        assertEquals("New title", newPartitions.get(ACTIVE_TASKS).get(1).getTitle());
+        assertEquals("New title", newPartitions.get(ALL_TASKS).get(2).getTitle());
+        assertSame(partitions.get(COMPLETED_TASKS), newPartitions.get(COMPLETED_TASKS));
+    }
+
+    @Test
+    public void update_tasksToggledInPlace_matchesRebuiltPartitions() {
+        // Given the partitions of a list of tasks
+        List<Task> tasks = TaskFixtures.createTasks(100);
+        mPartitioner.update(tasks);
+
+        // When toggling a few tasks in every new list
+        for (int[] rows : new int[][]{{0}, {99}, {50, 51}, {1, 50, 98}}) {
+            tasks = new ArrayList<>(tasks);
+            for (int row : rows) {
+                tasks.set(row, tasks.get(row).withCompleted(!tasks.get(row).isCompleted()));
+            }
+            TaskPartitions partitions = mPartitioner.update(tasks);
+
+            // Then the partitions are those of the list built from scratch
+            TaskPartitions rebuilt = new TaskPartitioner(
+                    new ParallelListBuilder(Schedulers.immediate())).update(tasks);
+            for (TasksFilterType filterType : TasksFilterType.values()) {
+                assertEquals(rebuilt.get(filterType), partitions.get(filterType));
+            }
+        }
+    }
+
+    @Test
+    public void update_tasksReordered_reusesItems() {
+        TaskPartitions partitions = mPartitioner.update(mTasks);
+
+        TaskPartitions newPartitions = mPartitioner.update(Lists.reverse(mTasks));
+
+        assertSame(partitions.get(ALL_TASKS).get(0), newPartitions.get(ALL_TASKS).get(2));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void partitions_cannotBeModified() {
+        mPartitioner.update(mTasks).get(ACTIVE_TASKS).clear();
+    }
+
+    /**
+     * Compares the serial and the parallel construction of the items of a new list, for several
+     * list sizes. The smallest size where the parallel construction is faster is where
+     * {@link ParallelListBuilder#DEFAULT_THRESHOLD} should be. The times and the crossover are
+     * written by the {@link BenchmarkReport}.
+     */
+    @Test
+    public void benchmark_parallelConstruction() {
+        Benchmarks.assumeEnabled();
+        int processors = Runtime.getRuntime().availableProcessors();
+        assumeTrue(processors > 1);
+        int[] sizes = {1_000, 2_000, 5_000, 10_000, 20_000, 50_000, 100_000};
+
+        int crossover = -1;
+        mReport.add("%d cores", processors);
+        for (int size : sizes) {
+            List<Task> tasks = TaskFixtures.createTasks(size);
+            ParallelListBuilder serial = new ParallelListBuilder(Schedulers.computation(),
+                    processors, Integer.MAX_VALUE);
+            ParallelListBuilder parallel = new ParallelListBuilder(Schedulers.computation(),
+                    processors, 0);
+
+            long serialNanos = timeUpdate(serial, tasks);
+            long parallelNanos = timeUpdate(parallel, tasks);
+
+            assertEquals(new TaskPartitioner(serial).update(tasks).get(COMPLETED_TASKS),
+                    new TaskPartitioner(parallel).update(tasks).get(COMPLETED_TASKS));
+            if (crossover < 0 && parallelNanos < serialNanos) {
+                crossover = size;
+            }
+            mReport.add("%7d tasks: serial %6d us, parallel %6d us, speedup %.2f",
+                    size, serialNanos / 1000, parallelNanos / 1000,
+                    (double) serialNanos / parallelNanos);
+        }
+        // whether the parallel construction pays off depends on the machine, so it is reported
+        // to place the threshold rather than asserted
+        mReport.add(crossover > 0
+                ? "crossover: " + crossover + " tasks"
+                : "crossover: none, the parallel construction was never faster");
+    }
+
+    private static long timeUpdate(ParallelListBuilder listBuilder, List<Task> tasks) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < BENCHMARK_RUNS; run++) {
+            // a new partitioner for every run, so all the items are built
+            TaskPartitioner partitioner = new TaskPartitioner(listBuilder);
+            long start = System.nanoTime();
+            partitioner.update(tasks);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void assertIds(List<TaskItem> items, Task... tasks) {
+        assertEquals(tasks.length, items.size());
+        for (int i = 0; i < tasks.length; i++) {
+            assertEquals(tasks[i].getId(), items.get(i).getId());
+        }
+    }
+}
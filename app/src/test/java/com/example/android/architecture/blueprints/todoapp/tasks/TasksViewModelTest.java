@@ -7,7 +7,9 @@ import androidx.annotation.DrawableRes;
 import com.example.android.architecture.blueprints.todoapp.R;
 import com.example.android.architecture.blueprints.todoapp.addedittask.AddEditTaskActivity;
 import com.example.android.architecture.blueprints.todoapp.data.Task;
+import com.example.android.architecture.blueprints.todoapp.data.TaskFixtures;
 import com.example.android.architecture.blueprints.todoapp.data.source.TasksRepository;
+import com.example.android.architecture.blueprints.todoapp.util.AllocationMeter;
 import com.example.android.architecture.blueprints.todoapp.util.schedulers.ImmediateSchedulerProvider;
 import com.google.common.collect.Lists;
 
@@ -22,16 +24,18 @@ import java.util.List;
 import rx.Completable;
 import rx.Observable;
 import rx.observers.TestSubscriber;
+import rx.subjects.BehaviorSubject;
 
 import static com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType.ACTIVE_TASKS;
 import static com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType.ALL_TASKS;
 import static com.example.android.architecture.blueprints.todoapp.tasks.TasksFilterType.COMPLETED_TASKS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -302,7 +306,7 @@ public class TasksViewModelTest {
         TaskItem taskItem = items.get(0);
 
         // When triggering the click action
-        taskItem.getOnClickAction().call();
+        mViewModel.getTaskItemActionHandler().onTaskTapped(taskItem.getId());
 
         // Opening of the task details is called with the correct task id
         verify(mNavigatior).openTaskDetails(eq(ACTIVE_TASK.getId()));
@@ -318,10 +322,10 @@ public class TasksViewModelTest {
         TaskItem taskItem = items.get(0);
 
         // When triggering the check
-        taskItem.getOnCheckAction().call(true);
+        mViewModel.getTaskItemActionHandler().onTaskChecked(taskItem.getId(), true);
 
         // The task is marked as completed
-        verify(mTasksRepository).completeTask(ACTIVE_TASK);
+        verify(mTasksRepository).completeTask(ACTIVE_TASK.getId());
     }
 
     @Test
@@ -336,7 +340,7 @@ public class TasksViewModelTest {
         TaskItem taskItem = items.get(0);
 
         // When triggering the check
-        taskItem.getOnCheckAction().call(true);
+        mViewModel.getTaskItemActionHandler().onTaskChecked(taskItem.getId(), true);
 
         // The snackbar emits a message
         mSnackbarTextSubscriber.assertValue(R.string.task_marked_complete);
@@ -352,10 +356,10 @@ public class TasksViewModelTest {
         TaskItem taskItem = items.get(0);
 
         // When triggering the check
-        taskItem.getOnCheckAction().call(false);
+        mViewModel.getTaskItemActionHandler().onTaskChecked(taskItem.getId(), false);
 
         // The task is marked as active
-        mTasksRepository.activateTask(COMPLETED_TASK);
+        verify(mTasksRepository).activateTask(COMPLETED_TASK.getId());
     }
 
     @Test
@@ -371,7 +375,7 @@ public class TasksViewModelTest {
         TaskItem taskItem = items.get(0);
 
         // When triggering the check
-        taskItem.getOnCheckAction().call(false);
+        mViewModel.getTaskItemActionHandler().onTaskChecked(taskItem.getId(), false);
 
         // The snackbar emits a message
         mSnackbarTextSubscriber.assertValue(R.string.task_marked_active);
@@ -415,6 +419,101 @@ public class TasksViewModelTest {
         assertTrue(model.isNoTasksViewVisible());
     }
 
+    @Test
+    public void getUiModel_unchangedTasks_garbagePerEmissionDoesNotGrowWithTasks() {
+        // Given a small and a large list of tasks
+        List<Task> smallList = TaskFixtures.createTasks(1_000);
+        List<Task> largeList = TaskFixtures.createTasks(10_000);
+
+        // When the same list is emitted again
+        long smallListBytes = bytesAllocatedForReemission(smallList);
+        long largeListBytes = bytesAllocatedForReemission(largeList);
+
+        // Then the task items are reused and only the references to the items are allocated
+        long bytesPerTask = (largeListBytes - smallListBytes)
+                / (largeList.size() - smallList.size());
+        assertTrue("allocated " + bytesPerTask + " bytes per task", bytesPerTask < 16);
+    }
+
+    @Test
+    public void getUiModel_resubscribed_replaysModelWithoutQueryingTasksAgain() {
+        // Given that the view was bound to the UI model and then unbound
+        withTasksInRepositoryAndSubscribed(TASKS);
+        mTasksSubscriber.unsubscribe();
+
+        // When the view is bound again
+        TestSubscriber<TasksUiModel> subscriber = new TestSubscriber<>();
+        mViewModel.getUiModel().subscribe(subscriber);
+
+        // The latest model is emitted and the tasks were only requested once
+        subscriber.assertValueCount(1);
+        assertTasksModelWithTasksVisible(subscriber.getOnNextEvents().get(0));
+        verify(mTasksRepository, times(1)).getTasks();
+    }
+
+    @Test
+    public void filter_switchesPartitionWithoutRebuildingList() {
+        // Given that we are subscribed to the emissions of the UI model
+        withTasksInRepositoryAndSubscribed(TASKS);
+
+        // When switching to the active tasks and back to all tasks
+        mViewModel.filter(ACTIVE_TASKS);
+        mViewModel.filter(ALL_TASKS);
+
+        // The same list of items is emitted for the same filter
+        List<TasksUiModel> models = mTasksSubscriber.getOnNextEvents();
+        assertSame(models.get(0).getItemList(), models.get(2).getItemList());
+    }
+
+    @Test
+    public void filter_withManyTasks_costDoesNotGrowWithTasks() {
+        // Given a small and a large list of tasks
+        List<Task> smallList = TaskFixtures.createTasks(1_000);
+        List<Task> largeList = TaskFixtures.createTasks(50_000);
+
+        // When switching the filter
+        long smallListBytes = bytesAllocatedForFilterSwitch(smallList);
+        long largeListBytes = bytesAllocatedForFilterSwitch(largeList);
+
+        // Then the tasks are not scanned again, so switching with 50k tasks allocates no more
+        // than switching with 1k tasks
+        assertTrue("allocated " + largeListBytes + " bytes with " + largeList.size()
+                        + " tasks and " + smallListBytes + " bytes with " + smallList.size(),
+                largeListBytes <= smallListBytes + 1024);
+    }
+
+    private long bytesAllocatedForFilterSwitch(List<Task> tasks) {
+        when(mTasksRepository.getTasks()).thenReturn(BehaviorSubject.create(tasks));
+        mViewModel = new TasksViewModel(mTasksRepository, mNavigatior,
+                new ImmediateSchedulerProvider());
+        mViewModel.getUiModel().subscribe(new TestSubscriber<>());
+        // warm up
+        for (int i = 0; i < 10; i++) {
+            mViewModel.filter(ACTIVE_TASKS);
+            mViewModel.filter(COMPLETED_TASKS);
+        }
+
+        return AllocationMeter.bytesAllocated(() -> {
+            mViewModel.filter(ACTIVE_TASKS);
+            mViewModel.filter(COMPLETED_TASKS);
+            mViewModel.filter(ALL_TASKS);
+        });
+    }
+
+    private long bytesAllocatedForReemission(List<Task> tasks) {
+        BehaviorSubject<List<Task>> tasksSubject = BehaviorSubject.create(tasks);
+        when(mTasksRepository.getTasks()).thenReturn(tasksSubject);
+        mViewModel = new TasksViewModel(mTasksRepository, mNavigatior,
+                new ImmediateSchedulerProvider());
+        mViewModel.getUiModel().subscribe(new TestSubscriber<>());
+        // warm up
+        for (int i = 0; i < 10; i++) {
+            tasksSubject.onNext(tasks);
+        }
+
+        return AllocationMeter.bytesAllocated(() -> tasksSubject.onNext(tasks));
+    }
+
     private void assertNoTasks(NoTasksModel model, int expectedText, int expectedIcon,
                                boolean expectedShowAdd) {
         assertEquals(model.getText(), expectedText);
@@ -440,10 +539,10 @@ public class TasksViewModelTest {
     }
 
     private void assertTask(TaskItem taskItem, Task task, @DrawableRes int resId) {
-        assertEquals(taskItem.getTask(), task);
+        assertEquals(taskItem.getId(), task.getId());
+        assertEquals(taskItem.getTitle(), task.getTitleForList());
+        assertEquals(taskItem.isCompleted(), task.isCompleted());
         assertEquals(taskItem.getBackground(), resId);
-        assertNotNull(taskItem.getOnCheckAction());
-        assertNotNull(taskItem.getOnClickAction());
     }
 
     private void withTaskInRepositoryAndSubscribed(Task task) {
@@ -460,10 +559,10 @@ public class TasksViewModelTest {
     }
 
     private void withTaskCompleted(Task task) {
-        when(mTasksRepository.completeTask(task)).thenReturn(Completable.complete());
+        when(mTasksRepository.completeTask(task.getId())).thenReturn(Completable.complete());
     }
 
     private void withTaskActivated(Task task) {
-        when(mTasksRepository.activateTask(task)).thenReturn(Completable.complete());
+        when(mTasksRepository.activateTask(task.getId())).thenReturn(Completable.complete());
     }
 }
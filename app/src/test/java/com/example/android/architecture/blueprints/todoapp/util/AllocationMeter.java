@@ -0,0 +1,37 @@
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the memory allocated by some code on the current thread, for the tests of the garbage
+ * made by the hot paths. The tests using it are skipped on the JVMs that can't measure it.
+ */
+public final class AllocationMeter {
+
+    private AllocationMeter() {
+    }
+
+    /**
+     * Runs the action on the current thread.
+     *
+     * @return the bytes allocated by the current thread while running it.
+     */
+    public static long bytesAllocated(Runnable action) {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        action.run();
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        return threadBean;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rule collecting the results of a benchmark, written to
+ * {@code build/benchmarks/<test class>.<test>.txt} when the benchmark passes. Like this, the
+ * results are kept with the build instead of only showing in the message of a failure.
+ */
+public final class BenchmarkReport extends TestWatcher {
+
+    private static final String DIRECTORY_PROPERTY = "benchmarksDir";
+
+    private final List<String> mLines = new ArrayList<>();
+
+    /**
+     * Adds a line of results, formatted with {@link String#format(Locale, String, Object...)}.
+     */
+    public void add(String format, Object... args) {
+        mLines.add(String.format(Locale.US, format, args));
+    }
+
+    @Override
+    protected void starting(Description description) {
+        mLines.clear();
+    }
+
+    @Override
+    protected void succeeded(Description description) {
+        if (mLines.isEmpty()) {
+            return;
+        }
+        File directory = new File(System.getProperty(DIRECTORY_PROPERTY, "build/benchmarks"));
+        File file = new File(directory, description.getTestClass().getSimpleName() + "."
+                + description.getMethodName() + ".txt");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new AssertionError("Cannot create " + directory);
+        }
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            for (String line : mLines) {
+                writer.println(line);
+            }
+        } catch (IOException e) {
+            throw new AssertionError("Cannot write " + file, e);
+        }
+    }
+}
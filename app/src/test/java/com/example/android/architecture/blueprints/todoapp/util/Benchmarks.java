@@ -0,0 +1,22 @@
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Opt-in for the benchmarks of the unit tests. They are slow and their times depend on the
+ * machine, so they only run with the benchmarks property: {@code ./gradlew test -Pbenchmarks}.
+ */
+public final class Benchmarks {
+
+    private static final String PROPERTY = "benchmarks";
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Skips the calling test unless the benchmarks are enabled.
+     */
+    public static void assumeEnabled() {
+        assumeTrue("benchmarks are disabled", Boolean.getBoolean(PROPERTY));
+    }
+}
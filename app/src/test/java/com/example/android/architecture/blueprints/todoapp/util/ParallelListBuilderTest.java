@@ -0,0 +1,100 @@
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import rx.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ParallelListBuilder}.
+ */
+public class ParallelListBuilderTest {
+
+    private static final int LIST_SIZE = 20_000;
+
+    @Test
+    public void map_belowThreshold_mapsOnCallingThread() {
+        ParallelListBuilder builder = new ParallelListBuilder(Schedulers.computation(), 4,
+                LIST_SIZE + 1);
+        Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        builder.map(createNumbers(LIST_SIZE), (index, item) -> threads.add(Thread.currentThread()));
+
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+    }
+
+    @Test
+    public void map_aboveThreshold_keepsOrder() {
+        ParallelListBuilder builder = new ParallelListBuilder(Schedulers.computation(), 4, 0);
+
+        List<String> result = builder.map(createNumbers(LIST_SIZE),
+                (index, item) -> index + ":" + item);
+
+        assertEquals(LIST_SIZE, result.size());
+        for (int i = 0; i < LIST_SIZE; i++) {
+            assertEquals(i + ":" + i, result.get(i));
+        }
+    }
+
+    @Test
+    public void map_aboveThreshold_usesWorkers() {
+        ParallelListBuilder builder = new ParallelListBuilder(Schedulers.newThread(), 4, 0);
+        Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        builder.map(createNumbers(LIST_SIZE), (index, item) -> {
+            threads.add(Thread.currentThread());
+            if (index == 0) {
+                // hold the first chunk so the workers start and take the other chunks
+                sleep(100);
+            }
+            return item;
+        });
+
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void map_errorInChunk_isThrownToCaller() {
+        ParallelListBuilder builder = new ParallelListBuilder(Schedulers.computation(), 4, 0);
+
+        builder.map(createNumbers(LIST_SIZE), (index, item) -> {
+            if (index == LIST_SIZE - 1) {
+                throw new IllegalStateException();
+            }
+            return item;
+        });
+    }
+
+    @Test
+    public void map_withImmediateScheduler_mapsAllItems() {
+        ParallelListBuilder builder = new ParallelListBuilder(Schedulers.immediate(), 4, 0);
+
+        List<Integer> result = builder.map(createNumbers(LIST_SIZE), (index, item) -> item * 2);
+
+        assertEquals(Integer.valueOf(2 * (LIST_SIZE - 1)), result.get(LIST_SIZE - 1));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Integer> createNumbers(int count) {
+        List<Integer> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+}
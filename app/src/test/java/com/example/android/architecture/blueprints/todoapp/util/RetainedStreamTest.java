@@ -0,0 +1,104 @@
+package com.example.android.architecture.blueprints.todoapp.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link RetainedStream}.
+ */
+public class RetainedStreamTest {
+
+    private PublishSubject<String> mSource;
+
+    private AtomicInteger mSubscriptions;
+
+    private RetainedStream<String> mStream;
+
+    @Before
+    public void setUp() {
+        mSource = PublishSubject.create();
+        mSubscriptions = new AtomicInteger();
+        mStream = new RetainedStream<>(Observable.defer(() -> mSource)
+                .doOnSubscribe(mSubscriptions::incrementAndGet));
+    }
+
+    @Test
+    public void resubscribing_replaysLatestItem_withoutSubscribingToSourceAgain() {
+        // Given a view that received an item and was unbound
+        Subscription first = mStream.get().subscribe(new TestSubscriber<>());
+        mSource.onNext("first");
+        mSource.onNext("latest");
+        first.unsubscribe();
+
+        // When the view is bound again
+        TestSubscriber<String> second = new TestSubscriber<>();
+        mStream.get().subscribe(second);
+
+        // Then the latest item is emitted immediately and the source was subscribed only once
+        second.assertValues("latest");
+        assertEquals(1, mSubscriptions.get());
+    }
+
+    @Test
+    public void itemsEmittedWhileUnbound_areReplayed() {
+        mStream.get().subscribe(new TestSubscriber<>()).unsubscribe();
+
+        mSource.onNext("while paused");
+
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        mStream.get().subscribe(subscriber);
+        subscriber.assertValues("while paused");
+    }
+
+    @Test
+    public void clear_unsubscribesFromSource() {
+        mStream.get().subscribe(new TestSubscriber<>());
+
+        mStream.clear();
+
+        assertFalse(mSource.hasObservers());
+    }
+
+    @Test
+    public void afterClear_sourceIsSubscribedAgain() {
+        mStream.get().subscribe(new TestSubscriber<>());
+        mSource.onNext("first");
+        mStream.clear();
+
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        mStream.get().subscribe(subscriber);
+
+        subscriber.assertNoValues();
+        assertEquals(2, mSubscriptions.get());
+    }
+
+    @Test
+    public void afterError_sourceIsSubscribedAgain() {
+        // Given a source that emitted an error
+        TestSubscriber<String> first = new TestSubscriber<>();
+        mStream.get().subscribe(first);
+        mSource.onError(new RuntimeException());
+        first.assertError(RuntimeException.class);
+
+        // When subscribing again
+        mSource = PublishSubject.create();
+        TestSubscriber<String> second = new TestSubscriber<>();
+        mStream.get().subscribe(second);
+
+        // Then the error is not replayed and the source is subscribed again
+        second.assertNoErrors();
+        assertTrue(mSource.hasObservers());
+        assertEquals(2, mSubscriptions.get());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link FrameConflater}.
+ */
+public class FrameConflaterTest {
+
+    private PublishSubject<Long> mFrames;
+
+    private PublishSubject<Integer> mItems;
+
+    private FrameConflater<Integer> mConflater;
+
+    private TestSubscriber<Integer> mTestSubscriber;
+
+    @Before
+    public void setUp() {
+        mFrames = PublishSubject.create();
+        mItems = PublishSubject.create();
+        mConflater = new FrameConflater<>(() -> mFrames.take(1));
+        mTestSubscriber = new TestSubscriber<>();
+        mItems.compose(mConflater).subscribe(mTestSubscriber);
+    }
+
+    @Test
+    public void items_notEmittedBeforeFrame() {
+        mItems.onNext(1);
+
+        mTestSubscriber.assertNoValues();
+    }
+
+    @Test
+    public void itemsWithinOneFrame_onlyLatestEmitted() {
+        // Given three items emitted before the next frame
+        mItems.onNext(1);
+        mItems.onNext(2);
+        mItems.onNext(3);
+
+        // When the frame starts
+        mFrames.onNext(0L);
+
+        // Then only the latest item is emitted and the others are counted as dropped
+        mTestSubscriber.assertValues(3);
+        assertEquals(2, mConflater.getDroppedCount());
+    }
+
+    @Test
+    public void itemsInDifferentFrames_allEmitted() {
+        mItems.onNext(1);
+        mFrames.onNext(0L);
+        mItems.onNext(2);
+        mFrames.onNext(16L);
+
+        mTestSubscriber.assertValues(1, 2);
+        assertEquals(0, mConflater.getDroppedCount());
+    }
+
+    @Test
+    public void frameWithoutItem_emitsNothing() {
+        mItems.onNext(1);
+        mFrames.onNext(0L);
+
+        mFrames.onNext(16L);
+
+        mTestSubscriber.assertValues(1);
+    }
+
+    @Test
+    public void completion_emitsPendingItemFirst() {
+        // Given an item pending for the next frame
+        mItems.onNext(1);
+
+        // When the source completes
+        mItems.onCompleted();
+        mTestSubscriber.assertNotCompleted();
+
+        // Then the item is emitted at the next frame, before completing
+        mFrames.onNext(0L);
+        mTestSubscriber.assertValues(1);
+        mTestSubscriber.assertCompleted();
+    }
+
+    @Test
+    public void error_isForwarded() {
+        Throwable error = new RuntimeException();
+
+        mItems.onError(error);
+
+        mTestSubscriber.assertError(error);
+    }
+}
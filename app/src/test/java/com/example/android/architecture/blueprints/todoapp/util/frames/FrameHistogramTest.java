@@ -0,0 +1,70 @@
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link FrameHistogram}.
+ */
+public class FrameHistogramTest {
+
+    private FrameHistogram mHistogram;
+
+    @Before
+    public void setUp() {
+        mHistogram = new FrameHistogram("TasksFragment");
+    }
+
+    @Test
+    public void record_countsFramesPerBucket() {
+        mHistogram.record(millis(5), null);
+        mHistogram.record(millis(12), null);
+        mHistogram.record(millis(40), null);
+        mHistogram.record(millis(1_000), null);
+
+        assertEquals(4, mHistogram.getFrameCount());
+        assertArrayEquals(new int[]{1, 1, 0, 0, 1, 0, 0, 0, 1}, mHistogram.getBuckets());
+    }
+
+    @Test
+    public void record_countsJankyAndFrozenFrames() {
+        mHistogram.record(millis(16), null);
+        mHistogram.record(millis(17), null);
+        mHistogram.record(millis(700), null);
+
+        assertEquals(2, mHistogram.getJankyFrameCount());
+        assertEquals(1, mHistogram.getFrozenFrameCount());
+    }
+
+    @Test
+    public void record_countsSlowFramesPerTag() {
+        mHistogram.record(millis(50), "taskChecked");
+        mHistogram.record(millis(60), "taskChecked");
+        mHistogram.record(millis(5), "taskChecked");
+
+        assertEquals(2, mHistogram.getSlowFrameCount("taskChecked"));
+        assertEquals(0, mHistogram.getSlowFrameCount("taskTapped"));
+    }
+
+    @Test
+    public void encode_writesOneLine() {
+        mHistogram.record(millis(50), "TasksUiModel");
+
+        String line = mHistogram.encode();
+
+        assertTrue(line, line.startsWith("screen=TasksFragment frames=1 janky=1 frozen=0 "));
+        assertTrue(line, line.contains("<100:1"));
+        assertTrue(line, line.endsWith("slowAfter=TasksUiModel:1"));
+        assertEquals(-1, line.indexOf('\n'));
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
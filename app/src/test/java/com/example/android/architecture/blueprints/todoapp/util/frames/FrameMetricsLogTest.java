@@ -0,0 +1,88 @@
+package com.example.android.architecture.blueprints.todoapp.util.frames;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link FrameMetricsLog}.
+ */
+public class FrameMetricsLogTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void readAll_withoutFile_returnsNoRecords() throws Exception {
+        FrameMetricsLog log = new FrameMetricsLog(new File(mFolder.getRoot(), "log"), 4, 32);
+
+        assertEquals(Collections.emptyList(), log.readAll());
+    }
+
+    @Test
+    public void readAll_returnsRecordsFromOldest() throws Exception {
+        FrameMetricsLog log = new FrameMetricsLog(new File(mFolder.getRoot(), "log"), 4, 32);
+
+        log.append("a");
+        log.append("b");
+
+        assertEquals(Arrays.asList("a", "b"), log.readAll());
+    }
+
+    @Test
+    public void append_whenFull_replacesOldestRecord() throws Exception {
+        File file = new File(mFolder.getRoot(), "log");
+        FrameMetricsLog log = new FrameMetricsLog(file, 3, 32);
+
+        for (String record : new String[]{"a", "b", "c", "d", "e"}) {
+            log.append(record);
+        }
+
+        assertEquals(Arrays.asList("c", "d", "e"), log.readAll());
+        // the file does not grow past its slots
+        assertEquals(2 * 4 + 3 * 32, file.length());
+    }
+
+    @Test
+    public void append_truncatesRecordsLongerThanSlot() throws Exception {
+        FrameMetricsLog log = new FrameMetricsLog(new File(mFolder.getRoot(), "log"), 2, 6);
+
+        log.append("abcdefgh");
+
+        assertEquals(Collections.singletonList("abcd"), log.readAll());
+    }
+
+    @Test
+    public void append_truncatesRecordsOnACharacterBoundary() throws Exception {
+        // 3 bytes for the record: "ab" and only the first of the 2 bytes of the next letter
+        FrameMetricsLog log = new FrameMetricsLog(new File(mFolder.getRoot(), "log"), 2, 5);
+
+        log.append("ab\u00e9\u00e9");
+
+        assertEquals(Collections.singletonList("ab"), log.readAll());
+    }
+
+    @Test
+    public void append_sizesTheFileForAllItsSlots() throws Exception {
+        File file = new File(mFolder.getRoot(), "log");
+        FrameMetricsLog log = new FrameMetricsLog(file, 3, 32);
+
+        log.append("a");
+
+        assertEquals(2 * 4 + 3 * 32, file.length());
+    }
+
+    @Test
+    public void readAll_afterReopening_keepsRecords() throws Exception {
+        File file = new File(mFolder.getRoot(), "log");
+        new FrameMetricsLog(file, 4, 32).append("a");
+
+        assertEquals(Collections.singletonList("a"), new FrameMetricsLog(file, 4, 32).readAll());
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import com.example.android.architecture.blueprints.todoapp.util.BenchmarkReport;
+import com.example.android.architecture.blueprints.todoapp.util.Benchmarks;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import rx.Completable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link BoundedScheduler}.
+ */
+public class BoundedSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static final int SUBSCRIBERS = 64;
+
+    // the numbers of background workers kept in the queue while measuring the interactive latency
+    private static final int[] BACKGROUND_LOADS = {0, 8, 32, 128};
+
+    private static final int LATENCY_SAMPLES = 100;
+
+    private static final long BACKGROUND_WORK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    // how much the interactive p99 may grow with the load: the background action running, and
+    // the scheduling noise of the machine
+    private static final long LATENCY_TOLERANCE_NANOS =
+            BACKGROUND_WORK_NANOS + TimeUnit.MILLISECONDS.toNanos(2);
+
+    // the lock of the single SQLite connection, held by every simulated query
+    private static final Object CONNECTION = new Object();
+
+    @Rule
+    public BenchmarkReport mReport = new BenchmarkReport();
+
+    private BoundedScheduler mScheduler;
+
+    @After
+    public void tearDown() {
+        if (mScheduler != null) {
+            mScheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void worker_runsItsActionsInOrder() throws Exception {
+        mScheduler = new BoundedScheduler("test", 4, 16, BoundedScheduler.OverflowPolicy.FAIL);
+        Scheduler.Worker worker = mScheduler.createWorker();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        for (int i = 0; i < 100; i++) {
+            int index = i;
+            worker.schedule(() -> order.add(index));
+        }
+        worker.schedule(done::countDown);
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void queuedWorkers_getTheThreadByPriorityThenInOrder() throws Exception {
+        mScheduler = new BoundedScheduler("test", 1, 16, BoundedScheduler.OverflowPolicy.FAIL);
+        CountDownLatch release = fillQueue(mScheduler);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        mScheduler.createWorker(Priority.BACKGROUND).schedule(() -> order.add("background 1"));
+        mScheduler.createWorker(Priority.BACKGROUND).schedule(() -> order.add("background 2"));
+        mScheduler.createWorker(Priority.NORMAL).schedule(() -> order.add("normal"));
+        mScheduler.createWorker(Priority.INTERACTIVE).schedule(() -> order.add("interactive"));
+        mScheduler.createWorker(Priority.BACKGROUND).schedule(done::countDown);
+        release.countDown();
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(asList("interactive", "normal", "background 1", "background 2"), order);
+    }
+
+    @Test
+    public void queuedBackgroundWorker_isOvertakenByALimitedNumberOfWorkers() throws Exception {
+        int overtaking = 2 * BoundedScheduler.AGING_STEP;
+        mScheduler = new BoundedScheduler("test", 1, overtaking + 8,
+                BoundedScheduler.OverflowPolicy.FAIL);
+        CountDownLatch release = fillQueue(mScheduler);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        // When a background worker is queued, then more interactive workers than it lets go first
+        mScheduler.createWorker(Priority.BACKGROUND).schedule(() -> order.add("background"));
+        for (int i = 0; i < overtaking + 2; i++) {
+            mScheduler.createWorker(Priority.INTERACTIVE).schedule(() -> order.add("interactive"));
+        }
+        mScheduler.createWorker(Priority.INTERACTIVE).schedule(done::countDown);
+        release.countDown();
+
+        // Then it runs once the interactive workers queued before its turn ran
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(overtaking, order.indexOf("background"));
+    }
+
+    @Test
+    public void writeWithPriority_waitsForTheQueuedReads_whateverTheSubscribingThread()
+            throws Exception {
+        mScheduler = new BoundedScheduler("test", 1, 16, BoundedScheduler.OverflowPolicy.FAIL);
+        CountDownLatch release = fillQueue(mScheduler);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Priority[] writePriority = new Priority[1];
+
+        // Given a queued interactive query
+        mScheduler.createWorker(Priority.INTERACTIVE).schedule(() -> order.add("read"));
+
+        // When a background write is subscribed from an interactive subscription
+        Completable write = Priority.INTERACTIVE.apply(Completable.fromAction(() -> {
+            writePriority[0] = Priority.current();
+            order.add("write");
+        }).subscribeOn(mScheduler.withPriority(Priority.BACKGROUND)));
+        TestSubscriber<Void> testSubscriber = new TestSubscriber<>();
+        write.subscribe(testSubscriber);
+        release.countDown();
+
+        // Then it runs in the background, after the query
+        testSubscriber.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        testSubscriber.assertCompleted();
+        assertEquals(asList("read", "write"), order);
+        assertEquals(Priority.BACKGROUND, writePriority[0]);
+    }
+
+    @Test
+    public void actions_runWithThePriorityOfTheirWorker_andTheirWorkersInheritIt()
+            throws Exception {
+        mScheduler = new BoundedScheduler("test", 1, 16, BoundedScheduler.OverflowPolicy.FAIL);
+        Priority[] priorities = new Priority[2];
+        CountDownLatch done = new CountDownLatch(1);
+
+        mScheduler.createWorker(Priority.BACKGROUND).schedule(() -> {
+            priorities[0] = Priority.current();
+            mScheduler.createWorker().schedule(() -> {
+                priorities[1] = Priority.current();
+                done.countDown();
+            });
+        });
+
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(asList(Priority.BACKGROUND, Priority.BACKGROUND), asList(priorities));
+        assertEquals(Priority.NORMAL, Priority.current());
+    }
+
+    @Test
+    public void burstOfSubscribers_neverStartsMoreThreadsThanGiven() {
+        mScheduler = new BoundedScheduler("test", 2, SUBSCRIBERS,
+                BoundedScheduler.OverflowPolicy.BLOCK);
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+
+        runConcurrentQueries(mScheduler, threads);
+
+        assertTrue(threads.size() <= 2);
+        assertEquals(2, mScheduler.getThreadCount());
+        assertEquals(0, mScheduler.getQueueLength());
+    }
+
+    @Test
+    public void fullQueue_failPolicy_emitsError() throws Exception {
+        mScheduler = new BoundedScheduler("test", 1, 1, BoundedScheduler.OverflowPolicy.FAIL);
+        CountDownLatch release = fillQueue(mScheduler);
+        TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+
+        Observable.just(1).subscribeOn(mScheduler).subscribe(testSubscriber);
+
+        testSubscriber.assertError(RejectedExecutionException.class);
+        assertEquals(1, mScheduler.getOverflowCount());
+        release.countDown();
+    }
+
+    @Test
+    public void fullQueue_callerRunsPolicy_runsOnTheCaller() throws Exception {
+        mScheduler = new BoundedScheduler("test", 1, 1,
+                BoundedScheduler.OverflowPolicy.CALLER_RUNS);
+        CountDownLatch release = fillQueue(mScheduler);
+        Thread[] ranOn = new Thread[1];
+
+        mScheduler.createWorker().schedule(() -> ranOn[0] = Thread.currentThread());
+
+        assertSame(Thread.currentThread(), ranOn[0]);
+        assertEquals(1, mScheduler.getOverflowCount());
+        release.countDown();
+    }
+
+    @Test
+    public void fullQueue_blockPolicy_blocksTheCallerUntilThereIsRoom() throws Exception {
+        mScheduler = new BoundedScheduler("test", 1, 1, BoundedScheduler.OverflowPolicy.BLOCK);
+        CountDownLatch release = fillQueue(mScheduler);
+        AtomicBoolean scheduled = new AtomicBoolean();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        // When another thread schedules an action while the queue is full
+        Thread caller = new Thread(() -> {
+            mScheduler.createWorker().schedule(ran::countDown);
+            scheduled.set(true);
+        });
+        caller.start();
+        while (mScheduler.getOverflowCount() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+
+        // Then it waits until the queued action got a thread
+        assertFalse(scheduled.get());
+        release.countDown();
+        assertTrue(ran.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertTrue(scheduled.get());
+        assertTrue(mScheduler.getBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    public void fullQueue_blockPolicy_fromAThreadOfTheScheduler_runsOnTheCaller()
+            throws Exception {
+        mScheduler = new BoundedScheduler("test", 1, 1, BoundedScheduler.OverflowPolicy.BLOCK);
+        Thread[] threads = new Thread[2];
+        CountDownLatch done = new CountDownLatch(1);
+
+        // When an action of the scheduler fills the queue and schedules more work
+        mScheduler.createWorker().schedule(() -> {
+            threads[0] = Thread.currentThread();
+            mScheduler.createWorker().schedule(done::countDown);
+            mScheduler.createWorker().schedule(() -> threads[1] = Thread.currentThread());
+        });
+
+        // Then the work runs on its thread instead of waiting for itself
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(threads[0], threads[1]);
+        assertEquals(1, mScheduler.getOverflowCount());
+        assertEquals(0, mScheduler.getBlockedNanos());
+    }
+
+    @Test
+    public void benchmark_concurrentSubscribersOnASingleConnection() {
+        Benchmarks.assumeEnabled();
+        // the io scheduler starts a thread per subscriber, all of them waiting on the connection
+        Set<String> ioThreads = Collections.synchronizedSet(new HashSet<>());
+        long ioNanos = runConcurrentQueries(Schedulers.io(), ioThreads);
+
+        // the database scheduler keeps the subscribers in its queue
+        mScheduler = new BoundedScheduler("database", 1, SUBSCRIBERS,
+                BoundedScheduler.OverflowPolicy.BLOCK);
+        Set<String> databaseThreads = Collections.synchronizedSet(new HashSet<>());
+        long databaseNanos = runConcurrentQueries(mScheduler, databaseThreads);
+
+        // a single connection serializes the queries either way, the times are only reported
+        mReport.add("%d subscribers", SUBSCRIBERS);
+        mReport.add("io:       %2d threads, %4d ms", ioThreads.size(), ioNanos / 1000000);
+        mReport.add("database: %2d threads, %4d ms, peak queue %d, overflows %d, blocked %d ms",
+                databaseThreads.size(), databaseNanos / 1000000,
+                mScheduler.getPeakQueueLength(), mScheduler.getOverflowCount(),
+                mScheduler.getBlockedNanos() / 1000000);
+
+        // the subscribers waited in the bounded queue instead of on threads of their own
+        assertEquals(1, databaseThreads.size());
+        assertEquals(1, mScheduler.getThreadCount());
+        int peakQueueLength = mScheduler.getPeakQueueLength();
+        assertTrue("peak queue " + peakQueueLength,
+                peakQueueLength > 0 && peakQueueLength <= SUBSCRIBERS);
+        assertEquals(0, mScheduler.getOverflowCount());
+        assertEquals(0, mScheduler.getBlockedNanos());
+    }
+
+    @Test
+    public void benchmark_interactiveLatencyUnderBackgroundLoad() throws Exception {
+        Benchmarks.assumeEnabled();
+        long[] prioritizedP99 = new long[BACKGROUND_LOADS.length];
+        for (int i = 0; i < BACKGROUND_LOADS.length; i++) {
+            int load = BACKGROUND_LOADS[i];
+            prioritizedP99[i] =
+                    interactiveLatencyP99(load, Priority.INTERACTIVE, Priority.BACKGROUND);
+            long unprioritizedP99 = interactiveLatencyP99(load, Priority.NORMAL, Priority.NORMAL);
+            mReport.add("%3d background workers: interactive p99 %6d us, "
+                            + "without priorities %6d us",
+                    load, prioritizedP99[i] / 1000, unprioritizedP99 / 1000);
+        }
+
+        // the interactive work waits for the background action running, not for the queue, so
+        // its latency doesn't grow with the load
+        for (int i = 1; i < BACKGROUND_LOADS.length; i++) {
+            assertTrue(String.format(Locale.US,
+                    "interactive p99 %d us with %d background workers, %d us without",
+                    prioritizedP99[i] / 1000, BACKGROUND_LOADS[i], prioritizedP99[0] / 1000),
+                    prioritizedP99[i] <= prioritizedP99[0] + LATENCY_TOLERANCE_NANOS);
+        }
+    }
+
+    /**
+     * Keeps the queue of a single thread full with the given number of background workers, and
+     * measures how long {@link #LATENCY_SAMPLES} interactive actions wait for the thread, one at a
+     * time.
+     *
+     * @return the 99th percentile of the waits, in nanoseconds.
+     */
+    private static long interactiveLatencyP99(int load, Priority interactive,
+                                              Priority background) throws Exception {
+        BoundedScheduler scheduler = new BoundedScheduler("benchmark", 1, load + 1,
+                BoundedScheduler.OverflowPolicy.BLOCK);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Action0 backgroundWork = new Action0() {
+            @Override
+            public void call() {
+                long end = System.nanoTime() + BACKGROUND_WORK_NANOS;
+                while (System.nanoTime() < end) {
+                    // busy, like a query
+                }
+                if (!stopped.get()) {
+                    // the new worker inherits the priority of this one
+                    scheduler.createWorker().schedule(this);
+                }
+            }
+        };
+        for (int i = 0; i < load; i++) {
+            scheduler.createWorker(background).schedule(backgroundWork);
+        }
+
+        long[] latencies = new long[LATENCY_SAMPLES];
+        for (int i = 0; i < LATENCY_SAMPLES; i++) {
+            int sample = i;
+            CountDownLatch ran = new CountDownLatch(1);
+            long scheduled = System.nanoTime();
+            scheduler.createWorker(interactive).schedule(() -> {
+                latencies[sample] = System.nanoTime() - scheduled;
+                ran.countDown();
+            });
+            assertTrue(ran.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        stopped.set(true);
+        scheduler.shutdown();
+
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(LATENCY_SAMPLES * 0.99) - 1];
+    }
+
+    /**
+     * Subscribes {@link #SUBSCRIBERS} simulated queries at once on the scheduler, adding the names
+     * of the threads running them to the set, and waits for all of them.
+     *
+     * @return the time it took, in nanoseconds.
+     */
+    private static long runConcurrentQueries(Scheduler scheduler, Set<String> threads) {
+        List<Completable> queries = new ArrayList<>(SUBSCRIBERS);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            queries.add(Completable.fromAction(() -> {
+                threads.add(Thread.currentThread().getName());
+                simulateQuery();
+            }).subscribeOn(scheduler));
+        }
+        long start = System.nanoTime();
+        assertTrue(Completable.merge(queries).await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return System.nanoTime() - start;
+    }
+
+    private static void simulateQuery() {
+        synchronized (CONNECTION) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Keeps the only thread of the scheduler busy and fills its queue of capacity 1.
+     *
+     * @return the latch releasing the thread.
+     */
+    private static CountDownLatch fillQueue(BoundedScheduler scheduler) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.createWorker().schedule(() -> {
+            started.countDown();
+            try {
+                release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        scheduler.createWorker().schedule(() -> {
+        });
+        assertEquals(1, scheduler.getQueueLength());
+        return release;
+    }
+}
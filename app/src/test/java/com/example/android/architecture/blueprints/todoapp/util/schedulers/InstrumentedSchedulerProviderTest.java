@@ -0,0 +1,229 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Ticker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Completable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import static com.example.android.architecture.blueprints.todoapp.util.schedulers.InstrumentedSchedulerProvider.IO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link InstrumentedSchedulerProvider}, on a fake clock.
+ */
+public class InstrumentedSchedulerProviderTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private FakeTicker mTicker;
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mTicker = new FakeTicker();
+    }
+
+    @After
+    public void tearDown() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void immediate_recordsPoolAndTask() {
+        InstrumentedSchedulerProvider provider =
+                new InstrumentedSchedulerProvider(new ImmediateSchedulerProvider(), mTicker);
+
+        // When some work runs as a task on the io scheduler
+        Completable.fromAction(() -> mTicker.advance(STEP_NANOS))
+                .subscribeOn(provider.forTask("load").io())
+                .await();
+
+        // Then it is recorded for the pool and for the task as soon as it completes
+        for (SchedulerStats stats : new SchedulerStats[]{
+                provider.getMetrics().getStats(IO, null),
+                provider.getMetrics().getStats(IO, "load")}) {
+            assertEquals(1, stats.getExecutedCount());
+            assertEquals(STEP_NANOS, stats.getMaxExecutionNanos());
+            assertEquals(0, stats.getMaxQueueWaitNanos());
+            assertEquals(0, stats.getInFlightCount());
+            assertEquals(1, stats.getPeakThreadCount());
+        }
+    }
+
+    @Test
+    public void immediate_nestedActions_countOneThread() {
+        InstrumentedSchedulerProvider provider =
+                new InstrumentedSchedulerProvider(new ImmediateSchedulerProvider(), mTicker);
+
+        // When an action runs another one inline on the same thread
+        Completable.complete()
+                .subscribeOn(provider.io())
+                .subscribeOn(provider.io())
+                .await();
+
+        // Then both are executed by a single thread
+        SchedulerStats stats = provider.getMetrics().getStats(IO, null);
+        assertEquals(2, stats.getExecutedCount());
+        assertEquals(1, stats.getPeakThreadCount());
+    }
+
+    @Test
+    public void busyThread_queueWaitIsRecorded() throws Exception {
+        // Given a single thread busy for one step
+        mExecutor = Executors.newSingleThreadExecutor();
+        InstrumentedSchedulerProvider provider = new InstrumentedSchedulerProvider(
+                new SingleSchedulerProvider(Schedulers.from(mExecutor)), mTicker);
+        Scheduler.Worker worker = provider.io().createWorker();
+        CountDownLatch release = new CountDownLatch(1);
+        worker.schedule(() -> {
+            await(release);
+            mTicker.advance(STEP_NANOS);
+        });
+
+        // When another action is due meanwhile
+        worker.schedule(() -> {
+        });
+        release.countDown();
+        awaitTermination();
+
+        // Then it waited for the step
+        SchedulerStats stats = provider.getMetrics().getStats(IO, null);
+        assertEquals(2, stats.getExecutedCount());
+        assertEquals(STEP_NANOS, stats.getMaxQueueWaitNanos());
+        assertEquals(STEP_NANOS / 2, stats.getAverageQueueWaitNanos());
+    }
+
+    @Test
+    public void concurrentActions_inFlightAndPeakThreadsAreRecorded() throws Exception {
+        // Given two threads running an action each
+        mExecutor = Executors.newFixedThreadPool(2);
+        InstrumentedSchedulerProvider provider = new InstrumentedSchedulerProvider(
+                new SingleSchedulerProvider(Schedulers.from(mExecutor)), mTicker);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            provider.io().createWorker().schedule(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // Then both are in flight
+        assertEquals(2, provider.getMetrics().getStats(IO, null).getInFlightCount());
+
+        // And after they finished, none is in flight and both threads were used at once
+        release.countDown();
+        awaitTermination();
+        SchedulerStats stats = provider.getMetrics().getStats(IO, null);
+        assertEquals(0, stats.getInFlightCount());
+        assertEquals(2, stats.getPeakThreadCount());
+    }
+
+    @Test
+    public void snapshot_listsPoolsBeforeTheirTasks() {
+        InstrumentedSchedulerProvider provider =
+                new InstrumentedSchedulerProvider(new ImmediateSchedulerProvider(), mTicker);
+        provider.forTask("b");
+        provider.forTask("a");
+
+        List<SchedulerStats> snapshot = provider.getMetrics().snapshot();
+
+        // the four pools, each with its two tasks
+        assertEquals(12, snapshot.size());
+        assertEquals(InstrumentedSchedulerProvider.COMPUTATION, snapshot.get(0).getPool());
+        assertNull(snapshot.get(0).getTask());
+        assertEquals("a", snapshot.get(1).getTask());
+        assertEquals("b", snapshot.get(2).getTask());
+        assertEquals(InstrumentedSchedulerProvider.DATABASE, snapshot.get(3).getPool());
+        assertEquals(IO, snapshot.get(6).getPool());
+    }
+
+    private void awaitTermination() throws InterruptedException {
+        mExecutor.shutdown();
+        assertTrue(mExecutor.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class FakeTicker extends Ticker {
+
+        private final AtomicLong mNanos = new AtomicLong();
+
+        void advance(long nanos) {
+            mNanos.addAndGet(nanos);
+        }
+
+        @Override
+        public long read() {
+            return mNanos.get();
+        }
+    }
+
+    private static final class SingleSchedulerProvider implements BaseSchedulerProvider {
+
+        @NonNull
+        private final Scheduler mScheduler;
+
+        SingleSchedulerProvider(@NonNull Scheduler scheduler) {
+            mScheduler = scheduler;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler computation() {
+            return mScheduler;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler io() {
+            return mScheduler;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler database() {
+            return mScheduler;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler database(@NonNull Priority priority) {
+            return mScheduler;
+        }
+
+        @NonNull
+        @Override
+        public Scheduler ui() {
+            return mScheduler;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.architecture.blueprints.todoapp.util.schedulers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Completable;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link Priority}.
+ */
+public class PriorityTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private BoundedScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new BoundedScheduler("test", 1, 16, BoundedScheduler.OverflowPolicy.FAIL);
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdown();
+    }
+
+    @Test
+    public void applyObservable_subscribesOnTheSchedulerWithThePriority() {
+        TestSubscriber<Priority> testSubscriber = new TestSubscriber<>();
+
+        Priority.INTERACTIVE.apply(Observable.fromCallable(Priority::current)
+                .subscribeOn(mScheduler))
+                .subscribe(testSubscriber);
+
+        testSubscriber.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        testSubscriber.assertValue(Priority.INTERACTIVE);
+        assertEquals(Priority.NORMAL, Priority.current());
+    }
+
+    @Test
+    public void applyCompletable_subscribesOnTheSchedulerWithThePriority() {
+        Priority[] priority = new Priority[1];
+
+        boolean completed = Priority.BACKGROUND.apply(Completable.fromAction(
+                () -> priority[0] = Priority.current())
+                .subscribeOn(mScheduler))
+                .await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertTrue(completed);
+        assertEquals(Priority.BACKGROUND, priority[0]);
+        assertEquals(Priority.NORMAL, Priority.current());
+    }
+}